@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.AbstractBindingSet;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.SimpleBinding;
+
+/**
+ * An implementation of the {@link BindingSet} interface that stores the value of each variable in an array, at the
+ * slot that the {@link VariableSlots} of the query assign to the variable. A binding set that is created from a
+ * binding set with the same slots shares the array of its parent until either of them is modified, so that extending a
+ * solution with a few bindings only copies a small array and does not hash any variable names.
+ * <p>
+ * Like the {@link QueryBindingSet}, a variable can be bound to <tt>null</tt> to denote that it must remain unbound. Such
+ * a variable is part of the binding names, but not of the bindings of this binding set.
+ */
+public class ArrayBindingSet extends AbstractBindingSet {
+
+	private static final long serialVersionUID = -1538960393869573545L;
+
+	/**
+	 * Placeholder for variables that are bound to <tt>null</tt>.
+	 */
+	private static final Value NULL_VALUE = new Value() {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String stringValue() {
+			return "";
+		}
+	};
+
+	private static final Value[] EMPTY = new Value[0];
+
+	private final transient VariableSlots slots;
+
+	private transient Value[] values;
+
+	/**
+	 * Whether the array of values may be shared with another binding set, and must be copied before it is modified.
+	 */
+	private transient boolean shared;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public ArrayBindingSet(VariableSlots slots) {
+		this.slots = slots;
+		this.values = slots.size() == 0 ? EMPTY : new Value[slots.size()];
+	}
+
+	/**
+	 * Creates a binding set with the bindings of the supplied binding set. If it is an {@link ArrayBindingSet} with the
+	 * same slots, its values are only copied once either binding set is modified.
+	 */
+	public ArrayBindingSet(VariableSlots slots, BindingSet bindingSet) {
+		this.slots = slots;
+		if (bindingSet instanceof ArrayBindingSet && ((ArrayBindingSet) bindingSet).slots == slots) {
+			ArrayBindingSet parent = (ArrayBindingSet) bindingSet;
+			this.values = parent.values;
+			this.shared = true;
+			parent.shared = true;
+		} else {
+			this.values = slots.size() == 0 ? EMPTY : new Value[slots.size()];
+			addAll(bindingSet);
+		}
+	}
+
+	/**
+	 * Creates a binding set with the bindings of the supplied binding set, using its slots if it is an
+	 * {@link ArrayBindingSet}.
+	 */
+	public ArrayBindingSet(BindingSet bindingSet) {
+		this(getSlots(bindingSet), bindingSet);
+	}
+
+	private static VariableSlots getSlots(BindingSet bindingSet) {
+		if (bindingSet instanceof ArrayBindingSet) {
+			return ((ArrayBindingSet) bindingSet).slots;
+		}
+		return new VariableSlots(bindingSet.getBindingNames());
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	public VariableSlots getSlots() {
+		return slots;
+	}
+
+	public void addAll(BindingSet bindingSet) {
+		if (bindingSet instanceof ArrayBindingSet && ((ArrayBindingSet) bindingSet).slots == slots) {
+			Value[] source = ((ArrayBindingSet) bindingSet).values;
+			for (int slot = 0; slot < source.length; slot++) {
+				if (source[slot] != null) {
+					set(slot, source[slot]);
+				}
+			}
+		} else {
+			for (String name : bindingSet.getBindingNames()) {
+				setBinding(name, bindingSet.getValue(name));
+			}
+		}
+	}
+
+	/**
+	 * Adds a new binding to the binding set. The binding's name must not already be part of this binding set.
+	 *
+	 * @param binding The binding to add this this BindingSet.
+	 */
+	public void addBinding(Binding binding) {
+		addBinding(binding.getName(), binding.getValue());
+	}
+
+	/**
+	 * Adds a new binding to the binding set. The binding's name must not already be part of this binding set.
+	 *
+	 * @param name  The binding's name, must not be bound in this binding set already.
+	 * @param value The binding's value.
+	 */
+	public void addBinding(String name, Value value) {
+		assert !hasBinding(name) : "variable already bound: " + name;
+		setBinding(name, value);
+	}
+
+	public void setBinding(Binding binding) {
+		setBinding(binding.getName(), binding.getValue());
+	}
+
+	public void setBinding(String name, Value value) {
+		setValue(slots.getSlot(name), value);
+	}
+
+	/**
+	 * Binds the variable at the supplied slot of the {@link VariableSlots} of this binding set.
+	 */
+	public void setValue(int slot, Value value) {
+		set(slot, value == null ? NULL_VALUE : value);
+	}
+
+	public void removeBinding(String name) {
+		int slot = slots.indexOf(name);
+		if (slot >= 0 && slot < values.length && values[slot] != null) {
+			set(slot, null);
+		}
+	}
+
+	public void removeAll(Collection<String> bindingNames) {
+		for (String name : bindingNames) {
+			removeBinding(name);
+		}
+	}
+
+	public void retainAll(Collection<String> bindingNames) {
+		for (int slot = 0; slot < values.length; slot++) {
+			if (values[slot] != null && !bindingNames.contains(slots.getName(slot))) {
+				set(slot, null);
+			}
+		}
+	}
+
+	/**
+	 * Gets the value of the variable at the supplied slot of the {@link VariableSlots} of this binding set.
+	 *
+	 * @return the value, or <tt>null</tt> if the variable is unbound.
+	 */
+	public Value getValue(int slot) {
+		if (slot < 0 || slot >= values.length) {
+			return null;
+		}
+		Value value = values[slot];
+		return value == NULL_VALUE ? null : value;
+	}
+
+	/**
+	 * Checks whether the variable at the supplied slot of the {@link VariableSlots} of this binding set is part of the
+	 * binding names of this binding set.
+	 */
+	public boolean hasBinding(int slot) {
+		return slot >= 0 && slot < values.length && values[slot] != null;
+	}
+
+	@Override
+	public Value getValue(String bindingName) {
+		return getValue(slots.indexOf(bindingName));
+	}
+
+	@Override
+	public Binding getBinding(String bindingName) {
+		Value value = getValue(bindingName);
+
+		if (value != null) {
+			return new SimpleBinding(bindingName, value);
+		}
+
+		return null;
+	}
+
+	@Override
+	public boolean hasBinding(String bindingName) {
+		return hasBinding(slots.indexOf(bindingName));
+	}
+
+	@Override
+	public Set<String> getBindingNames() {
+		return new AbstractSet<String>() {
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String && hasBinding((String) o);
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return new SlotIterator<String>(false) {
+
+					@Override
+					protected String get(int slot) {
+						return slots.getName(slot);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return ArrayBindingSet.this.size();
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Binding> iterator() {
+		return new SlotIterator<Binding>(true) {
+
+			@Override
+			protected Binding get(int slot) {
+				return new SimpleBinding(slots.getName(slot), values[slot]);
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Value value : values) {
+			if (value != null) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	private void set(int slot, Value value) {
+		if (shared || slot >= values.length) {
+			int length = Math.max(values.length, slot + 1);
+			values = Arrays.copyOf(values, Math.max(length, slots.size()));
+			shared = false;
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * Replaces this binding set by a {@link QueryBindingSet} when it is serialized, as the slots are specific to the
+	 * evaluation of a query.
+	 */
+	private Object writeReplace() {
+		QueryBindingSet result = new QueryBindingSet(size());
+		for (int slot = 0; slot < values.length; slot++) {
+			if (values[slot] != null) {
+				result.setBinding(slots.getName(slot), getValue(slot));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Iterates over the slots of the bound variables.
+	 */
+	private abstract class SlotIterator<E> implements Iterator<E> {
+
+		private final boolean skipNullValues;
+
+		private int next = -1;
+
+		SlotIterator(boolean skipNullValues) {
+			this.skipNullValues = skipNullValues;
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < values.length;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E result = get(next);
+			advance();
+			return result;
+		}
+
+		protected abstract E get(int slot);
+
+		private void advance() {
+			do {
+				next++;
+			} while (next < values.length
+					&& (values[next] == null || skipNullValues && values[next] == NULL_VALUE));
+		}
+	}
+}
@@ -81,4 +81,16 @@ public interface EvaluationStrategy extends FederatedServiceResolver {
 	 */
 	public boolean isTrue(ValueExpr expr, BindingSet bindings)
 			throws ValueExprEvaluationException, QueryEvaluationException;
+
+	/**
+	 * Prepares a value expression for evaluation against many binding sets. Operators that evaluate the same
+	 * expression for each solution should prepare it once, so that the work that does not depend on the bindings is
+	 * not repeated.
+	 * 
+	 * @param expr The Value Expression to prepare.
+	 * @return A step that evaluates the expression in the same way as {@link #evaluate(ValueExpr, BindingSet)}.
+	 */
+	default QueryValueEvaluationStep precompile(ValueExpr expr) throws QueryEvaluationException {
+		return bindings -> evaluate(expr, bindings);
+	}
 }
@@ -31,6 +31,26 @@ public interface EvaluationStrategyFactory {
 	 */
 	long getQuerySolutionCacheThreshold();
 
+	/**
+	 * Set the estimated number of bytes that the operators of a single query may keep in main memory before they write
+	 * query solutions to a temporary disk cache. If set to 0, memory is not accounted for. EvaluationStrategies that
+	 * do not account for memory are free to ignore this parameter.
+	 *
+	 * @param budget the number of bytes that a query can use for the solutions that it keeps in main memory.
+	 * @see QueryMemoryManager
+	 */
+	default void setQueryMemoryBudget(long budget) {
+		// memory is not accounted for by default
+	}
+
+	/**
+	 * Get the estimated number of bytes that the operators of a single query may keep in main memory before they write
+	 * query solutions to a temporary disk cache, or 0 if memory is not accounted for.
+	 */
+	default long getQueryMemoryBudget() {
+		return 0;
+	}
+
 	/**
 	 * Returns the {@link EvaluationStrategy} to use to evaluate queries for the given {@link Dataset} and
 	 * {@link TripleSource}.
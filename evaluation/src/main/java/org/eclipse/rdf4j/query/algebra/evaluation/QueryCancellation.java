@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+
+/**
+ * Signals that the evaluation of a query should stop, because it has been cancelled or because its deadline has
+ * passed. A cancellation is made available to the operators of a query through its {@link QueryContext}. Blocking
+ * operators, such as ORDER BY, GROUP BY and the build side of hash joins, and the scans of the store call
+ * {@link #check()} while they read their input, so that a query stops soon after it has been cancelled instead of
+ * when it produces its next solution.
+ * <p>
+ * A cancellation is shared by all operators of a single query evaluation, which may run in several threads.
+ */
+public class QueryCancellation {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	/**
+	 * The value of {@link System#nanoTime()} at which the query times out, if {@link #hasDeadline()}.
+	 */
+	private final long deadline;
+
+	private final boolean hasDeadline;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private volatile String reason;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * Creates a cancellation without a deadline.
+	 */
+	public QueryCancellation() {
+		this(0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param timeout the time after which the query times out, or 0 for no deadline.
+	 * @param unit    the unit of the timeout.
+	 */
+	public QueryCancellation(long timeout, TimeUnit unit) {
+		this.hasDeadline = timeout > 0;
+		this.deadline = hasDeadline ? System.nanoTime() + unit.toNanos(timeout) : 0;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	/**
+	 * Gets the cancellation of the query that is evaluated by the current thread.
+	 *
+	 * @return the cancellation, or <tt>null</tt> if the query cannot be cancelled.
+	 */
+	public static QueryCancellation getCurrent() {
+		QueryContext queryContext = QueryContext.getQueryContext();
+		return queryContext == null ? null : queryContext.getCancellation();
+	}
+
+	/**
+	 * Cancels the query. Its operators throw a {@link QueryInterruptedException} the next time that they check the
+	 * cancellation. Cancelling a query that has already been cancelled or has timed out has no effect.
+	 */
+	public void cancel() {
+		if (reason == null) {
+			reason = "query evaluation was cancelled";
+		}
+	}
+
+	/**
+	 * Determines whether the query has been cancelled or its deadline has passed.
+	 */
+	public boolean isCancelled() {
+		if (reason != null) {
+			return true;
+		} else if (hasDeadline && System.nanoTime() - deadline >= 0) {
+			reason = "execution took too long";
+			return true;
+		}
+		return false;
+	}
+
+	public boolean hasDeadline() {
+		return hasDeadline;
+	}
+
+	/**
+	 * Gets the time that is left until the deadline of the query.
+	 *
+	 * @return the remaining time, which is negative if the deadline has passed, or {@link Long#MAX_VALUE} if the query
+	 *         has no deadline.
+	 */
+	public long getRemainingTime(TimeUnit unit) {
+		if (!hasDeadline) {
+			return Long.MAX_VALUE;
+		}
+		return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Checks whether the query should stop.
+	 *
+	 * @throws QueryInterruptedException if the query has been cancelled or its deadline has passed.
+	 */
+	public void check() throws QueryInterruptedException {
+		if (isCancelled()) {
+			throw new QueryInterruptedException(reason);
+		}
+	}
+}
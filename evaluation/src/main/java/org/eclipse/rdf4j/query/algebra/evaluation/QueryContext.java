@@ -17,7 +17,9 @@ import java.util.Map;
  * {@link org.eclipse.rdf4j.sail.SailConnection.evaluate()} is responsible for initialising a QueryContext and making it
  * available during evaluation via {@link org.eclipse.rdf4j.query.algebra.evaluation.iterator.QueryContextIteration}. A
  * QueryContext is commonly used to provide a {@link QueryPreparer} for the current SailConnection. This allows, for
- * example, Functions to be written that conveniently express more complex queries.
+ * example, Functions to be written that conveniently express more complex queries. A QueryContext also carries the
+ * {@link QueryCancellation} of the query, which its operators check to stop a query that has been cancelled or has
+ * timed out.
  */
 public class QueryContext {
 
@@ -31,7 +33,13 @@ public class QueryContext {
 
 	private final Map<String, Object> attributes = new HashMap<>();
 
-	private QueryContext previous;
+	private volatile QueryCancellation cancellation;
+
+	/**
+	 * The context that was active before this context was begun, per thread, as a context may be active on several
+	 * threads when a query is evaluated in parallel.
+	 */
+	private final ThreadLocal<QueryContext> previous = new ThreadLocal<>();
 
 	public QueryContext() {
 	}
@@ -41,7 +49,7 @@ public class QueryContext {
 	}
 
 	public void begin() {
-		this.previous = queryContext.get();
+		previous.set(queryContext.get());
 		queryContext.set(this);
 	}
 
@@ -49,6 +57,27 @@ public class QueryContext {
 		return getAttribute(QUERY_PREPARER_ATTRIBUTE);
 	}
 
+	/**
+	 * Gets the cancellation of the query. A context without a cancellation uses that of the context that was active
+	 * before it was begun, so that nested contexts can be cancelled with the query that contains them.
+	 *
+	 * @return the cancellation, or <tt>null</tt> if the query cannot be cancelled.
+	 */
+	public QueryCancellation getCancellation() {
+		QueryCancellation result = cancellation;
+		if (result == null) {
+			QueryContext previousContext = previous.get();
+			if (previousContext != null) {
+				result = previousContext.getCancellation();
+			}
+		}
+		return result;
+	}
+
+	public void setCancellation(QueryCancellation cancellation) {
+		this.cancellation = cancellation;
+	}
+
 	public void setAttribute(String name, Object value) {
 		attributes.put(name, value);
 	}
@@ -58,9 +87,11 @@ public class QueryContext {
 	}
 
 	public void end() {
+		QueryContext previousContext = previous.get();
+		previous.remove();
 		queryContext.remove();
-		if (previous != null) {
-			queryContext.set(previous);
+		if (previousContext != null) {
+			queryContext.set(previousContext);
 		}
 	}
 }
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+
+/**
+ * Accounts for the memory that the blocking operators of a query, such as DISTINCT, ORDER BY, GROUP BY, MINUS and
+ * hash joins, use for the solutions that they keep. An operator reserves the estimated size of a solution before it
+ * keeps it. If the reservation would exceed the budget of the query, the operator writes the solutions that it keeps
+ * to disk instead and releases the memory that it reserved, so that queries over large intermediate results finish
+ * instead of running out of memory.
+ * <p>
+ * A manager is shared by all operators of a single query evaluation, which may run in several threads.
+ */
+public class QueryMemoryManager {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	/**
+	 * The estimated size of a solution without its bindings, including the collection that keeps it.
+	 */
+	private static final long SOLUTION_SIZE = 48;
+
+	/**
+	 * The estimated size of a binding without its value.
+	 */
+	private static final long BINDING_SIZE = 32;
+
+	/**
+	 * The estimated size of a value without the characters of its string value.
+	 */
+	private static final long VALUE_SIZE = 40;
+
+	/**
+	 * The estimated size of the label and the language tag of a literal without their characters.
+	 */
+	private static final long LITERAL_SIZE = 32;
+
+	private final long budget;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final AtomicLong used = new AtomicLong();
+
+	private final LongAdder spillCount = new LongAdder();
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * @param budget the number of bytes that the operators of the query may use before they write to disk.
+	 */
+	public QueryMemoryManager(long budget) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("budget must be positive: " + budget);
+		}
+		this.budget = budget;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Gets the estimated number of bytes that are currently reserved by the operators of the query.
+	 */
+	public long getUsedMemory() {
+		return used.get();
+	}
+
+	/**
+	 * Gets the number of times that an operator wrote solutions to disk because the budget was exceeded.
+	 */
+	public long getSpillCount() {
+		return spillCount.sum();
+	}
+
+	/**
+	 * Creates an account with which an operator reserves memory.
+	 */
+	public Account createAccount() {
+		return new Account();
+	}
+
+	/**
+	 * Estimates the number of bytes that a solution occupies in memory.
+	 */
+	public static long estimateSize(BindingSet bindings) {
+		long size = SOLUTION_SIZE;
+		for (Binding binding : bindings) {
+			size += BINDING_SIZE + estimateSize(binding.getValue());
+		}
+		return size;
+	}
+
+	/**
+	 * Estimates the number of bytes that a value occupies in memory.
+	 */
+	public static long estimateSize(Value value) {
+		if (value == null) {
+			return 0;
+		}
+		long size = VALUE_SIZE + 2L * value.stringValue().length();
+		if (value instanceof Literal) {
+			size += LITERAL_SIZE + 2L * ((Literal) value).getLanguage().map(String::length).orElse(0);
+		}
+		return size;
+	}
+
+	/**
+	 * The memory that is reserved by a single operator, which is used by one thread at a time.
+	 */
+	public class Account {
+
+		private long reserved;
+
+		/**
+		 * Reserves memory for the operator, unless this would exceed the budget of the query.
+		 *
+		 * @return <tt>true</tt> if the memory was reserved, or <tt>false</tt> if the operator should write its
+		 *         solutions to disk.
+		 */
+		public boolean reserve(long bytes) {
+			long current;
+			do {
+				current = used.get();
+				if (current + bytes > budget) {
+					return false;
+				}
+			} while (!used.compareAndSet(current, current + bytes));
+			reserved += bytes;
+			return true;
+		}
+
+		/**
+		 * Reserves memory for a solution that the operator keeps.
+		 *
+		 * @see #reserve(long)
+		 */
+		public boolean reserve(BindingSet bindings) {
+			return reserve(estimateSize(bindings));
+		}
+
+		/**
+		 * Gets the number of bytes that are reserved by the operator.
+		 */
+		public long getReserved() {
+			return reserved;
+		}
+
+		/**
+		 * Records that the operator started to write solutions to disk, as a reservation failed.
+		 */
+		public void spilled() {
+			spillCount.increment();
+		}
+
+		/**
+		 * Releases all memory that is reserved by the operator.
+		 */
+		public void release() {
+			if (reserved != 0) {
+				used.addAndGet(-reserved);
+				reserved = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.ProfilingIteration;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+/**
+ * The runtime statistics of the operators of an evaluated query plan: how often each operator was evaluated, how many
+ * solutions it produced, how long that took and how many solutions were estimated when the plan was optimized. The
+ * statistics are collected while the solutions of the query are consumed, so they are only complete once the query
+ * result has been read to its end.
+ * <p>
+ * The times of an operator include the times of the operators that it evaluates.
+ *
+ * @see QueryProfiler
+ */
+public class QueryProfile {
+
+	private final TupleExpr plan;
+
+	/**
+	 * The statistics of the operators of the plan, by identity, as operators with the same structure may occur more
+	 * than once.
+	 */
+	private final Map<QueryModelNode, OperatorProfile> operators = new IdentityHashMap<>();
+
+	/**
+	 * Creates a profile for the supplied query plan.
+	 *
+	 * @param plan       the optimized query plan that is about to be evaluated.
+	 * @param statistics the statistics with which the cardinalities of the operators are estimated, or <tt>null</tt>
+	 *                   if they are not estimated.
+	 */
+	public QueryProfile(TupleExpr plan, EvaluationStatistics statistics) {
+		this.plan = plan;
+		plan.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			protected void meetNode(QueryModelNode node) {
+				if (node instanceof TupleExpr) {
+					double estimate = statistics == null ? Double.NaN
+							: statistics.getCardinality((TupleExpr) node);
+					operators.put(node, new OperatorProfile(estimate));
+				}
+				super.meetNode(node);
+			}
+		});
+	}
+
+	/**
+	 * Gets the plan that was evaluated.
+	 */
+	public TupleExpr getPlan() {
+		return plan;
+	}
+
+	/**
+	 * Gets the statistics of an operator of the plan.
+	 *
+	 * @return the statistics, or <tt>null</tt> if the node is not an operator of the plan.
+	 */
+	public OperatorProfile getOperatorProfile(QueryModelNode node) {
+		return operators.get(node);
+	}
+
+	/**
+	 * Evaluates an operator of the plan, recording its statistics.
+	 *
+	 * @param expr      the operator.
+	 * @param evaluator evaluates the operator.
+	 */
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(TupleExpr expr,
+			Evaluator evaluator) throws QueryEvaluationException {
+		OperatorProfile operator = operators.get(expr);
+		if (operator == null) {
+			// created during evaluation
+			return evaluator.evaluate();
+		}
+		long start = System.nanoTime();
+		try {
+			return new ProfilingIteration(evaluator.evaluate(), operator);
+		} finally {
+			operator.evaluationCount.increment();
+			operator.openTime.add(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Gets the plan with the statistics of each operator.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(256);
+		plan.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			private int depth;
+
+			@Override
+			protected void meetNode(QueryModelNode node) {
+				for (int i = 0; i < depth; i++) {
+					sb.append("   ");
+				}
+				sb.append(node.getSignature());
+				OperatorProfile operator = operators.get(node);
+				if (operator != null) {
+					sb.append(' ').append(operator);
+				}
+				sb.append(System.lineSeparator());
+
+				depth++;
+				super.meetNode(node);
+				depth--;
+			}
+		});
+		return sb.toString();
+	}
+
+	/**
+	 * Evaluates an operator.
+	 */
+	@FunctionalInterface
+	public interface Evaluator {
+
+		CloseableIteration<BindingSet, QueryEvaluationException> evaluate() throws QueryEvaluationException;
+	}
+
+	/**
+	 * The runtime statistics of an operator, which may be updated by several threads.
+	 */
+	public static class OperatorProfile {
+
+		private final double estimatedCardinality;
+
+		private final LongAdder evaluationCount = new LongAdder();
+
+		private final LongAdder resultCount = new LongAdder();
+
+		private final LongAdder openTime = new LongAdder();
+
+		private final LongAdder hasNextTime = new LongAdder();
+
+		private final LongAdder nextTime = new LongAdder();
+
+		OperatorProfile(double estimatedCardinality) {
+			this.estimatedCardinality = estimatedCardinality;
+		}
+
+		/**
+		 * Gets the number of solutions that were estimated for a single evaluation of the operator, without bindings.
+		 *
+		 * @return the estimate, or {@link Double#NaN} if the cardinality was not estimated.
+		 */
+		public double getEstimatedCardinality() {
+			return estimatedCardinality;
+		}
+
+		/**
+		 * Gets the number of times that the operator was evaluated, such as once for each solution of the left
+		 * argument of a nested loop join.
+		 */
+		public long getEvaluationCount() {
+			return evaluationCount.sum();
+		}
+
+		/**
+		 * Gets the number of solutions that the operator produced in all of its evaluations.
+		 */
+		public long getResultCount() {
+			return resultCount.sum();
+		}
+
+		/**
+		 * Gets the time, in nanoseconds, that was spent creating the iterations of the operator.
+		 */
+		public long getOpenTime() {
+			return openTime.sum();
+		}
+
+		/**
+		 * Gets the time, in nanoseconds, that was spent in the <tt>hasNext</tt> calls of the iterations of the
+		 * operator.
+		 */
+		public long getHasNextTime() {
+			return hasNextTime.sum();
+		}
+
+		/**
+		 * Gets the time, in nanoseconds, that was spent in the <tt>next</tt> calls of the iterations of the operator.
+		 */
+		public long getNextTime() {
+			return nextTime.sum();
+		}
+
+		/**
+		 * Gets the total time, in nanoseconds, that was spent evaluating the operator.
+		 */
+		public long getTime() {
+			return getOpenTime() + getHasNextTime() + getNextTime();
+		}
+
+		/**
+		 * Records a call to <tt>hasNext</tt>.
+		 */
+		public void addHasNext(long nanos) {
+			hasNextTime.add(nanos);
+		}
+
+		/**
+		 * Records a call to <tt>next</tt>.
+		 *
+		 * @param result whether the call returned a solution.
+		 */
+		public void addNext(long nanos, boolean result) {
+			nextTime.add(nanos);
+			if (result) {
+				resultCount.increment();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "[evaluations=%d, results=%d, estimated=%.1f, time=%.3f ms]",
+					getEvaluationCount(), getResultCount(), estimatedCardinality,
+					(double) getTime() / TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+}
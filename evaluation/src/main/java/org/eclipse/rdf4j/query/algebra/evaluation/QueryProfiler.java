@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+/**
+ * Implemented by connections that can record the runtime statistics of the operators of the queries that they
+ * evaluate.
+ *
+ * @see QueryProfile
+ */
+public interface QueryProfiler {
+
+	/**
+	 * Enables or disables the profiling of the queries that are evaluated subsequently. Profiling is disabled by
+	 * default, as it slows down the evaluation of queries.
+	 */
+	void setQueryProfiling(boolean profiling);
+
+	boolean isQueryProfiling();
+
+	/**
+	 * Gets the profile of the query that was last evaluated while profiling was enabled. Its statistics are complete
+	 * once the result of the query has been read to its end.
+	 *
+	 * @return the profile, or <tt>null</tt> if no query has been profiled.
+	 */
+	QueryProfile getLastQueryProfile();
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.ValueExpr;
+
+/**
+ * A {@link ValueExpr} that has been prepared for repeated evaluation, see
+ * {@link EvaluationStrategy#precompile(ValueExpr)}.
+ */
+@FunctionalInterface
+public interface QueryValueEvaluationStep {
+
+	/**
+	 * Gets the value of the expression.
+	 * 
+	 * @param bindings The variables bindings to use for evaluating the expression, if applicable.
+	 * @return The Value that the expression evaluates to, or <tt>null</tt> if the expression could not be evaluated.
+	 */
+	Value evaluate(BindingSet bindings) throws ValueExprEvaluationException, QueryEvaluationException;
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+
+/**
+ * The position of a statement by which statements are ordered when they are returned by
+ * {@link TripleSource#getOrderedStatements}. Statements are ordered by the {@link TripleSource#getValueId(Value)
+ * identifiers} of the values at that position, in ascending order.
+ */
+public enum StatementOrder {
+
+	SUBJECT,
+
+	PREDICATE,
+
+	OBJECT,
+
+	CONTEXT;
+
+	/**
+	 * Gets the value of a statement at this position.
+	 */
+	public Value getValue(Statement st) {
+		switch (this) {
+		case SUBJECT:
+			return st.getSubject();
+		case PREDICATE:
+			return st.getPredicate();
+		case OBJECT:
+			return st.getObject();
+		default:
+			return st.getContext();
+		}
+	}
+
+	/**
+	 * Gets the variable of a statement pattern at this position.
+	 *
+	 * @return the variable, or <tt>null</tt> if the pattern has no context variable.
+	 */
+	public Var getVar(StatementPattern sp) {
+		switch (this) {
+		case SUBJECT:
+			return sp.getSubjectVar();
+		case PREDICATE:
+			return sp.getPredicateVar();
+		case OBJECT:
+			return sp.getObjectVar();
+		default:
+			return sp.getContextVar();
+		}
+	}
+}
@@ -7,6 +7,9 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.query.algebra.evaluation;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
@@ -37,6 +40,83 @@ public interface TripleSource {
 	public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(Resource subj, IRI pred,
 			Value obj, Resource... contexts) throws QueryEvaluationException;
 
+	/**
+	 * Counts the statements that have a specific subject, predicate and/or object. The parameters are interpreted in
+	 * the same way as by {@link #getStatements(Resource, IRI, Value, Resource...)}. Triple sources that keep track of
+	 * the number of statements in their indexes can override this method to avoid iterating over the statements.
+	 * 
+	 * @param subj     A Resource specifying the subject, or <tt>null</tt> for a wildcard.
+	 * @param pred     A URI specifying the predicate, or <tt>null</tt> for a wildcard.
+	 * @param obj      A Value specifying the object, or <tt>null</tt> for a wildcard.
+	 * @param contexts The context(s) to count the statements in.
+	 * @return The number of statements that {@link #getStatements(Resource, IRI, Value, Resource...)} returns.
+	 * @throws QueryEvaluationException If the triple source failed to count the statements.
+	 */
+	default long countStatements(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws QueryEvaluationException {
+		try (CloseableIteration<? extends Statement, QueryEvaluationException> iter = getStatements(subj, pred, obj,
+				contexts)) {
+			long count = 0;
+			while (iter.hasNext()) {
+				iter.next();
+				count++;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Gets the internal identifier of a value in this triple source. Operators that keep large sets of values, such as
+	 * the nodes visited while evaluating a property path, can use the identifiers to store them as numbers. Equal
+	 * values always have the same identifier.
+	 * 
+	 * @param value A value.
+	 * @return A non-negative identifier, or <tt>-1</tt> if the value has no identifier. By default, no values have
+	 *         identifiers.
+	 * @throws QueryEvaluationException If the triple source failed to look up the identifier.
+	 */
+	default long getValueId(Value value) throws QueryEvaluationException {
+		return -1;
+	}
+
+	/**
+	 * Gets the orders in which {@link #getOrderedStatements(StatementOrder, Resource, IRI, Value, Resource...)} can
+	 * return the statements that have a specific subject, predicate and/or object without sorting them. Operators such
+	 * as merge joins use ordered statements to combine their inputs while streaming them.
+	 * 
+	 * @param subj     A Resource specifying the subject, or <tt>null</tt> for a wildcard.
+	 * @param pred     A URI specifying the predicate, or <tt>null</tt> for a wildcard.
+	 * @param obj      A Value specifying the object, or <tt>null</tt> for a wildcard.
+	 * @param contexts The context(s) to get the statements from.
+	 * @return The supported orders. By default, statements cannot be returned in any order.
+	 * @throws QueryEvaluationException If the triple source failed to look up the supported orders.
+	 */
+	default Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws QueryEvaluationException {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Gets the statements that have a specific subject, predicate and/or object, ordered by the
+	 * {@link #getValueId(Value) identifiers} of their values at a position. The parameters are interpreted in the same
+	 * way as by {@link #getStatements(Resource, IRI, Value, Resource...)}.
+	 * 
+	 * @param order    The position by which the statements are ordered, which must be one of the
+	 *                 {@link #getSupportedOrders(Resource, IRI, Value, Resource...) supported orders}.
+	 * @param subj     A Resource specifying the subject, or <tt>null</tt> for a wildcard.
+	 * @param pred     A URI specifying the predicate, or <tt>null</tt> for a wildcard.
+	 * @param obj      A Value specifying the object, or <tt>null</tt> for a wildcard.
+	 * @param contexts The context(s) to get the statements from.
+	 * @return An iterator over the relevant statements, in ascending order of the identifiers.
+	 * @throws QueryEvaluationException If the order is not supported or the triple source failed to get the
+	 *                                  statements.
+	 */
+	default CloseableIteration<? extends Statement, QueryEvaluationException> getOrderedStatements(
+			StatementOrder order, Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws QueryEvaluationException {
+		throw new QueryEvaluationException("Statements cannot be ordered by " + order);
+	}
+
 	/**
 	 * Gets a ValueFactory object that can be used to create URI-, blank node- and literal objects.
 	 * 
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a fixed slot index to each variable of a query, by which the values of the variable are stored in an
+ * {@link ArrayBindingSet}. The slots of the variables of a query are typically assigned before it is evaluated;
+ * variables that are first encountered during evaluation are appended. Slots are never reassigned or removed, so that
+ * binding sets that share the same slots can be combined array by array.
+ */
+public class VariableSlots {
+
+	private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+
+	private volatile String[] names = new String[0];
+
+	public VariableSlots() {
+	}
+
+	public VariableSlots(Collection<String> names) {
+		assign(names);
+	}
+
+	/**
+	 * Assigns a slot to each of the supplied variables that does not have a slot yet.
+	 */
+	public void assign(Collection<String> names) {
+		for (String name : names) {
+			getSlot(name);
+		}
+	}
+
+	/**
+	 * Gets the slot of a variable, assigning a new slot if the variable does not have one yet.
+	 */
+	public int getSlot(String name) {
+		Integer slot = slots.get(name);
+		if (slot != null) {
+			return slot;
+		}
+		synchronized (this) {
+			slot = slots.get(name);
+			if (slot == null) {
+				slot = names.length;
+				String[] extended = Arrays.copyOf(names, slot + 1);
+				extended[slot] = name;
+				// publish the name before the slot, so that every assigned slot can be resolved
+				names = extended;
+				slots.put(name, slot);
+			}
+			return slot;
+		}
+	}
+
+	/**
+	 * Gets the slot of a variable.
+	 *
+	 * @return the slot of the variable, or <tt>-1</tt> if no slot has been assigned to it.
+	 */
+	public int indexOf(String name) {
+		Integer slot = slots.get(name);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * Gets the name of the variable that is assigned to a slot.
+	 */
+	public String getName(int slot) {
+		return names[slot];
+	}
+
+	/**
+	 * Gets the number of assigned slots.
+	 */
+	public int size() {
+		return names.length;
+	}
+}
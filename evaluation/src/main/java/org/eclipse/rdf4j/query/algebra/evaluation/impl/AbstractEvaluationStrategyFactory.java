@@ -8,6 +8,7 @@
 package org.eclipse.rdf4j.query.algebra.evaluation.impl;
 
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategyFactory;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryMemoryManager;
 
 /**
  * Abstract base class for {@link ExtendedEvaluationStrategy}.
@@ -18,6 +19,8 @@ public abstract class AbstractEvaluationStrategyFactory implements EvaluationStr
 
 	private long querySolutionCacheThreshold;
 
+	private long queryMemoryBudget;
+
 	@Override
 	public void setQuerySolutionCacheThreshold(long threshold) {
 		this.querySolutionCacheThreshold = threshold;
@@ -28,4 +31,26 @@ public abstract class AbstractEvaluationStrategyFactory implements EvaluationStr
 		return querySolutionCacheThreshold;
 	}
 
+	@Override
+	public void setQueryMemoryBudget(long budget) {
+		this.queryMemoryBudget = budget;
+	}
+
+	@Override
+	public long getQueryMemoryBudget() {
+		return queryMemoryBudget;
+	}
+
+	/**
+	 * Gives a strategy that evaluates a single query a memory manager with the memory budget of this factory, if any.
+	 *
+	 * @return the strategy.
+	 */
+	protected <S extends StrictEvaluationStrategy> S initializeMemoryBudget(S strategy) {
+		if (queryMemoryBudget > 0) {
+			strategy.setQueryMemoryManager(new QueryMemoryManager(queryMemoryBudget));
+		}
+		return strategy;
+	}
+
 }
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.common.iteration.SingletonIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.Service;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.CostBasedJoin.Algorithm;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.BatchBindingSetIteration;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.FilterBatchIteration;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.SolutionBatch;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.SolutionBatch.Schema;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.StatementPatternBatchIteration;
+
+/**
+ * Evaluation strategy that passes batches of solutions in columnar form ({@link SolutionBatch}) between the operators
+ * of basic graph patterns: joins of statement patterns and the filters on them. A join is evaluated as a pipeline in
+ * which each statement pattern does a single index lookup for all solutions of a batch that share the values of its
+ * variables. A join of a {@link BindingSetAssignment} with such a pattern, as evaluated for the blocks of an OPTIONAL,
+ * passes the assigned solutions to the pipeline in batches. Other operators are evaluated one binding set at a time,
+ * as by the {@link StrictEvaluationStrategy}.
+ * 
+ * @see BatchEvaluationStrategyFactory
+ */
+public class BatchEvaluationStrategy extends StrictEvaluationStrategy {
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private final int batchSize;
+
+	public BatchEvaluationStrategy(TripleSource tripleSource, Dataset dataset,
+			FederatedServiceResolver serviceResolver, long iterationCacheSyncThreshold) {
+		this(tripleSource, dataset, serviceResolver, iterationCacheSyncThreshold, DEFAULT_BATCH_SIZE);
+	}
+
+	public BatchEvaluationStrategy(TripleSource tripleSource, Dataset dataset,
+			FederatedServiceResolver serviceResolver, long iterationCacheSyncThreshold, int batchSize) {
+		super(tripleSource, dataset, serviceResolver, iterationCacheSyncThreshold);
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Join join, BindingSet bindings)
+			throws QueryEvaluationException {
+		if (isBatchable(join) && isBatchable(bindings)) {
+			return evaluateBatches(join, bindings);
+		}
+		if (join.getLeftArg() instanceof BindingSetAssignment && isBatchable(join.getRightArg())
+				&& isBatchable(bindings)) {
+			return evaluateBatches(join.getRightArg(), (BindingSetAssignment) join.getLeftArg(), bindings);
+		}
+		return super.evaluate(join, bindings);
+	}
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Filter filter, BindingSet bindings)
+			throws QueryEvaluationException {
+		if (isBatchable(filter) && isBatchable(bindings)) {
+			return evaluateBatches(filter, bindings);
+		}
+		return super.evaluate(filter, bindings);
+	}
+
+	/**
+	 * Evaluates the supplied expression as a pipeline of batch operators.
+	 */
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateBatches(TupleExpr expr,
+			BindingSet bindings) throws QueryEvaluationException {
+		CloseableIteration<SolutionBatch, QueryEvaluationException> input;
+		input = new SingletonIteration<>(SolutionBatch.of(bindings));
+		return new BatchBindingSetIteration(createBatchIteration(expr, input));
+	}
+
+	/**
+	 * Evaluates the supplied expression as a pipeline of batch operators, with the assigned solutions that are
+	 * compatible with the bindings as its input.
+	 */
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateBatches(TupleExpr expr,
+			BindingSetAssignment assignment, BindingSet bindings) throws QueryEvaluationException {
+		Set<String> names = new LinkedHashSet<>(bindings.getBindingNames());
+		names.addAll(assignment.getBindingNames());
+		Schema schema = new Schema(names);
+		Iterator<BindingSet> assigned = assignment.getBindingSets().iterator();
+
+		CloseableIteration<SolutionBatch, QueryEvaluationException> input;
+		input = new LookAheadIteration<SolutionBatch, QueryEvaluationException>() {
+
+			@Override
+			protected SolutionBatch getNextElement() throws QueryEvaluationException {
+				SolutionBatch batch = new SolutionBatch(schema, batchSize);
+				while (!batch.isFull() && assigned.hasNext()) {
+					BindingSet next = assigned.next();
+					if (QueryResults.bindingSetsCompatible(bindings, next)) {
+						int row = batch.addRow();
+						for (int column = 0; column < schema.size(); column++) {
+							String name = schema.getName(column);
+							Value value = next.getValue(name);
+							batch.setValue(column, row, value != null ? value : bindings.getValue(name));
+						}
+					}
+				}
+				return batch.isEmpty() ? null : batch;
+			}
+		};
+		return new BatchBindingSetIteration(createBatchIteration(expr, input));
+	}
+
+	/**
+	 * Creates the batch operator for a batchable expression.
+	 *
+	 * @param expr  an expression for which {@link #isBatchable(TupleExpr)} holds.
+	 * @param input the batches of solutions with which the expression is evaluated.
+	 */
+	protected CloseableIteration<SolutionBatch, QueryEvaluationException> createBatchIteration(TupleExpr expr,
+			CloseableIteration<SolutionBatch, QueryEvaluationException> input) {
+		if (expr instanceof StatementPattern) {
+			return new StatementPatternBatchIteration(input, (StatementPattern) expr, this::getStatements, batchSize);
+		} else if (expr instanceof Join) {
+			Join join = (Join) expr;
+			// the right argument is evaluated with the solutions of the left argument, as in a nested loop join
+			return createBatchIteration(join.getRightArg(), createBatchIteration(join.getLeftArg(), input));
+		} else if (expr instanceof Filter) {
+			Filter filter = (Filter) expr;
+			return new FilterBatchIteration(createBatchIteration(filter.getArg(), input), filter, this);
+		} else {
+			throw new IllegalArgumentException("Unsupported batch operator: " + expr.getClass());
+		}
+	}
+
+	/**
+	 * Determines whether the supplied expression only consists of statement patterns, joins that are not selected for
+	 * a hash or merge join and filters.
+	 */
+	protected boolean isBatchable(TupleExpr expr) {
+		if (expr instanceof StatementPattern) {
+			return true;
+		} else if (expr instanceof Join) {
+			Join join = (Join) expr;
+			if (join instanceof CostBasedJoin && (((CostBasedJoin) join).getAlgorithm() == Algorithm.HASH
+					|| ((CostBasedJoin) join).getAlgorithm() == Algorithm.MERGE)) {
+				return false;
+			}
+			return !(join.getRightArg() instanceof Service) && isBatchable(join.getLeftArg())
+					&& isBatchable(join.getRightArg());
+		} else if (expr instanceof Filter) {
+			return isBatchable(((Filter) expr).getArg());
+		}
+		return false;
+	}
+
+	/**
+	 * Variables that are explicitly unbound can not be represented in a batch.
+	 */
+	private boolean isBatchable(BindingSet bindings) {
+		for (String name : bindings.getBindingNames()) {
+			if (bindings.getValue(name) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
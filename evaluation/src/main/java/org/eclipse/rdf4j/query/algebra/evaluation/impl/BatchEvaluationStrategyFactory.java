@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
+
+/**
+ * Creates {@link BatchEvaluationStrategy} instances.
+ */
+public class BatchEvaluationStrategyFactory extends StrictEvaluationStrategyFactory {
+
+	private int batchSize = BatchEvaluationStrategy.DEFAULT_BATCH_SIZE;
+
+	public BatchEvaluationStrategyFactory() {
+	}
+
+	public BatchEvaluationStrategyFactory(FederatedServiceResolver resolver) {
+		super(resolver);
+	}
+
+	/**
+	 * Sets the maximum number of solutions that are passed between operators at once.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@Override
+	public EvaluationStrategy createEvaluationStrategy(Dataset dataset, TripleSource tripleSource) {
+		return initializeMemoryBudget(new BatchEvaluationStrategy(tripleSource, dataset,
+				getFederatedServiceResolver(), getQuerySolutionCacheThreshold(), batchSize));
+	}
+}
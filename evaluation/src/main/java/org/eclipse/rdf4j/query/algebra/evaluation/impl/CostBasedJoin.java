@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import java.util.Objects;
+
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+
+/**
+ * A {@link Join} for which the {@link JoinAlgorithmOptimizer} has selected the algorithm with which it is evaluated.
+ * The selected algorithm and its estimated cost are part of the signature of the node, so that they show up in the
+ * query plan.
+ */
+public class CostBasedJoin extends Join {
+
+	private static final long serialVersionUID = -3386580373785123318L;
+
+	/**
+	 * The algorithms with which a join can be evaluated.
+	 */
+	public enum Algorithm {
+
+		/**
+		 * Evaluates the right argument once for every solution of the left argument.
+		 */
+		NESTED_LOOP("nested loop"),
+
+		/**
+		 * Evaluates both arguments once and joins the solutions through a hash table on the join variables.
+		 */
+		HASH("hash"),
+
+		/**
+		 * Evaluates the right argument once for every distinct combination of join values in a batch of solutions of
+		 * the left argument.
+		 */
+		BIND("bind"),
+
+		/**
+		 * Evaluates both arguments once, with their solutions ordered by the {@link CostBasedJoin#getMergeVar() merge
+		 * variable}, and joins them while streaming both.
+		 */
+		MERGE("merge");
+
+		private final String label;
+
+		private Algorithm(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	private Algorithm algorithm;
+
+	private double cost;
+
+	private String mergeVar;
+
+	public CostBasedJoin(TupleExpr leftArg, TupleExpr rightArg, Algorithm algorithm, double cost) {
+		super(leftArg, rightArg);
+		setAlgorithm(algorithm);
+		setCost(cost);
+	}
+
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public void setAlgorithm(Algorithm algorithm) {
+		assert algorithm != null : "algorithm must not be null";
+		this.algorithm = algorithm;
+	}
+
+	/**
+	 * Gets the estimated cost of evaluating this join with the selected algorithm, in the unit of the cardinalities of
+	 * the {@link EvaluationStatistics}.
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	public void setCost(double cost) {
+		this.cost = cost;
+	}
+
+	/**
+	 * Gets the name of the variable on which the solutions of both arguments are ordered if the algorithm is
+	 * {@link Algorithm#MERGE}.
+	 */
+	public String getMergeVar() {
+		return mergeVar;
+	}
+
+	public void setMergeVar(String mergeVar) {
+		this.mergeVar = mergeVar;
+	}
+
+	@Override
+	public String getSignature() {
+		String on = mergeVar == null ? "" : " on ?" + mergeVar;
+		return "Join (" + algorithm + on + ", cost=" + Math.round(cost) + ")";
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other instanceof CostBasedJoin) {
+			CostBasedJoin o = (CostBasedJoin) other;
+			return algorithm == o.algorithm && Objects.equals(mergeVar, o.mergeVar) && super.equals(other);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode() ^ algorithm.hashCode();
+	}
+
+	@Override
+	public CostBasedJoin clone() {
+		return (CostBasedJoin) super.clone();
+	}
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+
+/**
+ * A query optimizer that re-orders nested Joins by enumerating the connected subsets of their arguments with dynamic
+ * programming, instead of selecting the arguments one by one as the {@link QueryJoinOptimizer} does. For each subset
+ * of the join arguments that can be joined without a cartesian product, the cheapest order is determined from the
+ * cheapest orders of its subsets, so that an expensive argument that is evaluated early to make the other arguments
+ * cheaper can be found.
+ * <p>
+ * As the number of subsets grows exponentially, joins with more arguments than a maximum are ordered as by the
+ * {@link QueryJoinOptimizer}.
+ * <p>
+ * The joins are evaluated from left to right, binding the variables of each argument for the next, so only left-deep
+ * orders are considered. The cost of an order is the sum of the number of lookups and the number of solutions of each
+ * argument, of which the cardinality is estimated as by the {@link QueryJoinOptimizer}: the cardinality that the
+ * {@link EvaluationStatistics} estimates, to the power of the fraction of its variables that are not bound by the
+ * preceding arguments.
+ */
+public class DynamicProgrammingJoinOptimizer extends QueryJoinOptimizer {
+
+	/**
+	 * The default maximum number of join arguments that are ordered by dynamic programming.
+	 */
+	public static final int DEFAULT_MAX_JOIN_SIZE = 12;
+
+	/**
+	 * The maximum number of join arguments of which all subsets can be enumerated.
+	 */
+	public static final int MAX_ENUMERATION_SIZE = 20;
+
+	private final int maxJoinSize;
+
+	public DynamicProgrammingJoinOptimizer() {
+		this(new EvaluationStatistics());
+	}
+
+	public DynamicProgrammingJoinOptimizer(EvaluationStatistics statistics) {
+		this(statistics, DEFAULT_MAX_JOIN_SIZE);
+	}
+
+	/**
+	 * @param statistics  the statistics with which the cardinalities of the join arguments are estimated.
+	 * @param maxJoinSize the maximum number of join arguments that are ordered by dynamic programming, at most
+	 *                    {@link #MAX_ENUMERATION_SIZE}.
+	 */
+	public DynamicProgrammingJoinOptimizer(EvaluationStatistics statistics, int maxJoinSize) {
+		super(statistics);
+		if (maxJoinSize > MAX_ENUMERATION_SIZE) {
+			throw new IllegalArgumentException("maximum join size must not exceed " + MAX_ENUMERATION_SIZE);
+		}
+		this.maxJoinSize = maxJoinSize;
+	}
+
+	public int getMaxJoinSize() {
+		return maxJoinSize;
+	}
+
+	@Override
+	public void optimize(TupleExpr tupleExpr, Dataset dataset, BindingSet bindings) {
+		tupleExpr.visit(new DynamicProgrammingJoinVisitor());
+	}
+
+	protected class DynamicProgrammingJoinVisitor extends JoinVisitor {
+
+		@Override
+		protected List<TupleExpr> getJoinOrder(List<TupleExpr> expressions, Map<TupleExpr, Double> cardinalityMap,
+				Map<TupleExpr, List<Var>> varsMap) {
+			int size = expressions.size();
+			if (size < 2 || size > maxJoinSize) {
+				return null;
+			}
+
+			// number the variables that are not bound before the join, so that sets of them fit in a long
+			Map<String, Integer> varIds = new HashMap<>();
+			double[] cardinalities = new double[size];
+			int[][] occurrences = new int[size][];
+			int[] nonConstantVarCounts = new int[size];
+			long[] varMasks = new long[size];
+			for (int i = 0; i < size; i++) {
+				TupleExpr expr = expressions.get(i);
+				cardinalities[i] = cardinalityMap.get(expr);
+				List<Var> vars = varsMap.get(expr);
+				int[] ids = new int[vars.size()];
+				int count = 0;
+				for (Var var : vars) {
+					if (var.hasValue()) {
+						continue;
+					}
+					nonConstantVarCounts[i]++;
+					if (boundVars.contains(var.getName())) {
+						continue;
+					}
+					Integer id = varIds.get(var.getName());
+					if (id == null) {
+						id = varIds.size();
+						if (id == Long.SIZE) {
+							return null;
+						}
+						varIds.put(var.getName(), id);
+					}
+					ids[count++] = id;
+					varMasks[i] |= 1L << id;
+				}
+				occurrences[i] = Arrays.copyOf(ids, count);
+			}
+
+			// the arguments that share a variable with each argument
+			int[] neighbours = new int[size];
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					if (i != j && (varMasks[i] & varMasks[j]) != 0) {
+						neighbours[i] |= 1 << j;
+					}
+				}
+			}
+
+			// for each subset of the arguments, indexed by its bit mask: the cost and the number of results of its
+			// cheapest order, and the last argument of that order
+			int subsets = 1 << size;
+			double[] costs = new double[subsets];
+			double[] results = new double[subsets];
+			int[] last = new int[subsets];
+			Arrays.fill(last, -1);
+			results[0] = 1;
+
+			for (int subset = 0; subset < subsets - 1; subset++) {
+				if (subset != 0 && last[subset] < 0) {
+					// no order of this subset without a cartesian product
+					continue;
+				}
+				int connected = 0;
+				long bound = 0;
+				for (int i = 0; i < size; i++) {
+					if ((subset & 1 << i) != 0) {
+						connected |= neighbours[i];
+						bound |= varMasks[i];
+					}
+				}
+				connected &= ~subset;
+
+				for (int i = 0; i < size; i++) {
+					int next = subset | 1 << i;
+					if (next == subset) {
+						continue;
+					}
+					if (connected != 0 && (connected & 1 << i) == 0) {
+						// only join with an unconnected argument if there is no connected one
+						continue;
+					}
+					double cardinality = results[subset] * getCardinality(cardinalities[i], occurrences[i],
+							nonConstantVarCounts[i], bound);
+					double cost = costs[subset] + results[subset] + cardinality;
+					if (last[next] < 0 || cost < costs[next]) {
+						costs[next] = cost;
+						results[next] = cardinality;
+						last[next] = i;
+					}
+				}
+			}
+
+			List<TupleExpr> order = new ArrayList<>(size);
+			for (int subset = subsets - 1; subset != 0; subset &= ~(1 << last[subset])) {
+				order.add(expressions.get(last[subset]));
+			}
+			Collections.reverse(order);
+			return order;
+		}
+
+		/**
+		 * Estimates the cardinality of a join argument for each solution of the preceding arguments.
+		 *
+		 * @param cardinality         the cardinality of the argument by itself.
+		 * @param occurrences         the identifiers of the variables of the argument that are not bound before the
+		 *                            join, once for each time that they occur.
+		 * @param nonConstantVarCount the number of times that variables occur in the argument.
+		 * @param bound               the identifiers of the variables that are bound by the preceding arguments.
+		 */
+		private double getCardinality(double cardinality, int[] occurrences, int nonConstantVarCount, long bound) {
+			if (nonConstantVarCount == 0) {
+				return cardinality;
+			}
+			int unboundVarCount = 0;
+			for (int id : occurrences) {
+				if ((bound & 1L << id) == 0) {
+					unboundVarCount++;
+				}
+			}
+			return Math.pow(cardinality, (double) unboundVarCount / nonConstantVarCount);
+		}
+	}
+}
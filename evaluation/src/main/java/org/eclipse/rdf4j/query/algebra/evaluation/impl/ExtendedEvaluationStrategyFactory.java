@@ -37,7 +37,8 @@ public class ExtendedEvaluationStrategyFactory extends AbstractEvaluationStrateg
 
 	@Override
 	public EvaluationStrategy createEvaluationStrategy(Dataset dataset, TripleSource tripleSource) {
-		return new ExtendedEvaluationStrategy(tripleSource, dataset, serviceResolver, getQuerySolutionCacheThreshold());
+		return initializeMemoryBudget(new ExtendedEvaluationStrategy(tripleSource, dataset, serviceResolver,
+				getQuerySolutionCacheThreshold()));
 	}
 
 }
\ No newline at end of file
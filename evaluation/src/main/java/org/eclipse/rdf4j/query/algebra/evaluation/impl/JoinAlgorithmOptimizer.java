@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.LeftJoin;
+import org.eclipse.rdf4j.query.algebra.Service;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.CostBasedJoin.Algorithm;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.query.algebra.helpers.TupleExprs;
+import org.eclipse.rdf4j.query.algebra.helpers.VarNameCollector;
+
+/**
+ * A query optimizer that selects the algorithm with which each {@link Join} is evaluated, based on the cardinalities
+ * supplied by the {@link EvaluationStatistics}. Joins are replaced by a {@link CostBasedJoin} that records the
+ * selected algorithm. This optimizer should be applied after the joins have been ordered, e.g. by the
+ * {@link QueryJoinOptimizer}, and after filters have been pushed down.
+ * <p>
+ * The cost of a nested loop join is the number of left solutions times the cost of a lookup of the right argument with
+ * the join variables bound. A hash join scans both arguments once, but is only considered if all join variables are
+ * always bound on both sides and the smaller side fits the maximum hash table size. A bind join evaluates the right
+ * argument once per distinct combination of join values in the left solutions. Cardinalities with bound variables are
+ * estimated in the same way as the {@link QueryJoinOptimizer} compensates for bound variables.
+ * <p>
+ * If a {@link TripleSource} is supplied, a merge join is considered for joins of which both arguments can be evaluated
+ * with their solutions ordered by a join variable, such as the statement patterns of a star that share a subject and
+ * for which the triple source {@link TripleSource#getSupportedOrders supports} that order. A merge join reads both
+ * arguments once like a hash join, but without holding either of them in memory, and is preferred over it.
+ */
+public class JoinAlgorithmOptimizer implements QueryOptimizer {
+
+	/**
+	 * The default maximum estimated number of solutions that are held in the hash table of a hash join.
+	 */
+	public static final double DEFAULT_MAX_HASH_TABLE_SIZE = 100000;
+
+	/**
+	 * The relative cost of looking up a left solution in the buffer of a bind join, compared to a lookup of the right
+	 * argument.
+	 */
+	private static final double BIND_JOIN_BUFFER_COST = 0.25;
+
+	protected final EvaluationStatistics statistics;
+
+	private final double maxHashTableSize;
+
+	private final TripleSource tripleSource;
+
+	public JoinAlgorithmOptimizer() {
+		this(new EvaluationStatistics());
+	}
+
+	public JoinAlgorithmOptimizer(EvaluationStatistics statistics) {
+		this(statistics, DEFAULT_MAX_HASH_TABLE_SIZE);
+	}
+
+	/**
+	 * @param statistics       the statistics with which the cost of each algorithm is estimated.
+	 * @param maxHashTableSize the maximum estimated number of solutions of the smaller argument for which a hash join
+	 *                         is considered.
+	 */
+	public JoinAlgorithmOptimizer(EvaluationStatistics statistics, double maxHashTableSize) {
+		this(statistics, maxHashTableSize, null);
+	}
+
+	/**
+	 * @param statistics       the statistics with which the cost of each algorithm is estimated.
+	 * @param maxHashTableSize the maximum estimated number of solutions of the smaller argument for which a hash join
+	 *                         is considered.
+	 * @param tripleSource     the triple source of which the supported statement orders determine whether a merge
+	 *                         join is considered, or <tt>null</tt> to not consider merge joins.
+	 */
+	public JoinAlgorithmOptimizer(EvaluationStatistics statistics, double maxHashTableSize,
+			TripleSource tripleSource) {
+		this.statistics = statistics;
+		this.maxHashTableSize = maxHashTableSize;
+		this.tripleSource = tripleSource;
+	}
+
+	@Override
+	public void optimize(TupleExpr tupleExpr, Dataset dataset, BindingSet bindings) {
+		JoinAlgorithmVisitor visitor = new JoinAlgorithmVisitor();
+		// ordered statements are only read from the default context selection of the triple source
+		visitor.mergeJoinable = tripleSource != null && dataset == null;
+		if (bindings != null) {
+			visitor.boundVars.addAll(bindings.getBindingNames());
+		}
+		tupleExpr.visit(visitor);
+	}
+
+	protected class JoinAlgorithmVisitor extends AbstractQueryModelVisitor<RuntimeException> {
+
+		/**
+		 * The variables that are bound when the current node is evaluated.
+		 */
+		Set<String> boundVars = new HashSet<>();
+
+		/**
+		 * Whether merge joins are considered.
+		 */
+		boolean mergeJoinable;
+
+		@Override
+		public void meet(LeftJoin node) {
+			node.getLeftArg().visit(this);
+
+			Set<String> origBoundVars = boundVars;
+			try {
+				boundVars = new HashSet<>(boundVars);
+				boundVars.addAll(node.getLeftArg().getBindingNames());
+
+				node.getRightArg().visit(this);
+				if (node.getCondition() != null) {
+					node.getCondition().visit(this);
+				}
+			} finally {
+				boundVars = origBoundVars;
+			}
+		}
+
+		@Override
+		public void meet(Join node) {
+			Join join = node;
+			TupleExpr leftArg = node.getLeftArg();
+			TupleExpr rightArg = node.getRightArg();
+
+			// joins with a SERVICE or a subquery have dedicated evaluation strategies
+			if (!(rightArg instanceof Service) && !TupleExprs.containsSubquery(rightArg)) {
+				CostBasedJoin selected = selectAlgorithm(leftArg, rightArg);
+				if (selected != null) {
+					node.replaceWith(selected);
+					join = selected;
+				}
+			}
+
+			join.getLeftArg().visit(this);
+
+			Set<String> origBoundVars = boundVars;
+			try {
+				if (!(join instanceof CostBasedJoin) || !isIndependent(((CostBasedJoin) join).getAlgorithm())) {
+					// the right argument is evaluated with the left solutions
+					boundVars = new HashSet<>(boundVars);
+					boundVars.addAll(join.getLeftArg().getBindingNames());
+				}
+				join.getRightArg().visit(this);
+			} finally {
+				boundVars = origBoundVars;
+			}
+		}
+
+		/**
+		 * Selects the cheapest algorithm for a join of the supplied arguments.
+		 *
+		 * @return a new join node for the arguments, or <tt>null</tt> if the cost of the arguments can not be
+		 *         estimated.
+		 */
+		protected CostBasedJoin selectAlgorithm(TupleExpr leftArg, TupleExpr rightArg) {
+			Set<String> leftBindingNames = leftArg.getBindingNames();
+			Set<String> rightVarNames = getVarNames(rightArg);
+
+			Set<String> probeBoundVars = new HashSet<>(boundVars);
+			probeBoundVars.addAll(leftBindingNames);
+
+			double leftCard;
+			double rightCard;
+			double probeCard;
+			try {
+				leftCard = getCardinality(leftArg, boundVars);
+				rightCard = getCardinality(rightArg, boundVars);
+				probeCard = getCardinality(rightArg, probeBoundVars);
+			} catch (IllegalArgumentException e) {
+				// statistics do not support one of the nodes
+				return null;
+			}
+
+			Algorithm algorithm = Algorithm.NESTED_LOOP;
+			double cost = leftCard * (1 + probeCard);
+
+			if (Math.min(leftCard, rightCard) <= maxHashTableSize && isHashJoinable(leftArg, rightArg, rightVarNames)) {
+				double hashCost = leftCard + rightCard;
+				if (hashCost < cost) {
+					algorithm = Algorithm.HASH;
+					cost = hashCost;
+				}
+			}
+
+			String mergeVar = null;
+			if (mergeJoinable && isHashJoinable(leftArg, rightArg, rightVarNames)) {
+				mergeVar = getMergeVar(leftArg, rightArg, rightVarNames);
+				double mergeCost = leftCard + rightCard;
+				if (mergeVar != null && mergeCost <= cost) {
+					algorithm = Algorithm.MERGE;
+					cost = mergeCost;
+				}
+			}
+
+			double bindCost = leftCard * BIND_JOIN_BUFFER_COST
+					+ getDistinctKeyCount(leftArg, leftCard, rightVarNames) * (1 + probeCard);
+			if (bindCost < cost) {
+				algorithm = Algorithm.BIND;
+				cost = bindCost;
+			}
+
+			CostBasedJoin join = new CostBasedJoin(leftArg, rightArg, algorithm, cost);
+			if (algorithm == Algorithm.MERGE) {
+				join.setMergeVar(mergeVar);
+			}
+			return join;
+		}
+
+		/**
+		 * Determines whether the arguments of a join with the supplied algorithm are evaluated independently of each
+		 * other, in which case the right argument is not evaluated with the left solutions.
+		 */
+		protected boolean isIndependent(Algorithm algorithm) {
+			return algorithm == Algorithm.HASH || algorithm == Algorithm.MERGE;
+		}
+
+		/**
+		 * Gets a join variable by which the solutions of both arguments can be ordered.
+		 *
+		 * @return the name of the variable, or <tt>null</tt> if no join variable qualifies.
+		 */
+		protected String getMergeVar(TupleExpr leftArg, TupleExpr rightArg, Set<String> rightVarNames) {
+			Set<String> joinVars = new HashSet<>(rightVarNames);
+			joinVars.retainAll(leftArg.getBindingNames());
+			joinVars.removeAll(boundVars);
+			for (String joinVar : joinVars) {
+				if (isOrderable(leftArg, joinVar) && isOrderable(rightArg, joinVar)) {
+					return joinVar;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Determines whether the solutions of an expression can be ordered by a variable without sorting them: a
+		 * statement pattern of which the triple source supports the order of the position of the variable, or a join
+		 * of such expressions.
+		 */
+		protected boolean isOrderable(TupleExpr tupleExpr, String varName) {
+			if (tupleExpr instanceof Join) {
+				Join join = (Join) tupleExpr;
+				return isOrderable(join.getLeftArg(), varName) && isOrderable(join.getRightArg(), varName);
+			} else if (tupleExpr instanceof StatementPattern) {
+				StatementPattern sp = (StatementPattern) tupleExpr;
+				StatementOrder order = null;
+				for (StatementOrder position : StatementOrder.values()) {
+					Var var = position.getVar(sp);
+					if (var == null || var.hasValue()) {
+						continue;
+					} else if (boundVars.contains(var.getName())) {
+						// the supported orders depend on the value of the variable
+						return false;
+					} else if (var.getName().equals(varName)) {
+						if (order != null) {
+							// the variable has to match several positions
+							return false;
+						}
+						order = position;
+					}
+				}
+				return order != null && getSupportedOrders(sp).contains(order);
+			}
+			return false;
+		}
+
+		private Set<StatementOrder> getSupportedOrders(StatementPattern sp) {
+			Value subj = getConstant(sp.getSubjectVar());
+			Value pred = getConstant(sp.getPredicateVar());
+			Value obj = getConstant(sp.getObjectVar());
+			Value context = getConstant(sp.getContextVar());
+			if (subj != null && !(subj instanceof Resource) || pred != null && !(pred instanceof IRI)
+					|| context != null && !(context instanceof Resource)) {
+				return Collections.emptySet();
+			}
+			Resource[] contexts = context == null ? new Resource[0] : new Resource[] { (Resource) context };
+			return tripleSource.getSupportedOrders((Resource) subj, (IRI) pred, obj, contexts);
+		}
+
+		private Value getConstant(Var var) {
+			return var == null ? null : var.getValue();
+		}
+
+		/**
+		 * Determines whether both arguments can be evaluated independently: all variables of the right argument that
+		 * may be bound by the left argument must always be bound by both arguments.
+		 */
+		protected boolean isHashJoinable(TupleExpr leftArg, TupleExpr rightArg, Set<String> rightVarNames) {
+			Set<String> joinVars = new HashSet<>(rightVarNames);
+			joinVars.retainAll(leftArg.getBindingNames());
+			joinVars.removeAll(boundVars);
+			return leftArg.getAssuredBindingNames().containsAll(joinVars)
+					&& rightArg.getAssuredBindingNames().containsAll(joinVars);
+		}
+
+		/**
+		 * Estimates the number of distinct combinations of values for the variables of the right argument in the
+		 * solutions of the left argument, assuming that it is proportional to the fraction of the unbound variables of
+		 * the left argument that are join variables.
+		 */
+		protected double getDistinctKeyCount(TupleExpr leftArg, double leftCard, Set<String> rightVarNames) {
+			Set<String> leftVars = new HashSet<>();
+			for (Var var : getStatementPatternVars(leftArg)) {
+				if (!var.hasValue() && !boundVars.contains(var.getName())) {
+					leftVars.add(var.getName());
+				}
+			}
+			if (leftVars.isEmpty()) {
+				return leftCard;
+			}
+			Set<String> keyVars = new HashSet<>(leftVars);
+			keyVars.retainAll(rightVarNames);
+			return leftCard * keyVars.size() / leftVars.size();
+		}
+
+		/**
+		 * Estimates the cardinality of the supplied expression when the supplied variables are bound.
+		 */
+		protected double getCardinality(TupleExpr tupleExpr, Set<String> boundVars) {
+			double cardinality = statistics.getCardinality(tupleExpr);
+
+			List<Var> vars = getStatementPatternVars(tupleExpr);
+			int nonConstantVarCount = 0;
+			int unboundVarCount = 0;
+			for (Var var : vars) {
+				if (!var.hasValue()) {
+					nonConstantVarCount++;
+					if (!boundVars.contains(var.getName())) {
+						unboundVarCount++;
+					}
+				}
+			}
+			if (nonConstantVarCount > 0) {
+				cardinality = Math.pow(cardinality, (double) unboundVarCount / nonConstantVarCount);
+			}
+			return cardinality;
+		}
+
+		protected List<Var> getStatementPatternVars(TupleExpr tupleExpr) {
+			List<StatementPattern> stPatterns = StatementPatternCollector.process(tupleExpr);
+			List<Var> varList = new ArrayList<>(stPatterns.size() * 4);
+			for (StatementPattern sp : stPatterns) {
+				sp.getVars(varList);
+			}
+			return varList;
+		}
+
+		private Set<String> getVarNames(TupleExpr tupleExpr) {
+			Set<String> varNames = new HashSet<>(VarNameCollector.process(tupleExpr));
+			varNames.addAll(tupleExpr.getBindingNames());
+			return varNames;
+		}
+	}
+}
@@ -7,22 +7,33 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.query.algebra.evaluation.impl;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.Dataset;
 import org.eclipse.rdf4j.query.algebra.Distinct;
+import org.eclipse.rdf4j.query.algebra.Extension;
+import org.eclipse.rdf4j.query.algebra.ExtensionElem;
+import org.eclipse.rdf4j.query.algebra.Filter;
 import org.eclipse.rdf4j.query.algebra.Order;
 import org.eclipse.rdf4j.query.algebra.OrderElem;
 import org.eclipse.rdf4j.query.algebra.Projection;
 import org.eclipse.rdf4j.query.algebra.ProjectionElem;
 import org.eclipse.rdf4j.query.algebra.QueryModelNode;
 import org.eclipse.rdf4j.query.algebra.Reduced;
+import org.eclipse.rdf4j.query.algebra.Slice;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.UnaryTupleOperator;
 import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
 import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.helpers.VarNameCollector;
 
 /**
- * Moves the Order node above the Projection when variables are projected.
+ * Moves the Order node above the Projection when variables are projected, and removes Order nodes of which the
+ * argument already produces its solutions in the required order.
  * 
  * @author James Leigh
  */
@@ -31,6 +42,49 @@ public class OrderLimitOptimizer implements QueryOptimizer {
 	@Override
 	public void optimize(TupleExpr tupleExpr, Dataset dataset, BindingSet bindings) {
 		tupleExpr.visit(new OrderOptimizer());
+		tupleExpr.visit(new SortedInputOptimizer());
+	}
+
+	/**
+	 * Determines whether the supplied expression produces its solutions ordered by the supplied elements. This is the
+	 * case if it evaluates an Order that starts with the same elements, of which the order is preserved by the
+	 * operators in between.
+	 */
+	public static boolean isOrderedBy(TupleExpr expr, List<OrderElem> elements) {
+		if (expr instanceof Order) {
+			List<OrderElem> ordered = ((Order) expr).getElements();
+			return ordered.size() >= elements.size() && ordered.subList(0, elements.size()).equals(elements);
+		} else if (expr instanceof Filter || expr instanceof Distinct || expr instanceof Reduced
+				|| expr instanceof Slice) {
+			return isOrderedBy(((UnaryTupleOperator) expr).getArg(), elements);
+		} else if (expr instanceof Extension) {
+			// the order expressions must not depend on the values that are added
+			Set<String> names = getVarNames(elements);
+			for (ExtensionElem elem : ((Extension) expr).getElements()) {
+				if (names.contains(elem.getName())) {
+					return false;
+				}
+			}
+			return isOrderedBy(((Extension) expr).getArg(), elements);
+		} else if (expr instanceof Projection) {
+			// the order expressions must have the same values before and after projection
+			Set<String> names = getVarNames(elements);
+			for (ProjectionElem elem : ((Projection) expr).getProjectionElemList().getElements()) {
+				if (elem.getSourceName().equals(elem.getTargetName())) {
+					names.remove(elem.getTargetName());
+				}
+			}
+			return names.isEmpty() && isOrderedBy(((Projection) expr).getArg(), elements);
+		}
+		return false;
+	}
+
+	private static Set<String> getVarNames(List<OrderElem> elements) {
+		Set<String> names = new HashSet<>();
+		for (OrderElem elem : elements) {
+			names.addAll(VarNameCollector.process(elem));
+		}
+		return names;
 	}
 
 	protected static class OrderOptimizer extends AbstractQueryModelVisitor<RuntimeException> {
@@ -85,4 +139,19 @@ public class OrderLimitOptimizer implements QueryOptimizer {
 		}
 
 	}
+
+	/**
+	 * Removes Order nodes of which the argument is already ordered as required, see
+	 * {@link OrderLimitOptimizer#isOrderedBy(TupleExpr, List)}.
+	 */
+	protected static class SortedInputOptimizer extends AbstractQueryModelVisitor<RuntimeException> {
+
+		@Override
+		public void meet(Order node) {
+			super.meet(node);
+			if (isOrderedBy(node.getArg(), node.getElements())) {
+				node.replaceWith(node.getArg());
+			}
+		}
+	}
 }
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.BinaryTupleOperator;
+import org.eclipse.rdf4j.query.algebra.DescribeOperator;
+import org.eclipse.rdf4j.query.algebra.Group;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.Service;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.UnaryTupleOperator;
+import org.eclipse.rdf4j.query.algebra.Union;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.CostBasedJoin.Algorithm;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.BoundedGroupIterator;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.DescribeIteration;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.HashJoinIteration;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.ParallelGroupIterator;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.ParallelUnionIteration;
+import org.eclipse.rdf4j.query.algebra.helpers.TupleExprs;
+import org.eclipse.rdf4j.query.algebra.helpers.VarNameCollector;
+
+/**
+ * Evaluation strategy that evaluates the branches of a {@link Union} and the arguments of joins that do not depend on
+ * each other concurrently on a {@link ForkJoinPool}. The arguments of a join are independent if it has been selected
+ * for a hash join, or if they do not share any variables. Such joins are evaluated as a hash join of which both
+ * arguments are prefetched on the pool. Each task puts its solutions in a bounded queue, so that memory usage stays
+ * limited when the consumer of the query result is slow. Groups are aggregated in batches on the pool, see
+ * {@link ParallelGroupIterator}, and the resources of a DESCRIBE query are looked up on the pool, see
+ * {@link DescribeIteration}.
+ * <p>
+ * Unions and joins are only handed to the pool if they are {@link #isEvaluatedOnce evaluated once} per query, as the
+ * cost of starting the tasks is not worth it for an expression that is evaluated for each solution of another one,
+ * such as the right argument of a nested loop join.
+ * <p>
+ * Expressions that are evaluated by the tasks on the pool are evaluated sequentially, so that the tasks never wait for
+ * other tasks of the pool. The {@link TripleSource} must support concurrent access.
+ *
+ * @see ParallelEvaluationStrategyFactory
+ */
+public class ParallelEvaluationStrategy extends StrictEvaluationStrategy {
+
+	private final ForkJoinPool pool;
+
+	private final int queueCapacity;
+
+	public ParallelEvaluationStrategy(TripleSource tripleSource, Dataset dataset,
+			FederatedServiceResolver serviceResolver, long iterationCacheSyncThreshold, ForkJoinPool pool) {
+		this(tripleSource, dataset, serviceResolver, iterationCacheSyncThreshold, pool,
+				ParallelUnionIteration.DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param pool          the pool on which independent arguments are evaluated.
+	 * @param queueCapacity the maximum number of solutions that each parallel evaluation produces ahead of its
+	 *                      consumer.
+	 */
+	public ParallelEvaluationStrategy(TripleSource tripleSource, Dataset dataset,
+			FederatedServiceResolver serviceResolver, long iterationCacheSyncThreshold, ForkJoinPool pool,
+			int queueCapacity) {
+		super(tripleSource, dataset, serviceResolver, iterationCacheSyncThreshold);
+		this.pool = pool;
+		this.queueCapacity = queueCapacity;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Union union, BindingSet bindings)
+			throws QueryEvaluationException {
+		if (!isParallel() || !isEvaluatedOnce(union, bindings)) {
+			return super.evaluate(union, bindings);
+		}
+		List<TupleExpr> branches = new ArrayList<>();
+		collectBranches(union, branches);
+		return new ParallelUnionIteration(this, branches, bindings, pool, queueCapacity);
+	}
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Join join, BindingSet bindings)
+			throws QueryEvaluationException {
+		if (!isParallel() || !isEvaluatedOnce(join, bindings) || !isIndependent(join, bindings)) {
+			return super.evaluate(join, bindings);
+		}
+		TupleExpr leftArg = join.getLeftArg();
+		TupleExpr rightArg = join.getRightArg();
+		return new HashJoinIteration(this, prefetch(leftArg, bindings), new HashSet<>(leftArg.getBindingNames()),
+				prefetch(rightArg, bindings), new HashSet<>(rightArg.getBindingNames()), false);
+	}
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(DescribeOperator operator,
+			BindingSet bindings) throws QueryEvaluationException {
+		if (!isParallel()) {
+			return super.evaluate(operator, bindings);
+		}
+		return new DescribeIteration(evaluate(operator.getArg(), bindings), this, operator.getBindingNames(), bindings,
+				tripleSource, DescribeIteration.DEFAULT_BATCH_SIZE, pool);
+	}
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Group node, BindingSet bindings)
+			throws QueryEvaluationException {
+		if (!isParallel() || isStatementCount(node) || !BoundedGroupIterator.isSupported(node)
+				|| getIterationCacheSyncThreshold() > 0 || BoundedGroupIterator.isOrderedByGroupKeys(node)) {
+			// groups that are bounded in memory or streamed are aggregated sequentially
+			return super.evaluate(node, bindings);
+		}
+		return new ParallelGroupIterator(this, node, bindings, pool, pool.getParallelism());
+	}
+
+	/**
+	 * Determines whether the current thread may hand expressions to the pool. This is not the case for the threads of
+	 * the pool itself, which could otherwise all end up waiting for tasks that can not be started.
+	 */
+	protected boolean isParallel() {
+		return ForkJoinTask.getPool() != pool;
+	}
+
+	/**
+	 * Determines whether the supplied expression is evaluated once per query, rather than once for each solution of
+	 * another expression. This is assumed if it is evaluated without bindings, or if it is the root of the query plan
+	 * or only nested in the arguments of unary operators, the left arguments of binary operators and the branches of
+	 * unions.
+	 */
+	protected boolean isEvaluatedOnce(TupleExpr expr, BindingSet bindings) {
+		if (bindings.size() == 0) {
+			return true;
+		}
+		QueryModelNode node = expr;
+		QueryModelNode parent = node.getParentNode();
+		while (parent != null && !(parent instanceof QueryRoot)) {
+			if (parent instanceof BinaryTupleOperator) {
+				if (((BinaryTupleOperator) parent).getLeftArg() != node && !(parent instanceof Union)) {
+					return false;
+				}
+			} else if (!(parent instanceof UnaryTupleOperator) || ((UnaryTupleOperator) parent).getArg() != node) {
+				// e.g. the subquery of an EXISTS expression
+				return false;
+			}
+			node = parent;
+			parent = node.getParentNode();
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether both arguments of a join can be evaluated independently with the supplied bindings.
+	 */
+	protected boolean isIndependent(Join join, BindingSet bindings) {
+		TupleExpr rightArg = join.getRightArg();
+		if (rightArg instanceof Service || TupleExprs.containsSubquery(rightArg)) {
+			return false;
+		}
+		if (join instanceof CostBasedJoin) {
+			return ((CostBasedJoin) join).getAlgorithm() == Algorithm.HASH;
+		}
+		Set<String> sharedVars = new HashSet<>(VarNameCollector.process(rightArg));
+		sharedVars.addAll(rightArg.getBindingNames());
+		sharedVars.retainAll(join.getLeftArg().getBindingNames());
+		sharedVars.removeAll(bindings.getBindingNames());
+		return sharedVars.isEmpty();
+	}
+
+	private CloseableIteration<BindingSet, QueryEvaluationException> prefetch(TupleExpr expr, BindingSet bindings) {
+		return new ParallelUnionIteration(this, Collections.singletonList(expr), bindings, pool, queueCapacity);
+	}
+
+	/**
+	 * Collects the branches of nested unions, so that all of them are evaluated concurrently.
+	 */
+	private static void collectBranches(TupleExpr expr, List<TupleExpr> branches) {
+		if (expr instanceof Union) {
+			collectBranches(((Union) expr).getLeftArg(), branches);
+			collectBranches(((Union) expr).getRightArg(), branches);
+		} else {
+			branches.add(expr);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.ParallelUnionIteration;
+
+/**
+ * Creates {@link ParallelEvaluationStrategy} instances, which share a {@link ForkJoinPool} that is created when the
+ * first strategy is created.
+ */
+public class ParallelEvaluationStrategyFactory extends StrictEvaluationStrategyFactory {
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private int queueCapacity = ParallelUnionIteration.DEFAULT_QUEUE_CAPACITY;
+
+	private ForkJoinPool pool;
+
+	public ParallelEvaluationStrategyFactory() {
+	}
+
+	public ParallelEvaluationStrategyFactory(FederatedServiceResolver resolver) {
+		super(resolver);
+	}
+
+	/**
+	 * Sets the maximum number of threads on which the expressions of queries are evaluated concurrently, in addition
+	 * to the threads that consume the query results. Defaults to the number of available processors.
+	 */
+	public synchronized void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		}
+		this.parallelism = parallelism;
+		if (pool != null) {
+			// running tasks complete on the old pool
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	public synchronized int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the maximum number of solutions that each parallel evaluation produces ahead of its consumer.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	@Override
+	public EvaluationStrategy createEvaluationStrategy(Dataset dataset, TripleSource tripleSource) {
+		return initializeMemoryBudget(new ParallelEvaluationStrategy(tripleSource, dataset,
+				getFederatedServiceResolver(), getQuerySolutionCacheThreshold(), getPool(), queueCapacity));
+	}
+
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+}
@@ -123,10 +123,12 @@ public class QueryJoinOptimizer implements QueryOptimizer {
 						getVarFreqMap(varList, varFreqMap);
 					}
 
+					List<TupleExpr> joinOrder = getJoinOrder(joinArgs, cardinalityMap, varsMap);
+
 					// order all other join arguments based on available statistics
 					while (!joinArgs.isEmpty()) {
-						TupleExpr tupleExpr = selectNextTupleExpr(joinArgs, cardinalityMap, varsMap, varFreqMap,
-								boundVars);
+						TupleExpr tupleExpr = joinOrder != null ? joinOrder.get(orderedJoinArgs.size())
+								: selectNextTupleExpr(joinArgs, cardinalityMap, varsMap, varFreqMap, boundVars);
 
 						joinArgs.remove(tupleExpr);
 						orderedJoinArgs.add(tupleExpr);
@@ -364,6 +366,21 @@ public class QueryJoinOptimizer implements QueryOptimizer {
 			return selected;
 		}
 
+		/**
+		 * Determines the order of all join arguments at once, before any of them is optimized. By default, the join
+		 * arguments are instead selected one by one with {@link #selectNextTupleExpr(List, Map, Map, Map, Set)}.
+		 * 
+		 * @param expressions    the join arguments, excluding extensions and subselects.
+		 * @param cardinalityMap the estimated cardinalities of the join arguments.
+		 * @param varsMap        the variables of the join arguments.
+		 * @return the join arguments in the order in which they are to be evaluated, or <tt>null</tt> to select them
+		 *         one by one.
+		 */
+		protected List<TupleExpr> getJoinOrder(List<TupleExpr> expressions, Map<TupleExpr, Double> cardinalityMap,
+				Map<TupleExpr, List<Var>> varsMap) {
+			return null;
+		}
+
 		/**
 		 * Selects from a list of tuple expressions the next tuple expression that should be evaluated. This method
 		 * selects the tuple expression with highest number of bound variables, preferring variables that have been
@@ -45,6 +45,7 @@ import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.Dataset;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.AggregateOperator;
 import org.eclipse.rdf4j.query.algebra.And;
 import org.eclipse.rdf4j.query.algebra.ArbitraryLengthPath;
 import org.eclipse.rdf4j.query.algebra.BNodeGenerator;
@@ -56,6 +57,7 @@ import org.eclipse.rdf4j.query.algebra.Compare;
 import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
 import org.eclipse.rdf4j.query.algebra.CompareAll;
 import org.eclipse.rdf4j.query.algebra.CompareAny;
+import org.eclipse.rdf4j.query.algebra.Count;
 import org.eclipse.rdf4j.query.algebra.Datatype;
 import org.eclipse.rdf4j.query.algebra.DescribeOperator;
 import org.eclipse.rdf4j.query.algebra.Difference;
@@ -101,6 +103,7 @@ import org.eclipse.rdf4j.query.algebra.Slice;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.StatementPattern.Scope;
 import org.eclipse.rdf4j.query.algebra.Str;
+import org.eclipse.rdf4j.query.algebra.SubQueryValueOperator;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.UnaryTupleOperator;
 import org.eclipse.rdf4j.query.algebra.Union;
@@ -108,10 +111,16 @@ import org.eclipse.rdf4j.query.algebra.ValueConstant;
 import org.eclipse.rdf4j.query.algebra.ValueExpr;
 import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.ZeroLengthPath;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryMemoryManager;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryProfile;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.VariableSlots;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedService;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolverClient;
@@ -120,18 +129,26 @@ import org.eclipse.rdf4j.query.algebra.evaluation.function.Function;
 import org.eclipse.rdf4j.query.algebra.evaluation.function.FunctionRegistry;
 import org.eclipse.rdf4j.query.algebra.evaluation.function.datetime.Now;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.BadlyDesignedLeftJoinIterator;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.BindJoinIterator;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.BoundedGroupIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.DescribeIteration;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.ExtensionIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.FilterIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.GroupIterator;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.HashAntiJoinIteration;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.HashJoinIteration;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.JoinIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.LeftJoinIterator;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.MergeJoinIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.MultiProjectionIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.OrderIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.PathIteration;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.ProjectionIterator;
-import org.eclipse.rdf4j.query.algebra.evaluation.iterator.SPARQLMinusIteration;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.SpillingDistinctIteration;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.SpillingHashJoinIteration;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.SpillingMinusIteration;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.TopKIterator;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.TransitiveClosureIteration;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.ZeroLengthPathIteration;
 import org.eclipse.rdf4j.query.algebra.evaluation.util.EvaluationStrategies;
 import org.eclipse.rdf4j.query.algebra.evaluation.util.MathUtil;
@@ -176,6 +193,12 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 
 	private final UUID uuid;
 
+	private final VariableSlots variableSlots = new VariableSlots();
+
+	private volatile QueryProfile queryProfile;
+
+	private volatile QueryMemoryManager queryMemoryManager;
+
 	/*--------------*
 	 * Constructors *
 	 *--------------*/
@@ -204,6 +227,71 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 	 * Methods *
 	 *---------*/
 
+	/**
+	 * Gets the number of solutions above which operators that need all solutions of their argument keep them on disk
+	 * instead of in memory, or <tt>0</tt> if they are always kept in memory.
+	 */
+	public long getIterationCacheSyncThreshold() {
+		return iterationCacheSyncThreshold;
+	}
+
+	/**
+	 * Gets the slots of the variables of the binding sets that are created by this strategy.
+	 */
+	public VariableSlots getVariableSlots() {
+		return variableSlots;
+	}
+
+	/**
+	 * Sets the profile in which the runtime statistics of the operators of the evaluated plan are recorded.
+	 *
+	 * @param queryProfile the profile of the plan that is evaluated, or <tt>null</tt> to evaluate without recording
+	 *                     statistics.
+	 */
+	public void setQueryProfile(QueryProfile queryProfile) {
+		this.queryProfile = queryProfile;
+	}
+
+	public QueryProfile getQueryProfile() {
+		return queryProfile;
+	}
+
+	/**
+	 * Sets the memory manager with which the operators that keep solutions in memory, such as DISTINCT, ORDER BY,
+	 * GROUP BY, MINUS and hash joins, write them to disk once the memory budget of the query is exceeded.
+	 *
+	 * @param queryMemoryManager the memory manager of the evaluated query, or <tt>null</tt> if memory is not accounted
+	 *                           for.
+	 */
+	public void setQueryMemoryManager(QueryMemoryManager queryMemoryManager) {
+		this.queryMemoryManager = queryMemoryManager;
+	}
+
+	public QueryMemoryManager getQueryMemoryManager() {
+		return queryMemoryManager;
+	}
+
+	/**
+	 * Assigns a slot to each variable of a query before it is evaluated, and converts the supplied bindings to an
+	 * {@link ArrayBindingSet} with these slots, so that the operators of the query can extend it without copying
+	 * variable names.
+	 */
+	protected BindingSet prepareBindings(TupleExpr expr, BindingSet bindings) {
+		variableSlots.assign(bindings.getBindingNames());
+		variableSlots.assign(VarNameCollector.process(expr));
+		variableSlots.assign(expr.getBindingNames());
+		return new ArrayBindingSet(variableSlots, bindings);
+	}
+
+	/**
+	 * Gets the slot of a statement pattern variable that is bound by the statements that match the pattern.
+	 *
+	 * @return the slot, or <tt>-1</tt> if the variable is absent or constant.
+	 */
+	private int getSlot(Var var) {
+		return var == null || var.isConstant() ? -1 : variableSlots.getSlot(var.getName());
+	}
+
 	@Override
 	public UUID getUUID() {
 		return uuid;
@@ -222,6 +310,15 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 	@Override
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(TupleExpr expr, BindingSet bindings)
 			throws QueryEvaluationException {
+		QueryProfile profile = queryProfile;
+		if (profile != null) {
+			return profile.evaluate(expr, () -> evaluateOperator(expr, bindings));
+		}
+		return evaluateOperator(expr, bindings);
+	}
+
+	private CloseableIteration<BindingSet, QueryEvaluationException> evaluateOperator(TupleExpr expr,
+			BindingSet bindings) throws QueryEvaluationException {
 		if (expr instanceof StatementPattern) {
 			return evaluate((StatementPattern) expr, bindings);
 		} else if (expr instanceof UnaryTupleOperator) {
@@ -256,9 +353,80 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 		final Var contextVar = alp.getContextVar();
 		final long minLength = alp.getMinLength();
 
+		if (pathExpression instanceof StatementPattern && minLength <= 1) {
+			CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateTransitiveClosure(alp,
+					(StatementPattern) pathExpression, bindings);
+			if (result != null) {
+				return result;
+			}
+		}
 		return new PathIteration(this, scope, subjectVar, pathExpression, objVar, contextVar, minLength, bindings);
 	}
 
+	/**
+	 * Evaluates an arbitrary length path over a single statement pattern with a bound predicate as a search from the
+	 * bound end or ends of the path.
+	 *
+	 * @return the solutions, or <tt>null</tt> if the path can not be evaluated this way.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> evaluateTransitiveClosure(
+			ArbitraryLengthPath alp, StatementPattern sp, BindingSet bindings) throws QueryEvaluationException {
+		final Var subjectVar = alp.getSubjectVar();
+		final Var objVar = alp.getObjectVar();
+		final Var contextVar = alp.getContextVar();
+		final Var stepSubjVar = sp.getSubjectVar();
+		final Var stepPredVar = sp.getPredicateVar();
+		final Var stepObjVar = sp.getObjectVar();
+		final Var stepConVar = sp.getContextVar();
+
+		// the step must lead from the subject of the path to its object, or the other way around for inverse paths
+		final boolean inverse;
+		if (stepSubjVar.getName().equals(subjectVar.getName()) && stepObjVar.getName().equals(objVar.getName())) {
+			inverse = false;
+		} else if (stepSubjVar.getName().equals(objVar.getName())
+				&& stepObjVar.getName().equals(subjectVar.getName())) {
+			inverse = true;
+		} else {
+			return null;
+		}
+		if (subjectVar.getName().equals(objVar.getName()) || stepPredVar.getName().equals(subjectVar.getName())
+				|| stepPredVar.getName().equals(objVar.getName())) {
+			return null;
+		}
+		if (stepConVar != null && (contextVar == null || !stepConVar.getName().equals(contextVar.getName()))) {
+			return null;
+		}
+		if (isUnbound(subjectVar, bindings) || isUnbound(objVar, bindings) || isUnbound(stepPredVar, bindings)
+				|| isUnbound(contextVar, bindings)) {
+			return null;
+		}
+
+		final Value pred = getVarValue(stepPredVar, bindings);
+		final Value context = getVarValue(contextVar, bindings);
+		final Value start = getVarValue(subjectVar, bindings);
+		final Value end = getVarValue(objVar, bindings);
+		if (pred == null || contextVar != null && context == null || start == null && end == null) {
+			return null;
+		}
+
+		TransitiveClosureIteration.Step step = (value, forward) -> {
+			// follow the statements in the direction of the step pattern
+			final boolean towardsObject = forward != inverse;
+			CloseableIteration<? extends Statement, QueryEvaluationException> statements = towardsObject
+					? getStatements(sp, value, pred, null, context)
+					: getStatements(sp, null, pred, value, context);
+			return new ConvertingIteration<Statement, Value, QueryEvaluationException>(statements) {
+
+				@Override
+				protected Value convert(Statement st) {
+					return towardsObject ? st.getObject() : st.getSubject();
+				}
+			};
+		};
+		return new TransitiveClosureIteration(step, tripleSource, variableSlots, bindings, subjectVar.getName(),
+				start, objVar.getName(), end, alp.getMinLength());
+	}
+
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(ZeroLengthPath zlp,
 			final BindingSet bindings) throws QueryEvaluationException {
 
@@ -405,32 +573,117 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(DescribeOperator operator,
 			final BindingSet bindings) throws QueryEvaluationException {
 		CloseableIteration<BindingSet, QueryEvaluationException> iter = evaluate(operator.getArg(), bindings);
-		return new DescribeIteration(iter, this, operator.getBindingNames(), bindings);
+		return new DescribeIteration(iter, this, operator.getBindingNames(), bindings, tripleSource,
+				DescribeIteration.DEFAULT_BATCH_SIZE, null);
 	}
 
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(StatementPattern sp,
 			final BindingSet bindings) throws QueryEvaluationException {
+		return evaluate(sp, bindings, null);
+	}
+
+	/**
+	 * Evaluates a statement pattern with the statements of the triple source in the supplied order, if any.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> evaluate(StatementPattern sp,
+			final BindingSet bindings, StatementOrder order) throws QueryEvaluationException {
 		final Var subjVar = sp.getSubjectVar();
 		final Var predVar = sp.getPredicateVar();
 		final Var objVar = sp.getObjectVar();
 		final Var conVar = sp.getContextVar();
 
-		final Value subjValue = getVarValue(subjVar, bindings);
-		final Value predValue = getVarValue(predVar, bindings);
-		final Value objValue = getVarValue(objVar, bindings);
-		final Value contextValue = getVarValue(conVar, bindings);
-
-		CloseableIteration<? extends Statement, QueryEvaluationException> stIter1 = null;
-		CloseableIteration<? extends Statement, QueryEvaluationException> stIter2 = null;
-		CloseableIteration<? extends Statement, QueryEvaluationException> stIter3 = null;
-		ConvertingIteration<Statement, BindingSet, QueryEvaluationException> result = null;
-
 		if (isUnbound(subjVar, bindings) || isUnbound(predVar, bindings) || isUnbound(objVar, bindings)
 				|| isUnbound(conVar, bindings)) {
 			// the variable must remain unbound for this solution see https://www.w3.org/TR/sparql11-query/#assignment
 			return new EmptyIteration<>();
 		}
 
+		CloseableIteration<? extends Statement, QueryEvaluationException> stIter = null;
+		ConvertingIteration<Statement, BindingSet, QueryEvaluationException> result = null;
+
+		boolean allGood = false;
+		try {
+			stIter = getStatements(sp, getVarValue(subjVar, bindings), getVarValue(predVar, bindings),
+					getVarValue(objVar, bindings), getVarValue(conVar, bindings), order);
+
+			final int subjSlot = getSlot(subjVar);
+			final int predSlot = getSlot(predVar);
+			final int objSlot = getSlot(objVar);
+			final int conSlot = getSlot(conVar);
+
+			// Return an iterator that converts the statements to var bindings
+			result = new ConvertingIteration<Statement, BindingSet, QueryEvaluationException>(stIter) {
+
+				@Override
+				protected BindingSet convert(Statement st) {
+					ArrayBindingSet result = new ArrayBindingSet(variableSlots, bindings);
+
+					if (subjSlot >= 0 && !result.hasBinding(subjSlot)) {
+						result.setValue(subjSlot, st.getSubject());
+					}
+					if (predSlot >= 0 && !result.hasBinding(predSlot)) {
+						result.setValue(predSlot, st.getPredicate());
+					}
+					if (objSlot >= 0 && !result.hasBinding(objSlot)) {
+						result.setValue(objSlot, st.getObject());
+					}
+					if (conSlot >= 0 && !result.hasBinding(conSlot) && st.getContext() != null) {
+						result.setValue(conSlot, st.getContext());
+					}
+
+					return result;
+				}
+			};
+			allGood = true;
+			return result;
+		} finally {
+			if (!allGood) {
+				try {
+					if (result != null) {
+						result.close();
+					}
+				} finally {
+					if (stIter != null) {
+						stIter.close();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the statements of the triple source that match a statement pattern, taking the dataset into account.
+	 * Statements that do not bind a variable that occurs more than once in the pattern to the same value are filtered
+	 * out.
+	 * 
+	 * @param sp           the statement pattern.
+	 * @param subjValue    the value of the subject variable, or <tt>null</tt> if it is unbound.
+	 * @param predValue    the value of the predicate variable, or <tt>null</tt> if it is unbound.
+	 * @param objValue     the value of the object variable, or <tt>null</tt> if it is unbound.
+	 * @param contextValue the value of the context variable, or <tt>null</tt> if it is unbound.
+	 */
+	protected CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(StatementPattern sp,
+			final Value subjValue, final Value predValue, final Value objValue, final Value contextValue)
+			throws QueryEvaluationException {
+		return getStatements(sp, subjValue, predValue, objValue, contextValue, null);
+	}
+
+	/**
+	 * Gets the statements of the triple source that match a statement pattern, in the supplied order if any. The
+	 * filters that are applied to the statements keep their order.
+	 */
+	private CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(StatementPattern sp,
+			final Value subjValue, final Value predValue, final Value objValue, final Value contextValue,
+			StatementOrder order) throws QueryEvaluationException {
+		final Var subjVar = sp.getSubjectVar();
+		final Var predVar = sp.getPredicateVar();
+		final Var objVar = sp.getObjectVar();
+		final Var conVar = sp.getContextVar();
+
+		CloseableIteration<? extends Statement, QueryEvaluationException> stIter1 = null;
+		CloseableIteration<? extends Statement, QueryEvaluationException> stIter2 = null;
+		CloseableIteration<? extends Statement, QueryEvaluationException> stIter3 = null;
+
 		boolean allGood = false;
 		try {
 			try {
@@ -485,7 +738,12 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 					}
 				}
 
-				stIter1 = tripleSource.getStatements((Resource) subjValue, (IRI) predValue, objValue, contexts);
+				if (order == null) {
+					stIter1 = tripleSource.getStatements((Resource) subjValue, (IRI) predValue, objValue, contexts);
+				} else {
+					stIter1 = tripleSource.getOrderedStatements(order, (Resource) subjValue, (IRI) predValue,
+							objValue, contexts);
+				}
 
 				if (contexts.length == 0 && sp.getScope() == Scope.NAMED_CONTEXTS) {
 					// Named contexts are matched by retrieving all statements from
@@ -550,52 +808,22 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 				}
 			};
 
-			// Return an iterator that converts the statements to var bindings
-			result = new ConvertingIteration<Statement, BindingSet, QueryEvaluationException>(stIter3) {
-
-				@Override
-				protected BindingSet convert(Statement st) {
-					QueryBindingSet result = new QueryBindingSet(bindings);
-
-					if (subjVar != null && !subjVar.isConstant() && !result.hasBinding(subjVar.getName())) {
-						result.addBinding(subjVar.getName(), st.getSubject());
-					}
-					if (predVar != null && !predVar.isConstant() && !result.hasBinding(predVar.getName())) {
-						result.addBinding(predVar.getName(), st.getPredicate());
-					}
-					if (objVar != null && !objVar.isConstant() && !result.hasBinding(objVar.getName())) {
-						result.addBinding(objVar.getName(), st.getObject());
-					}
-					if (conVar != null && !conVar.isConstant() && !result.hasBinding(conVar.getName())
-							&& st.getContext() != null) {
-						result.addBinding(conVar.getName(), st.getContext());
-					}
-
-					return result;
-				}
-			};
 			allGood = true;
-			return result;
+			return stIter3;
 		} finally {
 			if (!allGood) {
 				try {
-					if (result != null) {
-						result.close();
+					if (stIter3 != null) {
+						stIter3.close();
 					}
 				} finally {
 					try {
-						if (stIter3 != null) {
-							stIter3.close();
+						if (stIter2 != null) {
+							stIter2.close();
 						}
 					} finally {
-						try {
-							if (stIter2 != null) {
-								stIter2.close();
-							}
-						} finally {
-							if (stIter1 != null) {
-								stIter1.close();
-							}
+						if (stIter1 != null) {
+							stIter1.close();
 						}
 					}
 				}
@@ -647,7 +875,7 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 			// new query, reset shared return value for successive calls of
 			// NOW()
 			this.sharedValueOfNow = null;
-			return evaluate(((QueryRoot) expr).getArg(), bindings);
+			return evaluate(((QueryRoot) expr).getArg(), prepareBindings(expr, bindings));
 		} else if (expr instanceof DescribeOperator) {
 			return evaluate((DescribeOperator) expr, bindings);
 		} else if (expr == null) {
@@ -729,12 +957,86 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Filter filter, BindingSet bindings)
 			throws QueryEvaluationException {
+		if (isUncorrelatedNotExists(filter)) {
+			return evaluateNotExists(filter, bindings);
+		}
 		CloseableIteration<BindingSet, QueryEvaluationException> result;
 		result = this.evaluate(filter.getArg(), bindings);
 		result = new FilterIterator(filter, result, this);
 		return result;
 	}
 
+	/**
+	 * Determines whether the supplied filter is a FILTER NOT EXISTS over a pattern of which the solutions do not depend
+	 * on the solution that is filtered, other than by having to be compatible with it. The pattern can then be
+	 * evaluated once, instead of once for each filtered solution.
+	 */
+	private static boolean isUncorrelatedNotExists(Filter filter) {
+		ValueExpr condition = filter.getCondition();
+		if (!(condition instanceof Not) || !(((Not) condition).getArg() instanceof Exists)) {
+			return false;
+		}
+		for (QueryModelNode node = filter.getParentNode(); node != null; node = node.getParentNode()) {
+			if (node instanceof SubQueryValueOperator) {
+				// the scope of the filter includes the bindings of the enclosing subquery
+				return false;
+			}
+		}
+		return isUncorrelated(((Exists) ((Not) condition).getArg()).getSubQuery());
+	}
+
+	/**
+	 * Checks whether substituting the values of a solution in the supplied pattern gives the solutions of the pattern
+	 * that are compatible with it.
+	 */
+	private static boolean isUncorrelated(TupleExpr expr) {
+		if (expr instanceof StatementPattern || expr instanceof BindingSetAssignment
+				|| expr instanceof SingletonSet) {
+			return true;
+		} else if (expr instanceof Join || expr instanceof Union) {
+			BinaryTupleOperator operator = (BinaryTupleOperator) expr;
+			return isUncorrelated(operator.getLeftArg()) && isUncorrelated(operator.getRightArg());
+		} else if (expr instanceof Filter) {
+			// the condition must not refer to variables that are only bound by the filtered solution
+			Filter filter = (Filter) expr;
+			Set<String> names = new HashSet<>();
+			filter.getCondition().visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+				@Override
+				public void meet(Var var) {
+					if (!var.hasValue()) {
+						names.add(var.getName());
+					}
+				}
+			});
+			return isUncorrelated(filter.getArg()) && filter.getArg().getAssuredBindingNames().containsAll(names);
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluates a filter for which {@link #isUncorrelatedNotExists(Filter)} holds as an anti-join of its argument with
+	 * the solutions of the pattern.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> evaluateNotExists(Filter filter,
+			BindingSet bindings) throws QueryEvaluationException {
+		TupleExpr pattern = ((Exists) ((Not) filter.getCondition()).getArg()).getSubQuery();
+		// limit the bindings to the ones that are in scope for the filter, like the FilterIterator does
+		Set<String> scopeBindingNames = filter.getBindingNames();
+		ArrayBindingSet scopeBindings = new ArrayBindingSet(bindings);
+		scopeBindings.retainAll(scopeBindingNames);
+		Iteration<BindingSet, QueryEvaluationException> patternIter;
+		patternIter = new DelayedIteration<BindingSet, QueryEvaluationException>() {
+
+			@Override
+			protected Iteration<BindingSet, QueryEvaluationException> createIteration()
+					throws QueryEvaluationException {
+				return evaluate(pattern, scopeBindings);
+			}
+		};
+		return new HashAntiJoinIteration(evaluate(filter.getArg(), bindings), patternIter, true, scopeBindingNames);
+	}
+
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Slice slice, BindingSet bindings)
 			throws QueryEvaluationException {
 		CloseableIteration<BindingSet, QueryEvaluationException> result = evaluate(slice.getArg(), bindings);
@@ -768,6 +1070,10 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Distinct distinct, BindingSet bindings)
 			throws QueryEvaluationException {
+		QueryMemoryManager memory = queryMemoryManager;
+		if (memory != null) {
+			return new SpillingDistinctIteration(evaluate(distinct.getArg(), bindings), memory);
+		}
 		return new DistinctIteration<>(evaluate(distinct.getArg(), bindings));
 	}
 
@@ -778,16 +1084,109 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Group node, BindingSet bindings)
 			throws QueryEvaluationException {
+		if (isStatementCount(node)) {
+			return evaluateStatementCount(node, bindings);
+		}
+		QueryMemoryManager memory = queryMemoryManager;
+		if (BoundedGroupIterator.isSupported(node) && (iterationCacheSyncThreshold > 0 || memory != null
+				|| BoundedGroupIterator.isOrderedByGroupKeys(node))) {
+			// the threshold also bounds the number of groups that are kept in memory
+			return new BoundedGroupIterator(this, node, bindings, iterationCacheSyncThreshold, memory);
+		}
 		return new GroupIterator(this, node, bindings, iterationCacheSyncThreshold);
 	}
 
+	/**
+	 * Determines whether the supplied group only computes <tt>COUNT(*)</tt> over the solutions of a single statement
+	 * pattern, in which case the matching statements can be counted without creating any solutions.
+	 */
+	protected boolean isStatementCount(Group node) {
+		if (!node.getGroupBindingNames().isEmpty() || node.getGroupElements().size() != 1
+				|| !(node.getArg() instanceof StatementPattern)) {
+			return false;
+		}
+		AggregateOperator operator = node.getGroupElements().get(0).getOperator();
+		if (!(operator instanceof Count) || operator.isDistinct() || ((Count) operator).getArg() != null) {
+			return false;
+		}
+		// COUNT(*) ignores empty solutions, which are produced if the pattern does not bind any variables
+		StatementPattern sp = (StatementPattern) node.getArg();
+		return !sp.getSubjectVar().isConstant() || !sp.getPredicateVar().isConstant()
+				|| !sp.getObjectVar().isConstant();
+	}
+
+	private CloseableIteration<BindingSet, QueryEvaluationException> evaluateStatementCount(Group node,
+			BindingSet bindings) throws QueryEvaluationException {
+		StatementPattern sp = (StatementPattern) node.getArg();
+		Var subjVar = sp.getSubjectVar();
+		Var predVar = sp.getPredicateVar();
+		Var objVar = sp.getObjectVar();
+		Var conVar = sp.getContextVar();
+
+		long count = 0;
+		if (!isUnbound(subjVar, bindings) && !isUnbound(predVar, bindings) && !isUnbound(objVar, bindings)
+				&& !isUnbound(conVar, bindings)) {
+			count = countStatements(sp, getVarValue(subjVar, bindings), getVarValue(predVar, bindings),
+					getVarValue(objVar, bindings), getVarValue(conVar, bindings));
+		}
+
+		ArrayBindingSet result = new ArrayBindingSet(bindings);
+		result.setBinding(node.getGroupElements().get(0).getName(),
+				tripleSource.getValueFactory().createLiteral(Long.toString(count), XMLSchema.INTEGER));
+		return new SingletonIteration<>(result);
+	}
+
+	/**
+	 * Counts the statements of the triple source that match a statement pattern, taking the dataset into account.
+	 * The count is obtained from {@link TripleSource#countStatements(Resource, IRI, Value, Resource...)} if the
+	 * statements do not need to be filtered, and otherwise by counting the statements that
+	 * {@link #getStatements(StatementPattern, Value, Value, Value, Value)} returns.
+	 */
+	protected long countStatements(StatementPattern sp, Value subjValue, Value predValue, Value objValue,
+			Value contextValue) throws QueryEvaluationException {
+		if (dataset == null && sp.getScope() == Scope.DEFAULT_CONTEXTS && !hasRepeatedVariable(sp)) {
+			try {
+				Resource[] contexts = contextValue == null ? new Resource[0]
+						: new Resource[] { (Resource) contextValue };
+				return tripleSource.countStatements((Resource) subjValue, (IRI) predValue, objValue, contexts);
+			} catch (ClassCastException e) {
+				// Invalid value type for subject, predicate and/or context
+				return 0;
+			}
+		}
+		try (CloseableIteration<? extends Statement, QueryEvaluationException> iter = getStatements(sp, subjValue,
+				predValue, objValue, contextValue)) {
+			long count = 0;
+			while (iter.hasNext()) {
+				iter.next();
+				count++;
+			}
+			return count;
+		}
+	}
+
+	private static boolean hasRepeatedVariable(StatementPattern sp) {
+		Set<String> names = new HashSet<>();
+		for (Var var : sp.getVarList()) {
+			if (!var.hasValue() && !names.add(var.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Order node, BindingSet bindings)
 			throws QueryEvaluationException {
-		ValueComparator vcmp = new ValueComparator();
-		OrderComparator cmp = new OrderComparator(this, node, vcmp);
 		boolean reduced = isReducedOrDistinct(node);
 		long limit = getLimit(node);
-		return new OrderIterator(evaluate(node.getArg(), bindings), cmp, limit, reduced, iterationCacheSyncThreshold);
+		if (limit < Integer.MAX_VALUE && (iterationCacheSyncThreshold <= 0 || limit <= iterationCacheSyncThreshold)) {
+			// the solutions that are kept fit in memory
+			return new TopKIterator(evaluate(node.getArg(), bindings), this, node, (int) limit, reduced);
+		}
+		ValueComparator vcmp = new ValueComparator();
+		OrderComparator cmp = new OrderComparator(this, node, vcmp);
+		return new OrderIterator(evaluate(node.getArg(), bindings), cmp, limit, reduced, iterationCacheSyncThreshold,
+				queryMemoryManager);
 	}
 
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(BinaryTupleOperator expr,
@@ -818,17 +1217,136 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 			return new ServiceJoinIterator(leftIter, (Service) join.getRightArg(), bindings, this);
 		}
 
+		if (join instanceof CostBasedJoin) {
+			switch (((CostBasedJoin) join).getAlgorithm()) {
+			case HASH:
+				return evaluateHashJoin(join.getLeftArg(), join.getRightArg(), bindings, false);
+			case BIND:
+				return new BindJoinIterator(this, join, bindings);
+			case MERGE:
+				CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateMergeJoin(
+						(CostBasedJoin) join, bindings);
+				if (result != null) {
+					return result;
+				}
+				// the arguments could not be ordered with these bindings
+				return evaluateHashJoin(join.getLeftArg(), join.getRightArg(), bindings, false);
+			default:
+				return new JoinIterator(this, join, bindings);
+			}
+		}
+
 		if (TupleExprs.containsSubquery(join.getRightArg())) {
-			return new HashJoinIteration(this, join, bindings);
+			return evaluateHashJoin(join.getLeftArg(), join.getRightArg(), bindings, false);
 		} else {
 			return new JoinIterator(this, join, bindings);
 		}
 	}
 
+	/**
+	 * Evaluates a join by merging the solutions of both arguments, ordered by the merge variable of the join.
+	 *
+	 * @return the joined solutions, which are ordered by the merge variable, or <tt>null</tt> if one of the arguments
+	 *         cannot be evaluated in that order.
+	 */
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateMergeJoin(CostBasedJoin join,
+			BindingSet bindings) throws QueryEvaluationException {
+		String mergeVar = join.getMergeVar();
+		CloseableIteration<BindingSet, QueryEvaluationException> leftIter = evaluateOrdered(join.getLeftArg(),
+				mergeVar, bindings);
+		if (leftIter == null) {
+			return null;
+		}
+		CloseableIteration<BindingSet, QueryEvaluationException> rightIter = null;
+		try {
+			rightIter = evaluateOrdered(join.getRightArg(), mergeVar, bindings);
+		} finally {
+			if (rightIter == null) {
+				leftIter.close();
+			}
+		}
+		if (rightIter == null) {
+			return null;
+		}
+		return new MergeJoinIterator(leftIter, rightIter, mergeVar, tripleSource);
+	}
+
+	/**
+	 * Evaluates an expression with its solutions ordered by the {@link TripleSource#getValueId(Value) identifiers} of
+	 * the values of a variable, if the triple source can return the statements of the expression in that order. This
+	 * is the case for statement patterns of which the triple source supports the order of the position of the
+	 * variable, and for merge joins on the variable.
+	 *
+	 * @return the ordered solutions, or <tt>null</tt> if the expression cannot be evaluated in that order.
+	 */
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateOrdered(TupleExpr expr, String varName,
+			BindingSet bindings) throws QueryEvaluationException {
+		CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateOrderedOperator(expr, varName,
+				bindings);
+		QueryProfile profile = queryProfile;
+		if (result != null && profile != null) {
+			return profile.evaluate(expr, () -> result);
+		}
+		return result;
+	}
+
+	private CloseableIteration<BindingSet, QueryEvaluationException> evaluateOrderedOperator(TupleExpr expr,
+			String varName, BindingSet bindings) throws QueryEvaluationException {
+		if (expr instanceof CostBasedJoin) {
+			CostBasedJoin join = (CostBasedJoin) expr;
+			if (join.getAlgorithm() == CostBasedJoin.Algorithm.MERGE && varName.equals(join.getMergeVar())) {
+				return evaluateMergeJoin(join, bindings);
+			}
+		} else if (expr instanceof StatementPattern && dataset == null && !bindings.hasBinding(varName)) {
+			StatementPattern sp = (StatementPattern) expr;
+			StatementOrder order = null;
+			for (StatementOrder position : StatementOrder.values()) {
+				Var var = position.getVar(sp);
+				if (var != null && !var.hasValue() && var.getName().equals(varName)) {
+					order = position;
+					break;
+				}
+			}
+			if (order == null) {
+				return null;
+			}
+			Value contextValue = getVarValue(sp.getContextVar(), bindings);
+			try {
+				Resource[] contexts = contextValue == null ? new Resource[0]
+						: new Resource[] { (Resource) contextValue };
+				Set<StatementOrder> orders = tripleSource.getSupportedOrders(
+						(Resource) getVarValue(sp.getSubjectVar(), bindings),
+						(IRI) getVarValue(sp.getPredicateVar(), bindings), getVarValue(sp.getObjectVar(), bindings),
+						contexts);
+				if (!orders.contains(order)) {
+					return null;
+				}
+			} catch (ClassCastException e) {
+				// no statements match the pattern, in any order
+				return new EmptyIteration<>();
+			}
+			return evaluate(sp, bindings, order);
+		}
+		return null;
+	}
+
+	/**
+	 * Evaluates a join by hashing the solutions of one argument, within the memory budget of the query if there is
+	 * one.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> evaluateHashJoin(TupleExpr left, TupleExpr right,
+			BindingSet bindings, boolean leftJoin) throws QueryEvaluationException {
+		QueryMemoryManager memory = queryMemoryManager;
+		if (memory != null) {
+			return new SpillingHashJoinIteration(this, left, right, bindings, leftJoin, memory);
+		}
+		return new HashJoinIteration(this, left, right, bindings, leftJoin);
+	}
+
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(LeftJoin leftJoin,
 			final BindingSet bindings) throws QueryEvaluationException {
 		if (TupleExprs.containsSubquery(leftJoin.getRightArg())) {
-			return new HashJoinIteration(this, leftJoin, bindings);
+			return evaluateHashJoin(leftJoin.getLeftArg(), leftJoin.getRightArg(), bindings, true);
 		}
 
 		// Check whether optional join is "well designed" as defined in section
@@ -924,7 +1442,11 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 			}
 		};
 
-		return new SPARQLMinusIteration<>(leftArg, rightArg);
+		QueryMemoryManager memory = queryMemoryManager;
+		if (memory != null) {
+			return new SpillingMinusIteration(leftArg, rightArg, memory);
+		}
+		return new HashAntiJoinIteration(leftArg, rightArg);
 	}
 
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(SingletonSet singletonSet,
@@ -942,6 +1464,16 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 		return external.evaluate(bindings);
 	}
 
+	/**
+	 * Compiles a value expression for repeated evaluation, in which the work that does not depend on the bindings is
+	 * done once. The evaluation of expression types of which a subclass overrides the <tt>evaluate</tt> method is left
+	 * to that method.
+	 */
+	@Override
+	public QueryValueEvaluationStep precompile(ValueExpr expr) throws QueryEvaluationException {
+		return new ValueExprCompiler(this).compile(expr);
+	}
+
 	@Override
 	public Value evaluate(ValueExpr expr, BindingSet bindings)
 			throws ValueExprEvaluationException, QueryEvaluationException {
@@ -1290,34 +1822,7 @@ public class StrictEvaluationStrategy implements EvaluationStrategy, FederatedSe
 			if (farg != null) {
 				flags = ((Literal) farg).getLabel();
 			}
-			// TODO should this Pattern be cached?
-			int f = 0;
-			for (char c : flags.toCharArray()) {
-				switch (c) {
-				case 's':
-					f |= Pattern.DOTALL;
-					break;
-				case 'm':
-					f |= Pattern.MULTILINE;
-					break;
-				case 'i':
-					f |= Pattern.CASE_INSENSITIVE;
-					f |= Pattern.UNICODE_CASE;
-					break;
-				case 'x':
-					f |= Pattern.COMMENTS;
-					break;
-				case 'd':
-					f |= Pattern.UNIX_LINES;
-					break;
-				case 'u':
-					f |= Pattern.UNICODE_CASE;
-					break;
-				default:
-					throw new ValueExprEvaluationException(flags);
-				}
-			}
-			Pattern pattern = Pattern.compile(ptn, f);
+			Pattern pattern = ValueExprCompiler.compilePattern(ptn, flags);
 			boolean result = pattern.matcher(text).find();
 			return BooleanLiteral.valueOf(result);
 		}
@@ -37,6 +37,7 @@ public class StrictEvaluationStrategyFactory extends AbstractEvaluationStrategyF
 
 	@Override
 	public EvaluationStrategy createEvaluationStrategy(Dataset dataset, TripleSource tripleSource) {
-		return new StrictEvaluationStrategy(tripleSource, dataset, serviceResolver, getQuerySolutionCacheThreshold());
+		return initializeMemoryBudget(new StrictEvaluationStrategy(tripleSource, dataset, serviceResolver,
+				getQuerySolutionCacheThreshold()));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,429 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+import org.eclipse.rdf4j.model.impl.BooleanLiteral;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.AggregateOperator;
+import org.eclipse.rdf4j.query.algebra.And;
+import org.eclipse.rdf4j.query.algebra.BNodeGenerator;
+import org.eclipse.rdf4j.query.algebra.Bound;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.eclipse.rdf4j.query.algebra.FunctionCall;
+import org.eclipse.rdf4j.query.algebra.MathExpr;
+import org.eclipse.rdf4j.query.algebra.Not;
+import org.eclipse.rdf4j.query.algebra.Or;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.Regex;
+import org.eclipse.rdf4j.query.algebra.SameTerm;
+import org.eclipse.rdf4j.query.algebra.SubQueryValueOperator;
+import org.eclipse.rdf4j.query.algebra.ValueConstant;
+import org.eclipse.rdf4j.query.algebra.ValueExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
+import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.VariableSlots;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.Function;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.FunctionRegistry;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.datetime.Now;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.MathUtil;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+
+/**
+ * Compiles {@link ValueExpr}s into trees of {@link QueryValueEvaluationStep}s for a {@link StrictEvaluationStrategy}.
+ * Work that does not depend on the bindings is done once: variables are resolved to the slots of
+ * {@link ArrayBindingSet}s, constant subexpressions are evaluated, functions are looked up in the
+ * {@link FunctionRegistry} and regular expressions are only compiled again when their pattern changes. Comparisons of
+ * integers are done on <tt>long</tt>s when both values fit.
+ * <p>
+ * Expressions of which the strategy overrides the evaluation, and expressions that are not compiled, are evaluated by
+ * the strategy itself.
+ */
+class ValueExprCompiler {
+
+	/**
+	 * The types of value expressions of which the evaluation is overridden by subclasses of
+	 * {@link StrictEvaluationStrategy}.
+	 */
+	private static final ClassValue<Set<Class<?>>> OVERRIDDEN = new ClassValue<Set<Class<?>>>() {
+
+		@Override
+		protected Set<Class<?>> computeValue(Class<?> type) {
+			Set<Class<?>> overridden = new HashSet<>();
+			for (Method method : type.getMethods()) {
+				Class<?>[] parameters = method.getParameterTypes();
+				if (method.getName().equals("evaluate") && parameters.length == 2
+						&& ValueExpr.class.isAssignableFrom(parameters[0]) && parameters[1] == BindingSet.class
+						&& method.getDeclaringClass() != StrictEvaluationStrategy.class
+						&& !method.getDeclaringClass().isInterface()) {
+					overridden.add(parameters[0]);
+				}
+			}
+			return overridden;
+		}
+	};
+
+	private final StrictEvaluationStrategy strategy;
+
+	private final VariableSlots slots;
+
+	private final Set<Class<?>> overridden;
+
+	ValueExprCompiler(StrictEvaluationStrategy strategy) {
+		this.strategy = strategy;
+		this.slots = strategy.getVariableSlots();
+		this.overridden = OVERRIDDEN.get(strategy.getClass());
+	}
+
+	QueryValueEvaluationStep compile(ValueExpr expr) throws QueryEvaluationException {
+		if (expr == null) {
+			throw new IllegalArgumentException("expr must not be null");
+		} else if (overridden.contains(ValueExpr.class) || overridden.contains(expr.getClass())) {
+			return bindings -> strategy.evaluate(expr, bindings);
+		} else if (expr instanceof Var) {
+			return compileVar((Var) expr);
+		} else if (expr instanceof ValueConstant) {
+			Value value = ((ValueConstant) expr).getValue();
+			return bindings -> value;
+		} else if (isConstant(expr)) {
+			return fold(expr);
+		} else if (expr instanceof Bound) {
+			return compileBound((Bound) expr);
+		} else if (expr instanceof And) {
+			return compileAnd((And) expr);
+		} else if (expr instanceof Or) {
+			return compileOr((Or) expr);
+		} else if (expr instanceof Not) {
+			QueryValueEvaluationStep arg = compile(((Not) expr).getArg());
+			return bindings -> BooleanLiteral
+					.valueOf(!QueryEvaluationUtil.getEffectiveBooleanValue(arg.evaluate(bindings)));
+		} else if (expr instanceof SameTerm) {
+			QueryValueEvaluationStep left = compile(((SameTerm) expr).getLeftArg());
+			QueryValueEvaluationStep right = compile(((SameTerm) expr).getRightArg());
+			return bindings -> {
+				Value leftVal = left.evaluate(bindings);
+				Value rightVal = right.evaluate(bindings);
+				return BooleanLiteral.valueOf(leftVal != null && leftVal.equals(rightVal));
+			};
+		} else if (expr instanceof Compare) {
+			return compileCompare((Compare) expr);
+		} else if (expr instanceof MathExpr) {
+			return compileMath((MathExpr) expr);
+		} else if (expr instanceof Regex) {
+			return compileRegex((Regex) expr);
+		} else if (expr instanceof FunctionCall) {
+			return compileFunctionCall((FunctionCall) expr);
+		}
+		return bindings -> strategy.evaluate(expr, bindings);
+	}
+
+	/**
+	 * Compiles a regular expression in the way of the SPARQL <tt>regex</tt> function.
+	 *
+	 * @throws ValueExprEvaluationException if the flags are not supported.
+	 */
+	static Pattern compilePattern(String ptn, String flags) throws ValueExprEvaluationException {
+		int f = 0;
+		for (char c : flags.toCharArray()) {
+			switch (c) {
+			case 's':
+				f |= Pattern.DOTALL;
+				break;
+			case 'm':
+				f |= Pattern.MULTILINE;
+				break;
+			case 'i':
+				f |= Pattern.CASE_INSENSITIVE;
+				f |= Pattern.UNICODE_CASE;
+				break;
+			case 'x':
+				f |= Pattern.COMMENTS;
+				break;
+			case 'd':
+				f |= Pattern.UNIX_LINES;
+				break;
+			case 'u':
+				f |= Pattern.UNICODE_CASE;
+				break;
+			default:
+				throw new ValueExprEvaluationException(flags);
+			}
+		}
+		return Pattern.compile(ptn, f);
+	}
+
+	private QueryValueEvaluationStep compileVar(Var var) {
+		if (var.hasValue()) {
+			Value value = var.getValue();
+			return bindings -> value;
+		}
+		String name = var.getName();
+		int slot = slots.getSlot(name);
+		return bindings -> {
+			Value value;
+			if (bindings instanceof ArrayBindingSet && ((ArrayBindingSet) bindings).getSlots() == slots) {
+				value = ((ArrayBindingSet) bindings).getValue(slot);
+			} else {
+				value = bindings.getValue(name);
+			}
+			if (value == null) {
+				throw new ValueExprEvaluationException();
+			}
+			return value;
+		};
+	}
+
+	private QueryValueEvaluationStep compileBound(Bound bound) {
+		String name = bound.getArg().getName();
+		return bindings -> BooleanLiteral.valueOf(bindings.getValue(name) != null);
+	}
+
+	private QueryValueEvaluationStep compileAnd(And and) throws QueryEvaluationException {
+		QueryValueEvaluationStep left = compile(and.getLeftArg());
+		QueryValueEvaluationStep right = compile(and.getRightArg());
+		return bindings -> {
+			try {
+				if (!QueryEvaluationUtil.getEffectiveBooleanValue(left.evaluate(bindings))) {
+					return BooleanLiteral.FALSE;
+				}
+			} catch (ValueExprEvaluationException e) {
+				// the result is 'false' when the right argument evaluates to 'false', failure otherwise
+				if (!QueryEvaluationUtil.getEffectiveBooleanValue(right.evaluate(bindings))) {
+					return BooleanLiteral.FALSE;
+				}
+				throw new ValueExprEvaluationException();
+			}
+			return BooleanLiteral.valueOf(QueryEvaluationUtil.getEffectiveBooleanValue(right.evaluate(bindings)));
+		};
+	}
+
+	private QueryValueEvaluationStep compileOr(Or or) throws QueryEvaluationException {
+		QueryValueEvaluationStep left = compile(or.getLeftArg());
+		QueryValueEvaluationStep right = compile(or.getRightArg());
+		return bindings -> {
+			try {
+				if (QueryEvaluationUtil.getEffectiveBooleanValue(left.evaluate(bindings))) {
+					return BooleanLiteral.TRUE;
+				}
+			} catch (ValueExprEvaluationException e) {
+				// the result is 'true' when the right argument evaluates to 'true', failure otherwise
+				if (QueryEvaluationUtil.getEffectiveBooleanValue(right.evaluate(bindings))) {
+					return BooleanLiteral.TRUE;
+				}
+				throw new ValueExprEvaluationException();
+			}
+			return BooleanLiteral.valueOf(QueryEvaluationUtil.getEffectiveBooleanValue(right.evaluate(bindings)));
+		};
+	}
+
+	private QueryValueEvaluationStep compileCompare(Compare compare) throws QueryEvaluationException {
+		QueryValueEvaluationStep left = compile(compare.getLeftArg());
+		QueryValueEvaluationStep right = compile(compare.getRightArg());
+		CompareOp operator = compare.getOperator();
+		return bindings -> {
+			Value leftVal = left.evaluate(bindings);
+			Value rightVal = right.evaluate(bindings);
+			if (leftVal instanceof Literal && rightVal instanceof Literal) {
+				Literal leftLit = (Literal) leftVal;
+				Literal rightLit = (Literal) rightVal;
+				if (isIntegerLiteral(leftLit) && isIntegerLiteral(rightLit)) {
+					String leftLabel = leftLit.getLabel();
+					String rightLabel = rightLit.getLabel();
+					if (fitsInLong(leftLabel) && fitsInLong(rightLabel)) {
+						return BooleanLiteral.valueOf(
+								compare(Long.parseLong(leftLabel), Long.parseLong(rightLabel), operator));
+					}
+				}
+			}
+			return BooleanLiteral.valueOf(QueryEvaluationUtil.compare(leftVal, rightVal, operator));
+		};
+	}
+
+	private QueryValueEvaluationStep compileMath(MathExpr math) throws QueryEvaluationException {
+		QueryValueEvaluationStep left = compile(math.getLeftArg());
+		QueryValueEvaluationStep right = compile(math.getRightArg());
+		return bindings -> {
+			Value leftVal = left.evaluate(bindings);
+			Value rightVal = right.evaluate(bindings);
+			if (leftVal instanceof Literal && rightVal instanceof Literal) {
+				return MathUtil.compute((Literal) leftVal, (Literal) rightVal, math.getOperator());
+			}
+			throw new ValueExprEvaluationException("Both arguments must be numeric literals");
+		};
+	}
+
+	private QueryValueEvaluationStep compileRegex(Regex regex) throws QueryEvaluationException {
+		QueryValueEvaluationStep arg = compile(regex.getArg());
+		QueryValueEvaluationStep patternArg = compile(regex.getPatternArg());
+		QueryValueEvaluationStep flagsArg = regex.getFlagsArg() == null ? null : compile(regex.getFlagsArg());
+		// the pattern is usually constant, so the last compiled pattern is reused while it has not changed
+		AtomicReference<CompiledPattern> last = new AtomicReference<>();
+		return bindings -> {
+			Value value = arg.evaluate(bindings);
+			Value parg = patternArg.evaluate(bindings);
+			Value farg = flagsArg == null ? null : flagsArg.evaluate(bindings);
+			if (QueryEvaluationUtil.isStringLiteral(value) && QueryEvaluationUtil.isSimpleLiteral(parg)
+					&& (farg == null || QueryEvaluationUtil.isSimpleLiteral(farg))) {
+				String ptn = ((Literal) parg).getLabel();
+				String flags = farg == null ? "" : ((Literal) farg).getLabel();
+				CompiledPattern pattern = last.get();
+				if (pattern == null || !pattern.ptn.equals(ptn) || !pattern.flags.equals(flags)) {
+					pattern = new CompiledPattern(ptn, flags, compilePattern(ptn, flags));
+					last.set(pattern);
+				}
+				return BooleanLiteral.valueOf(pattern.pattern.matcher(((Literal) value).getLabel()).find());
+			}
+			throw new ValueExprEvaluationException();
+		};
+	}
+
+	private QueryValueEvaluationStep compileFunctionCall(FunctionCall call) throws QueryEvaluationException {
+		Optional<Function> function = FunctionRegistry.getInstance().get(call.getURI());
+		if (!function.isPresent() || function.get() instanceof Now) {
+			// unknown functions fail when they are evaluated, and NOW() has a value that is shared by the query
+			return bindings -> strategy.evaluate(call, bindings);
+		}
+		Function f = function.get();
+		List<QueryValueEvaluationStep> args = new ArrayList<>(call.getArgs().size());
+		for (ValueExpr arg : call.getArgs()) {
+			args.add(compile(arg));
+		}
+		return bindings -> {
+			Value[] argValues = new Value[args.size()];
+			for (int i = 0; i < argValues.length; i++) {
+				argValues[i] = args.get(i).evaluate(bindings);
+			}
+			return f.evaluate(strategy.tripleSource.getValueFactory(), argValues);
+		};
+	}
+
+	/**
+	 * Evaluates an expression that does not depend on the bindings once.
+	 */
+	private QueryValueEvaluationStep fold(ValueExpr expr) throws QueryEvaluationException {
+		try {
+			Value value = strategy.evaluate(expr, EmptyBindingSet.getInstance());
+			return bindings -> value;
+		} catch (ValueExprEvaluationException e) {
+			return bindings -> {
+				throw new ValueExprEvaluationException(e.getMessage());
+			};
+		} catch (RuntimeException e) {
+			// fail when the expression is evaluated, as without compilation
+			return bindings -> strategy.evaluate(expr, bindings);
+		}
+	}
+
+	/**
+	 * Determines whether the value of an expression is independent of the bindings and the time of evaluation. This is
+	 * the case for the built-in operators on constants, but not for functions, which may not be deterministic.
+	 */
+	private static boolean isConstant(ValueExpr expr) {
+		if (expr instanceof ValueConstant) {
+			return true;
+		} else if (expr instanceof Var) {
+			return ((Var) expr).hasValue();
+		} else if (expr instanceof FunctionCall || expr instanceof BNodeGenerator
+				|| expr instanceof SubQueryValueOperator || expr instanceof AggregateOperator) {
+			return false;
+		}
+		List<QueryModelNode> children = new ArrayList<>();
+		expr.visitChildren(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			protected void meetNode(QueryModelNode node) {
+				children.add(node);
+			}
+		});
+		for (QueryModelNode child : children) {
+			if (!(child instanceof ValueExpr) || !isConstant((ValueExpr) child)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isIntegerLiteral(Literal literal) {
+		IRI datatype = literal.getDatatype();
+		return datatype != null && XMLDatatypeUtil.isIntegerDatatype(datatype);
+	}
+
+	/**
+	 * Checks whether a label is a decimal integer with at most 18 digits, which is parsed to the same value by
+	 * {@link Long#parseLong(String)} and as an <tt>xsd:integer</tt>.
+	 */
+	private static boolean fitsInLong(String label) {
+		int start = label.startsWith("-") || label.startsWith("+") ? 1 : 0;
+		int length = label.length() - start;
+		if (length == 0 || length > 18) {
+			return false;
+		}
+		for (int i = start; i < label.length(); i++) {
+			char c = label.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean compare(long left, long right, CompareOp operator) {
+		switch (operator) {
+		case LT:
+			return left < right;
+		case LE:
+			return left <= right;
+		case EQ:
+			return left == right;
+		case NE:
+			return left != right;
+		case GE:
+			return left >= right;
+		case GT:
+			return left > right;
+		default:
+			throw new IllegalArgumentException("Unknown operator: " + operator);
+		}
+	}
+
+	/**
+	 * A regular expression with the pattern and flags of which it has been compiled.
+	 */
+	private static class CompiledPattern {
+
+		final String ptn;
+
+		final String flags;
+
+		final Pattern pattern;
+
+		CompiledPattern(String ptn, String flags, Pattern pattern) {
+			this.ptn = ptn;
+			this.flags = flags;
+			this.pattern = pattern;
+		}
+	}
+}
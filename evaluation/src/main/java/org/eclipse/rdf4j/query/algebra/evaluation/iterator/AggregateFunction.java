@@ -0,0 +1,418 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.io.Serializable;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+import org.eclipse.rdf4j.model.impl.BooleanLiteral;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.AbstractAggregateOperator;
+import org.eclipse.rdf4j.query.algebra.AggregateOperator;
+import org.eclipse.rdf4j.query.algebra.Avg;
+import org.eclipse.rdf4j.query.algebra.Count;
+import org.eclipse.rdf4j.query.algebra.GroupConcat;
+import org.eclipse.rdf4j.query.algebra.GroupElem;
+import org.eclipse.rdf4j.query.algebra.MathExpr.MathOp;
+import org.eclipse.rdf4j.query.algebra.Max;
+import org.eclipse.rdf4j.query.algebra.Min;
+import org.eclipse.rdf4j.query.algebra.Sample;
+import org.eclipse.rdf4j.query.algebra.Sum;
+import org.eclipse.rdf4j.query.algebra.ValueExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
+import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.MathUtil;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ValueComparator;
+
+/**
+ * Computes an aggregate of a {@link GroupElem} in a way that allows the solutions of a group to be aggregated in
+ * several parts: the solutions are added to a {@link State}, and the states of the parts are merged before the value
+ * of the aggregate is determined. States are serializable, so that they can be written to disk. The values are
+ * computed in the same way as by the {@link GroupIterator}.
+ */
+public class AggregateFunction {
+
+	private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	/**
+	 * The value that is added to the state of <tt>COUNT(*)</tt> for each non-empty solution.
+	 */
+	private static final Value SOLUTION = BooleanLiteral.TRUE;
+
+	private final String name;
+
+	private final AbstractAggregateOperator operator;
+
+	/**
+	 * The compiled argument of the aggregate, or <tt>null</tt> for a wildcard count.
+	 */
+	private final QueryValueEvaluationStep arg;
+
+	private final String separator;
+
+	public AggregateFunction(GroupElem groupElem, EvaluationStrategy strategy, BindingSet parentBindings)
+			throws QueryEvaluationException {
+		this.name = groupElem.getName();
+		this.operator = (AbstractAggregateOperator) groupElem.getOperator();
+		this.arg = operator.getArg() == null ? null : strategy.precompile(operator.getArg());
+
+		ValueExpr separatorExpr = operator instanceof GroupConcat ? ((GroupConcat) operator).getSeparator() : null;
+		this.separator = separatorExpr == null ? " " : strategy.evaluate(separatorExpr, parentBindings).stringValue();
+	}
+
+	/**
+	 * Determines whether the supplied operator is supported by this class.
+	 */
+	public static boolean isSupported(AggregateOperator operator) {
+		return operator instanceof Count || operator instanceof Min || operator instanceof Max
+				|| operator instanceof Sum || operator instanceof Avg || operator instanceof Sample
+				|| operator instanceof GroupConcat;
+	}
+
+	/**
+	 * Gets the name of the variable to which the value of the aggregate is bound.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public AggregateOperator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Creates the state of a group to which no solutions have been added yet.
+	 */
+	public State createState() {
+		return operator.isDistinct() ? new DistinctState() : createAggregateState();
+	}
+
+	/**
+	 * Adds a solution of the group to the supplied state.
+	 */
+	public void update(State state, BindingSet solution) throws QueryEvaluationException {
+		if (arg == null) {
+			// wildcard count
+			if (solution.size() > 0) {
+				state.add(operator.isDistinct() ? solution : SOLUTION);
+			}
+		} else {
+			Value value;
+			try {
+				value = arg.evaluate(solution);
+			} catch (ValueExprEvaluationException e) {
+				// treat missing or invalid expressions as null
+				value = null;
+			}
+			if (value != null) {
+				state.add(value);
+			}
+		}
+	}
+
+	/**
+	 * Gets the value of the aggregate for a group.
+	 *
+	 * @return the value, or <tt>null</tt> if the aggregate is unbound.
+	 * @throws ValueExprEvaluationException if the value of the aggregate is a type error.
+	 */
+	public Value getValue(State state) throws ValueExprEvaluationException {
+		AggregateState aggregate;
+		if (state instanceof DistinctState) {
+			aggregate = createAggregateState();
+			for (Object item : ((DistinctState) state).items) {
+				aggregate.add(item instanceof BindingSet ? SOLUTION : item);
+			}
+		} else {
+			aggregate = (AggregateState) state;
+		}
+		return aggregate.getValue();
+	}
+
+	private AggregateState createAggregateState() {
+		if (operator instanceof Count) {
+			return new CountState();
+		} else if (operator instanceof Min) {
+			return new MinMaxState(false);
+		} else if (operator instanceof Max) {
+			return new MinMaxState(true);
+		} else if (operator instanceof Sum) {
+			return new SumState();
+		} else if (operator instanceof Avg) {
+			return new AvgState();
+		} else if (operator instanceof Sample) {
+			return new SampleState();
+		} else if (operator instanceof GroupConcat) {
+			return new ConcatState(separator);
+		}
+		throw new IllegalArgumentException("Unsupported aggregate operator: " + operator);
+	}
+
+	/**
+	 * The partial aggregate of a part of the solutions of a group.
+	 */
+	public abstract static class State implements Serializable {
+
+		private static final long serialVersionUID = 6167414565154767096L;
+
+		/**
+		 * Adds a value to the aggregate: the value of the argument of the aggregate for a solution, or the solution
+		 * itself for a distinct wildcard count.
+		 */
+		abstract void add(Object value);
+
+		/**
+		 * Merges the state of another part of the solutions of the same group into this state.
+		 */
+		public abstract void merge(State other);
+	}
+
+	/**
+	 * Collects the distinct values of a <tt>DISTINCT</tt> aggregate, which are aggregated once all parts of the group
+	 * have been merged.
+	 */
+	private static class DistinctState extends State {
+
+		private static final long serialVersionUID = -6183212474689733357L;
+
+		private final Set<Object> items = new LinkedHashSet<>();
+
+		@Override
+		void add(Object value) {
+			items.add(value);
+		}
+
+		@Override
+		public void merge(State other) {
+			items.addAll(((DistinctState) other).items);
+		}
+	}
+
+	/**
+	 * The state of an aggregate that is computed as the solutions are added.
+	 */
+	private abstract static class AggregateState extends State {
+
+		private static final long serialVersionUID = -1532164372961735846L;
+
+		abstract Value getValue() throws ValueExprEvaluationException;
+	}
+
+	private static class CountState extends AggregateState {
+
+		private static final long serialVersionUID = -2396584787893478473L;
+
+		private long count;
+
+		@Override
+		void add(Object value) {
+			count++;
+		}
+
+		@Override
+		public void merge(State other) {
+			count += ((CountState) other).count;
+		}
+
+		@Override
+		Value getValue() {
+			return vf.createLiteral(Long.toString(count), XMLSchema.INTEGER);
+		}
+	}
+
+	private static class MinMaxState extends AggregateState {
+
+		private static final long serialVersionUID = 2879453564236384409L;
+
+		private static final ValueComparator comparator = new ValueComparator();
+
+		private final boolean max;
+
+		private Value value;
+
+		MinMaxState(boolean max) {
+			this.max = max;
+		}
+
+		@Override
+		void add(Object value) {
+			Value v = (Value) value;
+			if (this.value == null) {
+				this.value = v;
+			} else {
+				int diff = comparator.compare(v, this.value);
+				if (max ? diff > 0 : diff < 0) {
+					this.value = v;
+				}
+			}
+		}
+
+		@Override
+		public void merge(State other) {
+			Value otherValue = ((MinMaxState) other).value;
+			if (otherValue != null) {
+				add(otherValue);
+			}
+		}
+
+		@Override
+		Value getValue() {
+			return value;
+		}
+	}
+
+	private static class SumState extends AggregateState {
+
+		private static final long serialVersionUID = -3797137707813520658L;
+
+		Literal sum = vf.createLiteral("0", XMLSchema.INTEGER);
+
+		ValueExprEvaluationException typeError;
+
+		@Override
+		void add(Object value) {
+			if (typeError != null) {
+				// halt further processing if a type error has been raised
+				return;
+			}
+			if (value instanceof Literal) {
+				Literal literal = (Literal) value;
+				if (literal.getDatatype() != null && XMLDatatypeUtil.isNumericDatatype(literal.getDatatype())) {
+					sum = MathUtil.compute(sum, literal, MathOp.PLUS);
+					return;
+				}
+			}
+			typeError = new ValueExprEvaluationException("not a number: " + value);
+		}
+
+		@Override
+		public void merge(State other) {
+			SumState otherSum = (SumState) other;
+			if (typeError == null) {
+				typeError = otherSum.typeError;
+			}
+			if (typeError == null) {
+				sum = MathUtil.compute(sum, otherSum.sum, MathOp.PLUS);
+			}
+		}
+
+		@Override
+		Value getValue() throws ValueExprEvaluationException {
+			if (typeError != null) {
+				throw typeError;
+			}
+			return sum;
+		}
+	}
+
+	private static class AvgState extends SumState {
+
+		private static final long serialVersionUID = 4616339826262812487L;
+
+		private long count;
+
+		@Override
+		void add(Object value) {
+			if (typeError == null) {
+				super.add(value);
+				count++;
+			}
+		}
+
+		@Override
+		public void merge(State other) {
+			super.merge(other);
+			count += ((AvgState) other).count;
+		}
+
+		@Override
+		Value getValue() throws ValueExprEvaluationException {
+			if (typeError != null) {
+				throw typeError;
+			}
+			if (count == 0) {
+				return vf.createLiteral(0.0d);
+			}
+			return MathUtil.compute(sum, vf.createLiteral(count), MathOp.DIVIDE);
+		}
+	}
+
+	private static class SampleState extends AggregateState {
+
+		private static final long serialVersionUID = -1424823596683385932L;
+
+		private Value sample;
+
+		@Override
+		void add(Object value) {
+			if (sample == null) {
+				sample = (Value) value;
+			}
+		}
+
+		@Override
+		public void merge(State other) {
+			add(((SampleState) other).sample);
+		}
+
+		@Override
+		Value getValue() {
+			return sample;
+		}
+	}
+
+	private static class ConcatState extends AggregateState {
+
+		private static final long serialVersionUID = 5404779580567700530L;
+
+		private final String separator;
+
+		private final StringBuilder concatenated = new StringBuilder();
+
+		private boolean empty = true;
+
+		ConcatState(String separator) {
+			this.separator = separator;
+		}
+
+		@Override
+		void add(Object value) {
+			append(((Value) value).stringValue());
+		}
+
+		@Override
+		public void merge(State other) {
+			ConcatState otherConcat = (ConcatState) other;
+			if (!otherConcat.empty) {
+				append(otherConcat.concatenated);
+			}
+		}
+
+		private void append(CharSequence value) {
+			if (!empty) {
+				concatenated.append(separator);
+			}
+			concatenated.append(value);
+			empty = false;
+		}
+
+		@Override
+		Value getValue() {
+			return vf.createLiteral(concatenated.toString());
+		}
+	}
+}
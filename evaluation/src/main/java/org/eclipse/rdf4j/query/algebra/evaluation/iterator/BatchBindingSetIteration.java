@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+/**
+ * Converts batches of solutions back to a binding set at a time, for operators that do not support batches.
+ */
+public class BatchBindingSetIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	private final CloseableIteration<SolutionBatch, QueryEvaluationException> batches;
+
+	private SolutionBatch batch;
+
+	private int row;
+
+	public BatchBindingSetIteration(CloseableIteration<SolutionBatch, QueryEvaluationException> batches) {
+		this.batches = batches;
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		while (batch == null || row >= batch.size()) {
+			if (!batches.hasNext()) {
+				return null;
+			}
+			batch = batches.next();
+			row = 0;
+		}
+		return batch.toBindingSet(row++);
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			batch = null;
+			batches.close();
+		}
+	}
+}
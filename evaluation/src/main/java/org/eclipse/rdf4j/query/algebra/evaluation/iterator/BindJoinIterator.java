@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.helpers.VarNameCollector;
+
+/**
+ * Join iterator that reads the solutions of the left argument in batches and evaluates the right argument only once
+ * for every distinct combination of values of the join variables in a batch. Each result of the right argument is
+ * then combined with all left solutions of the batch that share these values.
+ */
+public class BindJoinIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	public static final int DEFAULT_BATCH_SIZE = 128;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final EvaluationStrategy strategy;
+
+	private final TupleExpr rightArg;
+
+	private final BindingSet bindings;
+
+	private final int batchSize;
+
+	/**
+	 * The variables of the right argument that may be bound by the left argument.
+	 */
+	private final String[] joinAttributes;
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> leftIter;
+
+	private volatile CloseableIteration<BindingSet, QueryEvaluationException> rightIter;
+
+	/**
+	 * The left solutions of the current batch, grouped by the values of the join variables.
+	 */
+	private Iterator<List<BindingSet>> batch;
+
+	private List<BindingSet> leftSolutions;
+
+	private BindingSet rightSolution;
+
+	private int leftIndex;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public BindJoinIterator(EvaluationStrategy strategy, Join join, BindingSet bindings)
+			throws QueryEvaluationException {
+		this(strategy, join.getLeftArg(), join.getRightArg(), bindings, DEFAULT_BATCH_SIZE);
+	}
+
+	public BindJoinIterator(EvaluationStrategy strategy, TupleExpr leftArg, TupleExpr rightArg, BindingSet bindings,
+			int batchSize) throws QueryEvaluationException {
+		this.strategy = strategy;
+		this.rightArg = rightArg;
+		this.bindings = bindings;
+		this.batchSize = batchSize;
+
+		Set<String> joinAttributeNames = new HashSet<>(VarNameCollector.process(rightArg));
+		joinAttributeNames.addAll(rightArg.getBindingNames());
+		joinAttributeNames.retainAll(leftArg.getBindingNames());
+		joinAttributes = joinAttributeNames.toArray(new String[joinAttributeNames.size()]);
+
+		leftIter = strategy.evaluate(leftArg, bindings);
+
+		// Initialize with empty iteration so that var is never null
+		rightIter = new EmptyIteration<>();
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		try {
+			while (true) {
+				if (rightSolution != null && leftIndex < leftSolutions.size()) {
+					return join(leftSolutions.get(leftIndex++), rightSolution);
+				}
+				rightSolution = null;
+
+				if (leftSolutions != null && rightIter.hasNext()) {
+					rightSolution = rightIter.next();
+					leftIndex = 0;
+					continue;
+				}
+
+				// Right iteration exhausted
+				rightIter.close();
+
+				if (batch == null || !batch.hasNext()) {
+					batch = nextBatch();
+					if (batch == null) {
+						return null;
+					}
+				}
+				leftSolutions = batch.next();
+				rightIter = strategy.evaluate(rightArg, getJoinBindings(leftSolutions.get(0)));
+			}
+		} catch (NoSuchElementException ignore) {
+			// probably, one of the iterations has been closed concurrently in
+			// handleClose()
+		}
+
+		return null;
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				leftIter.close();
+			} finally {
+				rightIter.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads the next batch of left solutions.
+	 *
+	 * @return the left solutions grouped by the values of the join variables, or <tt>null</tt> if the left argument
+	 *         has no more solutions.
+	 */
+	private Iterator<List<BindingSet>> nextBatch() throws QueryEvaluationException {
+		Map<BindingSetHashKey, List<BindingSet>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < batchSize && leftIter.hasNext(); i++) {
+			BindingSet leftSolution = leftIter.next();
+			BindingSetHashKey key = BindingSetHashKey.create(joinAttributes, leftSolution);
+			List<BindingSet> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<>(1);
+				groups.put(key, group);
+			}
+			group.add(leftSolution);
+		}
+		return groups.isEmpty() ? null : groups.values().iterator();
+	}
+
+	/**
+	 * Creates the bindings with which the right argument is evaluated for all left solutions that share the join
+	 * values of the supplied solution.
+	 */
+	private BindingSet getJoinBindings(BindingSet leftSolution) {
+		ArrayBindingSet result = new ArrayBindingSet(bindings);
+		for (String name : joinAttributes) {
+			Value value = leftSolution.getValue(name);
+			if (value != null) {
+				result.setBinding(name, value);
+			}
+		}
+		return result;
+	}
+
+	private BindingSet join(BindingSet leftSolution, BindingSet rightSolution) {
+		ArrayBindingSet result = new ArrayBindingSet(leftSolution);
+		for (String name : rightSolution.getBindingNames()) {
+			if (!result.hasBinding(name)) {
+				Value value = rightSolution.getValue(name);
+				if (value != null) {
+					result.addBinding(name, value);
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,576 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Group;
+import org.eclipse.rdf4j.query.algebra.GroupElem;
+import org.eclipse.rdf4j.query.algebra.Order;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryMemoryManager;
+import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ValueComparator;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+
+/**
+ * Evaluates a {@link Group} with a bounded number of groups in memory. When the maximum number of groups is reached,
+ * or the groups exceed the memory budget of the query, the partial aggregates of the groups are sorted by their key and
+ * written to a run file, after which aggregation continues with an empty table. Once the input is exhausted, the runs
+ * are merged, combining the partial aggregates of each group.
+ * <p>
+ * If the input is ordered by the group keys, see {@link #isOrderedByGroupKeys(Group)}, each group is complete as soon
+ * as a solution with another key is read. The groups are then produced while the input is read, without keeping more
+ * than the current group in memory.
+ */
+public class BoundedGroupIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	/**
+	 * Orders group keys consistently with {@link Value#equals(Object)}, so that equal keys are adjacent in sorted runs.
+	 */
+	private static final Comparator<GroupKey> KEY_ORDER = (key1, key2) -> {
+		for (int i = 0; i < key1.values.length; i++) {
+			int diff = compareTerms(key1.values[i], key2.values[i]);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	};
+
+	private static final ValueComparator valueComparator = new ValueComparator();
+
+	/**
+	 * The estimated size of a group in memory without the values of its key and its partial aggregates.
+	 */
+	private static final long GROUP_SIZE = 64;
+
+	/**
+	 * The estimated size of a partial aggregate.
+	 */
+	private static final long STATE_SIZE = 48;
+
+	private final EvaluationStrategy strategy;
+
+	private final Group group;
+
+	private final BindingSet parentBindings;
+
+	private final String[] groupNames;
+
+	private final List<AggregateFunction> functions = new ArrayList<>();
+
+	private final boolean ordered;
+
+	/**
+	 * The maximum number of groups that are aggregated in memory, or <tt>0</tt> if there is no maximum.
+	 */
+	private final long maxGroups;
+
+	/**
+	 * The memory that is reserved for the groups in memory, or <tt>null</tt> if it is not accounted for.
+	 */
+	private final QueryMemoryManager.Account account;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private CloseableIteration<BindingSet, QueryEvaluationException> input;
+
+	private Map<GroupKey, AggregateFunction.State[]> groups = new LinkedHashMap<>();
+
+	private final List<File> runs = new ArrayList<>();
+
+	private final List<RunReader> readers = new ArrayList<>();
+
+	/**
+	 * The groups of which the aggregates are complete, in the order in which they are produced.
+	 */
+	private Iterator<Entry<GroupKey, AggregateFunction.State[]>> completed;
+
+	private final Deque<Entry<GroupKey, AggregateFunction.State[]>> pending = new ArrayDeque<>();
+
+	private GroupKey lastKey;
+
+	private boolean hasSolutions;
+
+	private boolean overBudget;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * @param maxGroups the maximum number of groups that are aggregated in memory before they are written to disk, or
+	 *                  <tt>0</tt> to aggregate all groups in memory.
+	 */
+	public BoundedGroupIterator(EvaluationStrategy strategy, Group group, BindingSet parentBindings, long maxGroups)
+			throws QueryEvaluationException {
+		this(strategy, group, parentBindings, maxGroups, null);
+	}
+
+	/**
+	 * @param maxGroups the maximum number of groups that are aggregated in memory before they are written to disk, or
+	 *                  <tt>0</tt> if there is no maximum.
+	 * @param memory    the memory manager of the query, which makes the groups be written to disk once its budget is
+	 *                  exceeded, or <tt>null</tt> to only write them to disk above the maximum number of groups.
+	 */
+	public BoundedGroupIterator(EvaluationStrategy strategy, Group group, BindingSet parentBindings, long maxGroups,
+			QueryMemoryManager memory) throws QueryEvaluationException {
+		this.strategy = strategy;
+		this.group = group;
+		this.parentBindings = parentBindings;
+		this.groupNames = group.getGroupBindingNames().toArray(new String[0]);
+		this.ordered = isOrderedByGroupKeys(group);
+		this.maxGroups = maxGroups;
+		this.account = memory == null ? null : memory.createAccount();
+		for (GroupElem ge : group.getGroupElements()) {
+			functions.add(new AggregateFunction(ge, strategy, parentBindings));
+		}
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	/**
+	 * Determines whether all aggregates of the supplied group can be computed by this iterator.
+	 */
+	public static boolean isSupported(Group group) {
+		for (GroupElem ge : group.getGroupElements()) {
+			if (!AggregateFunction.isSupported(ge.getOperator())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determines whether the argument of the supplied group produces its solutions ordered by all group variables,
+	 * which is the case if it is an {@link Order} that starts with these variables in any order and direction.
+	 */
+	public static boolean isOrderedByGroupKeys(Group group) {
+		Set<String> groupNames = group.getGroupBindingNames();
+		if (groupNames.isEmpty() || !(group.getArg() instanceof Order)) {
+			return false;
+		}
+		Set<String> ordered = new HashSet<>();
+		for (OrderElem elem : ((Order) group.getArg()).getElements()) {
+			if (ordered.containsAll(groupNames)) {
+				break;
+			}
+			if (!(elem.getExpr() instanceof Var) || !groupNames.contains(((Var) elem.getExpr()).getName())) {
+				return false;
+			}
+			ordered.add(((Var) elem.getExpr()).getName());
+		}
+		return ordered.containsAll(groupNames);
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (input == null) {
+			input = strategy.evaluate(group.getArg(), parentBindings);
+			if (!ordered) {
+				aggregateAll();
+			}
+		}
+
+		Entry<GroupKey, AggregateFunction.State[]> next;
+		if (ordered) {
+			next = nextOrderedGroup();
+		} else {
+			next = completed.hasNext() ? completed.next() : null;
+		}
+		return next == null ? null : createSolution(next.getKey(), next.getValue());
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				if (input != null) {
+					input.close();
+				}
+			} finally {
+				for (RunReader reader : readers) {
+					reader.close();
+				}
+				for (File run : runs) {
+					run.delete();
+				}
+				groups = null;
+				if (account != null) {
+					account.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aggregates all solutions of the input, writing the groups to disk when the maximum is reached.
+	 */
+	private void aggregateAll() throws QueryEvaluationException {
+		while (input.hasNext()) {
+			aggregate(input.next());
+			if (maxGroups > 0 && groups.size() >= maxGroups || overBudget) {
+				spill();
+			}
+		}
+		addEmptyGroup();
+
+		if (runs.isEmpty()) {
+			completed = groups.entrySet().iterator();
+		} else {
+			List<Entry<GroupKey, AggregateFunction.State[]>> inMemory = new ArrayList<>(groups.entrySet());
+			inMemory.sort(Entry.comparingByKey(KEY_ORDER));
+			groups = new LinkedHashMap<>();
+			completed = new MergeIterator(inMemory.iterator());
+		}
+	}
+
+	/**
+	 * Reads the input up to the first solution of the next group.
+	 */
+	private Entry<GroupKey, AggregateFunction.State[]> nextOrderedGroup() throws QueryEvaluationException {
+		while (pending.isEmpty() && input.hasNext()) {
+			BindingSet solution = input.next();
+			GroupKey key = new GroupKey(groupNames, solution);
+			if (lastKey != null && !isSameOrderPosition(lastKey, key)) {
+				// the input is ordered, so no further solutions for the open groups follow
+				pending.addAll(groups.entrySet());
+				groups.clear();
+			}
+			lastKey = key;
+			aggregate(key, solution);
+		}
+		if (pending.isEmpty() && !groups.isEmpty()) {
+			pending.addAll(groups.entrySet());
+			groups.clear();
+		} else if (pending.isEmpty() && lastKey == null) {
+			addEmptyGroup();
+			pending.addAll(groups.entrySet());
+			groups.clear();
+			lastKey = GroupKey.EMPTY;
+		}
+		return pending.poll();
+	}
+
+	private void aggregate(BindingSet solution) throws QueryEvaluationException {
+		aggregate(new GroupKey(groupNames, solution), solution);
+	}
+
+	private void aggregate(GroupKey key, BindingSet solution) throws QueryEvaluationException {
+		hasSolutions = true;
+		AggregateFunction.State[] states = groups.get(key);
+		if (states == null) {
+			states = createStates();
+			groups.put(key, states);
+			if (account != null && !ordered && !account.reserve(estimateSize(key, states))) {
+				overBudget = true;
+			}
+		}
+		for (int i = 0; i < states.length; i++) {
+			functions.get(i).update(states[i], solution);
+		}
+	}
+
+	/**
+	 * Adds the group without solutions that produces the values of the aggregates if the input is empty.
+	 */
+	private void addEmptyGroup() throws QueryEvaluationException {
+		if (!hasSolutions && !functions.isEmpty()) {
+			AggregateFunction.State[] states = createStates();
+			for (int i = 0; i < states.length; i++) {
+				functions.get(i).update(states[i], EmptyBindingSet.getInstance());
+			}
+			groups.put(GroupKey.EMPTY, states);
+		}
+	}
+
+	private static long estimateSize(GroupKey key, AggregateFunction.State[] states) {
+		long size = GROUP_SIZE + STATE_SIZE * states.length;
+		for (Value value : key.values) {
+			size += QueryMemoryManager.estimateSize(value);
+		}
+		return size;
+	}
+
+	private AggregateFunction.State[] createStates() {
+		return createStates(functions);
+	}
+
+	private BindingSet createSolution(GroupKey key, AggregateFunction.State[] states) {
+		return createSolution(parentBindings, groupNames, key, functions, states);
+	}
+
+	static AggregateFunction.State[] createStates(List<AggregateFunction> functions) {
+		AggregateFunction.State[] states = new AggregateFunction.State[functions.size()];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = functions.get(i).createState();
+		}
+		return states;
+	}
+
+	/**
+	 * Creates the solution of a group from the parent bindings, the key of the group and the partial aggregates of all
+	 * solutions of the group.
+	 */
+	static BindingSet createSolution(BindingSet parentBindings, String[] groupNames, GroupKey key,
+			List<AggregateFunction> functions, AggregateFunction.State[] states) {
+		ArrayBindingSet solution = new ArrayBindingSet(parentBindings);
+		for (int i = 0; i < key.values.length; i++) {
+			if (key.values[i] != null) {
+				// Potentially overwrites bindings from super
+				solution.setBinding(groupNames[i], key.values[i]);
+			}
+		}
+		for (int i = 0; i < states.length; i++) {
+			try {
+				Value value = functions.get(i).getValue(states[i]);
+				if (value != null) {
+					solution.setBinding(functions.get(i).getName(), value);
+				}
+			} catch (ValueExprEvaluationException e) {
+				// a type error while calculating the value of the aggregate results in no value being bound
+			}
+		}
+		return solution;
+	}
+
+	/**
+	 * Writes the groups in memory to a new run file, sorted by their key.
+	 */
+	private void spill() throws QueryEvaluationException {
+		List<Entry<GroupKey, AggregateFunction.State[]>> entries = new ArrayList<>(groups.entrySet());
+		entries.sort(Entry.comparingByKey(KEY_ORDER));
+		try {
+			File run = File.createTempFile("group-run", null);
+			runs.add(run);
+			try (ObjectOutputStream out = new ObjectOutputStream(
+					new BufferedOutputStream(new FileOutputStream(run)))) {
+				for (Entry<GroupKey, AggregateFunction.State[]> entry : entries) {
+					out.writeObject(entry.getKey().values);
+					out.writeObject(entry.getValue());
+					// do not keep references to the objects that have been written
+					out.reset();
+				}
+			}
+		} catch (IOException e) {
+			throw new QueryEvaluationException("could not write group run to disk", e);
+		}
+		groups = new LinkedHashMap<>();
+		if (account != null) {
+			if (overBudget) {
+				account.spilled();
+			}
+			account.release();
+			overBudget = false;
+		}
+	}
+
+	/**
+	 * Checks whether two keys can not be separated by an ordering on the group variables.
+	 */
+	private static boolean isSameOrderPosition(GroupKey key1, GroupKey key2) {
+		for (int i = 0; i < key1.values.length; i++) {
+			if (valueComparator.compare(key1.values[i], key2.values[i]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compares two values by their lexical form, in an order that is consistent with equals.
+	 */
+	private static int compareTerms(Value v1, Value v2) {
+		if (v1 == null || v2 == null) {
+			return v1 == null ? (v2 == null ? 0 : -1) : 1;
+		}
+		int diff = Integer.compare(getTermType(v1), getTermType(v2));
+		if (diff == 0) {
+			diff = v1.stringValue().compareTo(v2.stringValue());
+		}
+		if (diff == 0 && v1 instanceof Literal) {
+			Literal l1 = (Literal) v1;
+			Literal l2 = (Literal) v2;
+			diff = String.valueOf(l1.getDatatype()).compareTo(String.valueOf(l2.getDatatype()));
+			if (diff == 0) {
+				diff = l1.getLanguage().orElse("").compareTo(l2.getLanguage().orElse(""));
+			}
+		}
+		return diff;
+	}
+
+	private static int getTermType(Value value) {
+		if (value instanceof IRI) {
+			return 0;
+		} else if (value instanceof BNode) {
+			return 1;
+		} else if (value instanceof Literal) {
+			return 2;
+		}
+		return 3;
+	}
+
+	/**
+	 * Reads the groups of a run file in the order in which they were written.
+	 */
+	private class RunReader {
+
+		final int index;
+
+		private final ObjectInputStream in;
+
+		Entry<GroupKey, AggregateFunction.State[]> current;
+
+		RunReader(File run, int index) throws IOException {
+			this.index = index;
+			this.in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(run)));
+		}
+
+		boolean advance() throws QueryEvaluationException {
+			try {
+				GroupKey key = new GroupKey((Value[]) in.readObject());
+				AggregateFunction.State[] states = (AggregateFunction.State[]) in.readObject();
+				current = new SimpleImmutableEntry<>(key, states);
+				return true;
+			} catch (EOFException e) {
+				current = null;
+				return false;
+			} catch (IOException | ClassNotFoundException e) {
+				throw new QueryEvaluationException("could not read group run from disk", e);
+			}
+		}
+
+		void close() {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Merges the sorted groups in memory with the sorted groups of the run files, combining the partial aggregates of
+	 * the groups with the same key.
+	 */
+	private class MergeIterator implements Iterator<Entry<GroupKey, AggregateFunction.State[]>> {
+
+		private final Iterator<Entry<GroupKey, AggregateFunction.State[]>> inMemory;
+
+		private Entry<GroupKey, AggregateFunction.State[]> nextInMemory;
+
+		/**
+		 * The readers of the runs, ordered by their current key and then by the order in which the runs were written,
+		 * so that the partial aggregates of a group are merged in the order of the input.
+		 */
+		private final PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator
+				.<RunReader, GroupKey>comparing(r -> r.current.getKey(), KEY_ORDER)
+				.thenComparingInt(r -> r.index));
+
+		MergeIterator(Iterator<Entry<GroupKey, AggregateFunction.State[]>> inMemory)
+				throws QueryEvaluationException {
+			this.inMemory = inMemory;
+			this.nextInMemory = inMemory.hasNext() ? inMemory.next() : null;
+			try {
+				for (int i = 0; i < runs.size(); i++) {
+					RunReader reader = new RunReader(runs.get(i), i);
+					readers.add(reader);
+					if (reader.advance()) {
+						queue.add(reader);
+					}
+				}
+			} catch (IOException e) {
+				throw new QueryEvaluationException("could not read group run from disk", e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextInMemory != null || !queue.isEmpty();
+		}
+
+		@Override
+		public Entry<GroupKey, AggregateFunction.State[]> next() {
+			Entry<GroupKey, AggregateFunction.State[]> result;
+			if (queue.isEmpty() || nextInMemory != null
+					&& KEY_ORDER.compare(nextInMemory.getKey(), queue.peek().current.getKey()) < 0) {
+				result = nextInMemory;
+				nextInMemory = inMemory.hasNext() ? inMemory.next() : null;
+			} else {
+				result = poll();
+			}
+
+			while (!queue.isEmpty() && KEY_ORDER.compare(result.getKey(), queue.peek().current.getKey()) == 0) {
+				merge(result.getValue(), poll().getValue());
+			}
+			if (nextInMemory != null && KEY_ORDER.compare(result.getKey(), nextInMemory.getKey()) == 0) {
+				merge(result.getValue(), nextInMemory.getValue());
+				nextInMemory = inMemory.hasNext() ? inMemory.next() : null;
+			}
+			return result;
+		}
+
+		private Entry<GroupKey, AggregateFunction.State[]> poll() {
+			RunReader reader = queue.poll();
+			Entry<GroupKey, AggregateFunction.State[]> result = reader.current;
+			if (reader.advance()) {
+				queue.add(reader);
+			}
+			return result;
+		}
+
+		private void merge(AggregateFunction.State[] states, AggregateFunction.State[] other) {
+			for (int i = 0; i < states.length; i++) {
+				states[i].merge(other[i]);
+			}
+		}
+	}
+}
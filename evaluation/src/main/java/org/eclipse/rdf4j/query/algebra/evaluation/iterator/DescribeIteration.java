@@ -7,16 +7,22 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
-import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.common.iteration.Iteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
 import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
 import org.eclipse.rdf4j.model.BNode;
 import org.eclipse.rdf4j.model.Value;
@@ -25,16 +31,30 @@ import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryContext;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 
 /**
  * Iteration that implements a simplified version of Symmetric Concise Bounded Description (omitting reified
  * statements).
+ * <p>
+ * The described resources are collected in batches. The statements of all resources of a batch are looked up in the
+ * order of their identifiers in the {@link TripleSource}, if it has any, so that consecutive lookups hit nearby parts
+ * of its indexes. The blank node closure is then computed by a breadth first search that expands all blank nodes of
+ * the batch that were reached in the previous step at once. If an {@link Executor} is supplied, the lookups of each
+ * step run concurrently on it.
  * 
  * @author Jeen Broekstra
  * @see <a href="http://www.w3.org/Submission/CBD/#alternatives">Concise Bounded Description - alternatives</a>
  */
 public class DescribeIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
 
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	public static final int DEFAULT_BATCH_SIZE = 128;
+
 	private final static String VARNAME_SUBJECT = "subject";
 
 	private final static String VARNAME_PREDICATE = "predicate";
@@ -45,169 +65,218 @@ public class DescribeIteration extends LookAheadIteration<BindingSet, QueryEvalu
 
 	private final EvaluationStrategy strategy;
 
-	private Value startValue;
+	private final BindingSet parentBindings;
 
-	private final Queue<BNode> nodeQueue = new ArrayDeque<>();
+	private final TripleSource tripleSource;
 
-	private final Set<BNode> processedNodes = new HashSet<>();
+	private final int batchSize;
 
-	private CloseableIteration<BindingSet, QueryEvaluationException> currentDescribeExprIter;
+	private final Executor executor;
 
-	private enum Mode {
-		OUTGOING_LINKS,
-		INCOMING_LINKS
-	}
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final Iteration<BindingSet, QueryEvaluationException> sourceIter;
+
+	/**
+	 * The resources that have been described, so that resources that occur in several solutions are described once.
+	 */
+	private final Set<Value> describedValues = new HashSet<>();
+
+	/**
+	 * The blank nodes of which the outgoing links have been looked up.
+	 */
+	private final Set<Value> processedSubjects = new HashSet<>();
+
+	/**
+	 * The blank nodes of which the incoming links have been looked up.
+	 */
+	private final Set<Value> processedObjects = new HashSet<>();
 
-	private Mode currentMode = Mode.OUTGOING_LINKS;
+	private Iterator<BindingSet> results;
 
-	private Iteration<BindingSet, QueryEvaluationException> sourceIter;
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
 
 	public DescribeIteration(Iteration<BindingSet, QueryEvaluationException> sourceIter, EvaluationStrategy strategy,
 			Set<String> describeExprNames, BindingSet parentBindings) {
+		this(sourceIter, strategy, describeExprNames, parentBindings, null, DEFAULT_BATCH_SIZE, null);
+	}
+
+	/**
+	 * @param tripleSource the triple source that supplies the identifiers by which the lookups are ordered, or
+	 *                     <tt>null</tt> to look up resources in the order in which they are described.
+	 * @param batchSize    the maximum number of resources that are described together.
+	 * @param executor     the executor on which the lookups of a batch run concurrently, or <tt>null</tt> to run them
+	 *                     in the current thread.
+	 */
+	public DescribeIteration(Iteration<BindingSet, QueryEvaluationException> sourceIter, EvaluationStrategy strategy,
+			Set<String> describeExprNames, BindingSet parentBindings, TripleSource tripleSource, int batchSize,
+			Executor executor) {
 		this.strategy = strategy;
 		this.sourceIter = sourceIter;
 		this.describeExprNames = new ArrayList<>(describeExprNames);
 		this.parentBindings = parentBindings;
+		this.tripleSource = tripleSource;
+		this.batchSize = batchSize;
+		this.executor = executor;
 	}
 
-	private BindingSet currentBindings;
+	/*---------*
+	 * Methods *
+	 *---------*/
 
-	private int describeExprsIndex;
-
-	private BindingSet parentBindings;
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		while (results == null || !results.hasNext()) {
+			List<Value> batch = nextBatch();
+			if (batch.isEmpty()) {
+				return null;
+			}
+			List<BindingSet> statements = new ArrayList<>();
+			describe(batch, true, statements);
+			describe(batch, false, statements);
+			results = statements.iterator();
+		}
+		return results.next();
+	}
 
-	private void resetCurrentDescribeExprIter() throws QueryEvaluationException {
-		while (currentDescribeExprIter == null) {
-			if (currentBindings == null && startValue == null) {
-				if (sourceIter.hasNext()) {
-					currentBindings = sourceIter.next();
-				} else {
-					// no more bindings, therefore no more results to return.
-					return;
+	/**
+	 * Reads the next resources to describe from the source iteration.
+	 *
+	 * @return the resources, or an empty list if all resources have been described.
+	 */
+	private List<Value> nextBatch() throws QueryEvaluationException {
+		List<Value> batch = new ArrayList<>();
+		while (batch.size() < batchSize && sourceIter.hasNext()) {
+			BindingSet bindings = sourceIter.next();
+			for (String name : describeExprNames) {
+				Value value = bindings.getValue(name);
+				if (value != null && describedValues.add(value)) {
+					batch.add(value);
 				}
 			}
+		}
+		return batch;
+	}
 
-			if (startValue == null) {
-				String nextValueExpr = describeExprNames.get(describeExprsIndex++);
-				if (nextValueExpr != null) {
-					startValue = currentBindings.getValue(nextValueExpr);
-					if (describeExprsIndex == describeExprNames.size()) {
-						// reached the end of the list of valueExprs, reset to
-						// read next value from source iterator if any.
-						currentBindings = null;
-						describeExprsIndex = 0;
+	/**
+	 * Looks up the outgoing or incoming links of the supplied resources, and follows the links through blank nodes
+	 * until no new blank nodes are reached.
+	 *
+	 * @param outgoing <tt>true</tt> to look up the statements of which the resources are the subject, <tt>false</tt>
+	 *                 to look up those of which they are the object.
+	 */
+	private void describe(List<Value> resources, boolean outgoing, List<BindingSet> statements)
+			throws QueryEvaluationException {
+		Set<Value> processed = outgoing ? processedSubjects : processedObjects;
+		String varName = outgoing ? VARNAME_OBJECT : VARNAME_SUBJECT;
+
+		List<Value> frontier = new ArrayList<>(resources);
+		processed.addAll(frontier);
+		while (!frontier.isEmpty()) {
+			List<Value> next = new ArrayList<>();
+			for (List<BindingSet> links : lookup(sort(frontier), outgoing)) {
+				for (BindingSet bs : links) {
+					statements.add(bs);
+					Value v = bs.getValue(varName);
+					if (v instanceof BNode && processed.add(v)) { // duplicate/cycle detection
+						next.add(v);
 					}
-					currentMode = Mode.OUTGOING_LINKS;
 				}
 			}
+			frontier = next;
+		}
+	}
 
-			switch (currentMode) {
-			case OUTGOING_LINKS:
-				currentDescribeExprIter = createNextIteration(startValue, null);
-				if (!currentDescribeExprIter.hasNext()) {
-					// start value has no outgoing links.
-					currentDescribeExprIter.close();
-					currentDescribeExprIter = null;
-					currentMode = Mode.INCOMING_LINKS;
-				}
-				break;
-			case INCOMING_LINKS:
-				currentDescribeExprIter = createNextIteration(null, startValue);
-				if (!currentDescribeExprIter.hasNext()) {
-					// no incoming links for this start value.
-					currentDescribeExprIter.close();
-					currentDescribeExprIter = null;
-					startValue = null;
-					currentMode = Mode.OUTGOING_LINKS;
-				}
-				break;
+	/**
+	 * Sorts resources by their identifiers in the triple source.
+	 */
+	private List<Value> sort(List<Value> resources) throws QueryEvaluationException {
+		if (tripleSource != null && resources.size() > 1) {
+			Map<Value, Long> ids = new HashMap<>();
+			for (Value resource : resources) {
+				ids.put(resource, tripleSource.getValueId(resource));
 			}
-		} // end while
+			resources.sort(Comparator.comparing(ids::get));
+		}
+		return resources;
 	}
 
-	@Override
-	protected BindingSet getNextElement() throws QueryEvaluationException {
-		resetCurrentDescribeExprIter();
-		if (currentDescribeExprIter == null) {
-			return null;
+	/**
+	 * Looks up the links of each resource, concurrently if there is an executor.
+	 *
+	 * @return the links of each resource, in the order of the resources.
+	 */
+	private List<List<BindingSet>> lookup(List<Value> resources, boolean outgoing) throws QueryEvaluationException {
+		List<List<BindingSet>> result = new ArrayList<>(resources.size());
+		if (executor == null || resources.size() == 1) {
+			for (Value resource : resources) {
+				result.add(lookup(resource, outgoing));
+			}
+			return result;
 		}
 
-		while (!currentDescribeExprIter.hasNext() && !nodeQueue.isEmpty()) {
-			// process next node in queue
-			BNode nextNode = nodeQueue.poll();
-			currentDescribeExprIter.close();
-			switch (currentMode) {
-			case OUTGOING_LINKS:
-				currentDescribeExprIter = createNextIteration(nextNode, null);
-				break;
-			case INCOMING_LINKS:
-				currentDescribeExprIter = createNextIteration(null, nextNode);
-				break;
-
+		QueryContext queryContext = QueryContext.getQueryContext();
+		List<CompletableFuture<List<BindingSet>>> lookups = new ArrayList<>(resources.size());
+		for (Value resource : resources) {
+			lookups.add(CompletableFuture.supplyAsync(() -> lookup(resource, outgoing, queryContext), executor));
+		}
+		try {
+			for (CompletableFuture<List<BindingSet>> lookup : lookups) {
+				result.add(await(lookup));
 			}
-			processedNodes.add(nextNode);
-
-			if (nodeQueue.isEmpty() && !currentDescribeExprIter.hasNext()) {
-				// we have hit a blank node that has no further expansion. reset to
-				// initialize next in value expression queue.
-				currentDescribeExprIter.close();
-				currentDescribeExprIter = null;
-
-				if (currentMode == Mode.OUTGOING_LINKS) {
-					currentMode = Mode.INCOMING_LINKS;
-				} else {
-					// done with this valueExpr, reset to initialize next in value
-					// expression queue.
-					currentMode = Mode.OUTGOING_LINKS;
-					startValue = null;
-				}
-
-				resetCurrentDescribeExprIter();
-				if (currentDescribeExprIter == null) {
-					return null;
-				}
+		} finally {
+			for (CompletableFuture<List<BindingSet>> lookup : lookups) {
+				lookup.cancel(false);
 			}
-
 		}
+		return result;
+	}
 
-		if (currentDescribeExprIter.hasNext()) {
-			BindingSet bs = currentDescribeExprIter.next();
-
-			String varname = currentMode == Mode.OUTGOING_LINKS ? VARNAME_OBJECT : VARNAME_SUBJECT;
-
-			Value v = bs.getValue(varname);
-			if (v instanceof BNode) {
-				if (!processedNodes.contains(v)) { // duplicate/cycle detection
-					nodeQueue.add((BNode) v);
-				}
+	/**
+	 * Looks up the links of a resource. Called on a thread of the executor.
+	 */
+	private List<BindingSet> lookup(Value resource, boolean outgoing, QueryContext queryContext) {
+		if (queryContext != null) {
+			queryContext.begin();
+		}
+		try {
+			return lookup(resource, outgoing);
+		} finally {
+			if (queryContext != null) {
+				queryContext.end();
 			}
+		}
+	}
 
-			if (!currentDescribeExprIter.hasNext() && nodeQueue.isEmpty()) {
-				currentDescribeExprIter.close();
-				currentDescribeExprIter = null;
-
-				if (currentMode == Mode.OUTGOING_LINKS) {
-					currentMode = Mode.INCOMING_LINKS;
-				} else {
-					// done with this valueExpr, reset to initialize next in value
-					// expression queue.
-					currentMode = Mode.OUTGOING_LINKS;
-					startValue = null;
-				}
-			}
+	private List<BindingSet> lookup(Value resource, boolean outgoing) throws QueryEvaluationException {
+		CloseableIteration<BindingSet, QueryEvaluationException> links = outgoing
+				? createNextIteration(resource, null)
+				: createNextIteration(null, resource);
+		return Iterations.asList(links);
+	}
 
-			return bs;
+	private static <T> T await(CompletableFuture<T> future) throws QueryEvaluationException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			} else if (cause instanceof QueryEvaluationException) {
+				throw (QueryEvaluationException) cause;
+			}
+			throw new QueryEvaluationException(cause);
+		} catch (CancellationException e) {
+			throw new QueryEvaluationException("description has been cancelled", e);
 		}
-
-		return null;
 	}
 
 	private CloseableIteration<BindingSet, QueryEvaluationException> createNextIteration(Value subject, Value object)
 			throws QueryEvaluationException {
-		if (subject == null && object == null) {
-			return new EmptyIteration<>();
-		}
-
 		Var subjVar = new Var(VARNAME_SUBJECT, subject);
 		Var predVar = new Var(VARNAME_PREDICATE);
 		Var objVar = new Var(VARNAME_OBJECT, object);
@@ -216,4 +285,12 @@ public class DescribeIteration extends LookAheadIteration<BindingSet, QueryEvalu
 		return strategy.evaluate(pattern, parentBindings);
 	}
 
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			Iterations.closeCloseable(sourceIter);
+		}
+	}
 }
@@ -7,6 +7,8 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
 
+import java.util.List;
+
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
 import org.eclipse.rdf4j.model.Value;
@@ -15,47 +17,57 @@ import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.AggregateOperator;
 import org.eclipse.rdf4j.query.algebra.Extension;
 import org.eclipse.rdf4j.query.algebra.ExtensionElem;
-import org.eclipse.rdf4j.query.algebra.ValueExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
 
 public class ExtensionIterator extends ConvertingIteration<BindingSet, BindingSet, QueryEvaluationException> {
 
-	private final Extension extension;
+	private final String[] names;
 
-	private final EvaluationStrategy strategy;
+	/**
+	 * The compiled expressions of the extension elements, or <tt>null</tt> for aggregates.
+	 */
+	private final QueryValueEvaluationStep[] steps;
 
 	public ExtensionIterator(Extension extension, CloseableIteration<BindingSet, QueryEvaluationException> iter,
 			EvaluationStrategy strategy) throws QueryEvaluationException {
 		super(iter);
-		this.extension = extension;
-		this.strategy = strategy;
+		List<ExtensionElem> elements = extension.getElements();
+		this.names = new String[elements.size()];
+		this.steps = new QueryValueEvaluationStep[elements.size()];
+		for (int i = 0; i < names.length; i++) {
+			ExtensionElem extElem = elements.get(i);
+			names[i] = extElem.getName();
+			if (!(extElem.getExpr() instanceof AggregateOperator)) {
+				steps[i] = strategy.precompile(extElem.getExpr());
+			}
+		}
 	}
 
 	@Override
 	public BindingSet convert(BindingSet sourceBindings) throws QueryEvaluationException {
-		QueryBindingSet targetBindings = new QueryBindingSet(sourceBindings);
+		ArrayBindingSet targetBindings = new ArrayBindingSet(sourceBindings);
 
-		for (ExtensionElem extElem : extension.getElements()) {
-			ValueExpr expr = extElem.getExpr();
-			if (!(expr instanceof AggregateOperator)) {
+		for (int i = 0; i < steps.length; i++) {
+			if (steps[i] != null) {
 				try {
 					// we evaluate each extension element over the targetbindings, so that bindings from
 					// a previous extension element in this same extension can be used by other extension elements.
 					// e.g. if a projection contains (?a + ?b as ?c) (?c * 2 as ?d)
-					Value targetValue = strategy.evaluate(extElem.getExpr(), targetBindings);
+					Value targetValue = steps[i].evaluate(targetBindings);
 
 					if (targetValue != null) {
 						// Potentially overwrites bindings from super
-						targetBindings.setBinding(extElem.getName(), targetValue);
+						targetBindings.setBinding(names[i], targetValue);
 					}
 				} catch (ValueExprEvaluationException e) {
 					// silently ignore type errors in extension arguments. They should not cause the
 					// query to fail but result in no bindings for this solution
 					// see https://www.w3.org/TR/sparql11-query/#assignment
 					// use null as place holder for unbound variables that must remain so
-					targetBindings.setBinding(extElem.getName(), null);
+					targetBindings.setBinding(names[i], null);
 				}
 			}
 		}
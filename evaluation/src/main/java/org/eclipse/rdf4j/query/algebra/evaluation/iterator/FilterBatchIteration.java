@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.SubQueryValueOperator;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
+import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
+
+/**
+ * Removes the rows from batches of solutions that do not satisfy the condition of a {@link Filter}. The condition is
+ * evaluated on a view of each row, limited to the bindings that are in scope for the filter in the same way as the
+ * {@link FilterIterator}.
+ */
+public class FilterBatchIteration extends LookAheadIteration<SolutionBatch, QueryEvaluationException> {
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final CloseableIteration<SolutionBatch, QueryEvaluationException> input;
+
+	private final Filter filter;
+
+	/**
+	 * The compiled condition of the filter.
+	 */
+	private final QueryValueEvaluationStep condition;
+
+	private final boolean partOfSubQuery;
+
+	private SolutionBatch.Schema schema;
+
+	private boolean[] visible;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public FilterBatchIteration(CloseableIteration<SolutionBatch, QueryEvaluationException> input, Filter filter,
+			EvaluationStrategy strategy) {
+		this.input = input;
+		this.filter = filter;
+		this.condition = strategy.precompile(filter.getCondition());
+		this.partOfSubQuery = isPartOfSubQuery(filter);
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected SolutionBatch getNextElement() throws QueryEvaluationException {
+		while (input.hasNext()) {
+			SolutionBatch batch = input.next();
+			if (batch.getSchema() != schema) {
+				schema = batch.getSchema();
+				visible = partOfSubQuery ? null : getVisibleColumns(schema, filter.getBindingNames());
+			}
+
+			boolean[] selected = new boolean[batch.size()];
+			for (int row = 0; row < selected.length; row++) {
+				selected[row] = accept(batch, row);
+			}
+			batch.retainRows(selected);
+			if (!batch.isEmpty()) {
+				return batch;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			input.close();
+		}
+	}
+
+	private boolean accept(SolutionBatch batch, int row) throws QueryEvaluationException {
+		try {
+			return QueryEvaluationUtil.getEffectiveBooleanValue(condition.evaluate(batch.getRow(row, visible)));
+		} catch (ValueExprEvaluationException e) {
+			// failed to evaluate condition
+			return false;
+		}
+	}
+
+	private static boolean[] getVisibleColumns(SolutionBatch.Schema schema, Set<String> scopeBindingNames) {
+		boolean[] result = new boolean[schema.size()];
+		for (int column = 0; column < result.length; column++) {
+			result[column] = scopeBindingNames.contains(schema.getName(column));
+		}
+		return result;
+	}
+
+	private static boolean isPartOfSubQuery(QueryModelNode node) {
+		for (QueryModelNode n = node; n != null; n = n.getParentNode()) {
+			if (n instanceof SubQueryValueOperator) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
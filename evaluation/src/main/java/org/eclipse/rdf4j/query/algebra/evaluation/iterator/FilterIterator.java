@@ -16,9 +16,11 @@ import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.Filter;
 import org.eclipse.rdf4j.query.algebra.QueryModelNode;
 import org.eclipse.rdf4j.query.algebra.SubQueryValueOperator;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
 
 public class FilterIterator extends FilterIteration<BindingSet, QueryEvaluationException> {
 
@@ -28,7 +30,10 @@ public class FilterIterator extends FilterIteration<BindingSet, QueryEvaluationE
 
 	private final Filter filter;
 
-	private final EvaluationStrategy strategy;
+	/**
+	 * The compiled condition of the filter.
+	 */
+	private final QueryValueEvaluationStep condition;
 
 	/**
 	 * The set of binding names that are "in scope" for the filter. The filter must not include bindings that are (only)
@@ -36,6 +41,8 @@ public class FilterIterator extends FilterIteration<BindingSet, QueryEvaluationE
 	 */
 	private final Set<String> scopeBindingNames;
 
+	private final boolean partOfSubQuery;
+
 	/*--------------*
 	 * Constructors *
 	 *--------------*/
@@ -44,9 +51,9 @@ public class FilterIterator extends FilterIteration<BindingSet, QueryEvaluationE
 			EvaluationStrategy strategy) throws QueryEvaluationException {
 		super(iter);
 		this.filter = filter;
-		this.strategy = strategy;
+		this.condition = strategy.precompile(filter.getCondition());
 		this.scopeBindingNames = filter.getBindingNames();
-
+		this.partOfSubQuery = isPartOfSubQuery(filter);
 	}
 
 	/*---------*
@@ -70,16 +77,16 @@ public class FilterIterator extends FilterIteration<BindingSet, QueryEvaluationE
 	protected boolean accept(BindingSet bindings) throws QueryEvaluationException {
 		try {
 			// Limit the bindings to the ones that are in scope for this filter
-			QueryBindingSet scopeBindings = new QueryBindingSet(bindings);
+			ArrayBindingSet scopeBindings = new ArrayBindingSet(bindings);
 
 			// FIXME J1 scopeBindingNames should include bindings from superquery if the filter
 			// is part of a subquery. This is a workaround: we should fix the settings of scopeBindingNames,
 			// rather than skipping the limiting of bindings.
-			if (!isPartOfSubQuery(filter)) {
+			if (!partOfSubQuery) {
 				scopeBindings.retainAll(scopeBindingNames);
 			}
 
-			return strategy.isTrue(filter.getCondition(), scopeBindings);
+			return QueryEvaluationUtil.getEffectiveBooleanValue(condition.evaluate(scopeBindings));
 		} catch (ValueExprEvaluationException e) {
 			// failed to evaluate condition
 			return false;
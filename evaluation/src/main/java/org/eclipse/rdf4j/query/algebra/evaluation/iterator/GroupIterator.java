@@ -44,6 +44,7 @@ import org.eclipse.rdf4j.query.algebra.Sum;
 import org.eclipse.rdf4j.query.algebra.ValueExpr;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
 import org.eclipse.rdf4j.query.algebra.evaluation.util.MathUtil;
 import org.eclipse.rdf4j.query.algebra.evaluation.util.ValueComparator;
@@ -85,6 +86,11 @@ public class GroupIterator extends CloseableIteratorIteration<BindingSet, QueryE
 	 */
 	private final long iterationCacheSyncThreshold;
 
+	/**
+	 * The cancellation of the query, or <tt>null</tt> if it cannot be cancelled.
+	 */
+	private final QueryCancellation cancellation = QueryCancellation.getCurrent();
+
 	/*--------------*
 	 * Constructors *
 	 *--------------*/
@@ -209,6 +215,9 @@ public class GroupIterator extends CloseableIteratorIteration<BindingSet, QueryE
 			// long count = 0;
 
 			while (iter.hasNext()) {
+				if (cancellation != null) {
+					cancellation.check();
+				}
 				BindingSet sol;
 				try {
 					sol = iter.next();
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.Arrays;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+
+/**
+ * The values of the group variables of a solution.
+ */
+class GroupKey {
+
+	static final GroupKey EMPTY = new GroupKey(new Value[0]);
+
+	final Value[] values;
+
+	private final int hashCode;
+
+	GroupKey(String[] names, BindingSet solution) {
+		this(new Value[names.length]);
+		for (int i = 0; i < names.length; i++) {
+			values[i] = solution.getValue(names[i]);
+		}
+	}
+
+	GroupKey(Value[] values) {
+		this.values = values;
+		this.hashCode = Arrays.hashCode(values);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof GroupKey && Arrays.equals(values, ((GroupKey) o).values);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+}
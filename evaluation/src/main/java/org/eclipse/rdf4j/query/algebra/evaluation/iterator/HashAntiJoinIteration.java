@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.FilterIteration;
+import org.eclipse.rdf4j.common.iteration.Iteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
+
+/**
+ * Returns the solutions of the left argument that are not compatible with any solution of the right argument, which
+ * is read into a hash index once. This evaluates both the SPARQL 1.1 MINUS operator, where solutions that share no
+ * variables do not exclude each other, and FILTER NOT EXISTS over a pattern of which the solutions do not depend on the
+ * solution that is filtered, where any solution of the pattern that shares no variables excludes every solution.
+ * <p>
+ * The solutions of the right argument are grouped by the variables that they bind. A solution of the left argument is
+ * only compared with each group on the variables that they share, by looking up these values in a hash set of the
+ * group, so that solutions are not compared one by one.
+ *
+ * @see SPARQLMinusIteration
+ */
+public class HashAntiJoinIteration extends FilterIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final Iteration<BindingSet, QueryEvaluationException> rightArg;
+
+	private final boolean disjointExcludes;
+
+	private final Set<String> scopeBindingNames;
+
+	private Index index;
+
+	private final QueryCancellation cancellation = QueryCancellation.getCurrent();
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * Creates an iteration that returns the results of the left argument MINUS the results of the right argument.
+	 */
+	public HashAntiJoinIteration(Iteration<BindingSet, QueryEvaluationException> leftArg,
+			Iteration<BindingSet, QueryEvaluationException> rightArg) {
+		this(leftArg, rightArg, false, null);
+	}
+
+	/**
+	 * @param disjointExcludes  whether a solution of the right argument that shares no variables with a solution of
+	 *                          the left argument excludes it, as for FILTER NOT EXISTS, rather than not, as for MINUS.
+	 * @param scopeBindingNames the variables of the left argument that are compared, or <tt>null</tt> to compare all
+	 *                          variables.
+	 */
+	public HashAntiJoinIteration(Iteration<BindingSet, QueryEvaluationException> leftArg,
+			Iteration<BindingSet, QueryEvaluationException> rightArg, boolean disjointExcludes,
+			Set<String> scopeBindingNames) {
+		super(leftArg);
+		this.rightArg = rightArg;
+		this.disjointExcludes = disjointExcludes;
+		this.scopeBindingNames = scopeBindingNames;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected boolean accept(BindingSet object) throws QueryEvaluationException {
+		if (index == null) {
+			index = new Index(disjointExcludes, scopeBindingNames);
+			while (rightArg.hasNext()) {
+				if (cancellation != null) {
+					cancellation.check();
+				}
+				index.add(rightArg.next());
+			}
+		}
+		return !index.excludes(object);
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			index = null;
+			Iterations.closeCloseable(rightArg);
+		}
+	}
+
+	/**
+	 * The solutions that exclude compatible solutions, grouped by the variables that they bind. All solutions are added
+	 * before solutions are tested.
+	 */
+	static class Index {
+
+		private final boolean disjointExcludes;
+
+		private final Set<String> scopeBindingNames;
+
+		private final Map<Set<String>, Group> groups = new LinkedHashMap<>();
+
+		/**
+		 * The lookups for the solutions that bind the same variables.
+		 */
+		private final Map<Set<String>, Lookup[]> lookups = new HashMap<>();
+
+		Index(boolean disjointExcludes, Set<String> scopeBindingNames) {
+			this.disjointExcludes = disjointExcludes;
+			this.scopeBindingNames = scopeBindingNames;
+		}
+
+		void add(BindingSet solution) {
+			Group group = groups.get(solution.getBindingNames());
+			if (group == null) {
+				Set<String> names = new HashSet<>(solution.getBindingNames());
+				group = new Group(names);
+				groups.put(names, group);
+			}
+			group.solutions.add(solution);
+		}
+
+		boolean excludes(BindingSet solution) {
+			Lookup[] solutionLookups = lookups.get(solution.getBindingNames());
+			if (solutionLookups == null) {
+				Set<String> names = new HashSet<>(solution.getBindingNames());
+				solutionLookups = createLookups(names);
+				lookups.put(names, solutionLookups);
+			}
+			for (Lookup lookup : solutionLookups) {
+				if (lookup.keys == null || lookup.keys.contains(BindingSetHashKey.create(lookup.names, solution))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private Lookup[] createLookups(Set<String> names) {
+			List<Lookup> result = new ArrayList<>(groups.size());
+			for (Group group : groups.values()) {
+				Set<String> shared = new HashSet<>(group.names);
+				shared.retainAll(names);
+				if (scopeBindingNames != null) {
+					shared.retainAll(scopeBindingNames);
+				}
+				if (!shared.isEmpty()) {
+					result.add(group.getLookup(shared));
+				} else if (disjointExcludes) {
+					// every solution is excluded
+					return new Lookup[] { new Lookup(new String[0], null) };
+				}
+			}
+			return result.toArray(new Lookup[result.size()]);
+		}
+	}
+
+	/**
+	 * The solutions that bind the same variables.
+	 */
+	private static class Group {
+
+		final Set<String> names;
+
+		final List<BindingSet> solutions = new ArrayList<>();
+
+		private final Map<Set<String>, Lookup> lookups = new HashMap<>();
+
+		Group(Set<String> names) {
+			this.names = names;
+		}
+
+		/**
+		 * Gets the values of the solutions for a subset of their variables.
+		 */
+		Lookup getLookup(Set<String> shared) {
+			Lookup lookup = lookups.get(shared);
+			if (lookup == null) {
+				String[] sharedNames = shared.toArray(new String[shared.size()]);
+				Set<BindingSetHashKey> keys = new HashSet<>();
+				for (BindingSet solution : solutions) {
+					keys.add(BindingSetHashKey.create(sharedNames, solution));
+				}
+				lookup = new Lookup(sharedNames, keys);
+				lookups.put(shared, lookup);
+			}
+			return lookup;
+		}
+	}
+
+	private static class Lookup {
+
+		final String[] names;
+
+		/**
+		 * The values of the variables, or <tt>null</tt> if all solutions match.
+		 */
+		final Set<BindingSetHashKey> keys;
+
+		Lookup(String[] names, Set<BindingSetHashKey> keys) {
+			this.names = names;
+			this.keys = keys;
+		}
+	}
+}
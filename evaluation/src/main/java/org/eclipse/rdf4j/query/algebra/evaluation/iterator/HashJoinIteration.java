@@ -25,8 +25,9 @@ import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.Join;
 import org.eclipse.rdf4j.query.algebra.LeftJoin;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
 import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 import org.eclipse.rdf4j.util.iterators.EmptyIterator;
 
@@ -59,6 +60,8 @@ public class HashJoinIteration extends LookAheadIteration<BindingSet, QueryEvalu
 
 	private final boolean leftJoin;
 
+	private final QueryCancellation cancellation = QueryCancellation.getCurrent();
+
 	/*--------------*
 	 * Constructors *
 	 *--------------*/
@@ -156,7 +159,7 @@ public class HashJoinIteration extends LookAheadIteration<BindingSet, QueryEvalu
 		if (nextHashTableValues != null) {
 			BindingSet nextHashTableValue = nextHashTableValues.next();
 
-			QueryBindingSet result = new QueryBindingSet(currentScanElem);
+			ArrayBindingSet result = new ArrayBindingSet(currentScanElem);
 
 			for (String name : nextHashTableValue.getBindingNames()) {
 				if (!result.hasBinding(name)) {
@@ -228,6 +231,9 @@ public class HashJoinIteration extends LookAheadIteration<BindingSet, QueryEvalu
 			leftArgResults = makeIterationCache(leftIter);
 
 			while (leftIter.hasNext() && rightIter.hasNext()) {
+				if (cancellation != null) {
+					cancellation.check();
+				}
 				add(leftArgResults, leftIter.next());
 				add(rightArgResults, rightIter.next());
 			}
@@ -235,6 +241,9 @@ public class HashJoinIteration extends LookAheadIteration<BindingSet, QueryEvalu
 			leftArgResults = Collections.emptyList();
 
 			while (rightIter.hasNext()) {
+				if (cancellation != null) {
+					cancellation.check();
+				}
 				add(rightArgResults, rightIter.next());
 			}
 		}
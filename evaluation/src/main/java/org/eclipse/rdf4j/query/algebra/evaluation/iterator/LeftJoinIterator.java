@@ -7,21 +7,61 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.Join;
 import org.eclipse.rdf4j.query.algebra.LeftJoin;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
+import org.eclipse.rdf4j.query.algebra.helpers.VarNameCollector;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 
+/**
+ * Left join iterator that reads the solutions of the left argument in blocks. For each block, the right argument is
+ * evaluated once, joined with a {@link BindingSetAssignment} that holds the distinct values of its variables in the
+ * block. Each assigned solution carries the number of its row, by which the streamed results of the right argument are
+ * matched with the left solutions of the block that have these values. The left solutions of the block that have no
+ * result that satisfies the condition of the join are returned as they are after the right argument is exhausted.
+ */
 public class LeftJoinIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
 
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	public static final int DEFAULT_BATCH_SIZE = 128;
+
+	/**
+	 * The variable that holds the row of the assigned solution from which a result of the right argument stems. The
+	 * name is not a valid SPARQL variable name, so it does not clash with the variables of the query.
+	 */
+	private static final String ROW_VAR = "-left-join-row-";
+
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
 	/*-----------*
 	 * Variables *
 	 *-----------*/
@@ -36,19 +76,70 @@ public class LeftJoinIterator extends LookAheadIteration<BindingSet, QueryEvalua
 	 */
 	private final Set<String> scopeBindingNames;
 
+	/**
+	 * The compiled condition of the join, or <tt>null</tt> if it has none.
+	 */
+	private final QueryValueEvaluationStep condition;
+
+	private final int batchSize;
+
+	/**
+	 * The variables that occur in the right argument, of which the values of a left solution are passed to it.
+	 */
+	private final String[] rightVars;
+
 	private final CloseableIteration<BindingSet, QueryEvaluationException> leftIter;
 
 	private volatile CloseableIteration<BindingSet, QueryEvaluationException> rightIter;
 
+	/**
+	 * The left solutions of the current block.
+	 */
+	private List<BindingSet> leftSolutions = Collections.emptyList();
+
+	/**
+	 * The indexes of the left solutions of the current block, by the row of the assigned solution with their values.
+	 */
+	private List<List<Integer>> rowLeftIndexes;
+
+	/**
+	 * Whether each left solution of the current block has been joined with a result of the right argument.
+	 */
+	private boolean[] matched;
+
+	private BindingSet rightSolution;
+
+	/**
+	 * The indexes of the left solutions that remain to be joined with the current result of the right argument.
+	 */
+	private Iterator<Integer> candidates;
+
+	/**
+	 * The index of the next left solution of the current block to check for a match, once the right argument is
+	 * exhausted.
+	 */
+	private int unmatchedIndex;
+
 	/*--------------*
 	 * Constructors *
 	 *--------------*/
 
 	public LeftJoinIterator(EvaluationStrategy strategy, LeftJoin join, BindingSet bindings)
 			throws QueryEvaluationException {
+		this(strategy, join, bindings, DEFAULT_BATCH_SIZE);
+	}
+
+	public LeftJoinIterator(EvaluationStrategy strategy, LeftJoin join, BindingSet bindings, int batchSize)
+			throws QueryEvaluationException {
 		this.strategy = strategy;
 		this.join = join;
 		this.scopeBindingNames = join.getBindingNames();
+		this.condition = join.getCondition() == null ? null : strategy.precompile(join.getCondition());
+		this.batchSize = batchSize;
+
+		Set<String> rightVarNames = new HashSet<>(VarNameCollector.process(join.getRightArg()));
+		rightVarNames.addAll(join.getRightArg().getBindingNames());
+		rightVars = rightVarNames.toArray(new String[rightVarNames.size()]);
 
 		leftIter = strategy.evaluate(join.getLeftArg(), bindings);
 
@@ -63,42 +154,33 @@ public class LeftJoinIterator extends LookAheadIteration<BindingSet, QueryEvalua
 	@Override
 	protected BindingSet getNextElement() throws QueryEvaluationException {
 		try {
-			CloseableIteration<BindingSet, QueryEvaluationException> nextRightIter = rightIter;
-			while (nextRightIter.hasNext() || leftIter.hasNext()) {
-				BindingSet leftBindings = null;
-
-				if (!nextRightIter.hasNext()) {
-					// Use left arg's bindings in case join fails
-					leftBindings = leftIter.next();
+			while (true) {
+				while (candidates != null && candidates.hasNext()) {
+					int index = candidates.next();
+					BindingSet result = join(leftSolutions.get(index), rightSolution);
+					if (satisfiesCondition(result)) {
+						matched[index] = true;
+						return result;
+					}
+				}
+				candidates = null;
 
-					nextRightIter.close();
-					nextRightIter = rightIter = strategy.evaluate(join.getRightArg(), leftBindings);
+				if (rightIter.hasNext()) {
+					rightSolution = rightIter.next();
+					candidates = getLeftIndexes(rightSolution).iterator();
+					continue;
 				}
 
-				while (nextRightIter.hasNext()) {
-					BindingSet rightBindings = nextRightIter.next();
-
-					try {
-						if (join.getCondition() == null) {
-							return rightBindings;
-						} else {
-							// Limit the bindings to the ones that are in scope for
-							// this filter
-							QueryBindingSet scopeBindings = new QueryBindingSet(rightBindings);
-							scopeBindings.retainAll(scopeBindingNames);
-
-							if (strategy.isTrue(join.getCondition(), scopeBindings)) {
-								return rightBindings;
-							}
-						}
-					} catch (ValueExprEvaluationException e) {
-						// Ignore, condition not evaluated successfully
+				// the right argument is exhausted, return the left solutions without a match
+				while (unmatchedIndex < leftSolutions.size()) {
+					int index = unmatchedIndex++;
+					if (!matched[index]) {
+						return leftSolutions.get(index);
 					}
 				}
 
-				if (leftBindings != null) {
-					// Join failed, return left arg's bindings
-					return leftBindings;
+				if (!nextBlock()) {
+					return null;
 				}
 			}
 		} catch (NoSuchElementException ignore) {
@@ -109,6 +191,104 @@ public class LeftJoinIterator extends LookAheadIteration<BindingSet, QueryEvalua
 		return null;
 	}
 
+	/**
+	 * Reads the next block of left solutions and starts the evaluation of the right argument with the distinct values
+	 * of its variables in the block.
+	 *
+	 * @return <tt>false</tt> if the left argument has no more solutions.
+	 */
+	private boolean nextBlock() throws QueryEvaluationException {
+		rightIter.close();
+		leftSolutions = new ArrayList<>(batchSize);
+		rowLeftIndexes = new ArrayList<>();
+		List<BindingSet> rows = new ArrayList<>();
+
+		Map<BindingSetHashKey, Integer> rowIndexes = new HashMap<>();
+		while (leftSolutions.size() < batchSize && leftIter.hasNext()) {
+			BindingSet next = leftIter.next();
+			BindingSetHashKey key = BindingSetHashKey.create(rightVars, next);
+			Integer row = rowIndexes.get(key);
+			if (row == null) {
+				row = rows.size();
+				rowIndexes.put(key, row);
+				rows.add(createRow(next, row));
+				rowLeftIndexes.add(new ArrayList<>(1));
+			}
+			rowLeftIndexes.get(row).add(leftSolutions.size());
+			leftSolutions.add(next);
+		}
+		matched = new boolean[leftSolutions.size()];
+		unmatchedIndex = 0;
+
+		if (leftSolutions.isEmpty()) {
+			rightIter = new EmptyIteration<>();
+			return false;
+		}
+		BindingSetAssignment assignment = new BindingSetAssignment();
+		assignment.setBindingSets(rows);
+		rightIter = strategy.evaluate(new ProbeJoin(assignment, join.getRightArg()), EmptyBindingSet.getInstance());
+		return true;
+	}
+
+	/**
+	 * Creates the assigned solution of a row with the values of the variables of the right argument in a left
+	 * solution. The other bindings of the left solution do not affect the results of the right argument, and are added
+	 * to them when they are joined.
+	 */
+	private BindingSet createRow(BindingSet leftBindings, int row) {
+		QueryBindingSet result = new QueryBindingSet(rightVars.length + 1);
+		for (String name : rightVars) {
+			Value value = leftBindings.getValue(name);
+			if (value != null) {
+				result.addBinding(name, value);
+			}
+		}
+		result.addBinding(ROW_VAR, VF.createLiteral(row));
+		return result;
+	}
+
+	/**
+	 * Gets the indexes of the left solutions of the current block with the values from which a result of the right
+	 * argument stems. The results of an expression extend the bindings with which it is evaluated, so the row of the
+	 * assigned solution is bound in each result.
+	 */
+	private List<Integer> getLeftIndexes(BindingSet rightBindings) throws QueryEvaluationException {
+		Value row = rightBindings.getValue(ROW_VAR);
+		if (!(row instanceof Literal)) {
+			throw new QueryEvaluationException("Result of the optional argument does not extend its bindings");
+		}
+		return rowLeftIndexes.get(((Literal) row).intValue());
+	}
+
+	private boolean satisfiesCondition(BindingSet result) throws QueryEvaluationException {
+		if (condition == null) {
+			return true;
+		}
+		try {
+			// Limit the bindings to the ones that are in scope for this filter
+			ArrayBindingSet scopeBindings = new ArrayBindingSet(result);
+			scopeBindings.retainAll(scopeBindingNames);
+
+			return QueryEvaluationUtil.getEffectiveBooleanValue(condition.evaluate(scopeBindings));
+		} catch (ValueExprEvaluationException e) {
+			// Ignore, condition not evaluated successfully
+			return false;
+		}
+	}
+
+	private BindingSet join(BindingSet leftBindings, BindingSet rightBindings) {
+		ArrayBindingSet result = new ArrayBindingSet(leftBindings);
+		for (String name : rightBindings.getBindingNames()) {
+			if (!result.hasBinding(name) && !ROW_VAR.equals(name)) {
+				Value value = rightBindings.getValue(name);
+				if (value != null) {
+					result.addBinding(name, value);
+				}
+			}
+		}
+		return result;
+	}
+
 	@Override
 	protected void handleClose() throws QueryEvaluationException {
 		try {
@@ -121,4 +301,16 @@ public class LeftJoinIterator extends LookAheadIteration<BindingSet, QueryEvalua
 			}
 		}
 	}
+
+	/**
+	 * Joins the assigned solutions of a block with the right argument of the left join. The right argument is not
+	 * taken out of the query plan, so that its evaluation is still profiled as part of the plan.
+	 */
+	private static class ProbeJoin extends Join {
+
+		ProbeJoin(BindingSetAssignment assignment, TupleExpr rightArg) {
+			setLeftArg(assignment);
+			this.rightArg = rightArg;
+		}
+	}
 }
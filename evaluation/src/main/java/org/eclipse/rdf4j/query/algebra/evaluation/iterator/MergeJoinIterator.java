@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+
+/**
+ * Joins two iterations of which the solutions are ordered by the {@link TripleSource#getValueId(Value) identifier} of
+ * the value of the same variable. Both iterations are read once, and only the solutions that share the current value
+ * of the variable are held in memory. The joined solutions are in the same order.
+ */
+public class MergeJoinIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> leftIter;
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> rightIter;
+
+	private final String mergeVar;
+
+	private final TripleSource tripleSource;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final List<BindingSet> leftGroup = new ArrayList<>();
+
+	private final List<BindingSet> rightGroup = new ArrayList<>();
+
+	private int leftIndex;
+
+	private int rightIndex;
+
+	/**
+	 * The first solution of each iteration that is not part of the current group, or <tt>null</tt> if there is none.
+	 */
+	private BindingSet leftNext;
+
+	private BindingSet rightNext;
+
+	private long leftNextId;
+
+	private long rightNextId;
+
+	private boolean started;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * @param leftIter     the left solutions, ordered by the merge variable.
+	 * @param rightIter    the right solutions, ordered by the merge variable.
+	 * @param mergeVar     the name of the variable by which both iterations are ordered.
+	 * @param tripleSource the triple source of which the value identifiers determine the order.
+	 */
+	public MergeJoinIterator(CloseableIteration<BindingSet, QueryEvaluationException> leftIter,
+			CloseableIteration<BindingSet, QueryEvaluationException> rightIter, String mergeVar,
+			TripleSource tripleSource) {
+		this.leftIter = leftIter;
+		this.rightIter = rightIter;
+		this.mergeVar = mergeVar;
+		this.tripleSource = tripleSource;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (!started) {
+			started = true;
+			leftNext = nextLeft();
+			rightNext = nextRight();
+		}
+
+		while (true) {
+			while (leftIndex < leftGroup.size()) {
+				BindingSet left = leftGroup.get(leftIndex);
+				while (rightIndex < rightGroup.size()) {
+					BindingSet right = rightGroup.get(rightIndex++);
+					if (QueryResults.bindingSetsCompatible(left, right)) {
+						return join(left, right);
+					}
+				}
+				leftIndex++;
+				rightIndex = 0;
+			}
+
+			if (!nextGroups()) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Reads the next groups of left and right solutions that share the value of the merge variable, skipping the
+	 * solutions of which the value does not occur in the other iteration.
+	 *
+	 * @return <tt>false</tt> if one of the iterations is exhausted.
+	 */
+	private boolean nextGroups() throws QueryEvaluationException {
+		leftGroup.clear();
+		rightGroup.clear();
+		leftIndex = 0;
+		rightIndex = 0;
+
+		while (leftNext != null && rightNext != null) {
+			if (leftNextId < rightNextId) {
+				leftNext = nextLeft();
+			} else if (leftNextId > rightNextId) {
+				rightNext = nextRight();
+			} else {
+				long id = leftNextId;
+				while (leftNext != null && leftNextId == id) {
+					leftGroup.add(leftNext);
+					leftNext = nextLeft();
+				}
+				while (rightNext != null && rightNextId == id) {
+					rightGroup.add(rightNext);
+					rightNext = nextRight();
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private BindingSet nextLeft() throws QueryEvaluationException {
+		if (!leftIter.hasNext()) {
+			return null;
+		}
+		BindingSet next = leftIter.next();
+		long id = getId(next);
+		if (leftNext != null && id < leftNextId) {
+			throw new QueryEvaluationException("Left solutions are not ordered by " + mergeVar);
+		}
+		leftNextId = id;
+		return next;
+	}
+
+	private BindingSet nextRight() throws QueryEvaluationException {
+		if (!rightIter.hasNext()) {
+			return null;
+		}
+		BindingSet next = rightIter.next();
+		long id = getId(next);
+		if (rightNext != null && id < rightNextId) {
+			throw new QueryEvaluationException("Right solutions are not ordered by " + mergeVar);
+		}
+		rightNextId = id;
+		return next;
+	}
+
+	private long getId(BindingSet solution) throws QueryEvaluationException {
+		Value value = solution.getValue(mergeVar);
+		if (value == null) {
+			throw new QueryEvaluationException("Merge variable is not bound: " + mergeVar);
+		}
+		long id = tripleSource.getValueId(value);
+		if (id < 0) {
+			throw new QueryEvaluationException("Value has no identifier: " + value);
+		}
+		return id;
+	}
+
+	private BindingSet join(BindingSet left, BindingSet right) {
+		ArrayBindingSet result = new ArrayBindingSet(left);
+		for (String name : right.getBindingNames()) {
+			if (!result.hasBinding(name)) {
+				Value v = right.getValue(name);
+				if (v != null) {
+					result.addBinding(name, v);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				leftIter.close();
+			} finally {
+				rightIter.close();
+			}
+		}
+	}
+}
@@ -34,6 +34,8 @@ import org.eclipse.rdf4j.common.iteration.Iteration;
 import org.eclipse.rdf4j.common.iteration.LimitIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryMemoryManager;
 
 /**
  * Sorts the input and optionally applies limit and distinct.
@@ -240,6 +242,16 @@ public class OrderIterator extends DelayedIteration<BindingSet, QueryEvaluationE
 	 */
 	private final long iterationSyncThreshold;
 
+	/**
+	 * The memory that is reserved for the solutions in memory, or <tt>null</tt> if it is not accounted for.
+	 */
+	private final QueryMemoryManager.Account account;
+
+	/**
+	 * The cancellation of the query, which is checked while the solutions are read.
+	 */
+	private final QueryCancellation cancellation = QueryCancellation.getCurrent();
+
 	/*--------------*
 	 * Constructors *
 	 *--------------*/
@@ -256,11 +268,22 @@ public class OrderIterator extends DelayedIteration<BindingSet, QueryEvaluationE
 
 	public OrderIterator(CloseableIteration<BindingSet, QueryEvaluationException> iter,
 			Comparator<BindingSet> comparator, long limit, boolean distinct, long iterationSyncThreshold) {
+		this(iter, comparator, limit, distinct, iterationSyncThreshold, null);
+	}
+
+	/**
+	 * @param memory the memory manager of the query, which makes the solutions be written to disk once its budget is
+	 *               exceeded, or <tt>null</tt> to only write them to disk above the threshold.
+	 */
+	public OrderIterator(CloseableIteration<BindingSet, QueryEvaluationException> iter,
+			Comparator<BindingSet> comparator, long limit, boolean distinct, long iterationSyncThreshold,
+			QueryMemoryManager memory) {
 		this.iter = iter;
 		this.comparator = comparator;
 		this.limit = limit;
 		this.distinct = distinct;
 		this.iterationSyncThreshold = iterationSyncThreshold > 0 ? iterationSyncThreshold : Integer.MAX_VALUE;
+		this.account = memory == null ? null : memory.createAccount();
 	}
 
 	/*---------*
@@ -273,14 +296,25 @@ public class OrderIterator extends DelayedIteration<BindingSet, QueryEvaluationE
 		List<BindingSet> list = new LinkedList<>();
 		int limit2 = limit >= Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : (int) limit * 2;
 		int syncThreshold = (int) Math.min(iterationSyncThreshold, Integer.MAX_VALUE);
+		boolean overBudget = false;
 		try {
 			while (iter.hasNext()) {
-				if (list.size() >= syncThreshold && list.size() < limit) {
+				if (cancellation != null) {
+					cancellation.check();
+				}
+				if ((list.size() >= syncThreshold || overBudget) && list.size() < limit) {
 					SerializedQueue<BindingSet> queue = new SerializedQueue<>("orderiter");
 					sort(list).forEach(bs -> queue.add(bs));
 					serialized.add(queue);
 					decrement(list.size() - queue.size());
 					list = new ArrayList<>(list.size());
+					if (account != null) {
+						if (overBudget) {
+							account.spilled();
+						}
+						account.release();
+						overBudget = false;
+					}
 					if (threshold == null && serialized.stream().mapToLong(q -> q.size()).sum() >= limit) {
 						Stream<BindingSet> stream = serialized.stream().map(q -> q.peekLast());
 						threshold = stream.sorted(comparator).skip(serialized.size() - 1).findFirst().get();
@@ -290,6 +324,9 @@ public class OrderIterator extends DelayedIteration<BindingSet, QueryEvaluationE
 					sort(list).forEach(bs -> sorted.add(bs));
 					decrement(list.size() - sorted.size());
 					list = sorted;
+					if (account != null) {
+						overBudget = !reserve(list);
+					}
 					if (sorted.size() >= limit) {
 						threshold = sorted.get(sorted.size() - 1);
 					}
@@ -298,6 +335,9 @@ public class OrderIterator extends DelayedIteration<BindingSet, QueryEvaluationE
 				if (threshold == null || comparator.compare(next, threshold) < 0) {
 					list.add(next);
 					increment();
+					if (account != null && !account.reserve(next)) {
+						overBudget = true;
+					}
 				}
 			}
 		} catch (IOException e) {
@@ -313,6 +353,19 @@ public class OrderIterator extends DelayedIteration<BindingSet, QueryEvaluationE
 		return new LimitIteration<>(new CloseableIteratorIteration<>(iterator), limit);
 	}
 
+	/**
+	 * Reserves the memory for the solutions that are kept after they have been sorted and truncated.
+	 */
+	private boolean reserve(List<BindingSet> solutions) {
+		account.release();
+		for (BindingSet solution : solutions) {
+			if (!account.reserve(solution)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	protected void increment() throws QueryEvaluationException {
 		// give subclasses a chance to stop query evaluation
 	}
@@ -347,6 +400,9 @@ public class OrderIterator extends DelayedIteration<BindingSet, QueryEvaluationE
 			try {
 				iter.close();
 			} finally {
+				if (account != null) {
+					account.release();
+				}
 				serialized.stream().map(queue -> {
 					try {
 						queue.close();
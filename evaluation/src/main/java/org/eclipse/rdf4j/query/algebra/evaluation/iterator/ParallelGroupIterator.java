@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Group;
+import org.eclipse.rdf4j.query.algebra.GroupElem;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryContext;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+
+/**
+ * Evaluates a {@link Group} by aggregating batches of input solutions concurrently on an {@link Executor}. Each task
+ * computes the partial aggregates of the groups in its batch, and the partial aggregates are merged in the order of
+ * the batches, so that the result is the same as when the solutions are aggregated one after the other. The input
+ * itself is read by the consuming thread.
+ *
+ * @see BoundedGroupIterator#isSupported(Group)
+ */
+public class ParallelGroupIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	private final EvaluationStrategy strategy;
+
+	private final Group group;
+
+	private final BindingSet parentBindings;
+
+	private final String[] groupNames;
+
+	private final List<AggregateFunction> functions = new ArrayList<>();
+
+	private final Executor executor;
+
+	/**
+	 * The maximum number of batches that are aggregated concurrently.
+	 */
+	private final int parallelism;
+
+	private final int batchSize;
+
+	/**
+	 * The cancellation of the query, which is checked before each batch is read.
+	 */
+	private final QueryCancellation cancellation = QueryCancellation.getCurrent();
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private volatile CloseableIteration<BindingSet, QueryEvaluationException> input;
+
+	private final Deque<CompletableFuture<Map<GroupKey, AggregateFunction.State[]>>> partials = new ArrayDeque<>();
+
+	private Iterator<Entry<GroupKey, AggregateFunction.State[]>> groups;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public ParallelGroupIterator(EvaluationStrategy strategy, Group group, BindingSet parentBindings,
+			Executor executor, int parallelism) throws QueryEvaluationException {
+		this(strategy, group, parentBindings, executor, parallelism, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param executor    the executor on which the batches are aggregated.
+	 * @param parallelism the maximum number of batches that are aggregated concurrently.
+	 * @param batchSize   the number of solutions that are aggregated by each task.
+	 */
+	public ParallelGroupIterator(EvaluationStrategy strategy, Group group, BindingSet parentBindings,
+			Executor executor, int parallelism, int batchSize) throws QueryEvaluationException {
+		this.strategy = strategy;
+		this.group = group;
+		this.parentBindings = parentBindings;
+		this.groupNames = group.getGroupBindingNames().toArray(new String[0]);
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.batchSize = batchSize;
+		for (GroupElem ge : group.getGroupElements()) {
+			functions.add(new AggregateFunction(ge, strategy, parentBindings));
+		}
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (groups == null) {
+			groups = aggregateAll().entrySet().iterator();
+		}
+		if (!groups.hasNext()) {
+			return null;
+		}
+		Entry<GroupKey, AggregateFunction.State[]> next = groups.next();
+		return BoundedGroupIterator.createSolution(parentBindings, groupNames, next.getKey(), functions,
+				next.getValue());
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				CloseableIteration<BindingSet, QueryEvaluationException> toClose = input;
+				if (toClose != null) {
+					toClose.close();
+				}
+			} finally {
+				synchronized (partials) {
+					for (CompletableFuture<?> partial : partials) {
+						partial.cancel(false);
+					}
+					partials.clear();
+				}
+			}
+		}
+	}
+
+	private Map<GroupKey, AggregateFunction.State[]> aggregateAll() throws QueryEvaluationException {
+		QueryContext queryContext = QueryContext.getQueryContext();
+		Map<GroupKey, AggregateFunction.State[]> result = new LinkedHashMap<>();
+		boolean hasSolutions = false;
+
+		input = strategy.evaluate(group.getArg(), parentBindings);
+		while (!isClosed() && input.hasNext()) {
+			if (cancellation != null) {
+				cancellation.check();
+			}
+			List<BindingSet> batch = new ArrayList<>(batchSize);
+			while (batch.size() < batchSize && input.hasNext()) {
+				batch.add(input.next());
+			}
+			hasSolutions = true;
+
+			CompletableFuture<Map<GroupKey, AggregateFunction.State[]>> partial = CompletableFuture
+					.supplyAsync(() -> aggregate(batch, queryContext), executor);
+			CompletableFuture<Map<GroupKey, AggregateFunction.State[]>> completed = null;
+			synchronized (partials) {
+				partials.add(partial);
+				if (partials.size() > parallelism) {
+					// wait for the oldest batch, so that the number of partial aggregates in memory stays bounded
+					completed = partials.poll();
+				}
+			}
+			if (completed != null) {
+				merge(result, await(completed));
+			}
+		}
+		while (!isClosed()) {
+			CompletableFuture<Map<GroupKey, AggregateFunction.State[]>> completed;
+			synchronized (partials) {
+				completed = partials.poll();
+			}
+			if (completed == null) {
+				break;
+			}
+			merge(result, await(completed));
+		}
+
+		if (!hasSolutions && !functions.isEmpty()) {
+			// no solutions, but the aggregates still produce a zero-result
+			AggregateFunction.State[] states = BoundedGroupIterator.createStates(functions);
+			for (int i = 0; i < states.length; i++) {
+				functions.get(i).update(states[i], EmptyBindingSet.getInstance());
+			}
+			result.put(GroupKey.EMPTY, states);
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the partial aggregates of the groups of a batch of solutions. Called on a thread of the executor.
+	 */
+	private Map<GroupKey, AggregateFunction.State[]> aggregate(List<BindingSet> batch, QueryContext queryContext) {
+		if (queryContext != null) {
+			queryContext.begin();
+		}
+		try {
+			Map<GroupKey, AggregateFunction.State[]> partial = new LinkedHashMap<>();
+			for (BindingSet solution : batch) {
+				GroupKey key = new GroupKey(groupNames, solution);
+				AggregateFunction.State[] states = partial.get(key);
+				if (states == null) {
+					states = BoundedGroupIterator.createStates(functions);
+					partial.put(key, states);
+				}
+				for (int i = 0; i < states.length; i++) {
+					functions.get(i).update(states[i], solution);
+				}
+			}
+			return partial;
+		} finally {
+			if (queryContext != null) {
+				queryContext.end();
+			}
+		}
+	}
+
+	private void merge(Map<GroupKey, AggregateFunction.State[]> result,
+			Map<GroupKey, AggregateFunction.State[]> partial) {
+		for (Entry<GroupKey, AggregateFunction.State[]> entry : partial.entrySet()) {
+			AggregateFunction.State[] states = result.putIfAbsent(entry.getKey(), entry.getValue());
+			if (states != null) {
+				AggregateFunction.State[] other = entry.getValue();
+				for (int i = 0; i < states.length; i++) {
+					states[i].merge(other[i]);
+				}
+			}
+		}
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws QueryEvaluationException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			} else if (cause instanceof QueryEvaluationException) {
+				throw (QueryEvaluationException) cause;
+			}
+			throw new QueryEvaluationException(cause);
+		} catch (CancellationException e) {
+			throw new QueryEvaluationException("aggregation has been cancelled", e);
+		}
+	}
+}
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryContext;
+
+/**
+ * Evaluates a number of arguments concurrently on an {@link Executor} and returns the union of their solutions in the
+ * order in which they are produced. Each argument is evaluated by a separate task that puts its solutions in a bounded
+ * queue, so that the tasks block when the consumer of this iteration falls behind. The queue only allocates space for
+ * the solutions that it actually holds. The tasks only start once the first solution is requested. Closing this
+ * iteration closes the iterations of all arguments and lets the tasks finish.
+ * <p>
+ * With a single argument, this iteration prefetches its solutions on another thread.
+ */
+public class ParallelUnionIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	/**
+	 * The interval in which blocked threads check whether this iteration has been closed.
+	 */
+	private static final long POLL_INTERVAL_MILLIS = 100;
+
+	/**
+	 * Marks the end of the solutions of an argument in the queue.
+	 */
+	private static final Object END = new Object();
+
+	private final EvaluationStrategy strategy;
+
+	private final List<TupleExpr> args;
+
+	private final BindingSet bindings;
+
+	private final Executor executor;
+
+	private final BlockingQueue<Object> queue;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final List<Producer> producers;
+
+	/**
+	 * The number of arguments of which the end has not yet been taken from the queue, or <tt>-1</tt> if the tasks have
+	 * not been started.
+	 */
+	private int remaining = -1;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public ParallelUnionIteration(EvaluationStrategy strategy, List<? extends TupleExpr> args, BindingSet bindings,
+			Executor executor) {
+		this(strategy, args, bindings, executor, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param queueCapacity the maximum number of solutions that the arguments produce ahead of the consumer of this
+	 *                      iteration.
+	 */
+	public ParallelUnionIteration(EvaluationStrategy strategy, List<? extends TupleExpr> args, BindingSet bindings,
+			Executor executor, int queueCapacity) {
+		this.strategy = strategy;
+		this.args = new ArrayList<>(args);
+		this.bindings = bindings;
+		this.executor = executor;
+		this.queue = new LinkedBlockingQueue<>(queueCapacity);
+		this.producers = new ArrayList<>(args.size());
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (remaining < 0) {
+			start();
+		}
+		while (remaining > 0) {
+			Object next;
+			try {
+				next = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new QueryEvaluationException(e);
+			}
+
+			if (next == null) {
+				if (isClosed()) {
+					return null;
+				}
+			} else if (next == END) {
+				remaining--;
+			} else if (next instanceof Failure) {
+				remaining--;
+				close();
+				throw ((Failure) next).toException();
+			} else {
+				return (BindingSet) next;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				synchronized (producers) {
+					for (Producer producer : producers) {
+						producer.close();
+					}
+				}
+			} finally {
+				queue.clear();
+			}
+		}
+	}
+
+	private void start() throws QueryEvaluationException {
+		remaining = args.size();
+		QueryContext queryContext = QueryContext.getQueryContext();
+		for (TupleExpr arg : args) {
+			Producer producer = new Producer(arg, queryContext);
+			synchronized (producers) {
+				if (isClosed()) {
+					return;
+				}
+				producers.add(producer);
+			}
+			try {
+				executor.execute(producer);
+			} catch (RejectedExecutionException e) {
+				close();
+				throw new QueryEvaluationException(e);
+			}
+		}
+	}
+
+	/**
+	 * Puts an element in the queue, waiting while the queue is full.
+	 *
+	 * @return <tt>false</tt> if this iteration was closed before the element could be put in the queue.
+	 */
+	private boolean put(Object element) {
+		try {
+			while (!isClosed()) {
+				if (queue.offer(element, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluates one of the arguments and puts its solutions in the queue.
+	 */
+	private class Producer implements Runnable {
+
+		private final TupleExpr arg;
+
+		private final QueryContext queryContext;
+
+		private volatile CloseableIteration<BindingSet, QueryEvaluationException> iter;
+
+		Producer(TupleExpr arg, QueryContext queryContext) {
+			this.arg = arg;
+			this.queryContext = queryContext;
+		}
+
+		@Override
+		public void run() {
+			if (queryContext != null) {
+				queryContext.begin();
+			}
+			Object last = END;
+			try {
+				if (!isClosed()) {
+					iter = strategy.evaluate(arg, bindings);
+					while (!isClosed() && iter.hasNext()) {
+						if (!put(iter.next())) {
+							break;
+						}
+					}
+				}
+			} catch (RuntimeException | Error e) {
+				last = new Failure(e);
+			} finally {
+				try {
+					close();
+				} finally {
+					try {
+						put(last);
+					} finally {
+						if (queryContext != null) {
+							queryContext.end();
+						}
+					}
+				}
+			}
+		}
+
+		void close() {
+			CloseableIteration<BindingSet, QueryEvaluationException> toClose = iter;
+			if (toClose != null) {
+				try {
+					toClose.close();
+				} catch (RuntimeException e) {
+					// Ignoring exceptions while closing component iterations
+				}
+			}
+		}
+	}
+
+	/**
+	 * An exception that was thrown while evaluating one of the arguments.
+	 */
+	private static class Failure {
+
+		private final Throwable cause;
+
+		Failure(Throwable cause) {
+			this.cause = cause;
+		}
+
+		RuntimeException toException() {
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			} else if (cause instanceof QueryEvaluationException) {
+				return (QueryEvaluationException) cause;
+			}
+			return new QueryEvaluationException(cause);
+		}
+	}
+}
@@ -24,7 +24,7 @@ import org.eclipse.rdf4j.query.algebra.StatementPattern.Scope;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.ZeroLengthPath;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
 
@@ -108,8 +108,7 @@ public class PathIteration extends LookAheadIteration<BindingSet, QueryEvaluatio
 					Value startValue = currentVp.getStartValue();
 
 					if (startValue != null) {
-						nextElement = new QueryBindingSet(nextElement);
-						((QueryBindingSet) nextElement).addBinding(startVar.getName(), startValue);
+						nextElement = addBinding(new ArrayBindingSet(nextElement), startVar.getName(), startValue);
 					}
 				}
 
@@ -149,10 +148,10 @@ public class PathIteration extends LookAheadIteration<BindingSet, QueryEvaluatio
 								addToQueue(valueQueue, vp);
 							}
 							if (!nextElement.hasBinding(startVar.getName())) {
-								((QueryBindingSet) nextElement).addBinding(startVar.getName(), v1);
+								nextElement = addBinding(nextElement, startVar.getName(), v1);
 							}
 							if (!nextElement.hasBinding(endVar.getName())) {
-								((QueryBindingSet) nextElement).addBinding(endVar.getName(), v2);
+								nextElement = addBinding(nextElement, endVar.getName(), v2);
 							}
 							return nextElement;
 						} else {
@@ -169,10 +168,10 @@ public class PathIteration extends LookAheadIteration<BindingSet, QueryEvaluatio
 							addToQueue(valueQueue, vp);
 						}
 						if (!nextElement.hasBinding(startVar.getName())) {
-							((QueryBindingSet) nextElement).addBinding(startVar.getName(), v1);
+							nextElement = addBinding(nextElement, startVar.getName(), v1);
 						}
 						if (!nextElement.hasBinding(endVar.getName())) {
-							((QueryBindingSet) nextElement).addBinding(endVar.getName(), v2);
+							nextElement = addBinding(nextElement, endVar.getName(), v2);
 						}
 						return nextElement;
 					}
@@ -230,6 +229,17 @@ public class PathIteration extends LookAheadIteration<BindingSet, QueryEvaluatio
 		return v;
 	}
 
+	/**
+	 * Adds a binding to a solution of the path expression, which is modified in place if it is an
+	 * {@link ArrayBindingSet}.
+	 */
+	private static BindingSet addBinding(BindingSet bindingSet, String name, Value value) {
+		ArrayBindingSet result = bindingSet instanceof ArrayBindingSet ? (ArrayBindingSet) bindingSet
+				: new ArrayBindingSet(bindingSet);
+		result.addBinding(name, value);
+		return result;
+	}
+
 	private boolean isCyclicPath(Value v1, Value v2) {
 		if (currentLength <= 2) {
 			return false;
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.IterationWrapper;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryProfile.OperatorProfile;
+
+/**
+ * Records the number of solutions of an iteration and the time spent in its <tt>hasNext</tt> and <tt>next</tt> calls.
+ */
+public class ProfilingIteration extends IterationWrapper<BindingSet, QueryEvaluationException> {
+
+	private final OperatorProfile profile;
+
+	public ProfilingIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter,
+			OperatorProfile profile) {
+		super(iter);
+		this.profile = profile;
+	}
+
+	@Override
+	public boolean hasNext() throws QueryEvaluationException {
+		long start = System.nanoTime();
+		try {
+			return super.hasNext();
+		} finally {
+			profile.addHasNext(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public BindingSet next() throws QueryEvaluationException {
+		long start = System.nanoTime();
+		BindingSet result = null;
+		try {
+			result = super.next();
+			return result;
+		} finally {
+			profile.addNext(System.nanoTime() - start, result != null);
+		}
+	}
+}
@@ -17,7 +17,8 @@ import org.eclipse.rdf4j.query.algebra.Projection;
 import org.eclipse.rdf4j.query.algebra.ProjectionElem;
 import org.eclipse.rdf4j.query.algebra.ProjectionElemList;
 import org.eclipse.rdf4j.query.algebra.QueryModelNode;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.VariableSlots;
 
 public class ProjectionIterator extends ConvertingIteration<BindingSet, BindingSet, QueryEvaluationException> {
 
@@ -70,9 +71,11 @@ public class ProjectionIterator extends ConvertingIteration<BindingSet, BindingS
 
 	public static BindingSet project(ProjectionElemList projElemList, BindingSet sourceBindings,
 			BindingSet parentBindings, boolean includeAllParentBindings) {
-		final QueryBindingSet resultBindings = new QueryBindingSet();
+		final ArrayBindingSet resultBindings;
 		if (includeAllParentBindings) {
-			resultBindings.addAll(parentBindings);
+			resultBindings = new ArrayBindingSet(getSlots(sourceBindings, parentBindings), parentBindings);
+		} else {
+			resultBindings = new ArrayBindingSet(getSlots(sourceBindings, parentBindings));
 		}
 
 		for (ProjectionElem pe : projElemList.getElements()) {
@@ -87,4 +90,16 @@ public class ProjectionIterator extends ConvertingIteration<BindingSet, BindingS
 
 		return resultBindings;
 	}
+
+	/**
+	 * Gets the slots of the variables of the query from the source or parent bindings.
+	 */
+	private static VariableSlots getSlots(BindingSet sourceBindings, BindingSet parentBindings) {
+		if (sourceBindings instanceof ArrayBindingSet) {
+			return ((ArrayBindingSet) sourceBindings).getSlots();
+		} else if (parentBindings instanceof ArrayBindingSet) {
+			return ((ArrayBindingSet) parentBindings).getSlots();
+		}
+		return new VariableSlots();
+	}
 }
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.AbstractBindingSet;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.impl.SimpleBinding;
+
+/**
+ * A batch of query solutions in columnar form: the values of each variable are stored in a separate array, indexed by
+ * the row of the solution. A <tt>null</tt> value denotes an unbound variable. Operators that add variables to the
+ * solutions append their columns to the {@link Schema} of their input, so that input rows can be copied column by
+ * column. A batch is owned by the operator that consumes it, which may modify it.
+ */
+public class SolutionBatch {
+
+	private final Schema schema;
+
+	private final Value[][] columns;
+
+	private final int capacity;
+
+	private int size;
+
+	public SolutionBatch(Schema schema, int capacity) {
+		this.schema = schema;
+		this.columns = new Value[schema.size()][capacity];
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Creates a batch with a single row that contains the supplied bindings.
+	 */
+	public static SolutionBatch of(BindingSet bindings) {
+		Schema schema = new Schema(bindings.getBindingNames());
+		SolutionBatch batch = new SolutionBatch(schema, 1);
+		int row = batch.addRow();
+		for (int column = 0; column < schema.size(); column++) {
+			batch.setValue(column, row, bindings.getValue(schema.getName(column)));
+		}
+		return batch;
+	}
+
+	public Schema getSchema() {
+		return schema;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isFull() {
+		return size >= capacity;
+	}
+
+	public Value getValue(int column, int row) {
+		return columns[column][row];
+	}
+
+	public void setValue(int column, int row, Value value) {
+		columns[column][row] = value;
+	}
+
+	/**
+	 * Adds an empty row to this batch.
+	 *
+	 * @return the index of the new row.
+	 */
+	public int addRow() {
+		if (isFull()) {
+			throw new IllegalStateException("batch is full");
+		}
+		return size++;
+	}
+
+	/**
+	 * Adds a row to this batch with the values of a row of another batch, of which the schema must be a prefix of the
+	 * schema of this batch. The values of the remaining columns are unbound.
+	 *
+	 * @return the index of the new row.
+	 */
+	public int addRow(SolutionBatch source, int sourceRow) {
+		int row = addRow();
+		int sourceColumns = source.columns.length;
+		for (int column = 0; column < sourceColumns; column++) {
+			columns[column][row] = source.columns[column][sourceRow];
+		}
+		for (int column = sourceColumns; column < columns.length; column++) {
+			columns[column][row] = null;
+		}
+		return row;
+	}
+
+	/**
+	 * Removes the rows of this batch that are not selected, preserving the order of the remaining rows.
+	 *
+	 * @param selected for each row of this batch, whether it should be kept.
+	 */
+	public void retainRows(boolean[] selected) {
+		int kept = 0;
+		for (int row = 0; row < size; row++) {
+			if (selected[row]) {
+				if (kept != row) {
+					for (Value[] column : columns) {
+						column[kept] = column[row];
+					}
+				}
+				kept++;
+			}
+		}
+		for (Value[] column : columns) {
+			Arrays.fill(column, kept, size, null);
+		}
+		size = kept;
+	}
+
+	/**
+	 * Gets a view of a row of this batch. The view is only valid as long as the row is not modified.
+	 *
+	 * @param row     the index of the row.
+	 * @param visible the columns that are visible in the view, or <tt>null</tt> if all columns are visible.
+	 */
+	public BindingSet getRow(int row, boolean[] visible) {
+		return new RowBindingSet(row, visible);
+	}
+
+	/**
+	 * Copies a row of this batch into a new binding set.
+	 */
+	public BindingSet toBindingSet(int row) {
+		QueryBindingSet result = new QueryBindingSet(columns.length);
+		for (int column = 0; column < columns.length; column++) {
+			Value value = columns[column][row];
+			if (value != null) {
+				result.addBinding(schema.getName(column), value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The ordered variable names of the columns of a {@link SolutionBatch}.
+	 */
+	public static final class Schema {
+
+		private final String[] names;
+
+		private final Map<String, Integer> indexes;
+
+		public Schema(Collection<String> names) {
+			this.names = new LinkedHashSet<>(names).toArray(new String[0]);
+			this.indexes = new HashMap<>(this.names.length * 2);
+			for (int i = 0; i < this.names.length; i++) {
+				indexes.put(this.names[i], i);
+			}
+		}
+
+		public int size() {
+			return names.length;
+		}
+
+		public String getName(int column) {
+			return names[column];
+		}
+
+		/**
+		 * Gets the column of a variable.
+		 *
+		 * @return the index of the column, or <tt>-1</tt> if the variable is not part of this schema.
+		 */
+		public int indexOf(String name) {
+			Integer index = indexes.get(name);
+			return index == null ? -1 : index;
+		}
+
+		/**
+		 * Creates a schema that appends the supplied variables to this schema.
+		 */
+		public Schema extend(Collection<String> names) {
+			if (indexes.keySet().containsAll(names)) {
+				return this;
+			}
+			Set<String> extended = new LinkedHashSet<>(Arrays.asList(this.names));
+			extended.addAll(names);
+			return new Schema(extended);
+		}
+	}
+
+	/**
+	 * A view of a row of the batch.
+	 */
+	private class RowBindingSet extends AbstractBindingSet {
+
+		private static final long serialVersionUID = 1384276547206127395L;
+
+		private final int row;
+
+		private final boolean[] visible;
+
+		RowBindingSet(int row, boolean[] visible) {
+			this.row = row;
+			this.visible = visible;
+		}
+
+		@Override
+		public Value getValue(String bindingName) {
+			int column = schema.indexOf(bindingName);
+			if (column < 0 || visible != null && !visible[column]) {
+				return null;
+			}
+			return columns[column][row];
+		}
+
+		@Override
+		public boolean hasBinding(String bindingName) {
+			return getValue(bindingName) != null;
+		}
+
+		@Override
+		public Binding getBinding(String bindingName) {
+			Value value = getValue(bindingName);
+			return value == null ? null : new SimpleBinding(bindingName, value);
+		}
+
+		@Override
+		public Set<String> getBindingNames() {
+			Set<String> result = new LinkedHashSet<>();
+			for (int column = 0; column < columns.length; column++) {
+				if (columns[column][row] != null && (visible == null || visible[column])) {
+					result.add(schema.getName(column));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public int size() {
+			return getBindingNames().size();
+		}
+
+		@Override
+		public Iterator<Binding> iterator() {
+			Iterator<String> names = getBindingNames().iterator();
+			return new Iterator<Binding>() {
+
+				@Override
+				public boolean hasNext() {
+					return names.hasNext();
+				}
+
+				@Override
+				public Binding next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return getBinding(names.next());
+				}
+			};
+		}
+	}
+}
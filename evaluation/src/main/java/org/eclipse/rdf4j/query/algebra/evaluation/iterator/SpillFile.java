@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+/**
+ * A temporary file to which an operator writes the solutions that do not fit in its memory budget. The solutions are
+ * read back in the order in which they were written, as often as needed, once writing is finished.
+ */
+class SpillFile {
+
+	private final File file;
+
+	private ObjectOutputStream output;
+
+	private long size;
+
+	SpillFile(String prefix) throws QueryEvaluationException {
+		try {
+			file = File.createTempFile(prefix, null);
+			output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		} catch (IOException e) {
+			throw new QueryEvaluationException("could not create spill file", e);
+		}
+	}
+
+	void write(BindingSet solution) throws QueryEvaluationException {
+		try {
+			output.writeObject(solution);
+			// do not keep references to the solutions that have been written
+			output.reset();
+			size++;
+		} catch (IOException e) {
+			throw new QueryEvaluationException("could not write solutions to disk", e);
+		}
+	}
+
+	/**
+	 * Gets the number of solutions that have been written.
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * Finishes writing and reads the solutions of the file.
+	 */
+	CloseableIteration<BindingSet, QueryEvaluationException> read() throws QueryEvaluationException {
+		ObjectInputStream input;
+		try {
+			if (output != null) {
+				output.close();
+				output = null;
+			}
+			input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+		} catch (IOException e) {
+			throw new QueryEvaluationException("could not read solutions from disk", e);
+		}
+		return new LookAheadIteration<BindingSet, QueryEvaluationException>() {
+
+			private long remaining = size;
+
+			@Override
+			protected BindingSet getNextElement() throws QueryEvaluationException {
+				if (remaining <= 0) {
+					return null;
+				}
+				remaining--;
+				try {
+					return (BindingSet) input.readObject();
+				} catch (IOException | ClassNotFoundException e) {
+					throw new QueryEvaluationException("could not read solutions from disk", e);
+				}
+			}
+
+			@Override
+			protected void handleClose() throws QueryEvaluationException {
+				try {
+					super.handleClose();
+				} finally {
+					try {
+						input.close();
+					} catch (IOException e) {
+						// ignore
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Deletes the file.
+	 */
+	void delete() {
+		try {
+			if (output != null) {
+				output.close();
+				output = null;
+			}
+		} catch (IOException e) {
+			// ignore
+		} finally {
+			file.delete();
+		}
+	}
+}
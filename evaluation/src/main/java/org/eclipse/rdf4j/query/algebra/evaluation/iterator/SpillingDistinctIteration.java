@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryMemoryManager;
+
+/**
+ * Removes duplicate solutions within the memory budget of a query. New solutions are returned while they are read, as
+ * long as the solutions that have been seen fit in the budget. After that, the solutions that have not been seen are
+ * partitioned by their hash code into files, and each partition is made distinct on its own once the input is
+ * exhausted. A partition that does not fit in the budget either is partitioned again by other bits of the hash code.
+ */
+public class SpillingDistinctIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	private static final int PARTITION_BITS = 4;
+
+	/**
+	 * The depth below which partitions are no longer partitioned, as the hash code has no bits left.
+	 */
+	private static final int MAX_DEPTH = Integer.SIZE / PARTITION_BITS - 1;
+
+	private final QueryMemoryManager memory;
+
+	private final QueryMemoryManager.Account account;
+
+	private final int depth;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private CloseableIteration<BindingSet, QueryEvaluationException> input;
+
+	private Set<BindingSet> seen = new HashSet<>();
+
+	private SpillFile[] partitions;
+
+	private int nextPartition;
+
+	/**
+	 * The distinct solutions of the current partition, once the input is exhausted.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> partition;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public SpillingDistinctIteration(CloseableIteration<BindingSet, QueryEvaluationException> input,
+			QueryMemoryManager memory) {
+		this(input, memory, 0);
+	}
+
+	private SpillingDistinctIteration(CloseableIteration<BindingSet, QueryEvaluationException> input,
+			QueryMemoryManager memory, int depth) {
+		this.input = input;
+		this.memory = memory;
+		this.account = memory.createAccount();
+		this.depth = depth;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		while (partition == null && input.hasNext()) {
+			BindingSet next = input.next();
+			if (seen.contains(next)) {
+				continue;
+			}
+			if (partitions == null && (depth >= MAX_DEPTH || account.reserve(next))) {
+				seen.add(next);
+				return next;
+			}
+			if (partitions == null) {
+				partitions = new SpillFile[1 << PARTITION_BITS];
+				account.spilled();
+			}
+			int index = (mix(next.hashCode()) >>> (depth * PARTITION_BITS)) & (partitions.length - 1);
+			if (partitions[index] == null) {
+				partitions[index] = new SpillFile("distinct");
+			}
+			partitions[index].write(next);
+		}
+		while (partitions != null) {
+			if (partition != null && partition.hasNext()) {
+				return partition.next();
+			}
+			if (!nextPartition()) {
+				break;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Continues with the next non-empty partition, which has no solutions in common with the solutions returned
+	 * before.
+	 */
+	private boolean nextPartition() throws QueryEvaluationException {
+		if (partition == null) {
+			// the solutions of the input have been seen, so they are no longer needed
+			seen = new HashSet<>();
+			account.release();
+		} else {
+			partition.close();
+			partition = null;
+		}
+		while (nextPartition < partitions.length) {
+			SpillFile file = partitions[nextPartition++];
+			if (file != null) {
+				partition = new SpillingDistinctIteration(file.read(), memory, depth + 1);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Spreads the bits of a hash code, so that each group of bits partitions the solutions evenly.
+	 */
+	private static int mix(int hash) {
+		return hash * 0x9E3779B9;
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				input.close();
+				if (partition != null) {
+					partition.close();
+				}
+			} finally {
+				seen = null;
+				account.release();
+				if (partitions != null) {
+					for (SpillFile file : partitions) {
+						if (file != null) {
+							file.delete();
+						}
+					}
+				}
+			}
+		}
+	}
+}
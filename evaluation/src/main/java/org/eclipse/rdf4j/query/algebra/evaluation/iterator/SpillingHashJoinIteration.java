@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.LeftJoin;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryMemoryManager;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+
+/**
+ * A hash join within the memory budget of a query. The solutions of the right argument are read first. If they fit in
+ * the budget, the join is evaluated by a {@link HashJoinIteration}. Otherwise, the solutions of both arguments are
+ * partitioned by the hash code of their join variables into files, and each pair of partitions is joined on its own.
+ * A partition that does not fit in the budget either is partitioned again by other bits of the hash code.
+ */
+public class SpillingHashJoinIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	private static final int PARTITION_BITS = 4;
+
+	/**
+	 * The depth below which partitions are no longer partitioned, as the hash code has no bits left.
+	 */
+	private static final int MAX_DEPTH = Integer.SIZE / PARTITION_BITS - 1;
+
+	private final EvaluationStrategy strategy;
+
+	private final QueryMemoryManager memory;
+
+	private final QueryMemoryManager.Account account;
+
+	private final int depth;
+
+	private final Set<String> leftBindingNames;
+
+	private final Set<String> rightBindingNames;
+
+	private final String[] joinAttributes;
+
+	private final boolean leftJoin;
+
+	/**
+	 * The cancellation of the query, which is checked while the arguments are read or partitioned.
+	 */
+	private final QueryCancellation cancellation = QueryCancellation.getCurrent();
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> leftIter;
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> rightIter;
+
+	/**
+	 * The solutions of the join, or of the current pair of partitions.
+	 */
+	private CloseableIteration<BindingSet, QueryEvaluationException> current;
+
+	private SpillFile[] leftPartitions;
+
+	private SpillFile[] rightPartitions;
+
+	private int nextPartition;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public SpillingHashJoinIteration(EvaluationStrategy strategy, Join join, BindingSet bindings,
+			QueryMemoryManager memory) throws QueryEvaluationException {
+		this(strategy, join.getLeftArg(), join.getRightArg(), bindings, false, memory);
+	}
+
+	public SpillingHashJoinIteration(EvaluationStrategy strategy, LeftJoin join, BindingSet bindings,
+			QueryMemoryManager memory) throws QueryEvaluationException {
+		this(strategy, join.getLeftArg(), join.getRightArg(), bindings, true, memory);
+	}
+
+	public SpillingHashJoinIteration(EvaluationStrategy strategy, TupleExpr left, TupleExpr right,
+			BindingSet bindings, boolean leftJoin, QueryMemoryManager memory) throws QueryEvaluationException {
+		this(strategy, strategy.evaluate(left, bindings), left.getBindingNames(), strategy.evaluate(right, bindings),
+				right.getBindingNames(), leftJoin, memory, 0);
+	}
+
+	private SpillingHashJoinIteration(EvaluationStrategy strategy,
+			CloseableIteration<BindingSet, QueryEvaluationException> leftIter, Set<String> leftBindingNames,
+			CloseableIteration<BindingSet, QueryEvaluationException> rightIter, Set<String> rightBindingNames,
+			boolean leftJoin, QueryMemoryManager memory, int depth) {
+		this.strategy = strategy;
+		this.leftIter = leftIter;
+		this.rightIter = rightIter;
+		this.leftBindingNames = leftBindingNames;
+		this.rightBindingNames = rightBindingNames;
+		this.leftJoin = leftJoin;
+		this.memory = memory;
+		this.account = memory.createAccount();
+		this.depth = depth;
+
+		Set<String> joinAttributeNames = new HashSet<>(leftBindingNames);
+		joinAttributeNames.retainAll(rightBindingNames);
+		joinAttributes = joinAttributeNames.toArray(new String[joinAttributeNames.size()]);
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (current == null && rightPartitions == null) {
+			build();
+		}
+		while (true) {
+			if (current != null && current.hasNext()) {
+				return current.next();
+			}
+			if (rightPartitions == null || !nextPartition()) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Reads the right argument into memory, or partitions both arguments once it does not fit in the budget.
+	 */
+	private void build() throws QueryEvaluationException {
+		List<BindingSet> rightResults = new ArrayList<>();
+		while (rightIter.hasNext()) {
+			if (cancellation != null) {
+				cancellation.check();
+			}
+			BindingSet next = rightIter.next();
+			// without join variables, all solutions would end up in the same partition
+			if (joinAttributes.length == 0 || depth >= MAX_DEPTH || account.reserve(next)) {
+				rightResults.add(next);
+			} else {
+				account.spilled();
+				rightResults.add(next);
+				partition(rightResults);
+				return;
+			}
+		}
+		current = new HashJoinIteration(strategy, leftIter, new HashSet<>(leftBindingNames),
+				new CloseableIteratorIteration<>(rightResults.iterator()), new HashSet<>(rightBindingNames), leftJoin);
+	}
+
+	private void partition(List<BindingSet> rightResults) throws QueryEvaluationException {
+		rightPartitions = new SpillFile[1 << PARTITION_BITS];
+		leftPartitions = new SpillFile[1 << PARTITION_BITS];
+		for (BindingSet solution : rightResults) {
+			write(rightPartitions, solution, "hashjoin-right");
+		}
+		rightResults.clear();
+		account.release();
+		while (rightIter.hasNext()) {
+			if (cancellation != null) {
+				cancellation.check();
+			}
+			write(rightPartitions, rightIter.next(), "hashjoin-right");
+		}
+		while (leftIter.hasNext()) {
+			if (cancellation != null) {
+				cancellation.check();
+			}
+			BindingSet solution = leftIter.next();
+			if (solution instanceof EmptyBindingSet) {
+				// joins with all solutions of the right argument
+				for (int i = 0; i < rightPartitions.length; i++) {
+					if (rightPartitions[i] != null) {
+						write(leftPartitions, i, solution, "hashjoin-left");
+					}
+				}
+			} else {
+				write(leftPartitions, solution, "hashjoin-left");
+			}
+		}
+	}
+
+	private void write(SpillFile[] partitions, BindingSet solution, String prefix) throws QueryEvaluationException {
+		int hash = BindingSetHashKey.create(joinAttributes, solution).hashCode();
+		write(partitions, (hash * 0x9E3779B9 >>> (depth * PARTITION_BITS)) & (partitions.length - 1), solution,
+				prefix);
+	}
+
+	private void write(SpillFile[] partitions, int index, BindingSet solution, String prefix)
+			throws QueryEvaluationException {
+		if (partitions[index] == null) {
+			partitions[index] = new SpillFile(prefix);
+		}
+		partitions[index].write(solution);
+	}
+
+	/**
+	 * Continues with the join of the next pair of partitions that may have solutions.
+	 */
+	private boolean nextPartition() throws QueryEvaluationException {
+		if (current != null) {
+			current.close();
+			current = null;
+		}
+		long rightSize = 0;
+		for (SpillFile partition : rightPartitions) {
+			rightSize += partition == null ? 0 : partition.size();
+		}
+		while (nextPartition < rightPartitions.length) {
+			int index = nextPartition++;
+			SpillFile left = leftPartitions[index];
+			SpillFile right = rightPartitions[index];
+			if (left != null && (right != null || leftJoin)) {
+				CloseableIteration<BindingSet, QueryEvaluationException> rightPartition = right == null
+						? new EmptyIteration<>()
+						: right.read();
+				// partitioning again does not help if all solutions have the same hash code
+				int nextDepth = right != null && right.size() == rightSize ? MAX_DEPTH : depth + 1;
+				current = new SpillingHashJoinIteration(strategy, left.read(), leftBindingNames, rightPartition,
+						rightBindingNames, leftJoin, memory, nextDepth);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				leftIter.close();
+			} finally {
+				try {
+					rightIter.close();
+				} finally {
+					try {
+						if (current != null) {
+							current.close();
+						}
+					} finally {
+						account.release();
+						delete(leftPartitions);
+						delete(rightPartitions);
+					}
+				}
+			}
+		}
+	}
+
+	private static void delete(SpillFile[] partitions) {
+		if (partitions != null) {
+			for (SpillFile partition : partitions) {
+				if (partition != null) {
+					partition.delete();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.Iteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryMemoryManager;
+
+/**
+ * Evaluates the SPARQL 1.1 MINUS operator, like {@link HashAntiJoinIteration}, within the memory budget of a query.
+ * The solutions of the right argument that do not fit in the budget are written to a file. The solutions of the left
+ * argument that are not excluded by the solutions in memory are then read in blocks, and the file is read once for
+ * each block to exclude the remaining solutions.
+ */
+public class SpillingMinusIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	/**
+	 * The number of solutions of the left argument that are compared with a single read of the file.
+	 */
+	private static final int BLOCK_SIZE = 1024;
+
+	private final Iteration<BindingSet, QueryEvaluationException> leftArg;
+
+	private final Iteration<BindingSet, QueryEvaluationException> rightArg;
+
+	private final QueryMemoryManager.Account account;
+
+	private final QueryCancellation cancellation = QueryCancellation.getCurrent();
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private HashAntiJoinIteration.Index index;
+
+	/**
+	 * The solutions of the right argument that did not fit in the budget.
+	 */
+	private SpillFile overflow;
+
+	private Iterator<BindingSet> block;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public SpillingMinusIteration(Iteration<BindingSet, QueryEvaluationException> leftArg,
+			Iteration<BindingSet, QueryEvaluationException> rightArg, QueryMemoryManager memory) {
+		this.leftArg = leftArg;
+		this.rightArg = rightArg;
+		this.account = memory.createAccount();
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (index == null) {
+			build();
+		}
+		if (overflow == null) {
+			while (leftArg.hasNext()) {
+				BindingSet next = leftArg.next();
+				if (!index.excludes(next)) {
+					return next;
+				}
+			}
+			return null;
+		}
+		while (true) {
+			if (block != null && block.hasNext()) {
+				return block.next();
+			}
+			if (!nextBlock()) {
+				return null;
+			}
+		}
+	}
+
+	private void build() throws QueryEvaluationException {
+		index = new HashAntiJoinIteration.Index(false, null);
+		while (rightArg.hasNext()) {
+			if (cancellation != null) {
+				cancellation.check();
+			}
+			BindingSet next = rightArg.next();
+			if (overflow != null) {
+				overflow.write(next);
+			} else if (account.reserve(next)) {
+				index.add(next);
+			} else {
+				account.spilled();
+				overflow = new SpillFile("minus");
+				overflow.write(next);
+			}
+		}
+	}
+
+	/**
+	 * Reads the next block of solutions of the left argument and removes those that are excluded by the file.
+	 */
+	private boolean nextBlock() throws QueryEvaluationException {
+		List<BindingSet> solutions = new ArrayList<>(BLOCK_SIZE);
+		while (solutions.size() < BLOCK_SIZE && leftArg.hasNext()) {
+			BindingSet next = leftArg.next();
+			if (!index.excludes(next)) {
+				solutions.add(next);
+			}
+		}
+		if (solutions.isEmpty()) {
+			return false;
+		}
+		try (CloseableIteration<BindingSet, QueryEvaluationException> excluded = overflow.read()) {
+			while (excluded.hasNext() && !solutions.isEmpty()) {
+				BindingSet next = excluded.next();
+				solutions.removeIf(solution -> excludes(next, solution));
+			}
+		}
+		block = solutions.iterator();
+		return true;
+	}
+
+	/**
+	 * Checks whether a solution of the right argument is compatible with a solution of the left argument, with which
+	 * it shares at least one variable.
+	 */
+	private static boolean excludes(BindingSet excluded, BindingSet solution) {
+		for (String name : excluded.getBindingNames()) {
+			if (solution.hasBinding(name)) {
+				// solutions that share no variables are compatible, but do not exclude each other
+				return QueryResults.bindingSetsCompatible(excluded, solution);
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				Iterations.closeCloseable(leftArg);
+			} finally {
+				try {
+					Iterations.closeCloseable(rightArg);
+				} finally {
+					index = null;
+					account.release();
+					if (overflow != null) {
+						overflow.delete();
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+
+/**
+ * Joins batches of solutions with a statement pattern. The rows of an input batch that bind the variables of the
+ * pattern to the same values share a single index lookup, after which every matching statement is combined with each
+ * of these rows.
+ */
+public class StatementPatternBatchIteration extends LookAheadIteration<SolutionBatch, QueryEvaluationException> {
+
+	/**
+	 * Looks up the statements that match a statement pattern for the supplied values of its variables.
+	 */
+	@FunctionalInterface
+	public interface StatementSource {
+
+		CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(StatementPattern sp,
+				Value subj, Value pred, Value obj, Value context) throws QueryEvaluationException;
+	}
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final CloseableIteration<SolutionBatch, QueryEvaluationException> input;
+
+	private final StatementPattern sp;
+
+	private final StatementSource source;
+
+	private final int batchSize;
+
+	private SolutionBatch.Schema inputSchema;
+
+	private SolutionBatch.Schema outputSchema;
+
+	/**
+	 * The columns of the subject, predicate, object and context variables in the output schema, or <tt>-1</tt> for
+	 * variables that are absent or constant.
+	 */
+	private final int[] varColumns = new int[4];
+
+	private final Value[] constants = new Value[4];
+
+	private SolutionBatch inputBatch;
+
+	/**
+	 * The rows of the input batch grouped by the values of the pattern variables.
+	 */
+	private Iterator<Entry<ProbeKey, List<Integer>>> probes;
+
+	private List<Integer> probeRows;
+
+	private volatile CloseableIteration<? extends Statement, QueryEvaluationException> statements;
+
+	private Statement statement;
+
+	private int probeRowIndex;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public StatementPatternBatchIteration(CloseableIteration<SolutionBatch, QueryEvaluationException> input,
+			StatementPattern sp, StatementSource source, int batchSize) {
+		this.input = input;
+		this.sp = sp;
+		this.source = source;
+		this.batchSize = batchSize;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected SolutionBatch getNextElement() throws QueryEvaluationException {
+		SolutionBatch output = null;
+		while (true) {
+			if (statement != null) {
+				if (output == null) {
+					output = new SolutionBatch(outputSchema, batchSize);
+				}
+				while (probeRowIndex < probeRows.size() && !output.isFull()) {
+					addRow(output, probeRows.get(probeRowIndex++), statement);
+				}
+				if (output.isFull()) {
+					return output;
+				}
+				statement = null;
+			}
+
+			if (statements != null) {
+				if (statements.hasNext()) {
+					statement = statements.next();
+					probeRowIndex = 0;
+					continue;
+				}
+				statements.close();
+				statements = null;
+			}
+
+			if (probes != null && probes.hasNext()) {
+				Entry<ProbeKey, List<Integer>> probe = probes.next();
+				Value[] values = probe.getKey().values;
+				probeRows = probe.getValue();
+				statements = source.getStatements(sp, values[0], values[1], values[2], values[3]);
+				continue;
+			}
+
+			if (!input.hasNext()) {
+				return output == null || output.isEmpty() ? null : output;
+			}
+			setInputBatch(input.next());
+		}
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				input.close();
+			} finally {
+				CloseableIteration<? extends Statement, QueryEvaluationException> toClose = statements;
+				if (toClose != null) {
+					toClose.close();
+				}
+			}
+		}
+	}
+
+	private void setInputBatch(SolutionBatch batch) {
+		if (batch.getSchema() != inputSchema) {
+			inputSchema = batch.getSchema();
+			outputSchema = inputSchema.extend(sp.getBindingNames());
+			List<Var> vars = Arrays.asList(sp.getSubjectVar(), sp.getPredicateVar(), sp.getObjectVar(),
+					sp.getContextVar());
+			for (int i = 0; i < 4; i++) {
+				Var var = vars.get(i);
+				constants[i] = var == null ? null : var.getValue();
+				varColumns[i] = var == null || var.hasValue() ? -1 : outputSchema.indexOf(var.getName());
+			}
+		}
+		inputBatch = batch;
+
+		Map<ProbeKey, List<Integer>> groups = new LinkedHashMap<>();
+		for (int row = 0; row < batch.size(); row++) {
+			Value[] values = new Value[4];
+			for (int i = 0; i < 4; i++) {
+				int column = varColumns[i];
+				values[i] = column < 0 || column >= inputSchema.size() ? constants[i] : batch.getValue(column, row);
+			}
+			ProbeKey key = new ProbeKey(values);
+			List<Integer> rows = groups.get(key);
+			if (rows == null) {
+				rows = new ArrayList<>(1);
+				groups.put(key, rows);
+			}
+			rows.add(row);
+		}
+		probes = groups.entrySet().iterator();
+	}
+
+	private void addRow(SolutionBatch output, int inputRow, Statement st) {
+		int row = output.addRow(inputBatch, inputRow);
+		setIfUnbound(output, varColumns[0], row, st.getSubject());
+		setIfUnbound(output, varColumns[1], row, st.getPredicate());
+		setIfUnbound(output, varColumns[2], row, st.getObject());
+		setIfUnbound(output, varColumns[3], row, st.getContext());
+	}
+
+	private void setIfUnbound(SolutionBatch output, int column, int row, Value value) {
+		if (column >= 0 && output.getValue(column, row) == null) {
+			output.setValue(column, row, value);
+		}
+	}
+
+	/**
+	 * The values of the subject, predicate, object and context variables of an index lookup.
+	 */
+	private static class ProbeKey {
+
+		final Value[] values;
+
+		private final int hashCode;
+
+		ProbeKey(Value[] values) {
+			this.values = values;
+			this.hashCode = Arrays.hashCode(values);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof ProbeKey && Arrays.equals(values, ((ProbeKey) o).values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
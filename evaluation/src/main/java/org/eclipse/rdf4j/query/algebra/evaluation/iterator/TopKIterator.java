@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.DelayedIteration;
+import org.eclipse.rdf4j.common.iteration.Iteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Order;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
+import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.OrderComparator;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ValueComparator;
+
+/**
+ * Returns the first solutions of the input in the order of an {@link Order}, up to a limit. Only the best solutions
+ * seen so far are kept, in a heap of which the root is the worst of them, so that other solutions can be discarded
+ * with a single comparison. The values of the order expressions are computed once for each solution, rather than for
+ * each comparison, and a numeric value of the first expression is also kept as a <tt>double</tt>, which decides most
+ * comparisons without comparing literals. The result is the same as that of an {@link OrderIterator} with the same
+ * limit.
+ */
+public class TopKIterator extends DelayedIteration<BindingSet, QueryEvaluationException> {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	/**
+	 * The initial capacity of the heap for large limits, which are often not reached.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final List<OrderElem> elements;
+
+	/**
+	 * The compiled order expressions.
+	 */
+	private final QueryValueEvaluationStep[] keys;
+
+	/**
+	 * Orders solutions of which the values of the order expressions are the same.
+	 */
+	private final Comparator<BindingSet> tieBreaker;
+
+	private final ValueComparator cmp = new ValueComparator();
+
+	private final int limit;
+
+	private final boolean distinct;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final CloseableIteration<BindingSet, QueryEvaluationException> iter;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * @param limit    the maximum number of solutions that are returned.
+	 * @param distinct whether duplicate solutions are removed.
+	 */
+	public TopKIterator(CloseableIteration<BindingSet, QueryEvaluationException> iter, EvaluationStrategy strategy,
+			Order order, int limit, boolean distinct) {
+		this.iter = iter;
+		this.elements = order.getElements();
+		this.keys = new QueryValueEvaluationStep[elements.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = strategy.precompile(elements.get(i).getExpr());
+		}
+		this.tieBreaker = new OrderComparator(strategy, order, cmp);
+		this.limit = limit;
+		this.distinct = distinct;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected Iteration<BindingSet, QueryEvaluationException> createIteration() throws QueryEvaluationException {
+		Comparator<Candidate> order = this::compare;
+		PriorityQueue<Candidate> heap = new PriorityQueue<>(Math.min(limit, INITIAL_CAPACITY) + 1,
+				order.reversed());
+		Set<BindingSet> kept = distinct ? new HashSet<>() : null;
+		try {
+			while (limit > 0 && iter.hasNext()) {
+				BindingSet next = iter.next();
+				Value[] key = computeKey(next);
+				Candidate candidate = new Candidate(key, toDouble(key), next);
+				if (heap.size() >= limit && compare(candidate, heap.peek()) >= 0) {
+					// not better than the worst solution that is kept
+					continue;
+				}
+				if (kept != null && !kept.add(next)) {
+					continue;
+				}
+				heap.add(candidate);
+				if (heap.size() > limit) {
+					Candidate removed = heap.poll();
+					if (kept != null) {
+						kept.remove(removed.solution);
+					}
+				}
+			}
+		} finally {
+			iter.close();
+		}
+
+		Candidate[] sorted = heap.toArray(new Candidate[heap.size()]);
+		Arrays.sort(sorted, order);
+		return new CloseableIteratorIteration<>(Arrays.stream(sorted).map(c -> c.solution).iterator());
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			iter.close();
+		}
+	}
+
+	private Value[] computeKey(BindingSet solution) throws QueryEvaluationException {
+		Value[] key = new Value[keys.length];
+		for (int i = 0; i < key.length; i++) {
+			try {
+				key[i] = keys[i].evaluate(solution);
+			} catch (ValueExprEvaluationException e) {
+				// unbound or erroneous values are ordered first, as by the OrderComparator
+				key[i] = null;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Gets the value of the first order expression as a <tt>double</tt>, or <tt>NaN</tt> if it is not numeric.
+	 */
+	private static double toDouble(Value[] key) {
+		if (key.length > 0 && key[0] instanceof Literal) {
+			Literal literal = (Literal) key[0];
+			IRI datatype = literal.getDatatype();
+			if (datatype != null && XMLDatatypeUtil.isNumericDatatype(datatype)) {
+				try {
+					return literal.doubleValue();
+				} catch (NumberFormatException e) {
+					// invalid numbers are compared as literals
+				}
+			}
+		}
+		return Double.NaN;
+	}
+
+	private int compare(Candidate c1, Candidate c2) {
+		if (!Double.isNaN(c1.number) && !Double.isNaN(c2.number) && c1.number != c2.number) {
+			// rounding to double preserves the order of numbers that are not rounded to the same value
+			int diff = c1.number < c2.number ? -1 : 1;
+			return elements.get(0).isAscending() ? diff : -diff;
+		}
+		for (int i = 0; i < c1.key.length; i++) {
+			int diff = cmp.compare(c1.key[i], c2.key[i]);
+			if (diff != 0) {
+				return elements.get(i).isAscending() ? diff : -diff;
+			}
+		}
+		return tieBreaker.compare(c1.solution, c2.solution);
+	}
+
+	/**
+	 * A solution with the values of the order expressions.
+	 */
+	private static class Candidate {
+
+		final Value[] key;
+
+		final double number;
+
+		final BindingSet solution;
+
+		Candidate(Value[] key, double number, BindingSet solution) {
+			this.key = key;
+			this.number = number;
+			this.solution = solution;
+		}
+	}
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.VariableSlots;
+
+/**
+ * Evaluates an arbitrary length path of which at least one end is bound by a breadth first search from the bound end.
+ * Each search step only expands the values that were reached for the first time in the previous step. When both ends
+ * are bound, the search proceeds from both ends, each time expanding the smaller frontier, until the frontiers meet.
+ * <p>
+ * Unlike {@link PathIteration}, which evaluates the whole path expression for each step, the steps are supplied as a
+ * function, so this iteration can only be used for paths of which one step is a single lookup, such as a path over a
+ * single predicate.
+ */
+public class TransitiveClosureIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/**
+	 * A single step of a path.
+	 */
+	@FunctionalInterface
+	public interface Step {
+
+		/**
+		 * Gets the values that are one step away from a value.
+		 *
+		 * @param value   the value from which to step.
+		 * @param forward <tt>true</tt> to step from the start of the path towards its end, <tt>false</tt> to step
+		 *                backwards.
+		 */
+		CloseableIteration<? extends Value, QueryEvaluationException> from(Value value, boolean forward)
+			throws QueryEvaluationException;
+	}
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	private final Step step;
+
+	private final TripleSource tripleSource;
+
+	private final VariableSlots slots;
+
+	private final BindingSet bindings;
+
+	private final String startName;
+
+	private final Value start;
+
+	private final String endName;
+
+	private final Value end;
+
+	private final boolean includeZeroLength;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private boolean started;
+
+	private ValueSet visited;
+
+	private final Deque<Value> frontier = new ArrayDeque<>();
+
+	private CloseableIteration<? extends Value, QueryEvaluationException> neighbours;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * @param step         the step of the path.
+	 * @param tripleSource the triple source that supplies the identifiers of the visited values.
+	 * @param slots        the slots of the solutions.
+	 * @param bindings     the bindings to which the ends of the path are added.
+	 * @param startName    the name of the variable at the start of the path.
+	 * @param start        the value at the start of the path, or <tt>null</tt> if it is unbound.
+	 * @param endName      the name of the variable at the end of the path.
+	 * @param end          the value at the end of the path, or <tt>null</tt> if it is unbound.
+	 * @param minLength    the minimum length of the path, either 0 or 1.
+	 */
+	public TransitiveClosureIteration(Step step, TripleSource tripleSource, VariableSlots slots, BindingSet bindings,
+			String startName, Value start, String endName, Value end, long minLength) {
+		if (start == null && end == null) {
+			throw new IllegalArgumentException("at least one end of the path must be bound");
+		}
+		if (minLength > 1) {
+			throw new IllegalArgumentException("minimum length must be 0 or 1");
+		}
+		this.step = step;
+		this.tripleSource = tripleSource;
+		this.slots = slots;
+		this.bindings = bindings;
+		this.startName = startName;
+		this.start = start;
+		this.endName = endName;
+		this.end = end;
+		this.includeZeroLength = minLength == 0;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (start != null && end != null) {
+			if (started) {
+				return null;
+			}
+			started = true;
+			return isReachable() ? createSolution(start, end) : null;
+		}
+
+		boolean forward = start != null;
+		if (!started) {
+			started = true;
+			Value origin = forward ? start : end;
+			visited = new ValueSet(tripleSource);
+			frontier.add(origin);
+			if (includeZeroLength) {
+				visited.add(origin);
+				return createSolution(origin, origin);
+			}
+		}
+
+		while (!isClosed()) {
+			if (neighbours != null && neighbours.hasNext()) {
+				Value next = neighbours.next();
+				if (visited.add(next)) {
+					frontier.add(next);
+					return forward ? createSolution(start, next) : createSolution(next, end);
+				}
+			} else {
+				closeNeighbours();
+				Value value = frontier.poll();
+				if (value == null) {
+					return null;
+				}
+				neighbours = step.from(value, forward);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Determines whether there is a path from the start to the end, searching from both ends.
+	 */
+	private boolean isReachable() throws QueryEvaluationException {
+		if (includeZeroLength && start.equals(end)) {
+			return true;
+		}
+		ValueSet forwardVisited = new ValueSet(tripleSource);
+		ValueSet backwardVisited = new ValueSet(tripleSource);
+		forwardVisited.add(start);
+		backwardVisited.add(end);
+		List<Value> forwardFrontier = new ArrayList<>();
+		List<Value> backwardFrontier = new ArrayList<>();
+		forwardFrontier.add(start);
+		backwardFrontier.add(end);
+
+		while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+			boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+			List<Value> current = forward ? forwardFrontier : backwardFrontier;
+			ValueSet reached = forward ? forwardVisited : backwardVisited;
+			ValueSet other = forward ? backwardVisited : forwardVisited;
+
+			List<Value> next = new ArrayList<>();
+			for (Value value : current) {
+				try (CloseableIteration<? extends Value, QueryEvaluationException> iter = step.from(value, forward)) {
+					while (iter.hasNext()) {
+						Value neighbour = iter.next();
+						// the path from one end to this value continues to the other end
+						if (other.contains(neighbour)) {
+							return true;
+						}
+						if (reached.add(neighbour)) {
+							next.add(neighbour);
+						}
+					}
+				}
+				if (isClosed()) {
+					return false;
+				}
+			}
+
+			if (forward) {
+				forwardFrontier = next;
+			} else {
+				backwardFrontier = next;
+			}
+		}
+		return false;
+	}
+
+	private BindingSet createSolution(Value startValue, Value endValue) {
+		ArrayBindingSet result = new ArrayBindingSet(slots, bindings);
+		if (!result.hasBinding(startName)) {
+			result.setBinding(startName, startValue);
+		}
+		if (!result.hasBinding(endName)) {
+			result.setBinding(endName, endValue);
+		}
+		return result;
+	}
+
+	private void closeNeighbours() throws QueryEvaluationException {
+		if (neighbours != null) {
+			try {
+				neighbours.close();
+			} finally {
+				neighbours = null;
+			}
+		}
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			closeNeighbours();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+
+/**
+ * A set of values that keeps the values that have an identifier in the {@link TripleSource} as numbers, in an open
+ * addressing hash table, and other values as objects.
+ *
+ * @see TripleSource#getValueId(Value)
+ */
+class ValueSet {
+
+	private static final long FREE = -1;
+
+	private final TripleSource tripleSource;
+
+	private final Set<Value> values = new HashSet<>();
+
+	private long[] ids = new long[16];
+
+	private int idCount;
+
+	ValueSet(TripleSource tripleSource) {
+		this.tripleSource = tripleSource;
+		Arrays.fill(ids, FREE);
+	}
+
+	/**
+	 * Adds a value to this set.
+	 *
+	 * @return <tt>true</tt> if the value was not part of this set.
+	 */
+	boolean add(Value value) throws QueryEvaluationException {
+		long id = tripleSource.getValueId(value);
+		if (id < 0) {
+			return values.add(value);
+		}
+		int slot = find(ids, id);
+		if (ids[slot] == id) {
+			return false;
+		}
+		ids[slot] = id;
+		if (++idCount * 2 > ids.length) {
+			grow();
+		}
+		return true;
+	}
+
+	boolean contains(Value value) throws QueryEvaluationException {
+		long id = tripleSource.getValueId(value);
+		if (id < 0) {
+			return values.contains(value);
+		}
+		return ids[find(ids, id)] == id;
+	}
+
+	int size() {
+		return idCount + values.size();
+	}
+
+	/**
+	 * Finds the slot of an identifier, or the free slot at which it is to be inserted.
+	 */
+	private static int find(long[] table, long id) {
+		int mask = table.length - 1;
+		int slot = (int) (id ^ (id >>> 32)) * 0x9E3779B9 & mask;
+		while (table[slot] != FREE && table[slot] != id) {
+			slot = slot + 1 & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] table = new long[ids.length * 2];
+		Arrays.fill(table, FREE);
+		for (long id : ids) {
+			if (id != FREE) {
+				table[find(table, id)] = id;
+			}
+		}
+		ids = table;
+	}
+}
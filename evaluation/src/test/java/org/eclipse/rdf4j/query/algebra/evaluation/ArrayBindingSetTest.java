@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Test;
+
+public class ArrayBindingSetTest {
+
+	private final VariableSlots slots = new VariableSlots(Arrays.asList("x", "y"));
+
+	@Test
+	public void testEqualsHashcode() {
+		ArrayBindingSet bs = new ArrayBindingSet(slots);
+		bs.addBinding("y", RDF.BAG);
+		bs.addBinding("x", RDF.ALT);
+
+		MapBindingSet mbs = new MapBindingSet();
+		mbs.addBinding("x", RDF.ALT);
+		mbs.addBinding("y", RDF.BAG);
+
+		assertEquals(bs, mbs);
+		assertEquals(mbs, bs);
+		assertEquals(bs.hashCode(), mbs.hashCode());
+	}
+
+	@Test
+	public void testCopyOnWrite() {
+		ArrayBindingSet parent = new ArrayBindingSet(slots);
+		parent.addBinding("x", RDF.ALT);
+
+		ArrayBindingSet child = new ArrayBindingSet(slots, parent);
+		child.addBinding("y", RDF.BAG);
+		parent.setBinding("x", RDF.FIRST);
+
+		assertEquals(RDF.FIRST, parent.getValue("x"));
+		assertFalse(parent.hasBinding("y"));
+		assertEquals(RDF.ALT, child.getValue("x"));
+		assertEquals(RDF.BAG, child.getValue("y"));
+	}
+
+	@Test
+	public void testVariableWithoutSlot() {
+		ArrayBindingSet bs = new ArrayBindingSet(slots);
+		bs.addBinding("z", RDF.REST);
+
+		assertEquals(RDF.REST, bs.getValue("z"));
+		assertEquals(Collections.singleton("z"), bs.getBindingNames());
+		assertEquals(3, slots.size());
+	}
+
+	@Test
+	public void testNullValue() {
+		ArrayBindingSet bs = new ArrayBindingSet(slots);
+		bs.addBinding("x", RDF.ALT);
+		bs.setBinding("y", null);
+
+		assertTrue(bs.hasBinding("y"));
+		assertNull(bs.getValue("y"));
+		assertNull(bs.getBinding("y"));
+		assertEquals(new HashSet<>(Arrays.asList("x", "y")), bs.getBindingNames());
+		assertEquals(2, bs.size());
+
+		Iterator<Binding> bindings = bs.iterator();
+		assertEquals("x", bindings.next().getName());
+		assertFalse(bindings.hasNext());
+	}
+
+	@Test
+	public void testRetainAll() {
+		ArrayBindingSet parent = new ArrayBindingSet(slots);
+		parent.addBinding("x", RDF.ALT);
+		parent.addBinding("y", RDF.BAG);
+
+		ArrayBindingSet child = new ArrayBindingSet(parent);
+		child.retainAll(Collections.singleton("y"));
+
+		assertEquals(Collections.singleton("y"), child.getBindingNames());
+		assertEquals(2, parent.size());
+	}
+}
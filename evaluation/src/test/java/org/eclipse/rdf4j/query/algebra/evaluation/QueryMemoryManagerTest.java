@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Test;
+
+/**
+ * Compares the results of the blocking operators within a small memory budget, which makes them write to disk, with
+ * their results in memory.
+ */
+public class QueryMemoryManagerTest {
+
+	private static final int SIZE = 1000;
+
+	private static final long BUDGET = 4096;
+
+	@Test
+	public void testDistinct() throws Exception {
+		assertSameResults("SELECT DISTINCT ?x ?y { " + values("?x ?y", i -> x(i % 300) + " " + y(i % 3)) + " }",
+				false);
+	}
+
+	@Test
+	public void testOrder() throws Exception {
+		assertSameResults("SELECT ?x ?y { " + values("?x ?y", i -> x(i * 7919 % SIZE) + " " + y(i)) + " } ORDER BY ?x",
+				true);
+	}
+
+	@Test
+	public void testGroup() throws Exception {
+		assertSameResults("SELECT ?x (COUNT(*) AS ?c) (MAX(?y) AS ?m) { "
+				+ values("?x ?y", i -> x(i % 400) + " " + y(i)) + " } GROUP BY ?x", false);
+	}
+
+	@Test
+	public void testMinus() throws Exception {
+		assertSameResults("SELECT * { { " + values("?x ?y", i -> x(i) + " " + y(i)) + " } MINUS { "
+				+ values("?x", i -> x(i * 3)) + " } }", false);
+	}
+
+	@Test
+	public void testHashJoin() throws Exception {
+		assertSameResults("SELECT * { " + values("?x ?y", i -> x(i % 500) + " " + y(i)) + " { SELECT ?x ?z { "
+				+ values("?x ?z", i -> x(i % 700) + " " + y(-i)) + " } } }", false);
+	}
+
+	@Test
+	public void testHashLeftJoin() throws Exception {
+		assertSameResults("SELECT * { " + values("?x ?y", i -> x(i) + " " + y(i)) + " OPTIONAL { SELECT ?x ?z { "
+				+ values("?x ?z", i -> x(i * 2) + " " + y(-i)) + " } } }", false);
+	}
+
+	private void assertSameResults(String query, boolean ordered) throws Exception {
+		ParsedQuery parsed = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, query, null);
+
+		StrictEvaluationStrategy strategy = new StrictEvaluationStrategy(null, null);
+		List<String> expected = evaluate(strategy, parsed);
+
+		QueryMemoryManager memory = new QueryMemoryManager(BUDGET);
+		strategy = new StrictEvaluationStrategy(null, null);
+		strategy.setQueryMemoryManager(memory);
+		List<String> actual = evaluate(strategy, parsed);
+
+		if (!ordered) {
+			Collections.sort(expected);
+			Collections.sort(actual);
+		}
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, actual);
+		assertTrue(memory.getSpillCount() > 0);
+		assertEquals(0, memory.getUsedMemory());
+	}
+
+	private List<String> evaluate(StrictEvaluationStrategy strategy, ParsedQuery parsed)
+			throws QueryEvaluationException {
+		List<String> results = new ArrayList<>();
+		try (CloseableIteration<BindingSet, QueryEvaluationException> iter = strategy
+				.evaluate(parsed.getTupleExpr().clone(), EmptyBindingSet.getInstance())) {
+			while (iter.hasNext()) {
+				BindingSet solution = iter.next();
+				results.add(solution.getValue("x") + " " + solution.getValue("y") + " " + solution.getValue("z") + " "
+						+ solution.getValue("c") + " " + solution.getValue("m"));
+			}
+		}
+		return results;
+	}
+
+	private static String values(String vars, Row row) {
+		StringBuilder sb = new StringBuilder("VALUES (").append(vars).append(") {");
+		for (int i = 0; i < SIZE; i++) {
+			sb.append(" (").append(row.values(i)).append(')');
+		}
+		return sb.append(" }").toString();
+	}
+
+	private static String x(int i) {
+		return "<urn:x:" + i + ">";
+	}
+
+	private static String y(int i) {
+		return "\"value " + i + "\"";
+	}
+
+	@FunctionalInterface
+	private interface Row {
+
+		String values(int i);
+	}
+}
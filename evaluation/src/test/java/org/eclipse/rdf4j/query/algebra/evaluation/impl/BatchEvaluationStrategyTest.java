@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the results of the {@link BatchEvaluationStrategy} with those of the {@link StrictEvaluationStrategy}.
+ */
+public class BatchEvaluationStrategyTest {
+
+	private static final String PREFIX = "PREFIX foaf: <" + FOAF.NAMESPACE + ">\n";
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private EvaluationStrategy strict;
+
+	private EvaluationStrategy batch;
+
+	@Before
+	public void setUp() throws Exception {
+		Model model = new LinkedHashModel();
+		IRI graph = vf.createIRI("urn:graph");
+		for (int i = 0; i < 50; i++) {
+			IRI person = vf.createIRI("urn:person:" + i);
+			model.add(person, RDF.TYPE, FOAF.PERSON);
+			model.add(person, FOAF.AGE, vf.createLiteral(i % 7));
+			model.add(person, FOAF.KNOWS, vf.createIRI("urn:person:" + (i * 3 % 50)));
+			model.add(person, FOAF.KNOWS, vf.createIRI("urn:person:" + (i * 7 % 50)), graph);
+			if (i % 10 == 0) {
+				model.add(person, FOAF.KNOWS, person);
+			}
+		}
+		TripleSource tripleSource = new TripleSource() {
+
+			@Override
+			public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(Resource subj,
+					IRI pred, Value obj, Resource... contexts) throws QueryEvaluationException {
+				return new CloseableIteratorIteration<>(model.filter(subj, pred, obj, contexts).iterator());
+			}
+
+			@Override
+			public ValueFactory getValueFactory() {
+				return vf;
+			}
+		};
+		strict = new StrictEvaluationStrategy(tripleSource, null);
+		// small batches to cover batch boundaries
+		batch = new BatchEvaluationStrategy(tripleSource, null, null, 0, 4);
+	}
+
+	@Test
+	public void testJoin() throws Exception {
+		assertSameResults("SELECT * { ?a foaf:knows ?b . ?b foaf:knows ?c . ?c foaf:age ?age }");
+	}
+
+	@Test
+	public void testFilter() throws Exception {
+		assertSameResults("SELECT * { ?a a foaf:Person ; foaf:age ?age ; foaf:knows ?b FILTER (?age > 3) "
+				+ "?b foaf:age ?age2 FILTER (?age2 < ?age) }");
+	}
+
+	@Test
+	public void testRepeatedVariable() throws Exception {
+		assertSameResults("SELECT * { ?a foaf:knows ?a . ?a foaf:age ?age }");
+	}
+
+	@Test
+	public void testNamedGraph() throws Exception {
+		assertSameResults("SELECT * { ?a foaf:age ?age GRAPH ?g { ?a ?p ?b } }");
+	}
+
+	@Test
+	public void testValues() throws Exception {
+		List<BindingSet> results = assertSameResults(
+				"SELECT * { VALUES ?a { <urn:person:1> <urn:person:3> } ?a foaf:knows ?b . ?b foaf:age ?age }");
+		assertFalse(results.isEmpty());
+	}
+
+	@Test
+	public void testOptional() throws Exception {
+		assertSameResults("SELECT * { ?a foaf:age ?age OPTIONAL { ?a foaf:knows ?b . ?b foaf:age ?age2 } }");
+	}
+
+	@Test
+	public void testBindings() throws Exception {
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding("a", vf.createIRI("urn:person:3"));
+		bindings.addBinding("x", vf.createLiteral("X"));
+		List<BindingSet> results = assertSameResults("SELECT * { ?a foaf:knows ?b . ?b foaf:knows ?c }", bindings);
+		assertFalse(results.isEmpty());
+	}
+
+	private List<BindingSet> assertSameResults(String query) throws Exception {
+		return assertSameResults(query, EmptyBindingSet.getInstance());
+	}
+
+	private List<BindingSet> assertSameResults(String query, BindingSet bindings) throws Exception {
+		ParsedQuery pq = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, PREFIX + query, null);
+		TupleExpr expr = new QueryRoot(pq.getTupleExpr());
+		new QueryJoinOptimizer().optimize(expr, null, bindings);
+		new FilterOptimizer().optimize(expr, null, bindings);
+
+		List<BindingSet> expected = Iterations.asList(strict.evaluate(expr, bindings));
+		List<BindingSet> actual = Iterations.asList(batch.evaluate(expr, bindings));
+		assertEquals(expected.size(), actual.size());
+		assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+		return actual;
+	}
+}
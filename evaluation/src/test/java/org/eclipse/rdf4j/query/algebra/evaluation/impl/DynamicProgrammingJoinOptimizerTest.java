@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Test;
+
+/**
+ * Tests the join orders of the {@link DynamicProgrammingJoinOptimizer}.
+ */
+public class DynamicProgrammingJoinOptimizerTest {
+
+	private static final String PREFIX = "PREFIX ex: <urn:ex:>\n";
+
+	/**
+	 * Estimates the cardinality of a statement pattern by the number in the local name of its predicate, divided by
+	 * 100 if its object is bound.
+	 */
+	private final EvaluationStatistics statistics = new EvaluationStatistics() {
+
+		@Override
+		protected CardinalityCalculator createCardinalityCalculator() {
+			return new CardinalityCalculator() {
+
+				@Override
+				protected double getCardinality(StatementPattern sp) {
+					String name = ((IRI) sp.getPredicateVar().getValue()).getLocalName();
+					double cardinality = Double.parseDouble(name.replaceAll("[^0-9]", ""));
+					return sp.getObjectVar().hasValue() ? cardinality / 100 : cardinality;
+				}
+			};
+		}
+	};
+
+	@Test
+	public void testStarAndChain() throws Exception {
+		List<String> order = optimize(new DynamicProgrammingJoinOptimizer(statistics),
+				"SELECT * { ?x ex:type100000 ex:C . ?x ex:name100000 ?n . ?x ex:link100000 ?y . "
+						+ "?y ex:code1000 \"k\" }");
+		// the chain is evaluated from its selective end, before the star around ?x
+		assertEquals(Arrays.asList("code1000", "link100000", "type100000", "name100000"), order);
+	}
+
+	@Test
+	public void testNoCartesianProducts() throws Exception {
+		String query = "SELECT * { ?a ex:p10 ?b . ?b ex:q100000 ?c . ?c ex:r5 ?d . ?d ex:s1000 ?e . "
+				+ "?e ex:t20 ?f . ?a ex:u300 ?g . ?g ex:v7 ?h . ?h ex:w100000 ?i }";
+		TupleExpr expr = parse(query);
+		new DynamicProgrammingJoinOptimizer(statistics).optimize(expr, null, null);
+		Set<String> bound = new HashSet<>();
+		List<StatementPattern> patterns = StatementPatternCollector.process(expr);
+		assertEquals(8, patterns.size());
+		for (StatementPattern sp : patterns) {
+			Set<String> names = new HashSet<>();
+			for (Var var : sp.getVarList()) {
+				if (!var.hasValue()) {
+					names.add(var.getName());
+				}
+			}
+			if (!bound.isEmpty()) {
+				assertFalse(sp.toString(), Collections.disjoint(bound, names));
+			}
+			bound.addAll(names);
+		}
+	}
+
+	@Test
+	public void testDisconnectedJoin() throws Exception {
+		List<String> order = optimize(new DynamicProgrammingJoinOptimizer(statistics),
+				"SELECT * { ?a ex:p100 ?b . ?b ex:q10 ?c . ?x ex:r1000 ?y . ?y ex:s5 ?z }");
+		assertEquals(4, order.size());
+		// the components are not interleaved
+		int p = order.indexOf("p100");
+		int q = order.indexOf("q10");
+		assertEquals(1, Math.abs(p - q));
+		assertTrue(Math.min(p, q) == 0 || Math.min(p, q) == 2);
+	}
+
+	@Test
+	public void testFallbackAboveMaxJoinSize() throws Exception {
+		String query = "SELECT * { ?x ex:type1000 ex:C . ?x ex:name100000 ?n . ?x ex:link100000 ?y . "
+				+ "?y ex:code1000 \"k\" . ?n ex:lang10 ?l }";
+		assertEquals(optimize(new QueryJoinOptimizer(statistics), query),
+				optimize(new DynamicProgrammingJoinOptimizer(statistics, 4), query));
+	}
+
+	private List<String> optimize(QueryOptimizer optimizer, String query) {
+		TupleExpr expr = parse(query);
+		optimizer.optimize(expr, null, null);
+		List<String> order = new ArrayList<>();
+		for (StatementPattern sp : StatementPatternCollector.process(expr)) {
+			order.add(((IRI) sp.getPredicateVar().getValue()).getLocalName());
+		}
+		return order;
+	}
+
+	private TupleExpr parse(String query) {
+		ParsedQuery pq = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, PREFIX + query, null);
+		return new QueryRoot(pq.getTupleExpr());
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.CostBasedJoin.Algorithm;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.junit.Test;
+
+/**
+ * Tests the join algorithms selected by the {@link JoinAlgorithmOptimizer}.
+ */
+public class JoinAlgorithmOptimizerTest {
+
+	@Test
+	public void testSelectiveJoinUsesNestedLoop() throws Exception {
+		CostBasedJoin join = optimize("SELECT * { <ex:s> <ex:p> ?o . ?o <ex:q> <ex:v> }", constant(1000));
+		assertEquals(Algorithm.NESTED_LOOP, join.getAlgorithm());
+	}
+
+	@Test
+	public void testUnselectiveJoinUsesHash() throws Exception {
+		CostBasedJoin join = optimize("SELECT * { ?s <ex:p> ?o . ?o <ex:q> ?v }", constant(1000));
+		assertEquals(Algorithm.HASH, join.getAlgorithm());
+		assertTrue(join.getSignature().contains(Algorithm.HASH.toString()));
+	}
+
+	@Test
+	public void testLargeJoinAvoidsHash() throws Exception {
+		CostBasedJoin join = optimize("SELECT * { ?s <ex:p> ?o . ?o <ex:q> ?v }", constant(10000000));
+		assertEquals(Algorithm.BIND, join.getAlgorithm());
+	}
+
+	@Test
+	public void testOptionalJoinVariableAvoidsHash() throws Exception {
+		CostBasedJoin join = optimize("SELECT * { { ?s <ex:p> ?o OPTIONAL { ?s <ex:r> ?x } } ?x <ex:q> ?v }",
+				constant(1000));
+		assertTrue(join.getAlgorithm() != Algorithm.HASH);
+	}
+
+	private CostBasedJoin optimize(String query, EvaluationStatistics statistics) throws Exception {
+		ParsedQuery pq = new SPARQLParser().parseQuery(query, null);
+		TupleExpr root = new QueryRoot(pq.getTupleExpr());
+		new JoinAlgorithmOptimizer(statistics).optimize(root, null, null);
+
+		CostBasedJoin[] result = new CostBasedJoin[1];
+		root.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			public void meet(Join node) {
+				if (result[0] == null && node instanceof CostBasedJoin) {
+					result[0] = (CostBasedJoin) node;
+				}
+				super.meet(node);
+			}
+		});
+		assertNotNull(result[0]);
+		return result[0];
+	}
+
+	/**
+	 * Creates statistics in which every statement pattern with unbound variables has the supplied cardinality.
+	 */
+	private EvaluationStatistics constant(double cardinality) {
+		return new EvaluationStatistics() {
+
+			@Override
+			protected CardinalityCalculator createCardinalityCalculator() {
+				return new CardinalityCalculator() {
+
+					@Override
+					protected double getCardinality(StatementPattern sp) {
+						return cardinality;
+					}
+				};
+			}
+		};
+	}
+}
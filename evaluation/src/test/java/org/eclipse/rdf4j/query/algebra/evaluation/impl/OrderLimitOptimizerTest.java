@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.Order;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Test;
+
+public class OrderLimitOptimizerTest {
+
+	@Test
+	public void testSortedSubquery() {
+		assertOrders(1, "SELECT ?x { { SELECT ?x ?o { ?x ?p ?o } ORDER BY ?x ?o LIMIT 10 } } ORDER BY ?x");
+	}
+
+	@Test
+	public void testFilteredSubquery() {
+		assertOrders(1, "SELECT * { { SELECT ?x ?o { ?x ?p ?o } ORDER BY DESC(?x) } FILTER (?o != 1) } "
+				+ "ORDER BY DESC(?x)");
+	}
+
+	@Test
+	public void testOtherOrder() {
+		assertOrders(2, "SELECT ?x { { SELECT ?x ?o { ?x ?p ?o } ORDER BY ?x } } ORDER BY ?x ?o");
+		assertOrders(2, "SELECT ?x { { SELECT ?x { ?x ?p ?o } ORDER BY ?x } } ORDER BY DESC(?x)");
+	}
+
+	@Test
+	public void testRenamedVariable() {
+		assertOrders(2, "SELECT ?y { { SELECT (?x AS ?y) { ?x ?p ?o } ORDER BY ?x } BIND (1 AS ?x) } ORDER BY ?x");
+	}
+
+	private void assertOrders(int expected, String query) {
+		ParsedQuery pq = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, query, null);
+		TupleExpr expr = new QueryRoot(pq.getTupleExpr());
+		new OrderLimitOptimizer().optimize(expr, null, EmptyBindingSet.getInstance());
+
+		AtomicInteger orders = new AtomicInteger();
+		expr.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			public void meet(Order node) {
+				orders.incrementAndGet();
+				super.meet(node);
+			}
+		});
+		assertEquals(expr.toString(), expected, orders.get());
+	}
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.LeftJoin;
+import org.eclipse.rdf4j.query.algebra.Projection;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the results of the {@link ParallelEvaluationStrategy} with those of the {@link StrictEvaluationStrategy}.
+ */
+public class ParallelEvaluationStrategyTest {
+
+	private static final String PREFIX = "PREFIX foaf: <" + FOAF.NAMESPACE + ">\n";
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private ForkJoinPool pool;
+
+	private EvaluationStrategy strict;
+
+	private EvaluationStrategy parallel;
+
+	@Before
+	public void setUp() throws Exception {
+		Model model = new LinkedHashModel();
+		for (int i = 0; i < 50; i++) {
+			IRI person = vf.createIRI("urn:person:" + i);
+			model.add(person, RDF.TYPE, FOAF.PERSON);
+			model.add(person, FOAF.AGE, vf.createLiteral(i % 7));
+			model.add(person, FOAF.KNOWS, vf.createIRI("urn:person:" + (i * 3 % 50)));
+		}
+		TripleSource tripleSource = new TripleSource() {
+
+			@Override
+			public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(Resource subj,
+					IRI pred, Value obj, Resource... contexts) throws QueryEvaluationException {
+				List<Statement> statements;
+				synchronized (model) {
+					statements = new ArrayList<>(model.filter(subj, pred, obj, contexts));
+				}
+				return new CloseableIteratorIteration<>(statements.iterator());
+			}
+
+			@Override
+			public ValueFactory getValueFactory() {
+				return vf;
+			}
+		};
+		pool = new ForkJoinPool(2);
+		strict = new StrictEvaluationStrategy(tripleSource, null);
+		// a small queue to cover blocked producers
+		parallel = new ParallelEvaluationStrategy(tripleSource, null, null, 0, pool, 4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void testUnion() throws Exception {
+		assertSameResults("SELECT * { { ?a foaf:knows ?b } UNION { ?a foaf:age ?age } UNION { ?a a ?type } }");
+	}
+
+	@Test
+	public void testNestedUnion() throws Exception {
+		assertSameResults("SELECT * { ?a foaf:age 3 { ?a foaf:knows ?b } UNION { { ?b foaf:knows ?a } UNION "
+				+ "{ ?a foaf:age ?age } } }");
+	}
+
+	@Test
+	public void testEvaluatedOnce() throws Exception {
+		String query = "SELECT * { ?a foaf:age 3 OPTIONAL { { ?a foaf:knows ?b } UNION { ?b foaf:knows ?a } } }";
+		TupleExpr expr = parse(query);
+		LeftJoin leftJoin = (LeftJoin) ((Projection) ((QueryRoot) expr).getArg()).getArg();
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding("a", vf.createIRI("urn:person:3"));
+
+		ParallelEvaluationStrategy strategy = (ParallelEvaluationStrategy) parallel;
+		assertTrue(strategy.isEvaluatedOnce(leftJoin, bindings));
+		assertTrue(strategy.isEvaluatedOnce(leftJoin.getLeftArg(), bindings));
+		// the union is evaluated for each solution of the left argument
+		assertFalse(strategy.isEvaluatedOnce(leftJoin.getRightArg(), bindings));
+		assertTrue(strategy.isEvaluatedOnce(leftJoin.getRightArg(), EmptyBindingSet.getInstance()));
+		assertSameResults(query);
+	}
+
+	@Test
+	public void testCrossProduct() throws Exception {
+		assertSameResults("SELECT * { ?a foaf:age 1 . ?b foaf:age 2 . ?b foaf:knows ?c }");
+	}
+
+	@Test
+	public void testGroup() throws Exception {
+		assertSameResults("SELECT ?age (COUNT(*) AS ?count) (SUM(?age) AS ?sum) (GROUP_CONCAT(?b) AS ?known) "
+				+ "{ ?a foaf:age ?age ; foaf:knows ?b } GROUP BY ?age");
+	}
+
+	@Test
+	public void testStatementCount() throws Exception {
+		assertCount(50, "SELECT (COUNT(*) AS ?count) { ?a foaf:knows ?b }");
+		assertCount(7, "SELECT (COUNT(*) AS ?count) { ?a foaf:age 3 }");
+		// person 0 and person 25 know themselves
+		assertCount(2, "SELECT (COUNT(*) AS ?count) { ?a foaf:knows ?a }");
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		TupleExpr expr = parse("SELECT * { { ?a ?p ?b } UNION { ?b ?p ?a } }");
+		CloseableIteration<BindingSet, QueryEvaluationException> result = parallel.evaluate(expr,
+				EmptyBindingSet.getInstance());
+		assertTrue(result.hasNext());
+		result.next();
+		result.close();
+
+		assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+	}
+
+	private void assertSameResults(String query) throws Exception {
+		TupleExpr expr = parse(query);
+		List<BindingSet> expected = Iterations.asList(strict.evaluate(expr, EmptyBindingSet.getInstance()));
+		List<BindingSet> actual = Iterations.asList(parallel.evaluate(expr, EmptyBindingSet.getInstance()));
+		assertEquals(expected.size(), actual.size());
+
+		List<String> expectedStrings = toSortedStrings(expected);
+		List<String> actualStrings = toSortedStrings(actual);
+		assertEquals(expectedStrings, actualStrings);
+	}
+
+	private void assertCount(int expected, String query) throws Exception {
+		List<BindingSet> result = Iterations.asList(parallel.evaluate(parse(query), EmptyBindingSet.getInstance()));
+		assertEquals(1, result.size());
+		assertEquals(expected, ((Literal) result.get(0).getValue("count")).intValue());
+		assertSameResults(query);
+	}
+
+	private TupleExpr parse(String query) {
+		ParsedQuery pq = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, PREFIX + query, null);
+		TupleExpr expr = new QueryRoot(pq.getTupleExpr());
+		new QueryJoinOptimizer().optimize(expr, null, EmptyBindingSet.getInstance());
+		return expr;
+	}
+
+	private static List<String> toSortedStrings(List<BindingSet> bindingSets) {
+		List<String> result = new ArrayList<>();
+		for (BindingSet bindingSet : bindingSets) {
+			List<String> bindings = new ArrayList<>();
+			bindingSet.forEach(binding -> bindings.add(binding.toString()));
+			Collections.sort(bindings);
+			result.add(bindings.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.BooleanLiteral;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.ExtensionElem;
+import org.eclipse.rdf4j.query.algebra.ValueExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.ArrayBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryValueEvaluationStep;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the values of compiled value expressions with those computed by
+ * {@link StrictEvaluationStrategy#evaluate(ValueExpr, BindingSet)}.
+ */
+public class ValueExprCompilerTest {
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private StrictEvaluationStrategy strategy;
+
+	private List<BindingSet> solutions;
+
+	@Before
+	public void setUp() throws Exception {
+		strategy = new StrictEvaluationStrategy(new EmptyTripleSource(), null);
+		solutions = new ArrayList<>();
+		Value[] values = { vf.createLiteral(3), vf.createLiteral(-12L), vf.createLiteral("12", XMLSchema.INTEGER),
+				vf.createLiteral("+7", XMLSchema.BYTE), vf.createLiteral("123456789012345678901", XMLSchema.INTEGER),
+				vf.createLiteral(2.5d), vf.createLiteral("abc"), vf.createLiteral("ABC", "en"), vf.createIRI("urn:a"),
+				vf.createLiteral("x", XMLSchema.INTEGER), null };
+		for (Value a : values) {
+			for (Value b : values) {
+				QueryBindingSet solution = new QueryBindingSet();
+				if (a != null) {
+					solution.addBinding("a", a);
+				}
+				if (b != null) {
+					solution.addBinding("b", b);
+				}
+				solutions.add(solution);
+				solutions.add(new ArrayBindingSet(strategy.getVariableSlots(), solution));
+			}
+		}
+	}
+
+	@Test
+	public void testCompare() throws Exception {
+		assertSameValues("?a < ?b", "?a = ?b", "?a != ?b", "?a >= ?b", "?a > 5", "12 <= ?a");
+	}
+
+	@Test
+	public void testLogical() throws Exception {
+		assertSameValues("?a < ?b && ?b > 0", "?a < ?b || ?b > 0", "!(?a = ?b)", "bound(?a) && !bound(?b)",
+				"sameTerm(?a, ?b)");
+	}
+
+	@Test
+	public void testRegex() throws Exception {
+		assertSameValues("regex(?a, \"^a\")", "regex(?a, \"B\", \"i\")", "regex(?a, \"B\", \"q\")",
+				"regex(?a, \"(\")", "regex(\"abc\", str(?b))");
+	}
+
+	@Test
+	public void testConstants() throws Exception {
+		assertSameValues("1 + 2 * 3", "?a + (1 + 2)", "regex(\"abc\", \"b\") && ?a > 1", "\"a\" + 1",
+				"if(1 < 2, ?a, ?b)");
+	}
+
+	@Test
+	public void testFunctions() throws Exception {
+		assertSameValues("concat(str(?a), \"-\", str(?b))", "strlen(?a)", "abs(?a)", "xsd:integer(?a)");
+	}
+
+	@Test
+	public void testOverriddenEvaluation() throws Exception {
+		strategy = new StrictEvaluationStrategy(new EmptyTripleSource(), null) {
+
+			@Override
+			public Value evaluate(Compare node, BindingSet bindings) {
+				return BooleanLiteral.TRUE;
+			}
+		};
+		assertSameValues("?a < ?b && ?b > 0");
+	}
+
+	private void assertSameValues(String... expressions) throws Exception {
+		for (String expression : expressions) {
+			ValueExpr expr = parse(expression);
+			QueryValueEvaluationStep step = strategy.precompile(expr);
+			for (BindingSet solution : solutions) {
+				assertEquals(expression + " for " + solution, evaluate(() -> strategy.evaluate(expr, solution)),
+						evaluate(() -> step.evaluate(solution)));
+			}
+		}
+	}
+
+	/**
+	 * Gets the value of an expression, or the type of the exception that is thrown.
+	 */
+	private Object evaluate(Callable<Value> evaluation) throws Exception {
+		try {
+			return evaluation.call();
+		} catch (QueryEvaluationException | IllegalArgumentException e) {
+			return e.getClass();
+		}
+	}
+
+	private ValueExpr parse(String expression) {
+		ParsedQuery pq = QueryParserUtil.parseQuery(QueryLanguage.SPARQL,
+				"PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> SELECT (" + expression + " AS ?r) {}", null);
+		List<ValueExpr> found = new ArrayList<>();
+		pq.getTupleExpr().visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			public void meet(ExtensionElem node) {
+				if (node.getName().equals("r")) {
+					found.add(node.getExpr());
+				}
+			}
+		});
+		return found.get(0);
+	}
+}
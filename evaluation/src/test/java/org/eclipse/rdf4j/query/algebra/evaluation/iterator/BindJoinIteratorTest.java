@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.BindingSetAssignments;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.junit.Test;
+
+/**
+ * Compares the results of a {@link BindJoinIterator} with those of a nested loop {@link JoinIterator}.
+ */
+public class BindJoinIteratorTest {
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private final EvaluationStrategy evaluator = new StrictEvaluationStrategy(null, null);
+
+	@Test
+	public void testDuplicateJoinValues() throws QueryEvaluationException {
+		BindingSetAssignment left = BindingSetAssignments.create(10, 3, "b3");
+		BindingSetAssignment right = BindingSetAssignments.create(4, 1, "b1");
+
+		for (int batchSize : new int[] { 1, 2, 7, BindJoinIterator.DEFAULT_BATCH_SIZE }) {
+			assertSameResults(left, right, batchSize, EmptyBindingSet.getInstance());
+		}
+	}
+
+	@Test
+	public void testBoundJoinValue() throws QueryEvaluationException {
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding("a", vf.createLiteral(1));
+
+		assertSameResults(BindingSetAssignments.create(10, 3, "b3"), BindingSetAssignments.create(4, 1, "b1"), 4,
+				bindings);
+	}
+
+	@Test
+	public void testCrossProduct() throws QueryEvaluationException {
+		BindingSetAssignment left = BindingSetAssignments.create(5, 1, "b1");
+		BindingSetAssignment right = new BindingSetAssignment();
+		List<BindingSet> rightb = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			QueryBindingSet b = new QueryBindingSet();
+			b.addBinding("c", vf.createLiteral(i));
+			rightb.add(b);
+		}
+		right.setBindingSets(rightb);
+
+		Set<BindingSet> results = assertSameResults(left, right, 2, EmptyBindingSet.getInstance());
+		assertEquals(15, results.size());
+	}
+
+	private Set<BindingSet> assertSameResults(BindingSetAssignment left, BindingSetAssignment right, int batchSize,
+			BindingSet bindings) throws QueryEvaluationException {
+		Set<BindingSet> expected = Iterations.asSet(new JoinIterator(evaluator, new Join(left, right), bindings));
+		Set<BindingSet> actual = Iterations
+				.asSet(new BindJoinIterator(evaluator, left, right, bindings, batchSize));
+		assertEquals(expected, actual);
+		return actual;
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Avg;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.Count;
+import org.eclipse.rdf4j.query.algebra.Group;
+import org.eclipse.rdf4j.query.algebra.GroupConcat;
+import org.eclipse.rdf4j.query.algebra.GroupElem;
+import org.eclipse.rdf4j.query.algebra.Max;
+import org.eclipse.rdf4j.query.algebra.Min;
+import org.eclipse.rdf4j.query.algebra.Order;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
+import org.eclipse.rdf4j.query.algebra.Sum;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.BindingSetAssignments;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.junit.Test;
+
+/**
+ * Compares the results of a {@link BoundedGroupIterator} and a {@link ParallelGroupIterator} with those of a
+ * {@link GroupIterator}.
+ */
+public class BoundedGroupIteratorTest {
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private final EvaluationStrategy evaluator = new StrictEvaluationStrategy(null, null);
+
+	@Test
+	public void testSpill() throws QueryEvaluationException {
+		for (int maxGroups : new int[] { 0, 1, 2, 3, 100 }) {
+			assertSameResults(createGroup(createAssignment(40), "g"), maxGroups);
+		}
+	}
+
+	@Test
+	public void testOrderedInput() throws QueryEvaluationException {
+		Order order = new Order(createAssignment(40), new OrderElem(new Var("g")));
+		Group group = createGroup(order, "g");
+		assertTrue(BoundedGroupIterator.isOrderedByGroupKeys(group));
+		assertSameResults(group, 0);
+	}
+
+	@Test
+	public void testNotOrderedByGroupKeys() throws QueryEvaluationException {
+		Order order = new Order(createAssignment(40), new OrderElem(new Var("v")), new OrderElem(new Var("g")));
+		Group group = createGroup(order, "g");
+		assertEquals(false, BoundedGroupIterator.isOrderedByGroupKeys(group));
+		assertSameResults(group, 2);
+	}
+
+	@Test
+	public void testEmptyInput() throws QueryEvaluationException {
+		Set<BindingSet> results = assertSameResults(createGroup(createAssignment(0)), 1);
+		assertEquals(1, results.size());
+	}
+
+	@Test
+	public void testParallel() throws QueryEvaluationException {
+		Group group = createGroup(createAssignment(40), "g");
+		Set<BindingSet> expected = Iterations
+				.asSet(new GroupIterator(evaluator, group, EmptyBindingSet.getInstance()));
+		for (int batchSize : new int[] { 1, 3, 100 }) {
+			Set<BindingSet> actual = Iterations.asSet(new ParallelGroupIterator(evaluator, group,
+					EmptyBindingSet.getInstance(), ForkJoinPool.commonPool(), 2, batchSize));
+			assertEquals(expected, actual);
+		}
+	}
+
+	private Set<BindingSet> assertSameResults(Group group, int maxGroups) throws QueryEvaluationException {
+		Set<BindingSet> expected = Iterations
+				.asSet(new GroupIterator(evaluator, group, EmptyBindingSet.getInstance()));
+		Set<BindingSet> actual = Iterations
+				.asSet(new BoundedGroupIterator(evaluator, group, EmptyBindingSet.getInstance(), maxGroups));
+		assertEquals(expected, actual);
+		return actual;
+	}
+
+	private Group createGroup(TupleExpr arg, String... groupNames) {
+		Group group = new Group(arg, Arrays.asList(groupNames));
+		group.addGroupElement(new GroupElem("count", new Count(null)));
+		group.addGroupElement(new GroupElem("countDistinct", new Count(new Var("w"), true)));
+		group.addGroupElement(new GroupElem("sum", new Sum(new Var("v"))));
+		group.addGroupElement(new GroupElem("avg", new Avg(new Var("w"))));
+		group.addGroupElement(new GroupElem("min", new Min(new Var("v"))));
+		group.addGroupElement(new GroupElem("max", new Max(new Var("v"))));
+		group.addGroupElement(new GroupElem("concat", new GroupConcat(new Var("v"))));
+		return group;
+	}
+
+	/**
+	 * Creates solutions that bind <tt>g</tt> to <tt>i % 5</tt>, <tt>v</tt> to <tt>i</tt> and, for even <tt>i</tt>,
+	 * <tt>w</tt> to <tt>i % 4</tt>.
+	 */
+	private BindingSetAssignment createAssignment(int size) {
+		List<BindingSet> bindingSets = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			QueryBindingSet b = new QueryBindingSet();
+			b.addBinding("g", vf.createLiteral(i % 5));
+			b.addBinding("v", vf.createLiteral(i));
+			if (i % 2 == 0) {
+				b.addBinding("w", vf.createLiteral(i % 4));
+			}
+			bindingSets.add(b);
+		}
+		Collections.shuffle(bindingSets.subList(0, size / 2));
+		return BindingSetAssignments.create(bindingSets);
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ModelTripleSource;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the statements that a {@link DescribeIteration} returns for several batch sizes, with and without an
+ * executor.
+ */
+public class DescribeIterationTest {
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private final IRI p = vf.createIRI("urn:ex:p");
+
+	private final IRI q = vf.createIRI("urn:ex:q");
+
+	private final IRI a = vf.createIRI("urn:ex:a");
+
+	private final IRI c = vf.createIRI("urn:ex:c");
+
+	private final IRI d = vf.createIRI("urn:ex:d");
+
+	private Model model;
+
+	private TripleSource tripleSource;
+
+	private EvaluationStrategy strategy;
+
+	@Before
+	public void setUp() throws Exception {
+		model = new LinkedHashModel();
+		BNode b1 = vf.createBNode();
+		BNode b2 = vf.createBNode();
+		BNode b3 = vf.createBNode();
+		BNode b4 = vf.createBNode();
+		// the outgoing links of a end in a cycle of blank nodes
+		model.add(a, p, b1);
+		model.add(b1, p, b2);
+		model.add(b2, p, b1);
+		model.add(b2, q, vf.createLiteral("x"));
+		// the incoming links of c start at a chain of blank nodes
+		model.add(c, p, a);
+		model.add(b3, p, c);
+		model.add(b4, p, b3);
+		model.add(d, p, vf.createLiteral("y"));
+		tripleSource = new ModelTripleSource(model, vf,
+				value -> value instanceof IRI ? value.stringValue().hashCode() & Integer.MAX_VALUE : -1);
+		strategy = new StrictEvaluationStrategy(tripleSource, null);
+	}
+
+	@Test
+	public void testBlankNodeClosure() throws Exception {
+		assertEquals(5, assertSameResults(a).size());
+		assertEquals(3, assertSameResults(c).size());
+		assertEquals(1, assertSameResults(d).size());
+	}
+
+	@Test
+	public void testSeveralResources() throws Exception {
+		Set<Statement> expected = new HashSet<>(describe(Collections.singletonList(a), 1, null));
+		expected.addAll(describe(Collections.singletonList(c), 1, null));
+		expected.addAll(describe(Collections.singletonList(d), 1, null));
+
+		assertEquals(expected, assertSameResults(a, c, d, a, vf.createLiteral("z")));
+		assertEquals(8, expected.size());
+	}
+
+	private Set<Statement> assertSameResults(Value... resources) throws QueryEvaluationException {
+		List<Value> values = new ArrayList<>();
+		Collections.addAll(values, resources);
+		Set<Statement> expected = new HashSet<>(describe(values, 1, null));
+		for (int batchSize : new int[] { 2, DescribeIteration.DEFAULT_BATCH_SIZE }) {
+			for (Executor executor : new Executor[] { null, ForkJoinPool.commonPool() }) {
+				List<Statement> results = describe(values, batchSize, executor);
+				assertEquals(expected, new HashSet<>(results));
+			}
+		}
+		return expected;
+	}
+
+	private List<Statement> describe(List<Value> resources, int batchSize, Executor executor)
+			throws QueryEvaluationException {
+		List<BindingSet> source = new ArrayList<>();
+		for (Value resource : resources) {
+			QueryBindingSet bindings = new QueryBindingSet();
+			bindings.addBinding("x", resource);
+			source.add(bindings);
+		}
+		DescribeIteration iter = new DescribeIteration(new CloseableIteratorIteration<>(source.iterator()), strategy,
+				Collections.singleton("x"), EmptyBindingSet.getInstance(), tripleSource, batchSize, executor);
+		List<Statement> results = new ArrayList<>();
+		for (BindingSet bs : Iterations.asList(iter)) {
+			results.add(vf.createStatement((Resource) bs.getValue("subject"), (IRI) bs.getValue("predicate"),
+					bs.getValue("object")));
+		}
+		return results;
+	}
+}
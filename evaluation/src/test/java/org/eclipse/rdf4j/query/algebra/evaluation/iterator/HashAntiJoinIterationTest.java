@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.Difference;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ModelTripleSource;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the results of MINUS and FILTER NOT EXISTS that are evaluated with a {@link HashAntiJoinIteration} with
+ * those of a {@link SPARQLMinusIteration} and a {@link FilterIterator}.
+ */
+public class HashAntiJoinIterationTest {
+
+	private static final String PREFIX = "PREFIX ex: <urn:ex:>\n";
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private Model model;
+
+	private EvaluationStrategy expected;
+
+	private EvaluationStrategy actual;
+
+	@Before
+	public void setUp() throws Exception {
+		model = new LinkedHashModel();
+		IRI p = vf.createIRI("urn:ex:p");
+		IRI q = vf.createIRI("urn:ex:q");
+		for (int i = 0; i < 20; i++) {
+			model.add(node(i), p, node(i % 7));
+			if (i % 3 == 0) {
+				model.add(node(i), q, vf.createLiteral(i % 2 == 0 ? "even" : "odd"));
+			}
+		}
+		TripleSource tripleSource = new ModelTripleSource(model, vf);
+		expected = new StrictEvaluationStrategy(tripleSource, null) {
+
+			@Override
+			public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Difference difference,
+					BindingSet bindings) throws QueryEvaluationException {
+				return new SPARQLMinusIteration<>(evaluate(difference.getLeftArg(), bindings),
+						evaluate(difference.getRightArg(), bindings));
+			}
+
+			@Override
+			public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Filter filter,
+					BindingSet bindings) throws QueryEvaluationException {
+				return new FilterIterator(filter, evaluate(filter.getArg(), bindings), this);
+			}
+		};
+		actual = new StrictEvaluationStrategy(tripleSource, null);
+	}
+
+	@Test
+	public void testMinus() throws Exception {
+		assertSameResults("SELECT * { ?s ex:p ?o MINUS { ?s ex:q \"even\" } }",
+				"SELECT * { ?s ex:p ?o MINUS { ?x ex:q ?l } }",
+				"SELECT * { ?s ex:p ?o MINUS { { ?s ex:q ?l } UNION { ?o ex:q ?l } } }",
+				"SELECT * { ?s ex:p ?o OPTIONAL { ?s ex:q ?l } MINUS { ?s ex:p ex:n3 } }",
+				"SELECT * { ?s ex:p ?o MINUS { VALUES (?s ?o) { (ex:n1 ex:n1) (ex:n2 UNDEF) (UNDEF ex:n4) } } }");
+	}
+
+	@Test
+	public void testMinusWithDifferentVariables() throws Exception {
+		List<BindingSet> left = new ArrayList<>();
+		left.add(bindings("a", node(1), "b", node(2)));
+		left.add(bindings("a", node(1)));
+		left.add(bindings("b", node(2)));
+		left.add(bindings("c", node(3)));
+		left.add(bindings("a", node(4), "c", node(3)));
+		List<BindingSet> right = new ArrayList<>();
+		right.add(bindings("a", node(1), "b", node(3)));
+		right.add(bindings("b", node(2)));
+		right.add(bindings("d", node(3)));
+		right.add(bindings("a", node(4)));
+
+		List<BindingSet> expectedResults = Iterations.asList(new SPARQLMinusIteration<>(
+				new CloseableIteratorIteration<>(left.iterator()), new CloseableIteratorIteration<>(right.iterator())));
+		List<BindingSet> results = Iterations.asList(new HashAntiJoinIteration(
+				new CloseableIteratorIteration<>(left.iterator()), new CloseableIteratorIteration<>(right.iterator())));
+		assertEquals(expectedResults, results);
+		assertEquals(1, results.size());
+	}
+
+	@Test
+	public void testNotExists() throws Exception {
+		assertSameResults("SELECT * { ?s ex:p ?o FILTER NOT EXISTS { ?s ex:q \"even\" } }",
+				"SELECT * { ?s ex:p ?o FILTER NOT EXISTS { ?x ex:q \"none\" } }",
+				"SELECT * { ?s ex:p ?o FILTER NOT EXISTS { ?x ex:q \"odd\" } }",
+				"SELECT * { ?s ex:p ?o FILTER NOT EXISTS { ?o ex:p ?x . ?x ex:q ?l } }",
+				"SELECT * { ?s ex:p ?o FILTER NOT EXISTS { { ?s ex:q ?l } UNION { ?o ex:q ?l } } }",
+				"SELECT * { ?s ex:p ?o FILTER NOT EXISTS { ?s ex:q ?l FILTER (?l = \"odd\") } }",
+				"SELECT * { ?s ex:p ?o OPTIONAL { ?o ex:q ?l } FILTER NOT EXISTS { ?s ex:q ?l } }",
+				"SELECT * { ?s ex:p ?o FILTER NOT EXISTS { VALUES ?o { ex:n1 ex:n5 } } }");
+	}
+
+	@Test
+	public void testCorrelatedNotExists() throws Exception {
+		assertSameResults("SELECT * { ?s ex:p ?o FILTER NOT EXISTS { ?s ex:q ?l FILTER (?o = ex:n3) } }",
+				"SELECT * { ?s ex:p ?o FILTER (?s != ?o && NOT EXISTS { ?o ex:q ?l }) }",
+				"SELECT * { ?s ex:p ?o FILTER EXISTS { ?s ex:p ?x FILTER NOT EXISTS { ?x ex:q ?o } } }");
+	}
+
+	@Test
+	public void testBindings() throws Exception {
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding("o", node(3));
+		assertSameResults("SELECT * { ?s ex:p ?o FILTER NOT EXISTS { ?s ex:q ?l } }", bindings);
+		assertSameResults("SELECT * { ?s ex:p ?x FILTER NOT EXISTS { ?x ex:p ?o } }", bindings);
+		assertSameResults("SELECT * { ?s ex:p ?x MINUS { ?s ex:p ?o } }", bindings);
+	}
+
+	private void assertSameResults(String... queries) throws Exception {
+		for (String query : queries) {
+			assertSameResults(query, EmptyBindingSet.getInstance());
+		}
+	}
+
+	private void assertSameResults(String query, BindingSet bindings) throws Exception {
+		ParsedQuery pq = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, PREFIX + query, null);
+		TupleExpr expr = new QueryRoot(pq.getTupleExpr());
+		List<BindingSet> expectedResults = Iterations.asList(expected.evaluate(expr, bindings));
+		List<BindingSet> results = Iterations.asList(actual.evaluate(expr, bindings));
+		assertEquals(query, new HashSet<>(expectedResults), new HashSet<>(results));
+		assertEquals(query, expectedResults.size(), results.size());
+	}
+
+	private BindingSet bindings(Object... namesAndValues) {
+		QueryBindingSet bindings = new QueryBindingSet();
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			bindings.addBinding((String) namesAndValues[i], (Value) namesAndValues[i + 1]);
+		}
+		return bindings;
+	}
+
+	private IRI node(int i) {
+		return vf.createIRI("urn:ex:n" + i);
+	}
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.LeftJoin;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.BindingSetAssignments;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.junit.Test;
+
+/**
+ * Compares the results of a {@link LeftJoinIterator} for several block sizes with each other, and with those of a
+ * {@link HashJoinIteration}.
+ */
+public class LeftJoinIteratorTest {
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private final EvaluationStrategy evaluator = new StrictEvaluationStrategy(null, null);
+
+	@Test
+	public void testOptionalMatches() throws QueryEvaluationException {
+		BindingSetAssignment left = BindingSetAssignments.create(10, 3, "b");
+		BindingSetAssignment right = BindingSetAssignments.create(8, 2, "c");
+
+		List<BindingSet> results = assertSameResults(new LeftJoin(left, right), EmptyBindingSet.getInstance());
+		assertEquals(new HashSet<>(Iterations.asList(new HashJoinIteration(evaluator, left, right,
+				EmptyBindingSet.getInstance(), true))), new HashSet<>(results));
+		// left solutions with a = 2 have no match, the others match four right solutions each
+		assertEquals(3 + 7 * 4, results.size());
+	}
+
+	@Test
+	public void testCondition() throws QueryEvaluationException {
+		BindingSetAssignment left = BindingSetAssignments.create(10, 3, "b");
+		BindingSetAssignment right = BindingSetAssignments.create(20, 2, "c");
+		LeftJoin join = new LeftJoin(left, right, new Compare(new Var("b"), new Var("c"), CompareOp.EQ));
+
+		List<BindingSet> results = assertSameResults(join, EmptyBindingSet.getInstance());
+		assertEquals(10, results.size());
+		int matched = 0;
+		for (BindingSet result : results) {
+			if (result.hasBinding("c")) {
+				assertEquals(result.getValue("b"), result.getValue("c"));
+				matched++;
+			}
+		}
+		// the right solution with c = b has a = b % 2, which equals b % 3 for b in 0, 1, 6 and 7
+		assertEquals(4, matched);
+	}
+
+	@Test
+	public void testBoundJoinValue() throws QueryEvaluationException {
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding("a", vf.createLiteral(1));
+
+		LeftJoin join = new LeftJoin(BindingSetAssignments.create(10, 3, "b"), BindingSetAssignments.create(8, 2, "c"));
+		List<BindingSet> results = assertSameResults(join, bindings);
+		assertEquals(3 * 4, results.size());
+	}
+
+	@Test
+	public void testRightArgEvaluatedPerBlock() throws QueryEvaluationException {
+		List<Integer> assignedRows = new ArrayList<>();
+		EvaluationStrategy counting = new StrictEvaluationStrategy(null, null) {
+
+			@Override
+			public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Join join, BindingSet bindings)
+					throws QueryEvaluationException {
+				if (join.getLeftArg() instanceof BindingSetAssignment) {
+					int size = 0;
+					for (BindingSet assigned : ((BindingSetAssignment) join.getLeftArg()).getBindingSets()) {
+						size++;
+					}
+					assignedRows.add(size);
+				}
+				return super.evaluate(join, bindings);
+			}
+		};
+		BindingSetAssignment right = BindingSetAssignments.create(8, 2, "c");
+		LeftJoin join = new LeftJoin(BindingSetAssignments.create(10, 3, "b"), right);
+
+		List<BindingSet> results = Iterations
+				.asList(new LeftJoinIterator(counting, join, EmptyBindingSet.getInstance(), 7));
+		assertEquals(3 + 7 * 4, results.size());
+		// one evaluation for each block, with the three distinct values of a in each block
+		assertEquals(Arrays.asList(3, 3), assignedRows);
+		// the right argument stays part of the query plan
+		assertSame(join, right.getParentNode());
+	}
+
+	/**
+	 * Checks that the results are the same for all block sizes. Within a block, the left solutions without a match
+	 * follow the joined ones, so the order of the results depends on the block size.
+	 */
+	private List<BindingSet> assertSameResults(LeftJoin join, BindingSet bindings) throws QueryEvaluationException {
+		List<BindingSet> expected = Iterations.asList(new LeftJoinIterator(evaluator, join, bindings, 1));
+		for (int batchSize : new int[] { 2, 7, LeftJoinIterator.DEFAULT_BATCH_SIZE }) {
+			assertEquals(count(expected),
+					count(Iterations.asList(new LeftJoinIterator(evaluator, join, bindings, batchSize))));
+		}
+		return expected;
+	}
+
+	private Map<BindingSet, Integer> count(List<BindingSet> results) {
+		Map<BindingSet, Integer> counts = new HashMap<>();
+		for (BindingSet result : results) {
+			counts.merge(result, 1, Integer::sum);
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.CostBasedJoin;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.CostBasedJoin.Algorithm;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.JoinAlgorithmOptimizer;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ModelTripleSource;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that merge joins of statement patterns that are ordered by their subject return the same solutions as the
+ * other join algorithms.
+ */
+public class MergeJoinIteratorTest {
+
+	private static final String STAR = "SELECT * { ?s <urn:ex:p> ?a . ?s <urn:ex:q> ?b . ?s <urn:ex:r> ?c }";
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private final Map<Value, Long> ids = new HashMap<>();
+
+	private Model model;
+
+	private TripleSource tripleSource;
+
+	@Before
+	public void setUp() throws Exception {
+		IRI p = vf.createIRI("urn:ex:p");
+		IRI q = vf.createIRI("urn:ex:q");
+		IRI r = vf.createIRI("urn:ex:r");
+		List<IRI> subjects = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			subjects.add(vf.createIRI("urn:ex:s" + i));
+		}
+		// the identifiers are not in the order in which the statements are added
+		List<IRI> shuffled = new ArrayList<>(subjects);
+		Collections.shuffle(shuffled, new Random(42));
+		for (IRI subject : shuffled) {
+			getId(subject);
+		}
+
+		model = new LinkedHashModel();
+		for (int i = 0; i < subjects.size(); i++) {
+			IRI s = subjects.get(i);
+			if (i % 2 == 0) {
+				model.add(s, p, vf.createLiteral(i));
+			}
+			if (i % 3 == 0) {
+				model.add(s, q, vf.createLiteral("b" + i));
+				model.add(s, q, vf.createLiteral("b" + (i + 1)));
+			}
+			if (i % 5 != 1) {
+				model.add(s, r, vf.createLiteral(i % 4));
+			}
+		}
+		tripleSource = new ModelTripleSource(model, vf, this::getId, EnumSet.of(StatementOrder.SUBJECT));
+	}
+
+	@Test
+	public void testStarPattern() throws Exception {
+		TupleExpr merged = optimize(STAR, tripleSource);
+		assertEquals(Algorithm.MERGE, getTopJoin(merged).getAlgorithm());
+		assertEquals("s", getTopJoin(merged).getMergeVar());
+
+		Set<BindingSet> expected = evaluate(optimize(STAR, null));
+		Set<BindingSet> actual = evaluate(merged);
+		assertEquals(expected, actual);
+		// subjects divisible by 2 and 3, but not 1 modulo 5, with two values for ?b
+		assertEquals(14, actual.size());
+	}
+
+	@Test
+	public void testSharedNonMergeVariable() throws Exception {
+		String query = "SELECT * { ?s <urn:ex:p> ?a . ?s <urn:ex:r> ?a }";
+		model.add(vf.createIRI("urn:ex:s1"), vf.createIRI("urn:ex:p"), vf.createLiteral(1));
+		TupleExpr merged = optimize(query, tripleSource);
+		assertEquals(Algorithm.MERGE, getTopJoin(merged).getAlgorithm());
+		assertEquals(evaluate(optimize(query, null)), evaluate(merged));
+	}
+
+	@Test
+	public void testOrderedResults() throws Exception {
+		CloseableIteration<BindingSet, QueryEvaluationException> left = iterate(
+				bindings("s", "urn:ex:s1", "a", "1"), bindings("s", "urn:ex:s2", "a", "2"),
+				bindings("s", "urn:ex:s2", "a", "3"), bindings("s", "urn:ex:s4", "a", "4"));
+		CloseableIteration<BindingSet, QueryEvaluationException> right = iterate(
+				bindings("s", "urn:ex:s0", "b", "0"), bindings("s", "urn:ex:s2", "b", "2"),
+				bindings("s", "urn:ex:s2", "b", "3"), bindings("s", "urn:ex:s4", "b", "4"));
+		List<BindingSet> result = Iterations.asList(new MergeJoinIterator(left, right, "s", tripleSource));
+		assertEquals(5, result.size());
+		long previous = -1;
+		for (BindingSet bs : result) {
+			long id = tripleSource.getValueId(bs.getValue("s"));
+			assertTrue(id >= previous);
+			previous = id;
+		}
+	}
+
+	private CloseableIteration<BindingSet, QueryEvaluationException> iterate(BindingSet... solutions) {
+		List<BindingSet> list = new ArrayList<>();
+		Collections.addAll(list, solutions);
+		list.sort(Comparator.comparingLong(bs -> getId(bs.getValue("s"))));
+		return new CloseableIteratorIteration<>(list.iterator());
+	}
+
+	private BindingSet bindings(String name1, String iri, String name2, String label) {
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding(name1, vf.createIRI(iri));
+		bindings.addBinding(name2, vf.createLiteral(label));
+		return bindings;
+	}
+
+	private TupleExpr optimize(String query, TripleSource tripleSource) throws Exception {
+		ParsedQuery pq = new SPARQLParser().parseQuery(query, null);
+		TupleExpr root = new QueryRoot(pq.getTupleExpr());
+		// every statement pattern has the same cardinality
+		EvaluationStatistics statistics = new EvaluationStatistics() {
+
+			@Override
+			protected CardinalityCalculator createCardinalityCalculator() {
+				return new CardinalityCalculator() {
+
+					@Override
+					protected double getCardinality(StatementPattern sp) {
+						return 1000;
+					}
+				};
+			}
+		};
+		new JoinAlgorithmOptimizer(statistics, JoinAlgorithmOptimizer.DEFAULT_MAX_HASH_TABLE_SIZE, tripleSource)
+				.optimize(root, null, null);
+		return root;
+	}
+
+	private CostBasedJoin getTopJoin(TupleExpr root) {
+		CostBasedJoin[] result = new CostBasedJoin[1];
+		root.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			public void meet(Join node) {
+				if (result[0] == null && node instanceof CostBasedJoin) {
+					result[0] = (CostBasedJoin) node;
+				}
+				super.meet(node);
+			}
+		});
+		return result[0];
+	}
+
+	private Set<BindingSet> evaluate(TupleExpr root) throws QueryEvaluationException {
+		StrictEvaluationStrategy strategy = new StrictEvaluationStrategy(tripleSource, null);
+		return new HashSet<>(Iterations.asList(strategy.evaluate(root, EmptyBindingSet.getInstance())));
+	}
+
+	private long getId(Value value) {
+		return ids.computeIfAbsent(value, v -> (long) ids.size());
+	}
+}
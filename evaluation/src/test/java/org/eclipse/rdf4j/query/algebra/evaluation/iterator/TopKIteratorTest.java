@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Order;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
+import org.eclipse.rdf4j.query.algebra.SingletonSet;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.OrderComparator;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ValueComparator;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the results of a {@link TopKIterator} with those of an {@link OrderIterator} with the same limit.
+ */
+public class TopKIteratorTest {
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private final EvaluationStrategy evaluator = new StrictEvaluationStrategy(null, null);
+
+	private List<BindingSet> solutions;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(42);
+		solutions = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			QueryBindingSet b = new QueryBindingSet();
+			Value value;
+			switch (random.nextInt(6)) {
+			case 0:
+				value = vf.createLiteral(random.nextInt(20));
+				break;
+			case 1:
+				value = vf.createLiteral(random.nextInt(20) / 2.0d);
+				break;
+			case 2:
+				value = vf.createLiteral(BigDecimal.valueOf(random.nextInt(20), 1));
+				break;
+			case 3:
+				value = vf.createLiteral("v" + random.nextInt(20));
+				break;
+			case 4:
+				value = vf.createIRI("urn:v:" + random.nextInt(20));
+				break;
+			default:
+				value = null;
+			}
+			if (value != null) {
+				b.addBinding("v", value);
+			}
+			b.addBinding("w", vf.createLiteral(random.nextInt(5)));
+			solutions.add(b);
+		}
+		// duplicates
+		solutions.addAll(new ArrayList<>(solutions.subList(0, 50)));
+		Collections.shuffle(solutions, random);
+	}
+
+	@Test
+	public void testAscending() throws QueryEvaluationException {
+		assertSameResults(new OrderElem(new Var("v")));
+	}
+
+	@Test
+	public void testDescending() throws QueryEvaluationException {
+		assertSameResults(new OrderElem(new Var("v"), false), new OrderElem(new Var("w")));
+	}
+
+	@Test
+	public void testSecondaryNumericKey() throws QueryEvaluationException {
+		assertSameResults(new OrderElem(new Var("w"), false), new OrderElem(new Var("v")));
+	}
+
+	private void assertSameResults(OrderElem... elements) throws QueryEvaluationException {
+		Order order = new Order(new SingletonSet(), elements);
+		for (int limit : new int[] { 0, 1, 7, 100, 1000 }) {
+			for (boolean distinct : new boolean[] { false, true }) {
+				OrderComparator cmp = new OrderComparator(evaluator, order, new ValueComparator());
+				List<BindingSet> expected = Iterations
+						.asList(new OrderIterator(new CloseableIteratorIteration<>(solutions.iterator()), cmp,
+								limit, distinct));
+				List<BindingSet> actual = Iterations.asList(new TopKIterator(
+						new CloseableIteratorIteration<>(solutions.iterator()), evaluator, order, limit, distinct));
+				assertEquals("limit " + limit + ", distinct " + distinct, expected, actual);
+			}
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.ArbitraryLengthPath;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ModelTripleSource;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the results of paths that are evaluated with a {@link TransitiveClosureIteration} with those of a
+ * {@link PathIteration}.
+ */
+public class TransitiveClosureIterationTest {
+
+	private static final String PREFIX = "PREFIX ex: <urn:ex:>\n";
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private Model model;
+
+	private EvaluationStrategy expected;
+
+	@Before
+	public void setUp() throws Exception {
+		model = new LinkedHashModel();
+		IRI next = vf.createIRI("urn:ex:next");
+		IRI graph = vf.createIRI("urn:ex:graph");
+		// a chain of ten nodes, of which the last five form a cycle
+		for (int i = 0; i < 10; i++) {
+			model.add(node(i), next, node(i + 1 < 10 ? i + 1 : 5));
+		}
+		// a tree in a named graph
+		for (int i = 1; i < 20; i++) {
+			model.add(node(100 + (i - 1) / 2), next, node(100 + i), graph);
+		}
+		model.add(node(30), next, vf.createLiteral("end"));
+		model.add(node(31), next, node(31));
+		expected = new StrictEvaluationStrategy(new ModelTripleSource(model, vf), null) {
+
+			@Override
+			public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(ArbitraryLengthPath alp,
+					BindingSet bindings) throws QueryEvaluationException {
+				return new PathIteration(this, alp.getScope(), alp.getSubjectVar(), alp.getPathExpression(),
+						alp.getObjectVar(), alp.getContextVar(), alp.getMinLength(), bindings);
+			}
+		};
+	}
+
+	@Test
+	public void testBoundStart() throws Exception {
+		assertSameResults("SELECT * { ex:n0 ex:next* ?o }", "SELECT * { ex:n0 ex:next+ ?o }",
+				"SELECT * { ex:n7 ex:next+ ?o }", "SELECT * { ex:n30 ex:next+ ?o }", "SELECT * { ex:n31 ex:next+ ?o }",
+				"SELECT * { ex:n99 ex:next* ?o }");
+	}
+
+	@Test
+	public void testBoundEnd() throws Exception {
+		assertSameResults("SELECT * { ?s ex:next* ex:n5 }", "SELECT * { ?s ex:next+ ex:n3 }",
+				"SELECT * { ?s ex:next+ \"end\" }", "SELECT * { ?s ex:next* \"end\" }");
+	}
+
+	@Test
+	public void testBothBound() throws Exception {
+		assertSameResults("ASK { ex:n0 ex:next+ ex:n9 }", "ASK { ex:n9 ex:next+ ex:n0 }",
+				"ASK { ex:n0 ex:next+ ex:n0 }", "ASK { ex:n6 ex:next+ ex:n6 }", "ASK { ex:n0 ex:next* ex:n0 }",
+				"ASK { ex:n31 ex:next+ ex:n31 }",
+				"SELECT * { VALUES (?s ?o) { (ex:n1 ex:n8) (ex:n8 ex:n1) (ex:n2 ex:n2) } ?s ex:next+ ?o }");
+	}
+
+	@Test
+	public void testInversePath() throws Exception {
+		assertSameResults("SELECT * { ex:n5 ^ex:next+ ?o }", "SELECT * { ?s ^ex:next* ex:n2 }",
+				"ASK { ex:n9 ^ex:next+ ex:n0 }");
+	}
+
+	@Test
+	public void testNamedGraph() throws Exception {
+		assertSameResults("SELECT * { GRAPH ex:graph { ex:n101 ex:next+ ?o } }",
+				"SELECT * { GRAPH ex:graph { ?s ex:next* ex:n117 } }", "SELECT * { GRAPH ?g { ?s ex:next* ?o } }",
+				"SELECT * { GRAPH ?g { ex:n100 ex:next+ ?o } }");
+	}
+
+	@Test
+	public void testBindings() throws Exception {
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding("s", node(2));
+		List<BindingSet> results = assertSameResults("SELECT * { ?s ex:next+ ?o }", bindings);
+		assertFalse(results.isEmpty());
+	}
+
+	private void assertSameResults(String... queries) throws Exception {
+		for (String query : queries) {
+			assertSameResults(query, EmptyBindingSet.getInstance());
+		}
+	}
+
+	private List<BindingSet> assertSameResults(String query, BindingSet bindings) throws Exception {
+		List<BindingSet> results = null;
+		for (boolean withIds : new boolean[] { false, true }) {
+			ModelTripleSource tripleSource = withIds ? new ModelTripleSource(model, vf, this::getNodeId)
+					: new ModelTripleSource(model, vf);
+			EvaluationStrategy actual = new StrictEvaluationStrategy(tripleSource, null);
+			ParsedQuery pq = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, PREFIX + query, null);
+			TupleExpr expr = new QueryRoot(pq.getTupleExpr());
+			List<BindingSet> expectedResults = Iterations.asList(expected.evaluate(expr, bindings));
+			results = Iterations.asList(actual.evaluate(expr, bindings));
+			assertEquals(query, new HashSet<>(expectedResults), new HashSet<>(results));
+			assertEquals(query, new HashSet<>(results).size(), results.size());
+		}
+		return results;
+	}
+
+	private IRI node(int i) {
+		return vf.createIRI("urn:ex:n" + i);
+	}
+
+	/**
+	 * Identifies the nodes by their numbers.
+	 */
+	private long getNodeId(Value value) {
+		if (value.stringValue().matches("urn:ex:n\\d+")) {
+			return Long.parseLong(value.stringValue().substring("urn:ex:n".length()));
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.BindingSetAssignment;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+
+/**
+ * Creates {@link BindingSetAssignment}s that serve as the inputs of operators under test.
+ */
+public class BindingSetAssignments {
+
+	private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	private BindingSetAssignments() {
+	}
+
+	/**
+	 * Creates an assignment of the supplied solutions.
+	 */
+	public static BindingSetAssignment create(List<BindingSet> bindingSets) {
+		BindingSetAssignment result = new BindingSetAssignment();
+		result.setBindingSets(bindingSets);
+		return result;
+	}
+
+	/**
+	 * Creates <tt>size</tt> solutions that bind <tt>a</tt> to <tt>i % n</tt> and the supplied variable to <tt>i</tt>.
+	 */
+	public static BindingSetAssignment create(int size, int n, String name) {
+		List<BindingSet> bindingSets = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			QueryBindingSet b = new QueryBindingSet();
+			b.addBinding("a", vf.createLiteral(i % n));
+			b.addBinding(name, vf.createLiteral(i));
+			bindingSets.add(b);
+		}
+		return create(bindingSets);
+	}
+}
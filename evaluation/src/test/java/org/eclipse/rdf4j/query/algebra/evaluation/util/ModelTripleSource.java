@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.query.algebra.evaluation.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+
+/**
+ * A triple source over the statements of a {@link Model}, for testing operators against an in-memory data set. The
+ * model is read on every call, so statements that are added to it later are visible.
+ */
+public class ModelTripleSource implements TripleSource {
+
+	private final Model model;
+
+	private final ValueFactory vf;
+
+	private final ToLongFunction<Value> valueIds;
+
+	private final Set<StatementOrder> orders;
+
+	/**
+	 * Creates a triple source of which the values have no identifiers.
+	 */
+	public ModelTripleSource(Model model, ValueFactory vf) {
+		this(model, vf, value -> -1);
+	}
+
+	/**
+	 * Creates a triple source that identifies values by the supplied function, which returns <tt>-1</tt> for values
+	 * that have no identifier.
+	 */
+	public ModelTripleSource(Model model, ValueFactory vf, ToLongFunction<Value> valueIds) {
+		this(model, vf, valueIds, Collections.emptySet());
+	}
+
+	/**
+	 * Creates a triple source that identifies values by the supplied function, and that can order the statements of
+	 * any pattern by the identifiers of their values at the supplied positions.
+	 */
+	public ModelTripleSource(Model model, ValueFactory vf, ToLongFunction<Value> valueIds,
+			Set<StatementOrder> orders) {
+		this.model = model;
+		this.vf = vf;
+		this.valueIds = valueIds;
+		this.orders = orders.isEmpty() ? Collections.emptySet() : EnumSet.copyOf(orders);
+	}
+
+	@Override
+	public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(Resource subj, IRI pred,
+			Value obj, Resource... contexts) throws QueryEvaluationException {
+		return new CloseableIteratorIteration<>(model.filter(subj, pred, obj, contexts).iterator());
+	}
+
+	@Override
+	public long getValueId(Value value) throws QueryEvaluationException {
+		return valueIds.applyAsLong(value);
+	}
+
+	@Override
+	public Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws QueryEvaluationException {
+		return orders;
+	}
+
+	@Override
+	public CloseableIteration<? extends Statement, QueryEvaluationException> getOrderedStatements(
+			StatementOrder order, Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws QueryEvaluationException {
+		if (!orders.contains(order)) {
+			throw new QueryEvaluationException("Statements cannot be ordered by " + order);
+		}
+		List<Statement> statements = new ArrayList<>(model.filter(subj, pred, obj, contexts));
+		statements.sort(Comparator.comparingLong(st -> valueIds.applyAsLong(order.getValue(st))));
+		return new CloseableIteratorIteration<>(statements.iterator());
+	}
+
+	@Override
+	public ValueFactory getValueFactory() {
+		return vf;
+	}
+}
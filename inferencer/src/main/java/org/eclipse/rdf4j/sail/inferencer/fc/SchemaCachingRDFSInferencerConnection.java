@@ -8,6 +8,8 @@
 
 package org.eclipse.rdf4j.sail.inferencer.fc;
 
+import java.util.Collection;
+
 import org.eclipse.rdf4j.IsolationLevel;
 import org.eclipse.rdf4j.IsolationLevels;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
@@ -778,4 +780,17 @@ public class SchemaCachingRDFSInferencerConnection extends InferencerConnectionW
 		addStatement(false, subj, pred, obj, contexts);
 		super.addStatement(modify, subj, pred, obj, contexts);
 	}
+
+	@Override
+	public void addStatements(UpdateContext modify, Collection<? extends Statement> statements)
+			throws SailException {
+		for (Statement st : statements) {
+			if (st.getContext() == null) {
+				addStatement(false, st.getSubject(), st.getPredicate(), st.getObject());
+			} else {
+				addStatement(false, st.getSubject(), st.getPredicate(), st.getObject(), st.getContext());
+			}
+		}
+		super.addStatements(modify, statements);
+	}
 }
@@ -0,0 +1,452 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.rdf4j.common.io.FileUtil;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.memory.model.MemResource;
+import org.eclipse.rdf4j.sail.memory.model.MemStatement;
+import org.eclipse.rdf4j.sail.memory.model.MemValueFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the heap usage of a {@link MemorySailStore} within a budget by moving the least recently queried named
+ * contexts to spill files, using the same heap heuristics as the overflow model of the NativeStore. A spilled context
+ * is faulted back into memory as soon as a statement pattern may match any of its statements.
+ * <p>
+ * Locks are always acquired in the order: transaction lock of the store, then the lock of this manager.
+ */
+class ContextSpillManager {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	private static final Runtime RUNTIME = Runtime.getRuntime();
+
+	/**
+	 * Minimum time (in milliseconds) between eviction runs, giving the snapshot cleanup and the garbage collector the
+	 * opportunity to free the memory of the contexts that were evicted by the previous run.
+	 */
+	private static final long EVICTION_INTERVAL = 1000;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private static final Logger logger = LoggerFactory.getLogger(ContextSpillManager.class);
+
+	private final MemorySailStore store;
+
+	private final File spillDir;
+
+	private final long memoryBudget;
+
+	/**
+	 * Guards the spilling and restoring of contexts and the spill files.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * The contexts that have been moved to disk. The MemResources are strongly referenced to keep them in the
+	 * MemValueFactory while their statements are not in memory.
+	 */
+	private final Map<MemResource, SpilledContext> spilled = new ConcurrentHashMap<>();
+
+	/**
+	 * The number of callers of {@link #acquireSpillFiles()} that have not released the spill files yet.
+	 */
+	private int spillFileReaders;
+
+	/**
+	 * Spill files of restored contexts that are deleted once no caller of {@link #acquireSpillFiles()} reads them.
+	 */
+	private final List<File> restoredSpillFiles = new ArrayList<>();
+
+	/**
+	 * The logical time at which each context was last queried.
+	 */
+	private final Map<MemResource, Long> lastAccess = new ConcurrentHashMap<>();
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final AtomicLong spillFileCount = new AtomicLong();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong faultCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	private final Object evictionThreadLockObject = new Object();
+
+	private Thread evictionThread;
+
+	private long lastEvictionTime;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * @param store        the store of which contexts are spilled.
+	 * @param spillDir     the directory in which spill files are created; any existing content is discarded.
+	 * @param memoryBudget the maximum number of bytes of heap memory that the JVM should use.
+	 */
+	public ContextSpillManager(MemorySailStore store, File spillDir, long memoryBudget) throws IOException {
+		this.store = store;
+		this.spillDir = spillDir;
+		this.memoryBudget = memoryBudget;
+		if (spillDir.exists()) {
+			FileUtil.deleteChildren(spillDir);
+		} else if (!spillDir.mkdirs()) {
+			throw new IOException("Failed to create directory for spill files: " + spillDir);
+		}
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * The number of times a named context was queried while its statements were in memory.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * The number of times the statements of a spilled context have been read back into memory.
+	 */
+	public long getFaultCount() {
+		return faultCount.get();
+	}
+
+	/**
+	 * The number of times the statements of a context have been moved out of memory.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Gets the contexts that are currently spilled to disk and have explicit or inferred statements.
+	 *
+	 * @param explicit <tt>true</tt> for the contexts with explicit statements, <tt>false</tt> for the contexts with
+	 *                 inferred statements.
+	 */
+	public Collection<MemResource> getSpilledContexts(boolean explicit) {
+		List<MemResource> contexts = new ArrayList<>(spilled.size());
+		for (Map.Entry<MemResource, SpilledContext> entry : spilled.entrySet()) {
+			if (explicit ? entry.getValue().explicit : entry.getValue().inferred) {
+				contexts.add(entry.getKey());
+			}
+		}
+		return contexts;
+	}
+
+	/**
+	 * Gets the spill files of the contexts that are currently spilled to disk. The files are kept, even if their
+	 * contexts are restored, until {@link #releaseSpillFiles()} is called. Should only be called while
+	 * {@link #lock() locked}, together with acquiring the snapshot that the spill files complement.
+	 */
+	public Map<MemResource, File> acquireSpillFiles() {
+		lock.lock();
+		try {
+			Map<MemResource, File> files = new HashMap<>(spilled.size());
+			for (Map.Entry<MemResource, SpilledContext> entry : spilled.entrySet()) {
+				files.put(entry.getKey(), entry.getValue().file);
+			}
+			spillFileReaders++;
+			return files;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Releases the spill files that were returned by {@link #acquireSpillFiles()}.
+	 */
+	public void releaseSpillFiles() {
+		lock.lock();
+		try {
+			if (--spillFileReaders == 0) {
+				for (File file : restoredSpillFiles) {
+					deleteSpillFile(file);
+				}
+				restoredSpillFiles.clear();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Prevents contexts from being spilled or restored until {@link #unlock()} is called, e.g. while the snapshot and
+	 * the spill files that are written to the data file are acquired.
+	 */
+	public void lock() {
+		lock.lock();
+	}
+
+	public void unlock() {
+		lock.unlock();
+	}
+
+	/**
+	 * Makes sure that all contexts that may contain statements with the supplied predicate in any of the supplied
+	 * contexts are in memory.
+	 *
+	 * @param pred     the predicate of the statement pattern, or <tt>null</tt> for any predicate.
+	 * @param contexts the contexts of the statement pattern, none for any context.
+	 */
+	public void faultIn(IRI pred, Resource... contexts) throws SailException {
+		if (contexts.length == 0) {
+			if (!spilled.isEmpty()) {
+				for (Map.Entry<MemResource, SpilledContext> entry : spilled.entrySet()) {
+					if (pred == null || entry.getValue().predicates.contains(pred)) {
+						restore(entry.getKey());
+					}
+				}
+			}
+			return;
+		}
+
+		MemValueFactory valueFactory = (MemValueFactory) store.getValueFactory();
+		for (Resource context : contexts) {
+			MemResource memContext = valueFactory.getMemResource(context);
+			if (memContext == null) {
+				// default context or a context that does not exist
+				continue;
+			}
+			lastAccess.put(memContext, clock.incrementAndGet());
+			if (spilled.containsKey(memContext)) {
+				restore(memContext);
+			} else {
+				hitCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Schedules the eviction of contexts if the heap usage exceeds the budget.
+	 */
+	public void checkMemoryBudget() {
+		if (getUsedMemory() <= memoryBudget) {
+			return;
+		}
+		synchronized (evictionThreadLockObject) {
+			long now = System.currentTimeMillis();
+			if (evictionThread == null && now - lastEvictionTime >= EVICTION_INTERVAL) {
+				lastEvictionTime = now;
+				evictionThread = new Thread(() -> {
+					try {
+						evictColdContexts();
+					} catch (RuntimeException e) {
+						logger.error("Context eviction failed", e);
+					} finally {
+						synchronized (evictionThreadLockObject) {
+							evictionThread = null;
+						}
+					}
+				}, "MemoryStore context eviction");
+				evictionThread.setDaemon(true);
+				evictionThread.start();
+			}
+		}
+	}
+
+	/**
+	 * Deletes all spill files, discarding the statements of the spilled contexts.
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			spilled.clear();
+			restoredSpillFiles.clear();
+			lastAccess.clear();
+			FileUtil.deltree(spillDir);
+		} catch (IOException e) {
+			logger.warn("Failed to delete spill directory {}", spillDir, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Spills least recently queried contexts until the statements that are estimated to exceed the budget have been
+	 * removed from memory.
+	 */
+	private void evictColdContexts() {
+		long used = getUsedMemory();
+		int statementCount = store.getStatementCount();
+		if (used <= memoryBudget || statementCount == 0) {
+			return;
+		}
+		double bytesPerStatement = (double) used / statementCount;
+		long excessStatements = (long) Math.ceil((used - memoryBudget) / bytesPerStatement);
+
+		List<MemResource> candidates = store.getResidentContexts();
+		candidates.sort(Comparator.comparingLong(context -> lastAccess.getOrDefault(context, 0L)));
+		for (MemResource context : candidates) {
+			if (excessStatements <= 0) {
+				break;
+			}
+			int size = context.getContextStatementCount();
+			try {
+				if (spill(context)) {
+					excessStatements -= size;
+				}
+			} catch (IOException e) {
+				logger.error("Failed to spill context " + context + " to disk", e);
+				break;
+			}
+		}
+	}
+
+	private boolean spill(MemResource context) throws IOException {
+		File spillFile = new File(spillDir, "context-" + spillFileCount.incrementAndGet() + ".bms");
+		store.lockTransactions();
+		try {
+			lock.lock();
+			try {
+				if (spilled.containsKey(context)) {
+					return false;
+				}
+				// register the context before its statements disappear from the new snapshot
+				SpilledContext entry = new SpilledContext(spillFile, store.getCurrentSnapshot() + 1);
+				spilled.put(context, entry);
+				boolean success = false;
+				try {
+					int snapshot = store.spillContext(context, spillFile, entry::add);
+					success = snapshot == entry.snapshot;
+				} finally {
+					if (!success) {
+						spilled.remove(context);
+						spillFile.delete();
+					}
+				}
+				if (!success) {
+					// no statements in the current snapshot
+					return false;
+				}
+				logger.debug("Spilled context {} to {}", context, spillFile);
+				evictionCount.incrementAndGet();
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			store.unlockTransactions();
+		}
+	}
+
+	private void restore(MemResource context) throws SailException {
+		store.lockTransactions();
+		try {
+			lock.lock();
+			try {
+				SpilledContext entry = spilled.get(context);
+				if (entry == null) {
+					// restored concurrently
+					return;
+				}
+				List<MemStatement[]> chunks = new FileIO(store.getValueFactory()).readSpillFile(entry.file);
+				store.restoreStatements(chunks, entry.snapshot);
+				spilled.remove(context);
+				if (spillFileReaders > 0) {
+					// the spill file is still being written to the data file
+					restoredSpillFiles.add(entry.file);
+				} else {
+					deleteSpillFile(entry.file);
+				}
+				faultCount.incrementAndGet();
+				logger.debug("Restored context {} from {}", context, entry.file);
+			} catch (IOException e) {
+				throw new SailException("Failed to read spilled context " + context, e);
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			store.unlockTransactions();
+		}
+		checkMemoryBudget();
+	}
+
+	private void deleteSpillFile(File file) {
+		if (!file.delete()) {
+			logger.warn("Failed to delete spill file {}", file);
+		}
+	}
+
+	private long getUsedMemory() {
+		return RUNTIME.totalMemory() - RUNTIME.freeMemory();
+	}
+
+	/**
+	 * A context of which the statements have been moved to a spill file.
+	 */
+	private static class SpilledContext {
+
+		final File file;
+
+		/**
+		 * The snapshot from which the statements are no longer in memory.
+		 */
+		final int snapshot;
+
+		/**
+		 * The predicates of the spilled statements, used to avoid faulting in contexts that can't match a pattern.
+		 */
+		final Set<IRI> predicates = ConcurrentHashMap.newKeySet();
+
+		/**
+		 * Whether any of the spilled statements is explicit.
+		 */
+		volatile boolean explicit;
+
+		/**
+		 * Whether any of the spilled statements is inferred.
+		 */
+		volatile boolean inferred;
+
+		SpilledContext(File file, int snapshot) {
+			this.file = file;
+			this.snapshot = snapshot;
+		}
+
+		void add(MemStatement st) {
+			predicates.add(st.getPredicate());
+			if (st.isExplicit()) {
+				explicit = true;
+			} else {
+				inferred = true;
+			}
+		}
+	}
+}
@@ -7,6 +7,10 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.memory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
@@ -15,18 +19,32 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.eclipse.rdf4j.IsolationLevels;
 import org.eclipse.rdf4j.common.io.IOUtil;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
 import org.eclipse.rdf4j.model.BNode;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
@@ -41,6 +59,7 @@ import org.eclipse.rdf4j.sail.base.SailDataset;
 import org.eclipse.rdf4j.sail.base.SailSink;
 import org.eclipse.rdf4j.sail.memory.model.MemIRI;
 import org.eclipse.rdf4j.sail.memory.model.MemResource;
+import org.eclipse.rdf4j.sail.memory.model.MemStatement;
 import org.eclipse.rdf4j.sail.memory.model.MemValue;
 
 /**
@@ -61,7 +80,16 @@ class FileIO {
 	// Version 1: initial version
 	// Version 2: don't use read/writeUTF() to remove 64k limit on strings,
 	// removed dummy "up-to-date status" boolean for namespace records
-	private static final int BMSF_VERSION = 2;
+	// Version 3: data is written as separately compressed chunks of statements, each
+	// preceded by a chunk of the values to which its statements refer by ID, so
+	// chunks can be decoded in parallel
+	private static final int BMSF_VERSION = 3;
+
+	/** The maximum number of statements in a single statement chunk. */
+	private static final int STATEMENT_CHUNK_SIZE = 8192;
+
+	/** The maximum number of chunks per thread that are decoded ahead of the statements added to the store. */
+	private static final int CHUNKS_AHEAD_PER_THREAD = 2;
 
 	/* RECORD TYPES */
 	public static final int NAMESPACE_MARKER = 1;
@@ -84,6 +112,30 @@ class FileIO {
 
 	public static final int DATATYPE_LITERAL_MARKER = 10;
 
+	/* JOURNAL RECORD TYPES */
+	public static final int NAMESPACE_REMOVED_MARKER = 11;
+
+	public static final int NAMESPACES_CLEARED_MARKER = 12;
+
+	public static final int EXPL_DEPRECATED_TRIPLE_MARKER = 13;
+
+	public static final int EXPL_DEPRECATED_QUAD_MARKER = 14;
+
+	public static final int INF_DEPRECATED_TRIPLE_MARKER = 15;
+
+	public static final int INF_DEPRECATED_QUAD_MARKER = 16;
+
+	public static final int EXPL_CLEAR_MARKER = 17;
+
+	public static final int INF_CLEAR_MARKER = 18;
+
+	/* CHUNK TYPES */
+	public static final int NAMESPACE_CHUNK_MARKER = 21;
+
+	public static final int VALUE_CHUNK_MARKER = 22;
+
+	public static final int STATEMENT_CHUNK_MARKER = 23;
+
 	public static final int EOF_MARKER = 127;
 
 	/*-----------*
@@ -112,7 +164,17 @@ class FileIO {
 
 	public synchronized void write(SailDataset explicit, SailDataset inferred, File syncFile, File dataFile)
 			throws IOException, SailException {
-		write(explicit, inferred, syncFile);
+		write(explicit, inferred, Collections.emptyMap(), syncFile, dataFile);
+	}
+
+	/**
+	 * Writes the statements of the supplied datasets, followed by the statements in the supplied spill files, to the
+	 * data file. The statements of the contexts of the spill files are only taken from the spill files, such that
+	 * these contexts may be restored into the datasets while the data file is written.
+	 */
+	public synchronized void write(SailDataset explicit, SailDataset inferred, Map<MemResource, File> spillFiles,
+			File syncFile, File dataFile) throws IOException, SailException {
+		write(explicit, inferred, spillFiles, syncFile);
 
 		// prefer atomic renameTo operations
 		boolean renamed = syncFile.renameTo(dataFile);
@@ -132,27 +194,47 @@ class FileIO {
 		}
 	}
 
-	private void write(SailDataset explicit, SailDataset inferred, File dataFile) throws IOException, SailException {
+	private void write(SailDataset explicit, SailDataset inferred, Map<MemResource, File> spillFiles, File dataFile)
+			throws IOException, SailException {
 
 		try (OutputStream out = new FileOutputStream(dataFile);) {
 			// Write header
 			out.write(MAGIC_NUMBER);
 			out.write(BMSF_VERSION);
 			out.flush();
-			// The rest of the data is GZIP-compressed
-			try (DataOutputStream dataOut = new DataOutputStream(new GZIPOutputStream(out));) {
-
-				writeNamespaces(explicit, dataOut);
-
-				writeStatements(explicit, inferred, dataOut);
+			// The rest of the data consists of GZIP-compressed chunks
+			try (DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));) {
+
+				ByteArrayOutputStream namespaces = new ByteArrayOutputStream();
+				DataOutputStream namespaceOut = new DataOutputStream(namespaces);
+				writeNamespaces(explicit, namespaceOut);
+				namespaceOut.writeByte(EOF_MARKER);
+				writeChunk(NAMESPACE_CHUNK_MARKER, namespaces, dataOut);
+
+				ChunkWriter chunkWriter = new ChunkWriter(dataOut);
+				Set<MemResource> spilledContexts = spillFiles.keySet();
+				chunkWriter.writeStatements(explicit.getStatements(null, null, null), true, spilledContexts);
+				chunkWriter.writeStatements(inferred.getStatements(null, null, null), false, spilledContexts);
+				for (File spillFile : spillFiles.values()) {
+					for (MemStatement[] chunk : readSpillFile(spillFile)) {
+						for (MemStatement st : chunk) {
+							chunkWriter.writeStatement(st, st.isExplicit());
+						}
+					}
+				}
+				chunkWriter.flush();
 
 				dataOut.writeByte(EOF_MARKER);
 			}
 		}
 	}
 
-	public synchronized void read(File dataFile, SailSink explicit, SailSink inferred)
-			throws IOException, SailException {
+	/**
+	 * Reads the contents of the supplied data file into an empty store. Files in the current format are decoded in
+	 * parallel and their statements are added to the store in bulk as they are decoded, older formats are read
+	 * sequentially.
+	 */
+	public synchronized void read(File dataFile, MemorySailStore store) throws IOException, SailException {
 		try (InputStream in = new FileInputStream(dataFile);) {
 			byte[] magicNumber = IOUtil.readBytes(in, MAGIC_NUMBER.length);
 			if (!Arrays.equals(magicNumber, MAGIC_NUMBER)) {
@@ -164,30 +246,233 @@ class FileIO {
 				throw new IOException("Incompatible format version: " + formatVersion);
 			}
 
-			// The rest of the data is GZIP-compressed
-			try (DataInputStream dataIn = new DataInputStream(new GZIPInputStream(in));) {
-				int recordTypeMarker;
-				while ((recordTypeMarker = dataIn.readByte()) != EOF_MARKER) {
-					switch (recordTypeMarker) {
-					case NAMESPACE_MARKER:
-						readNamespace(dataIn, explicit);
-						break;
-					case EXPL_TRIPLE_MARKER:
-						readStatement(false, true, dataIn, explicit, inferred);
-						break;
-					case EXPL_QUAD_MARKER:
-						readStatement(true, true, dataIn, explicit, inferred);
-						break;
-					case INF_TRIPLE_MARKER:
-						readStatement(false, false, dataIn, explicit, inferred);
-						break;
-					case INF_QUAD_MARKER:
-						readStatement(true, false, dataIn, explicit, inferred);
-						break;
-					default:
-						throw new IOException("Invalid record type marker: " + recordTypeMarker);
+			if (formatVersion >= 3) {
+				try (DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+						ChunkIteration chunks = new ChunkIteration(dataIn, store);) {
+					store.loadStatements(chunks);
+				} catch (SailException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
 					}
+					throw e;
+				}
+				return;
+			}
+
+			SailSink explicit = store.getExplicitSailSource().sink(IsolationLevels.NONE);
+			SailSink inferred = store.getInferredSailSource().sink(IsolationLevels.NONE);
+			try {
+				// The rest of the data is GZIP-compressed
+				try (DataInputStream dataIn = new DataInputStream(new GZIPInputStream(in));) {
+					readRecords(dataIn, explicit, inferred);
+				}
+			} finally {
+				explicit.prepare();
+				explicit.flush();
+				explicit.close();
+				inferred.prepare();
+				inferred.flush();
+				inferred.close();
+			}
+		}
+	}
+
+	/**
+	 * Writes statements to a file in the chunked format of the data file, without namespaces. Used to move the
+	 * statements of a context out of memory, see {@link ContextSpillManager}.
+	 */
+	public synchronized void writeSpillFile(List<MemStatement> statements, File file) throws IOException {
+		try (OutputStream out = new FileOutputStream(file);) {
+			out.write(MAGIC_NUMBER);
+			out.write(BMSF_VERSION);
+			try (DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));) {
+				ChunkWriter chunkWriter = new ChunkWriter(dataOut);
+				for (MemStatement st : statements) {
+					chunkWriter.writeStatement(st, st.isExplicit());
+				}
+				chunkWriter.flush();
+				dataOut.writeByte(EOF_MARKER);
+			}
+		}
+	}
+
+	/**
+	 * Reads the statements of a file that was written by {@link #writeSpillFile(List, File)}. The statements have not
+	 * been added to their component lists yet.
+	 */
+	public synchronized List<MemStatement[]> readSpillFile(File file) throws IOException, SailException {
+		try (InputStream in = new FileInputStream(file);) {
+			byte[] magicNumber = IOUtil.readBytes(in, MAGIC_NUMBER.length);
+			if (!Arrays.equals(magicNumber, MAGIC_NUMBER)) {
+				throw new IOException("File is not a binary MemoryStore file");
+			}
+
+			formatVersion = in.read();
+			if (formatVersion != BMSF_VERSION) {
+				throw new IOException("Incompatible spill file version: " + formatVersion);
+			}
+
+			try (DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+					ChunkIteration chunks = new ChunkIteration(dataIn, null);) {
+				List<MemStatement[]> result = new ArrayList<>();
+				while (chunks.hasNext()) {
+					result.add(chunks.next());
+				}
+				return result;
+			} catch (SailException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
 				}
+				throw e;
+			}
+		}
+	}
+
+	private <T> T join(ForkJoinTask<T> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading data file");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private void readNamespaceChunk(byte[] chunk, MemorySailStore store) throws IOException, SailException {
+		SailSink explicit = store.getExplicitSailSource().sink(IsolationLevels.NONE);
+		try (DataInputStream chunkIn = openChunk(chunk);) {
+			readRecords(chunkIn, explicit, null);
+		} finally {
+			explicit.prepare();
+			explicit.flush();
+			explicit.close();
+		}
+	}
+
+	/**
+	 * Decodes a chunk of values. Runs concurrently with other chunks and therefore uses its own decoder.
+	 */
+	private MemValue[] readValueChunk(byte[] chunk) throws IOException {
+		FileIO decoder = new FileIO(vf);
+		decoder.formatVersion = formatVersion;
+		try (DataInputStream chunkIn = openChunk(chunk);) {
+			MemValue[] values = new MemValue[chunkIn.readInt()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = (MemValue) decoder.readValue(chunkIn);
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * Decodes a chunk of statements, which refer to their values by their index in the preceding value chunk. Runs
+	 * concurrently with other chunks.
+	 */
+	private MemStatement[] readStatementChunk(byte[] valueChunk, byte[] chunk) throws IOException {
+		MemValue[] valueTable = readValueChunk(valueChunk);
+		try (DataInputStream chunkIn = openChunk(chunk);) {
+			MemStatement[] statements = new MemStatement[chunkIn.readInt()];
+			for (int i = 0; i < statements.length; i++) {
+				int recordTypeMarker = chunkIn.readByte();
+				boolean isExplicit = recordTypeMarker == EXPL_TRIPLE_MARKER || recordTypeMarker == EXPL_QUAD_MARKER;
+				boolean hasContext = recordTypeMarker == EXPL_QUAD_MARKER || recordTypeMarker == INF_QUAD_MARKER;
+				if (!isExplicit && !hasContext && recordTypeMarker != INF_TRIPLE_MARKER) {
+					throw new IOException("Invalid record type marker: " + recordTypeMarker);
+				}
+
+				MemResource memSubj = (MemResource) valueTable[chunkIn.readInt()];
+				MemIRI memPred = (MemIRI) valueTable[chunkIn.readInt()];
+				MemValue memObj = valueTable[chunkIn.readInt()];
+				MemResource memContext = null;
+				if (hasContext) {
+					memContext = (MemResource) valueTable[chunkIn.readInt()];
+				}
+
+				// the snapshot is assigned when the statements are added to the store
+				statements[i] = new MemStatement(memSubj, memPred, memObj, memContext, isExplicit, 0);
+			}
+			return statements;
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Invalid value reference in statement chunk", e);
+		}
+	}
+
+	private DataInputStream openChunk(byte[] chunk) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new ByteArrayInputStream(chunk))));
+	}
+
+	private void writeChunk(int chunkTypeMarker, ByteArrayOutputStream data, DataOutputStream dataOut)
+			throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.size() / 4 + 64);
+		try (GZIPOutputStream gzipOut = new GZIPOutputStream(compressed);) {
+			data.writeTo(gzipOut);
+		}
+		dataOut.writeByte(chunkTypeMarker);
+		dataOut.writeInt(compressed.size());
+		compressed.writeTo(dataOut);
+	}
+
+	/**
+	 * Reads a single transaction block from a {@link FileJournal}. The block uses the current format version and
+	 * consists of the same records as a data file, extended with records for removals, and is terminated by an
+	 * {@link #EOF_MARKER}.
+	 */
+	public synchronized void readJournalBlock(DataInputStream dataIn, SailSink explicit, SailSink inferred)
+			throws IOException, SailException {
+		formatVersion = BMSF_VERSION;
+		readRecords(dataIn, explicit, inferred);
+	}
+
+	private void readRecords(DataInputStream dataIn, SailSink explicit, SailSink inferred)
+			throws IOException, SailException {
+		int recordTypeMarker;
+		while ((recordTypeMarker = dataIn.readByte()) != EOF_MARKER) {
+			switch (recordTypeMarker) {
+			case NAMESPACE_MARKER:
+				readNamespace(dataIn, explicit);
+				break;
+			case EXPL_TRIPLE_MARKER:
+				readStatement(false, true, dataIn, explicit, inferred);
+				break;
+			case EXPL_QUAD_MARKER:
+				readStatement(true, true, dataIn, explicit, inferred);
+				break;
+			case INF_TRIPLE_MARKER:
+				readStatement(false, false, dataIn, explicit, inferred);
+				break;
+			case INF_QUAD_MARKER:
+				readStatement(true, false, dataIn, explicit, inferred);
+				break;
+			case NAMESPACE_REMOVED_MARKER:
+				explicit.removeNamespace(readString(dataIn));
+				break;
+			case NAMESPACES_CLEARED_MARKER:
+				explicit.clearNamespaces();
+				break;
+			case EXPL_DEPRECATED_TRIPLE_MARKER:
+				readDeprecatedStatement(false, dataIn, explicit);
+				break;
+			case EXPL_DEPRECATED_QUAD_MARKER:
+				readDeprecatedStatement(true, dataIn, explicit);
+				break;
+			case INF_DEPRECATED_TRIPLE_MARKER:
+				readDeprecatedStatement(false, dataIn, inferred);
+				break;
+			case INF_DEPRECATED_QUAD_MARKER:
+				readDeprecatedStatement(true, dataIn, inferred);
+				break;
+			case EXPL_CLEAR_MARKER:
+				readClear(dataIn, explicit);
+				break;
+			case INF_CLEAR_MARKER:
+				readClear(dataIn, inferred);
+				break;
+			default:
+				throw new IOException("Invalid record type marker: " + recordTypeMarker);
 			}
 		}
 	}
@@ -196,9 +481,7 @@ class FileIO {
 		try (CloseableIteration<? extends Namespace, SailException> iter = store.getNamespaces();) {
 			while (iter.hasNext()) {
 				Namespace ns = iter.next();
-				dataOut.writeByte(NAMESPACE_MARKER);
-				writeString(ns.getPrefix(), dataOut);
-				writeString(ns.getName(), dataOut);
+				writeNamespace(ns.getPrefix(), ns.getName(), dataOut);
 			}
 		}
 	}
@@ -215,34 +498,44 @@ class FileIO {
 		store.setNamespace(prefix, name);
 	}
 
-	private void writeStatements(final SailDataset explicit, SailDataset inferred, DataOutputStream dataOut)
-			throws IOException, SailException {
-		// write explicit only statements
-		writeStatement(explicit.getStatements(null, null, null), EXPL_TRIPLE_MARKER, EXPL_QUAD_MARKER, dataOut);
-		// write inferred only statements
-		writeStatement(inferred.getStatements(null, null, null), INF_TRIPLE_MARKER, INF_QUAD_MARKER, dataOut);
+	public void writeStatement(Resource subj, IRI pred, Value obj, Resource context, int tripleMarker, int quadMarker,
+			DataOutputStream dataOut) throws IOException {
+		if (context == null) {
+			dataOut.writeByte(tripleMarker);
+		} else {
+			dataOut.writeByte(quadMarker);
+		}
+		writeValue(subj, dataOut);
+		writeValue(pred, dataOut);
+		writeValue(obj, dataOut);
+		if (context != null) {
+			writeValue(context, dataOut);
+		}
 	}
 
-	public void writeStatement(CloseableIteration<? extends Statement, SailException> stIter, int tripleMarker,
-			int quadMarker, DataOutputStream dataOut) throws IOException, SailException {
-		try {
-			while (stIter.hasNext()) {
-				Statement st = stIter.next();
-				Resource context = st.getContext();
-				if (context == null) {
-					dataOut.writeByte(tripleMarker);
-				} else {
-					dataOut.writeByte(quadMarker);
-				}
-				writeValue(st.getSubject(), dataOut);
-				writeValue(st.getPredicate(), dataOut);
-				writeValue(st.getObject(), dataOut);
-				if (context != null) {
-					writeValue(context, dataOut);
-				}
+	public void writeNamespace(String prefix, String name, DataOutputStream dataOut) throws IOException {
+		dataOut.writeByte(NAMESPACE_MARKER);
+		writeString(prefix, dataOut);
+		writeString(name, dataOut);
+	}
+
+	public void writeNamespaceRemoved(String prefix, DataOutputStream dataOut) throws IOException {
+		dataOut.writeByte(NAMESPACE_REMOVED_MARKER);
+		writeString(prefix, dataOut);
+	}
+
+	/**
+	 * Writes a clear record for the supplied contexts. An empty array denotes all contexts, a <tt>null</tt> entry
+	 * denotes the default context.
+	 */
+	public void writeClear(Resource[] contexts, int clearMarker, DataOutputStream dataOut) throws IOException {
+		dataOut.writeByte(clearMarker);
+		dataOut.writeInt(contexts.length);
+		for (Resource context : contexts) {
+			dataOut.writeBoolean(context != null);
+			if (context != null) {
+				writeValue(context, dataOut);
 			}
-		} finally {
-			stIter.close();
 		}
 	}
 
@@ -263,6 +556,32 @@ class FileIO {
 		}
 	}
 
+	private void readDeprecatedStatement(boolean hasContext, DataInputStream dataIn, SailSink sink)
+			throws IOException, ClassCastException, SailException {
+		Resource subj = (Resource) readValue(dataIn);
+		IRI pred = (IRI) readValue(dataIn);
+		Value obj = readValue(dataIn);
+		Resource context = null;
+		if (hasContext) {
+			context = (Resource) readValue(dataIn);
+		}
+
+		sink.deprecate(subj, pred, obj, context);
+	}
+
+	private void readClear(DataInputStream dataIn, SailSink sink)
+			throws IOException, ClassCastException, SailException {
+		int contextCount = dataIn.readInt();
+		Resource[] contexts = new Resource[contextCount];
+		for (int i = 0; i < contextCount; i++) {
+			if (dataIn.readBoolean()) {
+				contexts[i] = (Resource) readValue(dataIn);
+			}
+		}
+
+		sink.clear(contexts);
+	}
+
 	private void writeValue(Value value, DataOutputStream dataOut) throws IOException {
 		if (value instanceof IRI) {
 			dataOut.writeByte(URI_MARKER);
@@ -354,4 +673,184 @@ class FileIO {
 
 		return charBuf.toString();
 	}
+
+	/**
+	 * Reads the chunks of a version 3 file. Namespace chunks are applied to the store as they are read. Statement
+	 * chunks are decoded, together with their value chunks, by a fork-join pool, which is kept a bounded number of
+	 * chunks ahead of the consumer, such that the decoded statements do not need to be held in memory all at once.
+	 * Read errors are reported as {@link SailException}s that wrap the {@link IOException}.
+	 */
+	private class ChunkIteration extends LookAheadIteration<MemStatement[], SailException> {
+
+		private final DataInputStream dataIn;
+
+		/**
+		 * The store to which namespaces are added, or <tt>null</tt> if the file should not have any.
+		 */
+		private final MemorySailStore store;
+
+		private final ForkJoinPool pool = new ForkJoinPool();
+
+		private final int maxPending = pool.getParallelism() * CHUNKS_AHEAD_PER_THREAD;
+
+		private final Deque<ForkJoinTask<MemStatement[]>> pending = new ArrayDeque<>();
+
+		private byte[] valueChunk;
+
+		private boolean eof;
+
+		public ChunkIteration(DataInputStream dataIn, MemorySailStore store) {
+			this.dataIn = dataIn;
+			this.store = store;
+		}
+
+		@Override
+		protected MemStatement[] getNextElement() throws SailException {
+			try {
+				while (!eof && pending.size() < maxPending) {
+					readChunk();
+				}
+				ForkJoinTask<MemStatement[]> next = pending.poll();
+				return next == null ? null : join(next);
+			} catch (IOException e) {
+				throw new SailException(e);
+			}
+		}
+
+		private void readChunk() throws IOException, SailException {
+			int chunkTypeMarker = dataIn.readByte();
+			if (chunkTypeMarker == EOF_MARKER) {
+				eof = true;
+				return;
+			}
+			byte[] chunk = new byte[dataIn.readInt()];
+			dataIn.readFully(chunk);
+			switch (chunkTypeMarker) {
+			case NAMESPACE_CHUNK_MARKER:
+				if (store == null) {
+					throw new IOException("Unexpected namespace chunk");
+				}
+				readNamespaceChunk(chunk, store);
+				break;
+			case VALUE_CHUNK_MARKER:
+				valueChunk = chunk;
+				break;
+			case STATEMENT_CHUNK_MARKER:
+				if (valueChunk == null) {
+					throw new IOException("Statement chunk without value chunk");
+				}
+				byte[] values = valueChunk;
+				valueChunk = null;
+				pending.add(pool.submit(() -> readStatementChunk(values, chunk)));
+				break;
+			default:
+				throw new IOException("Invalid chunk type marker: " + chunkTypeMarker);
+			}
+		}
+
+		@Override
+		protected void handleClose() throws SailException {
+			try {
+				pool.shutdownNow();
+			} finally {
+				super.handleClose();
+			}
+		}
+	}
+
+	/**
+	 * Writes statements as chunks of at most {@link #STATEMENT_CHUNK_SIZE} statements. Each statement chunk is
+	 * preceded by a chunk of the values that its statements refer to, which are numbered from zero in each chunk. A
+	 * value that is used by several chunks is written once per chunk, in return for which neither the writer nor the
+	 * reader needs a table of all values in the file.
+	 */
+	private class ChunkWriter {
+
+		private final DataOutputStream dataOut;
+
+		private final Map<Value, Integer> valueIDs = new HashMap<>();
+
+		private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+
+		private final DataOutputStream valueOut = new DataOutputStream(values);
+
+		private int valueCount;
+
+		private final ByteArrayOutputStream statements = new ByteArrayOutputStream();
+
+		private final DataOutputStream statementOut = new DataOutputStream(statements);
+
+		private int statementCount;
+
+		public ChunkWriter(DataOutputStream dataOut) {
+			this.dataOut = dataOut;
+		}
+
+		/**
+		 * Writes the statements of the supplied iteration, except those in any of the supplied contexts.
+		 */
+		public void writeStatements(CloseableIteration<? extends Statement, SailException> stIter, boolean explicit,
+				Set<? extends Resource> excludedContexts) throws IOException, SailException {
+			try {
+				while (stIter.hasNext()) {
+					Statement st = stIter.next();
+					if (st.getContext() == null || !excludedContexts.contains(st.getContext())) {
+						writeStatement(st, explicit);
+					}
+				}
+			} finally {
+				stIter.close();
+			}
+		}
+
+		public void writeStatement(Statement st, boolean explicit) throws IOException {
+			Resource context = st.getContext();
+			if (context == null) {
+				statementOut.writeByte(explicit ? EXPL_TRIPLE_MARKER : INF_TRIPLE_MARKER);
+			} else {
+				statementOut.writeByte(explicit ? EXPL_QUAD_MARKER : INF_QUAD_MARKER);
+			}
+			statementOut.writeInt(getValueID(st.getSubject()));
+			statementOut.writeInt(getValueID(st.getPredicate()));
+			statementOut.writeInt(getValueID(st.getObject()));
+			if (context != null) {
+				statementOut.writeInt(getValueID(context));
+			}
+
+			if (++statementCount == STATEMENT_CHUNK_SIZE) {
+				flush();
+			}
+		}
+
+		public void flush() throws IOException {
+			if (valueCount > 0) {
+				writeChunk(VALUE_CHUNK_MARKER, valueCount, values);
+				valueCount = 0;
+			}
+			if (statementCount > 0) {
+				writeChunk(STATEMENT_CHUNK_MARKER, statementCount, statements);
+				statementCount = 0;
+			}
+			valueIDs.clear();
+		}
+
+		private int getValueID(Value value) throws IOException {
+			Integer id = valueIDs.get(value);
+			if (id == null) {
+				id = valueIDs.size();
+				valueIDs.put(value, id);
+				writeValue(value, valueOut);
+				valueCount++;
+			}
+			return id;
+		}
+
+		private void writeChunk(int chunkTypeMarker, int count, ByteArrayOutputStream data) throws IOException {
+			ByteArrayOutputStream chunk = new ByteArrayOutputStream(data.size() + 4);
+			new DataOutputStream(chunk).writeInt(count);
+			data.writeTo(chunk);
+			data.reset();
+			FileIO.this.writeChunk(chunkTypeMarker, chunk, dataOut);
+		}
+	}
 }
@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.eclipse.rdf4j.common.io.IOUtil;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.base.SailSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only log of the changes committed to a persistent MemoryStore since its data file was last written. The
+ * changes of each flushed sink are appended as a checksummed block before they become visible. Once all sinks of a
+ * transaction have been flushed, an empty commit block is appended and the file is forced to disk. On replay, only the
+ * blocks that are followed by a commit block are applied, such that a torn block at the end of the file, or the
+ * changes of a transaction that was interrupted between its sinks (e.g. by a crash), are detected and ignored.
+ * <p>
+ * Replaying a journal on top of a data file that already contains (some of) its changes is harmless, as each record
+ * assigns the membership of the statements it touches.
+ */
+class FileJournal {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	/** Magic number for Binary Memory Store Journal files */
+	private static final byte[] MAGIC_NUMBER = new byte[] { 'B', 'M', 'S', 'J' };
+
+	/** The version number of the current format. */
+	private static final int JOURNAL_VERSION = 2;
+
+	/** The first version of which the transactions end with a commit block. */
+	private static final int COMMIT_BLOCK_VERSION = 2;
+
+	private static final int HEADER_LENGTH = MAGIC_NUMBER.length + 1;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private static final Logger logger = LoggerFactory.getLogger(FileJournal.class);
+
+	private final File file;
+
+	private final ValueFactory vf;
+
+	private FileOutputStream out;
+
+	private long size;
+
+	/**
+	 * Whether blocks have been appended since the last commit block.
+	 */
+	private boolean uncommitted;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public FileJournal(File file, ValueFactory vf) {
+		this.file = file;
+		this.vf = vf;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Opens the journal for appending, discarding any existing content.
+	 */
+	public synchronized void open() throws IOException {
+		close();
+		out = new FileOutputStream(file, false);
+		out.write(MAGIC_NUMBER);
+		out.write(JOURNAL_VERSION);
+		out.flush();
+		size = HEADER_LENGTH;
+		uncommitted = false;
+	}
+
+	/**
+	 * The number of bytes currently in the journal file.
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether any transaction has been appended since the journal was opened.
+	 */
+	public synchronized boolean isEmpty() {
+		return size <= HEADER_LENGTH;
+	}
+
+	/**
+	 * Appends the changes of a sink to the journal. The changes are not replayed until the transaction is
+	 * {@link #commit() committed}.
+	 */
+	public synchronized void append(Transaction txn) throws IOException {
+		writeBlock(txn.toByteArray());
+		uncommitted = true;
+	}
+
+	/**
+	 * Marks the end of the transaction of which the changes have been appended since the last commit, and forces the
+	 * journal to disk. Does nothing if no changes have been appended since.
+	 */
+	public synchronized void commit() throws IOException {
+		if (uncommitted) {
+			writeBlock(new byte[0]);
+			out.getChannel().force(false);
+			uncommitted = false;
+		}
+	}
+
+	private void writeBlock(byte[] block) throws IOException {
+		if (out == null) {
+			throw new IOException("Journal is not open: " + file);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(block, 0, block.length);
+
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(block.length + 12);
+		DataOutputStream dataOut = new DataOutputStream(buf);
+		dataOut.writeInt(block.length);
+		dataOut.write(block);
+		dataOut.writeLong(crc.getValue());
+		dataOut.flush();
+
+		buf.writeTo(out);
+		out.flush();
+		size += buf.size();
+	}
+
+	/**
+	 * Closes the current journal file and moves it to the supplied location, then opens a new, empty journal.
+	 */
+	public synchronized void rotate(File target) throws IOException {
+		close();
+		if (target.exists() && !target.delete()) {
+			throw new IOException("Could not delete " + target.getAbsolutePath());
+		}
+		if (file.exists() && !file.renameTo(target)) {
+			throw new IOException("Could not rename " + file.getAbsolutePath() + " to " + target.getName());
+		}
+		open();
+	}
+
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			try {
+				out.close();
+			} finally {
+				out = null;
+			}
+		}
+	}
+
+	/**
+	 * Creates a new buffer for the changes of a transaction.
+	 */
+	public Transaction createTransaction() {
+		return new Transaction();
+	}
+
+	/**
+	 * Replays the committed transactions in the supplied journal file, in order, on the supplied sinks.
+	 *
+	 * @return <tt>true</tt> if the journal contained any data beyond its header, including an incomplete or corrupt
+	 *         block that was skipped.
+	 */
+	public boolean replay(File journalFile, SailSink explicit, SailSink inferred) throws IOException, SailException {
+		if (!journalFile.exists() || journalFile.length() <= HEADER_LENGTH) {
+			return false;
+		}
+
+		FileIO io = new FileIO(vf);
+		try (InputStream in = new BufferedInputStream(new FileInputStream(journalFile));) {
+			byte[] magicNumber = IOUtil.readBytes(in, MAGIC_NUMBER.length);
+			if (!Arrays.equals(magicNumber, MAGIC_NUMBER)) {
+				throw new IOException("File is not a MemoryStore journal file: " + journalFile);
+			}
+
+			int version = in.read();
+			if (version > JOURNAL_VERSION || version < 1) {
+				throw new IOException("Incompatible journal version: " + version);
+			}
+
+			DataInputStream dataIn = new DataInputStream(in);
+			List<byte[]> pending = new ArrayList<>();
+			int txnCount = 0;
+			while (true) {
+				byte[] block;
+				long checksum;
+				try {
+					int length = dataIn.readInt();
+					if (length < 0) {
+						logger.warn("Ignoring invalid journal block at the end of {}", journalFile);
+						break;
+					}
+					block = new byte[length];
+					dataIn.readFully(block);
+					checksum = dataIn.readLong();
+				} catch (EOFException e) {
+					// end of journal, possibly with an incomplete block from an interrupted append
+					break;
+				}
+
+				CRC32 crc = new CRC32();
+				crc.update(block, 0, block.length);
+				if (crc.getValue() != checksum) {
+					logger.warn("Ignoring corrupt journal block at the end of {}", journalFile);
+					break;
+				}
+
+				if (block.length > 0) {
+					pending.add(block);
+				}
+				if (block.length == 0 || version < COMMIT_BLOCK_VERSION) {
+					// the transaction is complete
+					for (byte[] txnBlock : pending) {
+						io.readJournalBlock(new DataInputStream(new ByteArrayInputStream(txnBlock)), explicit,
+								inferred);
+					}
+					pending.clear();
+					txnCount++;
+				}
+			}
+			if (!pending.isEmpty()) {
+				logger.warn("Ignoring uncommitted transaction at the end of {}", journalFile);
+			}
+			logger.debug("Replayed {} transactions from {}", txnCount, journalFile);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Buffers the changes of a sink until they are appended to the journal. Instances are not thread-safe.
+	 */
+	class Transaction {
+
+		private final FileIO io = new FileIO(vf);
+
+		private final ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+
+		private final DataOutputStream dataOut = new DataOutputStream(buf);
+
+		private boolean empty = true;
+
+		public boolean isEmpty() {
+			return empty;
+		}
+
+		public void setNamespace(String prefix, String name) throws IOException {
+			empty = false;
+			io.writeNamespace(prefix, name, dataOut);
+		}
+
+		public void removeNamespace(String prefix) throws IOException {
+			empty = false;
+			io.writeNamespaceRemoved(prefix, dataOut);
+		}
+
+		public void clearNamespaces() throws IOException {
+			empty = false;
+			dataOut.writeByte(FileIO.NAMESPACES_CLEARED_MARKER);
+		}
+
+		public void approve(boolean explicit, Resource subj, IRI pred, Value obj, Resource ctx) throws IOException {
+			empty = false;
+			if (explicit) {
+				io.writeStatement(subj, pred, obj, ctx, FileIO.EXPL_TRIPLE_MARKER, FileIO.EXPL_QUAD_MARKER, dataOut);
+			} else {
+				io.writeStatement(subj, pred, obj, ctx, FileIO.INF_TRIPLE_MARKER, FileIO.INF_QUAD_MARKER, dataOut);
+			}
+		}
+
+		public void deprecate(boolean explicit, Resource subj, IRI pred, Value obj, Resource ctx)
+				throws IOException {
+			empty = false;
+			if (explicit) {
+				io.writeStatement(subj, pred, obj, ctx, FileIO.EXPL_DEPRECATED_TRIPLE_MARKER,
+						FileIO.EXPL_DEPRECATED_QUAD_MARKER, dataOut);
+			} else {
+				io.writeStatement(subj, pred, obj, ctx, FileIO.INF_DEPRECATED_TRIPLE_MARKER,
+						FileIO.INF_DEPRECATED_QUAD_MARKER, dataOut);
+			}
+		}
+
+		public void clear(boolean explicit, Resource... contexts) throws IOException {
+			empty = false;
+			io.writeClear(contexts, explicit ? FileIO.EXPL_CLEAR_MARKER : FileIO.INF_CLEAR_MARKER, dataOut);
+		}
+
+		/**
+		 * Discards all buffered changes.
+		 */
+		public void reset() {
+			buf.reset();
+			empty = true;
+		}
+
+		byte[] toByteArray() throws IOException {
+			dataOut.writeByte(FileIO.EOF_MARKER);
+			dataOut.flush();
+			return buf.toByteArray();
+		}
+	}
+}
@@ -23,8 +23,9 @@ import org.eclipse.rdf4j.sail.memory.model.MemValue;
 import org.eclipse.rdf4j.sail.memory.model.MemValueFactory;
 
 /**
- * Uses the MemoryStore's statement sizes to give cost estimates based on the size of the expected results. This process
- * could be improved with repository statistics about size and distribution of statements.
+ * Uses the MemoryStore's statement sizes to give cost estimates based on the size of the expected results. For patterns
+ * with a bound predicate, the number of distinct subjects and objects of that predicate are used to estimate the
+ * selectivity of a bound subject or object.
  * 
  * @author Arjohn Kampman
  * @author James Leigh
@@ -83,18 +84,29 @@ class MemEvaluationStatistics extends EvaluationStatistics {
 			}
 
 			// Search for the smallest list that can be used by the iterator
-			List<Integer> listSizes = new ArrayList<>(4);
+			List<Double> listSizes = new ArrayList<>(6);
 			if (memSubj != null) {
-				listSizes.add(memSubj.getSubjectStatementCount());
+				listSizes.add((double) memSubj.getSubjectStatementCount());
 			}
 			if (memPred != null) {
-				listSizes.add(memPred.getPredicateStatementCount());
+				// not counting deprecated statements, like the distinct subject and object counts
+				int predicateStatementCount = memPred.getCurrentPredicateStatementCount();
+				listSizes.add((double) predicateStatementCount);
+
+				// Use the average number of statements per subject or object of the predicate as an estimate for the
+				// number of statements matching the bound subject or object
+				if (memSubj != null) {
+					listSizes.add(getAverage(predicateStatementCount, memPred.getPredicateSubjectCount()));
+				}
+				if (memObj != null) {
+					listSizes.add(getAverage(predicateStatementCount, memPred.getPredicateObjectCount()));
+				}
 			}
 			if (memObj != null) {
-				listSizes.add(memObj.getObjectStatementCount());
+				listSizes.add((double) memObj.getObjectStatementCount());
 			}
 			if (memContext != null) {
-				listSizes.add(memContext.getContextStatementCount());
+				listSizes.add((double) memContext.getContextStatementCount());
 			}
 
 			double cardinality;
@@ -103,22 +115,19 @@ class MemEvaluationStatistics extends EvaluationStatistics {
 				// all wildcards
 				cardinality = Integer.MAX_VALUE;
 			} else {
-				cardinality = (double) Collections.min(listSizes);
-
-				// List<Var> vars = getVariables(sp);
-				// int constantVarCount = countConstantVars(vars);
-				//
-				// // Subtract 1 from var count as this was used for the list
-				// size
-				// double unboundVarFactor = (double)(vars.size() -
-				// constantVarCount) / (vars.size() - 1);
-				//
-				// cardinality = Math.pow(cardinality, unboundVarFactor);
+				cardinality = Collections.min(listSizes);
 			}
 
 			return cardinality;
 		}
 
+		private double getAverage(int statementCount, int distinctValueCount) {
+			if (distinctValueCount == 0) {
+				return statementCount;
+			}
+			return (double) statementCount / distinctValueCount;
+		}
+
 		protected Value getConstantValue(Var var) {
 			if (var != null) {
 				return var.getValue();
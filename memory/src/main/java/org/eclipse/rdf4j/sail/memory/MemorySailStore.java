@@ -7,11 +7,18 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.memory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import org.eclipse.rdf4j.IsolationLevel;
 import org.eclipse.rdf4j.IsolationLevels;
@@ -78,7 +85,7 @@ class MemorySailStore implements SailStore {
 	private final MemNamespaceStore namespaceStore = new MemNamespaceStore();
 
 	/**
-	 * Lock manager used to give the snapshot cleanup thread exclusive access to the statement list.
+	 * Lock manager used to give {@link #close()} exclusive access to the statement list.
 	 */
 	private final ReadWriteLockManager statementListLockManager;
 
@@ -88,20 +95,92 @@ class MemorySailStore implements SailStore {
 	private final ReentrantLock txnLockManager = new ReentrantLock();
 
 	/**
-	 * Cleanup thread that removes deprecated statements when no other threads are accessing this list. Seee
-	 * {@link #scheduleSnapshotCleanup()}.
+	 * Cleanup thread that removes deprecated statements in the background. See {@link #scheduleSnapshotCleanup()}.
 	 */
 	private volatile Thread snapshotCleanupThread;
 
+	/**
+	 * Flag indicating that another cleanup run was requested while the cleanup thread was running.
+	 */
+	private boolean cleanupRequested;
+
 	/**
 	 * Lock object used to synchronize concurrent access to {@link #snapshotCleanupThread}.
 	 */
 	private final Object snapshotCleanupThreadLockObject = new Object();
 
+	/**
+	 * The snapshots that are in use by datasets and serializable sinks, with their number of users. Statements that
+	 * are visible in any of these snapshots are not removed by the snapshot cleanup.
+	 */
+	private final ConcurrentNavigableMap<Integer, Integer> activeSnapshots = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Flag indicating that the last snapshot cleanup was held back by a snapshot in use.
+	 */
+	private volatile boolean cleanupPending;
+
+	/**
+	 * Receives statistics of each snapshot cleanup, may be null.
+	 */
+	private volatile SnapshotCleanupListener cleanupListener;
+
+	/**
+	 * Journal to which the changes of each transaction are appended before they become visible, null if changes are
+	 * not journaled.
+	 */
+	private volatile FileJournal journal;
+
+	/**
+	 * Moves contexts out of memory when the heap budget is exceeded and back in when they are accessed, null if the
+	 * heap usage is not limited.
+	 */
+	private volatile ContextSpillManager spillManager;
+
 	public MemorySailStore(boolean debug) {
 		statementListLockManager = new ReadPrefReadWriteLockManager(debug);
 	}
 
+	void setSnapshotCleanupListener(SnapshotCleanupListener listener) {
+		this.cleanupListener = listener;
+	}
+
+	/**
+	 * Sets the journal to which the changes of subsequent transactions are appended.
+	 */
+	void setJournal(FileJournal journal) {
+		this.journal = journal;
+	}
+
+	void setContextSpillManager(ContextSpillManager spillManager) {
+		this.spillManager = spillManager;
+	}
+
+	ContextSpillManager getContextSpillManager() {
+		return spillManager;
+	}
+
+	/**
+	 * Gets a source that only reads the statements that are currently held in memory, i.e. without faulting in the
+	 * contexts that have been moved to disk by the {@link ContextSpillManager}.
+	 */
+	SailSource getResidentSailSource(boolean explicit) {
+		return new MemorySailSource(explicit, true);
+	}
+
+	/**
+	 * Waits for any active transaction to finish writing and prevents new transactions from writing until
+	 * {@link #unlockTransactions()} is called by the same thread. While locked, the latest snapshot corresponds exactly
+	 * to the changes that have been appended to the journal.
+	 */
+	void lockTransactions() {
+		txnLockManager.lock();
+	}
+
+	void unlockTransactions() {
+		txnLockManager.unlock();
+	}
+
 	@Override
 	public ValueFactory getValueFactory() {
 		return valueFactory;
@@ -129,12 +208,12 @@ class MemorySailStore implements SailStore {
 
 	@Override
 	public SailSource getExplicitSailSource() {
-		return new MemorySailSource(true);
+		return new MemorySailSource(true, false);
 	}
 
 	@Override
 	public SailSource getInferredSailSource() {
-		return new MemorySailSource(false);
+		return new MemorySailSource(false, false);
 	}
 
 	private Lock openStatementsReadLock() throws SailException {
@@ -146,14 +225,155 @@ class MemorySailStore implements SailStore {
 		}
 	}
 
+	/**
+	 * Adds statements that were read from a data file directly to the statement lists, bypassing the duplicate checks
+	 * and per-statement overhead of a {@link SailSink}. The chunks are consumed as they are supplied and their
+	 * statements become visible in a single new snapshot. Only to be used to populate an empty store with statements
+	 * that are known to be distinct.
+	 */
+	void loadStatements(CloseableIteration<MemStatement[], SailException> chunks) throws SailException {
+		txnLockManager.lock();
+		try {
+			if (!statements.isEmpty()) {
+				throw new SailException("Statements can only be loaded into an empty store");
+			}
+			int nextSnapshot = currentSnapshot + 1;
+			Lock stLock = openStatementsReadLock();
+			try {
+				while (chunks.hasNext()) {
+					for (MemStatement st : chunks.next()) {
+						st.setSinceSnapshot(nextSnapshot);
+						statements.add(st);
+						st.addToComponentLists();
+					}
+				}
+			} finally {
+				stLock.release();
+			}
+			currentSnapshot = nextSnapshot;
+		} finally {
+			txnLockManager.unlock();
+		}
+	}
+
+	/**
+	 * Writes the statements of the supplied context to a spill file and removes them from memory in a new snapshot.
+	 * Snapshots that are already in use continue to see the statements until they are released.
+	 * 
+	 * @param spilledStatements receives each statement that is spilled.
+	 * @return the snapshot in which the statements have been removed, or <tt>-1</tt> if the context does not have any
+	 *         statements.
+	 */
+	int spillContext(MemResource context, File spillFile, Consumer<MemStatement> spilledStatements)
+			throws IOException {
+		txnLockManager.lock();
+		try {
+			int snapshot = currentSnapshot;
+			List<MemStatement> spilled = new ArrayList<>();
+			for (MemStatement st : context.getContextStatementList().getStatements()) {
+				if (st == null) {
+					break;
+				}
+				if (st.isInSnapshot(snapshot)) {
+					spilled.add(st);
+					spilledStatements.accept(st);
+				}
+			}
+			if (spilled.isEmpty()) {
+				return -1;
+			}
+
+			new FileIO(valueFactory).writeSpillFile(spilled, spillFile);
+
+			int nextSnapshot = snapshot + 1;
+			for (MemStatement st : spilled) {
+				st.setTillSnapshot(nextSnapshot);
+			}
+			currentSnapshot = nextSnapshot;
+			scheduleSnapshotCleanup();
+			return nextSnapshot;
+		} finally {
+			txnLockManager.unlock();
+		}
+	}
+
+	/**
+	 * Adds the statements of a spilled context back to the statement lists. The statements are visible from the
+	 * snapshot in which they were spilled onwards, such that the context appears unchanged to all readers.
+	 */
+	void restoreStatements(List<MemStatement[]> chunks, int snapshot) throws SailException {
+		txnLockManager.lock();
+		try {
+			Lock stLock = openStatementsReadLock();
+			try {
+				for (MemStatement[] chunk : chunks) {
+					for (MemStatement st : chunk) {
+						st.setSinceSnapshot(snapshot);
+						statements.add(st);
+						st.addToComponentLists();
+					}
+				}
+			} finally {
+				stLock.release();
+			}
+		} finally {
+			txnLockManager.unlock();
+		}
+	}
+
+	/**
+	 * Gets the named contexts that currently have statements in memory.
+	 */
+	List<MemResource> getResidentContexts() {
+		List<MemResource> contexts = new ArrayList<>();
+		synchronized (valueFactory) {
+			for (MemResource memResource : valueFactory.getMemURIs()) {
+				if (memResource.getContextStatementCount() > 0) {
+					contexts.add(memResource);
+				}
+			}
+			for (MemResource memResource : valueFactory.getMemBNodes()) {
+				if (memResource.getContextStatementCount() > 0) {
+					contexts.add(memResource);
+				}
+			}
+		}
+		return contexts;
+	}
+
+	int getCurrentSnapshot() {
+		return currentSnapshot;
+	}
+
+	/**
+	 * Gets the number of statements in memory, including deprecated statements that have not been cleaned up yet.
+	 */
+	int getStatementCount() {
+		return statements.size();
+	}
+
+	/**
+	 * Creates a StatementIterator like {@link #createResidentStatementIterator}, after making sure that any contexts
+	 * that may contain matching statements are in memory.
+	 */
+	private CloseableIteration<MemStatement, SailException> createStatementIterator(Resource subj, IRI pred, Value obj,
+			Boolean explicit, int snapshot, Resource... contexts) throws SailException {
+		ContextSpillManager toFaultIn = spillManager;
+		if (toFaultIn != null) {
+			// statements must be restored before their values are looked up
+			toFaultIn.faultIn(pred, contexts);
+		}
+		return createResidentStatementIterator(subj, pred, obj, explicit, snapshot, contexts);
+	}
+
 	/**
 	 * Creates a StatementIterator that contains the statements matching the specified pattern of subject, predicate,
 	 * object, context. Inferred statements are excluded when <tt>explicitOnly</tt> is set to <tt>true</tt> . Statements
 	 * from the null context are excluded when <tt>namedContextsOnly</tt> is set to <tt>true</tt>. The returned
 	 * StatementIterator will assume the specified read mode.
 	 */
-	private CloseableIteration<MemStatement, SailException> createStatementIterator(Resource subj, IRI pred, Value obj,
-			Boolean explicit, int snapshot, Resource... contexts) {
+	private CloseableIteration<MemStatement, SailException> createResidentStatementIterator(Resource subj, IRI pred,
+			Value obj, Boolean explicit, int snapshot, Resource... contexts) {
 		// Perform look-ups for value-equivalents of the specified values
 		MemResource memSubj = valueFactory.getMemResource(subj);
 		if (subj != null && memSubj == null) {
@@ -232,94 +452,174 @@ class MemorySailStore implements SailStore {
 	}
 
 	/**
-	 * Removes statements from old snapshots from the main statement list and resets the snapshot to 1 for the rest of
-	 * the statements.
+	 * Registers the current snapshot as being in use, such that statements that are visible in it are not removed by
+	 * {@link #cleanSnapshots()} until it is released again with {@link #releaseSnapshot(int)}.
 	 * 
-	 * @throws InterruptedException
+	 * @return the current snapshot.
 	 */
-	protected void cleanSnapshots() throws InterruptedException {
-		// System.out.println("cleanSnapshots() starting...");
-		// long startTime = System.currentTimeMillis();
-
-		// Sets used to keep track of which lists have already been processed
-		HashSet<MemValue> processedSubjects = new HashSet<>();
-		HashSet<MemValue> processedPredicates = new HashSet<>();
-		HashSet<MemValue> processedObjects = new HashSet<>();
-		HashSet<MemValue> processedContexts = new HashSet<>();
-
-		int lastStmtPos;
-		Lock stReadLock = statementListLockManager.getReadLock();
-		try {
-			lastStmtPos = statements.size() - 1;
-		} finally {
-			stReadLock.release();
+	private int acquireSnapshot() {
+		while (true) {
+			int snapshot = currentSnapshot;
+			activeSnapshots.merge(snapshot, 1, Integer::sum);
+			if (snapshot == currentSnapshot) {
+				// a cleanup that starts from now on will see the registration
+				return snapshot;
+			}
+			// a newer snapshot has been published concurrently, a cleanup may have missed our registration
+			releaseSnapshot(snapshot);
 		}
+	}
 
-		/*
-		 * The order of the statement list won't change from lastStmtPos down while we don't have the write lock (it
-		 * might shrink or grow) as (1) new statements are always appended last, (2) we are the only process that
-		 * removes statements, (3) this list is cleared on close.
-		 */
+	private void releaseSnapshot(int snapshot) {
+		activeSnapshots.computeIfPresent(snapshot, (s, count) -> count == 1 ? null : count - 1);
+		if (cleanupPending && !activeSnapshots.containsKey(snapshot)) {
+			Integer oldest = activeSnapshots.isEmpty() ? null : activeSnapshots.firstKey();
+			if (oldest == null || oldest > snapshot) {
+				// this snapshot may have held back a previous cleanup
+				scheduleSnapshotCleanup();
+			}
+		}
+	}
 
-		int nextSnapshot = currentSnapshot;
-		for (int i = lastStmtPos; i >= 0; i--) {
-			// As we are running in the background, yield the write lock frequently to other writers.
-			Lock stWriteLock = statementListLockManager.getWriteLock();
-			try {
-				// guard against shrinkage, e.g. clear() on close()
-				lastStmtPos = statements.size() - 1;
-				i = Math.min(i, lastStmtPos);
-				if (i >= 0) {
-					MemStatement st = statements.get(i);
-
-					if (st.getTillSnapshot() <= nextSnapshot) {
-						MemResource subj = st.getSubject();
-						if (processedSubjects.add(subj)) {
-							subj.cleanSnapshotsFromSubjectStatements(nextSnapshot);
-						}
+	/**
+	 * Returns the oldest snapshot that may still be read, i.e. the oldest snapshot in use or the current snapshot.
+	 */
+	private int getOldestSnapshot() {
+		// read the current snapshot before the registrations, see acquireSnapshot()
+		int oldest = currentSnapshot;
+		Map.Entry<Integer, Integer> first = activeSnapshots.firstEntry();
+		if (first != null && first.getKey() < oldest) {
+			oldest = first.getKey();
+		}
+		return oldest;
+	}
 
-						MemIRI pred = st.getPredicate();
-						if (processedPredicates.add(pred)) {
-							pred.cleanSnapshotsFromPredicateStatements(nextSnapshot);
-						}
+	/**
+	 * Removes statements that are no longer visible in any snapshot in use from the main statement list and from the
+	 * statement lists of their subject, predicate, object and context. Each list is compacted into a new array that
+	 * replaces the old one, such that neither readers nor writers are blocked, while iterations that are in progress
+	 * continue over the old arrays.
+	 */
+	protected void cleanSnapshots() {
+		long startTime = System.nanoTime();
+		cleanupPending = false;
+		int snapshot = getOldestSnapshot();
+		if (snapshot < currentSnapshot) {
+			// readers of older snapshots may prevent some statements from being removed now
+			cleanupPending = true;
+		}
 
-						MemValue obj = st.getObject();
-						if (processedObjects.add(obj)) {
-							obj.cleanSnapshotsFromObjectStatements(nextSnapshot);
-						}
+		// Sets used to keep track of which lists need to be processed
+		Set<MemResource> subjects = new HashSet<>();
+		Set<MemIRI> predicates = new HashSet<>();
+		Set<MemValue> objects = new HashSet<>();
+		Set<MemResource> contexts = new HashSet<>();
 
-						MemResource context = st.getContext();
-						if (context != null && processedContexts.add(context)) {
-							context.cleanSnapshotsFromContextStatements(nextSnapshot);
-						}
+		for (MemStatement st : statements.getStatements()) {
+			if (st == null) {
+				break;
+			}
+			if (st.getTillSnapshot() <= snapshot) {
+				subjects.add(st.getSubject());
+				predicates.add(st.getPredicate());
+				objects.add(st.getObject());
+				MemResource context = st.getContext();
+				if (context != null) {
+					contexts.add(context);
+				}
+			}
+		}
+
+		int removed = statements.cleanSnapshots(snapshot);
+
+		// values of which a statement list has become empty
+		Set<MemValue> emptied = new HashSet<>();
+		int cleanedLists = 0;
+		for (MemResource subj : subjects) {
+			MemStatementList list = subj.getSubjectStatementList();
+			cleanedLists += list.cleanSnapshots(snapshot) > 0 ? 1 : 0;
+			if (list.isEmpty()) {
+				emptied.add(subj);
+			}
+		}
+		for (MemIRI pred : predicates) {
+			MemStatementList list = pred.getPredicateStatementList();
+			cleanedLists += list.cleanSnapshots(snapshot) > 0 ? 1 : 0;
+			if (list.isEmpty()) {
+				emptied.add(pred);
+			}
+		}
+		for (MemValue obj : objects) {
+			MemStatementList list = obj.getObjectStatementList();
+			cleanedLists += list.cleanSnapshots(snapshot) > 0 ? 1 : 0;
+			if (list.isEmpty()) {
+				emptied.add(obj);
+			}
+		}
+		for (MemResource context : contexts) {
+			MemStatementList list = context.getContextStatementList();
+			cleanedLists += list.cleanSnapshots(snapshot) > 0 ? 1 : 0;
+			if (list.isEmpty()) {
+				emptied.add(context);
+			}
+		}
 
-						// stale statement
-						statements.remove(i);
+		// Empty lists can only be discarded while no writer might be adding to them. Skip this if a transaction is
+		// active; the lists will be discarded by a later cleanup.
+		if (!emptied.isEmpty() && txnLockManager.tryLock()) {
+			try {
+				for (MemValue value : emptied) {
+					value.cleanSnapshotsFromObjectStatements(snapshot);
+					if (value instanceof MemResource) {
+						MemResource resource = (MemResource) value;
+						resource.cleanSnapshotsFromSubjectStatements(snapshot);
+						resource.cleanSnapshotsFromContextStatements(snapshot);
+					}
+					if (value instanceof MemIRI) {
+						((MemIRI) value).cleanSnapshotsFromPredicateStatements(snapshot);
 					}
 				}
 			} finally {
-				stWriteLock.release();
+				txnLockManager.unlock();
 			}
 		}
 
-		// long endTime = System.currentTimeMillis();
-		// System.out.println("cleanSnapshots() took " + (endTime - startTime) +
-		// " ms");
+		long duration = System.nanoTime() - startTime;
+		logger.debug("Snapshot cleanup removed {} statements up to snapshot {} from {} lists in {} ms", removed,
+				snapshot, cleanedLists, duration / 1000000);
+
+		SnapshotCleanupListener listener = cleanupListener;
+		if (listener != null) {
+			try {
+				listener.snapshotsCleaned(snapshot, removed, cleanedLists, duration);
+			} catch (RuntimeException e) {
+				logger.warn("Snapshot cleanup listener failed", e);
+			}
+		}
 	}
 
 	protected void scheduleSnapshotCleanup() {
 		synchronized (snapshotCleanupThreadLockObject) {
+			cleanupRequested = true;
 			Thread toCheckSnapshotCleanupThread = snapshotCleanupThread;
 			if (toCheckSnapshotCleanupThread == null || !toCheckSnapshotCleanupThread.isAlive()) {
 				Runnable runnable = new Runnable() {
 
 					@Override
 					public void run() {
-						try {
-							cleanSnapshots();
-						} catch (InterruptedException e) {
-							Thread.currentThread().interrupt();
-							logger.warn("snapshot cleanup interrupted");
+						while (true) {
+							synchronized (snapshotCleanupThreadLockObject) {
+								if (!cleanupRequested) {
+									snapshotCleanupThread = null;
+									return;
+								}
+								cleanupRequested = false;
+							}
+							try {
+								cleanSnapshots();
+							} catch (RuntimeException e) {
+								logger.error("Snapshot cleanup failed", e);
+							}
 						}
 					}
 				};
@@ -336,8 +636,11 @@ class MemorySailStore implements SailStore {
 
 		private final boolean explicit;
 
-		public MemorySailSource(boolean explicit) {
+		private final boolean resident;
+
+		public MemorySailSource(boolean explicit, boolean resident) {
 			this.explicit = explicit;
+			this.resident = resident;
 		}
 
 		@Override
@@ -348,9 +651,9 @@ class MemorySailStore implements SailStore {
 		@Override
 		public MemorySailDataset dataset(IsolationLevel level) throws SailException {
 			if (level.isCompatibleWith(IsolationLevels.SNAPSHOT_READ)) {
-				return new MemorySailDataset(explicit, currentSnapshot);
+				return new MemorySailDataset(explicit, resident, acquireSnapshot());
 			} else {
-				return new MemorySailDataset(explicit);
+				return new MemorySailDataset(explicit, resident);
 			}
 		}
 	}
@@ -371,14 +674,22 @@ class MemorySailStore implements SailStore {
 
 		private boolean requireCleanup;
 
+		/**
+		 * Changes of this sink that are not yet appended to the journal, null if changes are not journaled.
+		 */
+		private final FileJournal.Transaction journaled;
+
 		public MemorySailSink(boolean explicit, boolean serializable) throws SailException {
 			this.explicit = explicit;
+			FileJournal toJournal = journal;
+			this.journaled = toJournal == null ? null : toJournal.createTransaction();
+			txnStLock = openStatementsReadLock();
 			if (serializable) {
-				this.serializable = currentSnapshot;
+				// changes since this snapshot are checked against observations on prepare
+				this.serializable = acquireSnapshot();
 			} else {
 				this.serializable = Integer.MAX_VALUE;
 			}
-			txnStLock = openStatementsReadLock();
 		}
 
 		@Override
@@ -431,10 +742,16 @@ class MemorySailStore implements SailStore {
 		@Override
 		public synchronized void flush() throws SailException {
 			if (txnLock) {
+				// write-ahead: changes must be in the journal before they become visible
+				appendToJournal();
 				currentSnapshot = Math.max(currentSnapshot, nextSnapshot);
 				if (requireCleanup) {
 					scheduleSnapshotCleanup();
 				}
+				ContextSpillManager toCheck = spillManager;
+				if (toCheck != null) {
+					toCheck.checkMemoryBudget();
+				}
 			}
 		}
 
@@ -444,11 +761,24 @@ class MemorySailStore implements SailStore {
 				boolean toCloseTxnLock = txnLock;
 				txnLock = false;
 				if (toCloseTxnLock) {
-					txnLockManager.unlock();
+					try {
+						if (txnLockManager.getHoldCount() == 1) {
+							// the last sink of the transaction: the journaled changes are complete
+							commitJournal();
+						}
+					} finally {
+						txnLockManager.unlock();
+					}
 				}
 			} finally {
-				if (txnStLock != null) {
-					txnStLock.release();
+				try {
+					if (txnStLock != null) {
+						txnStLock.release();
+					}
+				} finally {
+					if (serializable != Integer.MAX_VALUE) {
+						releaseSnapshot(serializable);
+					}
 				}
 			}
 		}
@@ -456,18 +786,39 @@ class MemorySailStore implements SailStore {
 		@Override
 		public synchronized void setNamespace(String prefix, String name) throws SailException {
 			acquireExclusiveTransactionLock();
+			if (journaled != null) {
+				try {
+					journaled.setNamespace(prefix, name);
+				} catch (IOException e) {
+					throw new SailException(e);
+				}
+			}
 			namespaceStore.setNamespace(prefix, name);
 		}
 
 		@Override
 		public synchronized void removeNamespace(String prefix) throws SailException {
 			acquireExclusiveTransactionLock();
+			if (journaled != null) {
+				try {
+					journaled.removeNamespace(prefix);
+				} catch (IOException e) {
+					throw new SailException(e);
+				}
+			}
 			namespaceStore.removeNamespace(prefix);
 		}
 
 		@Override
 		public synchronized void clearNamespaces() throws SailException {
 			acquireExclusiveTransactionLock();
+			if (journaled != null) {
+				try {
+					journaled.clearNamespaces();
+				} catch (IOException e) {
+					throw new SailException(e);
+				}
+			}
 			namespaceStore.clear();
 		}
 
@@ -494,6 +845,13 @@ class MemorySailStore implements SailStore {
 		public synchronized void clear(Resource... contexts) throws SailException {
 			acquireExclusiveTransactionLock();
 			requireCleanup = true;
+			if (journaled != null) {
+				try {
+					journaled.clear(explicit, contexts);
+				} catch (IOException e) {
+					throw new SailException(e);
+				}
+			}
 			try (CloseableIteration<MemStatement, SailException> iter = createStatementIterator(null, null, null,
 					explicit, nextSnapshot, contexts);) {
 				while (iter.hasNext()) {
@@ -506,6 +864,13 @@ class MemorySailStore implements SailStore {
 		@Override
 		public synchronized void approve(Resource subj, IRI pred, Value obj, Resource ctx) throws SailException {
 			acquireExclusiveTransactionLock();
+			if (journaled != null) {
+				try {
+					journaled.approve(explicit, subj, pred, obj, ctx);
+				} catch (IOException e) {
+					throw new SailException(e);
+				}
+			}
 			addStatement(subj, pred, obj, ctx, explicit);
 		}
 
@@ -513,6 +878,13 @@ class MemorySailStore implements SailStore {
 		public synchronized void deprecate(Resource subj, IRI pred, Value obj, Resource ctx) throws SailException {
 			acquireExclusiveTransactionLock();
 			requireCleanup = true;
+			if (journaled != null) {
+				try {
+					journaled.deprecate(explicit, subj, pred, obj, ctx);
+				} catch (IOException e) {
+					throw new SailException(e);
+				}
+			}
 			try (CloseableIteration<MemStatement, SailException> iter = createStatementIterator(subj, pred, obj,
 					explicit, nextSnapshot, ctx);) {
 				while (iter.hasNext()) {
@@ -522,6 +894,30 @@ class MemorySailStore implements SailStore {
 			}
 		}
 
+		private void appendToJournal() throws SailException {
+			FileJournal toAppend = journal;
+			if (journaled != null && !journaled.isEmpty() && toAppend != null) {
+				try {
+					toAppend.append(journaled);
+				} catch (IOException e) {
+					throw new SailException("Failed to append changes to journal", e);
+				} finally {
+					journaled.reset();
+				}
+			}
+		}
+
+		private void commitJournal() throws SailException {
+			FileJournal toCommit = journal;
+			if (toCommit != null) {
+				try {
+					toCommit.commit();
+				} catch (IOException e) {
+					throw new SailException("Failed to commit changes to journal", e);
+				}
+			}
+		}
+
 		private void acquireExclusiveTransactionLock() throws SailException {
 			if (!txnLock) {
 				txnLockManager.lock();
@@ -538,6 +934,12 @@ class MemorySailStore implements SailStore {
 			MemValue memObj = valueFactory.getOrCreateMemValue(obj);
 			MemResource memContext = (context == null) ? null : valueFactory.getOrCreateMemResource(context);
 
+			ContextSpillManager toFaultIn = spillManager;
+			if (toFaultIn != null && memContext != null) {
+				// the statement may be in a spilled context, which has no statements in memory
+				toFaultIn.faultIn(memPred, memContext);
+			}
+
 			if (memSubj.hasStatements() && memPred.hasStatements() && memObj.hasStatements()
 					&& (memContext == null || memContext.hasStatements())) {
 				// All values are used in at least one statement. Possibly, the
@@ -578,20 +980,36 @@ class MemorySailStore implements SailStore {
 
 		private final boolean explicit;
 
+		/**
+		 * Flag indicating that only statements in memory are read, see {@link MemorySailStore#getResidentSailSource}.
+		 */
+		private final boolean resident;
+
 		private final int snapshot;
 
 		private final Lock lock;
 
-		public MemorySailDataset(boolean explicit) throws SailException {
+		public MemorySailDataset(boolean explicit, boolean resident) throws SailException {
 			this.explicit = explicit;
+			this.resident = resident;
 			this.snapshot = -1;
 			this.lock = null;
 		}
 
-		public MemorySailDataset(boolean explicit, int snapshot) throws SailException {
+		/**
+		 * Creates a dataset of an {@link #acquireSnapshot() acquired} snapshot, which is released when this dataset is
+		 * closed.
+		 */
+		public MemorySailDataset(boolean explicit, boolean resident, int snapshot) throws SailException {
 			this.explicit = explicit;
+			this.resident = resident;
 			this.snapshot = snapshot;
-			this.lock = openStatementsReadLock();
+			try {
+				this.lock = openStatementsReadLock();
+			} catch (SailException | RuntimeException e) {
+				releaseSnapshot(snapshot);
+				throw e;
+			}
 		}
 
 		@Override
@@ -614,7 +1032,11 @@ class MemorySailStore implements SailStore {
 		public void close() {
 			if (lock != null) {
 				// serializable read or higher isolation
-				lock.release();
+				try {
+					lock.release();
+				} finally {
+					releaseSnapshot(snapshot);
+				}
 			}
 		}
 
@@ -637,7 +1059,7 @@ class MemorySailStore implements SailStore {
 			// ConcurrentModificationException's (issue SES-544).
 
 			// Create a list of all resources that are used as contexts
-			ArrayList<MemResource> contextIDs = new ArrayList<>(32);
+			Set<MemResource> contextIDs = new LinkedHashSet<>(32);
 
 			Lock stLock = openStatementsReadLock();
 			try {
@@ -659,6 +1081,11 @@ class MemorySailStore implements SailStore {
 				stLock.release();
 			}
 
+			ContextSpillManager spilled = spillManager;
+			if (spilled != null && !resident) {
+				contextIDs.addAll(spilled.getSpilledContexts(explicit));
+			}
+
 			return new CloseableIteratorIteration<>(contextIDs.iterator());
 		}
 
@@ -670,7 +1097,12 @@ class MemorySailStore implements SailStore {
 			boolean allGood = false;
 			Lock stLock = openStatementsReadLock();
 			try {
-				stIter1 = createStatementIterator(subj, pred, obj, explicit, getCurrentSnapshot(), contexts);
+				if (resident) {
+					stIter1 = createResidentStatementIterator(subj, pred, obj, explicit, getCurrentSnapshot(),
+							contexts);
+				} else {
+					stIter1 = createStatementIterator(subj, pred, obj, explicit, getCurrentSnapshot(), contexts);
+				}
 				stIter2 = new LockingIteration<Statement, SailException>(stLock, stIter1);
 				allGood = true;
 				return stIter2;
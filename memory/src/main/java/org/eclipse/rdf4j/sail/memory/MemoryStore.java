@@ -9,26 +9,32 @@ package org.eclipse.rdf4j.sail.memory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import org.eclipse.rdf4j.IsolationLevels;
 import org.eclipse.rdf4j.common.concurrent.locks.Lock;
+import org.eclipse.rdf4j.common.io.FileUtil;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategyFactory;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolverClient;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.DynamicProgrammingJoinOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategyFactory;
 import org.eclipse.rdf4j.repository.sparql.federation.SPARQLServiceResolver;
 import org.eclipse.rdf4j.sail.NotifyingSailConnection;
 import org.eclipse.rdf4j.sail.SailChangedEvent;
 import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.base.QueryPlanCache;
+import org.eclipse.rdf4j.sail.base.QueryResultCache;
 import org.eclipse.rdf4j.sail.base.SailDataset;
 import org.eclipse.rdf4j.sail.base.SailSink;
 import org.eclipse.rdf4j.sail.base.SailStore;
 import org.eclipse.rdf4j.sail.helpers.AbstractNotifyingSail;
 import org.eclipse.rdf4j.sail.helpers.DirectoryLockManager;
+import org.eclipse.rdf4j.sail.memory.model.MemResource;
 
 /**
  * An implementation of the Sail interface that stores its data in main memory and that can use a file for persistent
@@ -53,6 +59,12 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 
 	protected static final String SYNC_FILE_NAME = "memorystore.sync";
 
+	protected static final String JOURNAL_FILE_NAME = "memorystore.journal";
+
+	protected static final String ROTATED_JOURNAL_FILE_NAME = "memorystore.journal.old";
+
+	protected static final String SPILL_DIR_NAME = "spill";
+
 	/*-----------*
 	 * Variables *
 	 *-----------*/
@@ -60,7 +72,7 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 	/**
 	 * Factory/cache for MemValue objects.
 	 */
-	private SailStore store;
+	private MemorySailStore store;
 
 	private volatile boolean persist = false;
 
@@ -74,6 +86,45 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 	 */
 	private volatile File syncFile;
 
+	/**
+	 * The journal of changes since the last sync, null if this is a volatile RDF store or journaling is disabled.
+	 */
+	private volatile FileJournal journal;
+
+	/**
+	 * Flag indicating whether committed changes are appended to a journal instead of rewriting the data file.
+	 */
+	private volatile boolean journaling = false;
+
+	/**
+	 * The journal size (in bytes) that triggers a compaction into the data file.
+	 *
+	 * @see #setJournalCompactionThreshold
+	 */
+	private volatile long journalCompactionThreshold = 64L * 1024 * 1024;
+
+	/**
+	 * Flag indicating whether a journal compaction is currently scheduled on the {@link #syncTimer}.
+	 */
+	private volatile boolean compactionScheduled;
+
+	/**
+	 * Receives statistics of the snapshot cleanup, may be null.
+	 */
+	private volatile SnapshotCleanupListener snapshotCleanupListener;
+
+	/**
+	 * The maximum heap usage (in bytes) before named contexts are spilled to disk, 0 if unlimited.
+	 *
+	 * @see #setMemoryBudget
+	 */
+	private volatile long memoryBudget = 0L;
+
+	/**
+	 * Spills named contexts to disk when the memory budget is exceeded, null if the memory budget is unlimited.
+	 */
+	private volatile ContextSpillManager spillManager;
+
 	/**
 	 * The directory lock, null if this is read-only or a volatile RDF store.
 	 */
@@ -113,6 +164,18 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 
 	private EvaluationStrategyFactory evalStratFactory;
 
+	/**
+	 * The cache of optimized query plans, or <tt>null</tt> if query plans are not cached.
+	 */
+	private volatile QueryPlanCache queryPlanCache;
+
+	/**
+	 * The cache of query results, or <tt>null</tt> if query results are not cached.
+	 */
+	private volatile QueryResultCache queryResultCache;
+
+	private volatile int maxJoinEnumerationSize;
+
 	/** independent life cycle */
 	private FederatedServiceResolver serviceResolver;
 
@@ -190,6 +253,183 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 		return syncDelay;
 	}
 
+	/**
+	 * Enables or disables the journal. When enabled, the changes of each committed transaction are appended to a
+	 * journal file in the data directory, instead of rewriting the entire data file on every sync. The journal is
+	 * folded into the data file in the background once it exceeds the {@link #setJournalCompactionThreshold compaction
+	 * threshold}, and when the store is shut down. The journal is replayed on top of the data file upon initialization.
+	 * <p>
+	 * The default value for this parameter is <tt>false</tt>.
+	 *
+	 * @param journaling <tt>true</tt> to journal committed changes.
+	 */
+	public void setJournal(boolean journaling) {
+		if (isInitialized()) {
+			throw new IllegalStateException("sail has already been initialized");
+		}
+
+		this.journaling = journaling;
+	}
+
+	public boolean getJournal() {
+		return journaling;
+	}
+
+	/**
+	 * Sets the size (in bytes) that the journal may reach before it is compacted into the data file. Compaction is
+	 * subject to the {@link #setSyncDelay sync delay}: a negative sync delay postpones it until the Sail is shut down.
+	 * <p>
+	 * The default value for this parameter is 64MB.
+	 *
+	 * @param journalCompactionThreshold The compaction threshold in bytes.
+	 */
+	public void setJournalCompactionThreshold(long journalCompactionThreshold) {
+		this.journalCompactionThreshold = journalCompactionThreshold;
+	}
+
+	public long getJournalCompactionThreshold() {
+		return journalCompactionThreshold;
+	}
+
+	/**
+	 * Sets a listener that is notified after each run of the background cleanup that removes deprecated statements
+	 * from memory, e.g. to monitor how much garbage the store retains and how long cleanup takes.
+	 *
+	 * @param listener The listener, or <tt>null</tt> to remove the current listener.
+	 */
+	public void setSnapshotCleanupListener(SnapshotCleanupListener listener) {
+		this.snapshotCleanupListener = listener;
+		MemorySailStore toSet = store;
+		if (toSet != null) {
+			toSet.setSnapshotCleanupListener(listener);
+		}
+	}
+
+	public SnapshotCleanupListener getSnapshotCleanupListener() {
+		return snapshotCleanupListener;
+	}
+
+	/**
+	 * Sets the heap usage (in bytes) above which the least recently queried named contexts are moved from memory to
+	 * spill files, either in a <tt>spill</tt> subdirectory of the data directory or in a temporary directory. Spilled
+	 * contexts are read back into memory transparently as soon as they are queried or modified. Statements in the
+	 * default context are always kept in memory.
+	 * <p>
+	 * The heap usage is measured for the whole JVM, so the budget should leave room for other applications in the
+	 * same JVM. The default value for this parameter is 0, which means that the memory usage is not limited. Changes
+	 * only take effect when the Sail is initialized.
+	 *
+	 * @param memoryBudget The memory budget in bytes, or 0 for no limit.
+	 */
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Gets the number of times that a named context was queried while its statements were in memory.
+	 */
+	public long getContextHitCount() {
+		ContextSpillManager manager = spillManager;
+		return manager == null ? 0 : manager.getHitCount();
+	}
+
+	/**
+	 * Gets the number of times that the statements of a spilled context had to be read back into memory.
+	 */
+	public long getContextFaultCount() {
+		ContextSpillManager manager = spillManager;
+		return manager == null ? 0 : manager.getFaultCount();
+	}
+
+	/**
+	 * Gets the number of times that the statements of a named context have been spilled to disk.
+	 */
+	public long getContextEvictionCount() {
+		ContextSpillManager manager = spillManager;
+		return manager == null ? 0 : manager.getEvictionCount();
+	}
+
+	/**
+	 * Sets the maximum number of optimized query plans that are kept, so that queries that are evaluated repeatedly,
+	 * possibly with other values for their bindings, are not optimized again each time. The default value for this
+	 * parameter is 0, which means that query plans are not cached.
+	 *
+	 * @param queryPlanCacheSize The maximum number of cached query plans, or 0 to disable the cache.
+	 */
+	public synchronized void setQueryPlanCacheSize(int queryPlanCacheSize) {
+		queryPlanCache = queryPlanCacheSize > 0 ? new QueryPlanCache(queryPlanCacheSize) : null;
+	}
+
+	public int getQueryPlanCacheSize() {
+		QueryPlanCache cache = queryPlanCache;
+		return cache == null ? 0 : cache.getCapacity();
+	}
+
+	/**
+	 * Gets the cache of optimized query plans, which also keeps track of its hit rate.
+	 *
+	 * @return the cache, or <tt>null</tt> if query plans are not cached.
+	 */
+	public QueryPlanCache getQueryPlanCache() {
+		return queryPlanCache;
+	}
+
+	/**
+	 * Sets the estimated number of bytes that the results of queries may use, so that queries that are evaluated
+	 * repeatedly between commits are not evaluated again each time. The results of a single query may use at most a
+	 * quarter of this size. The default value for this parameter is 0, which means that query results are not cached.
+	 *
+	 * @param queryResultCacheSize The estimated number of bytes of the cached query results, or 0 to disable the cache.
+	 */
+	public synchronized void setQueryResultCacheSize(long queryResultCacheSize) {
+		queryResultCache = queryResultCacheSize > 0 ? new QueryResultCache(queryResultCacheSize) : null;
+	}
+
+	public long getQueryResultCacheSize() {
+		QueryResultCache cache = queryResultCache;
+		return cache == null ? 0 : cache.getCapacity();
+	}
+
+	/**
+	 * Gets the cache of query results, which also keeps track of its hit rate.
+	 *
+	 * @return the cache, or <tt>null</tt> if query results are not cached.
+	 */
+	public QueryResultCache getQueryResultCache() {
+		return queryResultCache;
+	}
+
+	/**
+	 * Sets the maximum number of join arguments that are ordered by enumerating all their orders without cartesian
+	 * products, rather than by selecting the join arguments one by one. The default value for this parameter is 0,
+	 * which means that join arguments are always selected one by one.
+	 *
+	 * @param maxJoinEnumerationSize The maximum number of join arguments, at most
+	 *                               {@link DynamicProgrammingJoinOptimizer#MAX_ENUMERATION_SIZE}, or 0 to disable
+	 *                               the enumeration.
+	 * @see DynamicProgrammingJoinOptimizer
+	 */
+	public synchronized void setMaxJoinEnumerationSize(int maxJoinEnumerationSize) {
+		if (maxJoinEnumerationSize > DynamicProgrammingJoinOptimizer.MAX_ENUMERATION_SIZE) {
+			throw new IllegalArgumentException("maximum join enumeration size must not exceed "
+					+ DynamicProgrammingJoinOptimizer.MAX_ENUMERATION_SIZE);
+		}
+		this.maxJoinEnumerationSize = maxJoinEnumerationSize;
+		QueryPlanCache cache = queryPlanCache;
+		if (cache != null) {
+			// plans may have been ordered otherwise
+			cache.clear();
+		}
+	}
+
+	public int getMaxJoinEnumerationSize() {
+		return maxJoinEnumerationSize;
+	}
+
 	/**
 	 * @return Returns the {@link EvaluationStrategy}.
 	 */
@@ -198,6 +438,7 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 			evalStratFactory = new StrictEvaluationStrategyFactory(getFederatedServiceResolver());
 		}
 		evalStratFactory.setQuerySolutionCacheThreshold(getIterationCacheSyncThreshold());
+		evalStratFactory.setQueryMemoryBudget(getQueryMemoryBudget());
 		return evalStratFactory;
 	}
 
@@ -206,6 +447,15 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 	 */
 	public synchronized void setEvaluationStrategyFactory(EvaluationStrategyFactory factory) {
 		evalStratFactory = factory;
+		QueryPlanCache cache = queryPlanCache;
+		if (cache != null) {
+			// plans may have been optimized with the constant folding of the previous strategy
+			cache.clear();
+		}
+		QueryResultCache results = queryResultCache;
+		if (results != null) {
+			results.clear();
+		}
 	}
 
 	/**
@@ -245,6 +495,7 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 		logger.debug("Initializing MemoryStore...");
 
 		this.store = new MemorySailStore(debugEnabled());
+		store.setSnapshotCleanupListener(snapshotCleanupListener);
 
 		if (persist) {
 			File dataDir = getDataDir();
@@ -270,21 +521,12 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 				if (dataFile.length() == 0L) {
 					logger.warn("Ignoring empty data file: {}", dataFile);
 				} else {
-					SailSink explicit = store.getExplicitSailSource().sink(IsolationLevels.NONE);
-					SailSink inferred = store.getInferredSailSource().sink(IsolationLevels.NONE);
 					try {
-						new FileIO(store.getValueFactory()).read(dataFile, explicit, inferred);
+						new FileIO(store.getValueFactory()).read(dataFile, store);
 						logger.debug("Data file read successfully");
 					} catch (IOException e) {
 						logger.error("Failed to read data file", e);
 						throw new SailException(e);
-					} finally {
-						explicit.prepare();
-						explicit.flush();
-						explicit.close();
-						inferred.prepare();
-						inferred.flush();
-						inferred.close();
 					}
 				}
 			} else {
@@ -320,6 +562,12 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 					throw new SailException("Failed to initialize data file " + dataFile, e);
 				}
 			}
+
+			initializeJournal(dataDir);
+		}
+
+		if (memoryBudget > 0) {
+			initializeSpillManager();
 		}
 
 		contentsChanged = false;
@@ -327,6 +575,75 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 		logger.debug("MemoryStore initialized");
 	}
 
+	/**
+	 * Replays any existing journal files on top of the data that was read from the data file and, if the store is
+	 * writable, folds them into the data file and opens an empty journal for subsequent transactions.
+	 */
+	private void initializeJournal(File dataDir) throws SailException {
+		File rotatedFile = new File(dataDir, ROTATED_JOURNAL_FILE_NAME);
+		FileJournal toInitialize = new FileJournal(new File(dataDir, JOURNAL_FILE_NAME), store.getValueFactory());
+
+		boolean replayed = false;
+		SailSink explicit = store.getExplicitSailSource().sink(IsolationLevels.NONE);
+		SailSink inferred = store.getInferredSailSource().sink(IsolationLevels.NONE);
+		try {
+			// a rotated journal is left behind by an interrupted compaction and precedes the current journal
+			replayed |= toInitialize.replay(rotatedFile, explicit, inferred);
+			replayed |= toInitialize.replay(toInitialize.getFile(), explicit, inferred);
+		} catch (IOException e) {
+			logger.error("Failed to read journal", e);
+			throw new SailException(e);
+		} finally {
+			explicit.prepare();
+			explicit.flush();
+			explicit.close();
+			inferred.prepare();
+			inferred.flush();
+			inferred.close();
+		}
+
+		if (!isWritable()) {
+			return;
+		}
+
+		try {
+			if (replayed) {
+				logger.debug("Folding journal into data file...");
+				writeDataFile();
+			}
+			if (rotatedFile.exists() && !rotatedFile.delete()) {
+				throw new IOException("Could not delete " + rotatedFile);
+			}
+			if (journaling) {
+				toInitialize.open();
+				store.setJournal(toInitialize);
+				journal = toInitialize;
+			} else if (toInitialize.getFile().exists() && !toInitialize.getFile().delete()) {
+				throw new IOException("Could not delete " + toInitialize.getFile());
+			}
+		} catch (IOException e) {
+			logger.error("Failed to initialize journal", e);
+			throw new SailException("Failed to initialize journal " + toInitialize.getFile(), e);
+		}
+	}
+
+	private void initializeSpillManager() throws SailException {
+		try {
+			File spillDir;
+			if (persist) {
+				spillDir = new File(getDataDir(), SPILL_DIR_NAME);
+			} else {
+				spillDir = FileUtil.createTempDir("memorystore");
+			}
+			spillManager = new ContextSpillManager(store, spillDir, memoryBudget);
+			store.setContextSpillManager(spillManager);
+			spillManager.checkMemoryBudget();
+		} catch (IOException e) {
+			logger.error("Failed to initialize spill directory", e);
+			throw new SailException(e);
+		}
+	}
+
 	@Override
 	protected void shutDownInternal() throws SailException {
 		try {
@@ -337,6 +654,25 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 			dataFile = null;
 			syncFile = null;
 		} finally {
+			QueryResultCache results = queryResultCache;
+			if (results != null) {
+				// the store may be changed before it is initialized again
+				results.invalidate();
+			}
+			ContextSpillManager toDiscard = spillManager;
+			spillManager = null;
+			if (toDiscard != null) {
+				toDiscard.close();
+			}
+			FileJournal toClose = journal;
+			journal = null;
+			if (toClose != null) {
+				try {
+					toClose.close();
+				} catch (IOException e) {
+					logger.warn("Failed to close journal", e);
+				}
+			}
 			if (dirLock != null) {
 				dirLock.release();
 			}
@@ -382,7 +718,10 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 			return;
 		}
 
-		if (syncDelay == 0L) {
+		if (journal != null) {
+			// committed changes are already in the journal, only compact it when it grows too large
+			scheduleCompactionTask();
+		} else if (syncDelay == 0L) {
 			// Sync immediately
 			sync();
 		} else if (syncDelay > 0L) {
@@ -416,6 +755,42 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 		}
 	}
 
+	/**
+	 * Schedules a background compaction of the journal into the data file if the journal has grown beyond the
+	 * {@link #setJournalCompactionThreshold compaction threshold}. Unlike sync tasks, a scheduled compaction is not
+	 * postponed by new transactions.
+	 */
+	protected void scheduleCompactionTask() {
+		FileJournal toCheck = journal;
+		if (toCheck == null || syncDelay < 0L || toCheck.size() < journalCompactionThreshold) {
+			return;
+		}
+
+		synchronized (syncTimerSemaphore) {
+			if (compactionScheduled) {
+				return;
+			}
+			if (syncTimer == null) {
+				// Create the syncTimer on a deamon thread
+				syncTimer = new Timer("MemoryStore synchronization", true);
+			}
+
+			compactionScheduled = true;
+			syncTimer.schedule(new TimerTask() {
+
+				@Override
+				public void run() {
+					compactionScheduled = false;
+					try {
+						sync();
+					} catch (SailException e) {
+						logger.warn("Unable to compact journal on timer", e);
+					}
+				}
+			}, syncDelay);
+		}
+	}
+
 	protected void cancelSyncTask() {
 		synchronized (syncTimerSemaphore) {
 			if (syncTimerTask != null) {
@@ -431,28 +806,31 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 				syncTimer.cancel();
 				syncTimer = null;
 			}
+			compactionScheduled = false;
 		}
 	}
 
 	/**
 	 * Synchronizes the contents of this repository with the data that is stored on disk. Data will only be written when
-	 * the contents of the repository and data in the file are out of sync.
+	 * the contents of the repository and data in the file are out of sync. If a journal is used, it is folded into the
+	 * data file.
 	 */
 	public void sync() throws SailException {
 		// syncSemaphore prevents concurrent file synchronizations
 		synchronized (syncSemaphore) {
-			if (persist && contentsChanged) {
+			if (persist && journal != null) {
+				// the journal, rather than contentsChanged, tracks the changes that are not in the data file
+				try {
+					compactJournal();
+					contentsChanged = false;
+				} catch (IOException e) {
+					logger.error("Failed to compact journal", e);
+					throw new SailException(e);
+				}
+			} else if (persist && contentsChanged) {
 				logger.debug("syncing data to file...");
 				try {
-					IsolationLevels level = IsolationLevels.SNAPSHOT;
-					SailDataset explicit = store.getExplicitSailSource().dataset(level);
-					SailDataset inferred = store.getInferredSailSource().dataset(level);
-					try {
-						new FileIO(store.getValueFactory()).write(explicit, inferred, syncFile, dataFile);
-					} finally {
-						explicit.close();
-						inferred.close();
-					}
+					writeDataFile();
 					contentsChanged = false;
 					logger.debug("Data synced to file");
 				} catch (IOException e) {
@@ -463,6 +841,113 @@ public class MemoryStore extends AbstractNotifyingSail implements FederatedServi
 		}
 	}
 
+	private void writeDataFile() throws IOException, SailException {
+		ContextSpillManager spilled = store.getContextSpillManager();
+		if (spilled == null) {
+			IsolationLevels level = IsolationLevels.SNAPSHOT;
+			SailDataset explicit = store.getExplicitSailSource().dataset(level);
+			SailDataset inferred = store.getInferredSailSource().dataset(level);
+			try {
+				new FileIO(store.getValueFactory()).write(explicit, inferred, syncFile, dataFile);
+			} finally {
+				explicit.close();
+				inferred.close();
+			}
+			return;
+		}
+
+		// write the spilled contexts from their spill files, rather than reading them back into memory. Contexts may
+		// be spilled and restored while the file is written, as the snapshot and the spill files are acquired together.
+		IsolationLevels level = IsolationLevels.SNAPSHOT;
+		SailDataset explicit = null;
+		SailDataset inferred = null;
+		Map<MemResource, File> spillFiles = null;
+		spilled.lock();
+		try {
+			explicit = store.getResidentSailSource(true).dataset(level);
+			inferred = store.getResidentSailSource(false).dataset(level);
+			spillFiles = spilled.acquireSpillFiles();
+		} finally {
+			spilled.unlock();
+		}
+		try {
+			new FileIO(store.getValueFactory()).write(explicit, inferred, spillFiles, syncFile, dataFile);
+		} finally {
+			releaseDataFileSources(explicit, inferred, spillFiles != null ? spilled : null);
+		}
+	}
+
+	private void releaseDataFileSources(SailDataset explicit, SailDataset inferred, ContextSpillManager spilled) {
+		try {
+			if (spilled != null) {
+				spilled.releaseSpillFiles();
+			}
+		} finally {
+			try {
+				if (explicit != null) {
+					explicit.close();
+				}
+			} finally {
+				if (inferred != null) {
+					inferred.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a new data file from a snapshot that corresponds exactly to the journaled changes, and discards those
+	 * changes from the journal. Transactions are only blocked while the journal is rotated.
+	 */
+	private void compactJournal() throws IOException, SailException {
+		FileJournal toCompact = journal;
+		File rotatedFile = new File(dataFile.getParentFile(), ROTATED_JOURNAL_FILE_NAME);
+		ContextSpillManager spilled = store.getContextSpillManager();
+		IsolationLevels level = IsolationLevels.SNAPSHOT;
+		SailDataset explicit = null;
+		SailDataset inferred = null;
+		Map<MemResource, File> spillFiles = null;
+		try {
+			store.lockTransactions();
+			try {
+				if (toCompact.isEmpty()) {
+					return;
+				}
+				logger.debug("compacting journal into data file...");
+				toCompact.rotate(rotatedFile);
+				if (spilled == null) {
+					explicit = store.getExplicitSailSource().dataset(level);
+					inferred = store.getInferredSailSource().dataset(level);
+				} else {
+					// the snapshot and the spill files that complement it are acquired together
+					spilled.lock();
+					try {
+						explicit = store.getResidentSailSource(true).dataset(level);
+						inferred = store.getResidentSailSource(false).dataset(level);
+						spillFiles = spilled.acquireSpillFiles();
+					} finally {
+						spilled.unlock();
+					}
+				}
+			} finally {
+				store.unlockTransactions();
+			}
+
+			if (spillFiles == null) {
+				new FileIO(store.getValueFactory()).write(explicit, inferred, syncFile, dataFile);
+			} else {
+				new FileIO(store.getValueFactory()).write(explicit, inferred, spillFiles, syncFile, dataFile);
+			}
+		} finally {
+			releaseDataFileSources(explicit, inferred, spillFiles != null ? spilled : null);
+		}
+
+		if (!rotatedFile.delete()) {
+			logger.warn("Failed to delete compacted journal {}", rotatedFile);
+		}
+		logger.debug("Journal compacted into data file");
+	}
+
 	SailStore getSailStore() {
 		return store;
 	}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+/**
+ * Receives statistics of the background cleanup that removes deprecated statements from a {@link MemoryStore}.
+ * Listeners are called on the cleanup thread and should return quickly.
+ *
+ * @see MemoryStore#setSnapshotCleanupListener(SnapshotCleanupListener)
+ */
+public interface SnapshotCleanupListener {
+
+	/**
+	 * Called after each cleanup run.
+	 *
+	 * @param snapshot          the snapshot up to which deprecated statements have been removed, i.e. the oldest
+	 *                          snapshot that was still in use by a reader or the current snapshot.
+	 * @param removedStatements the number of statements that have been removed from the store.
+	 * @param cleanedLists      the number of subject, predicate, object and context statement lists that have been
+	 *                          compacted.
+	 * @param durationNanos     the time the cleanup run took, in nanoseconds.
+	 */
+	void snapshotsCleaned(int snapshot, int removedStatements, int cleanedLists, long durationNanos);
+}
@@ -7,6 +7,8 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.memory.config;
 
+import static org.eclipse.rdf4j.sail.memory.config.MemoryStoreSchema.JOURNAL;
+import static org.eclipse.rdf4j.sail.memory.config.MemoryStoreSchema.MEMORY_BUDGET;
 import static org.eclipse.rdf4j.sail.memory.config.MemoryStoreSchema.NAMESPACE;
 import static org.eclipse.rdf4j.sail.memory.config.MemoryStoreSchema.PERSIST;
 import static org.eclipse.rdf4j.sail.memory.config.MemoryStoreSchema.SYNC_DELAY;
@@ -29,6 +31,10 @@ public class MemoryStoreConfig extends BaseSailConfig {
 
 	private long syncDelay = 0L;
 
+	private boolean journal = false;
+
+	private long memoryBudget = 0L;
+
 	public MemoryStoreConfig() {
 		super(MemoryStoreFactory.SAIL_TYPE);
 	}
@@ -59,6 +65,22 @@ public class MemoryStoreConfig extends BaseSailConfig {
 		this.syncDelay = syncDelay;
 	}
 
+	public boolean getJournal() {
+		return journal;
+	}
+
+	public void setJournal(boolean journal) {
+		this.journal = journal;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
 	@Override
 	public Resource export(Model graph) {
 		Resource implNode = super.export(graph);
@@ -72,6 +94,14 @@ public class MemoryStoreConfig extends BaseSailConfig {
 			graph.add(implNode, SYNC_DELAY, SimpleValueFactory.getInstance().createLiteral(syncDelay));
 		}
 
+		if (journal) {
+			graph.add(implNode, JOURNAL, BooleanLiteral.TRUE);
+		}
+
+		if (memoryBudget != 0) {
+			graph.add(implNode, MEMORY_BUDGET, SimpleValueFactory.getInstance().createLiteral(memoryBudget));
+		}
+
 		return implNode;
 	}
 
@@ -98,6 +128,24 @@ public class MemoryStoreConfig extends BaseSailConfig {
 							"Long integer value required for " + SYNC_DELAY + " property, found " + syncDelayValue);
 				}
 			});
+
+			Models.objectLiteral(graph.filter(implNode, JOURNAL, null)).ifPresent(journalValue -> {
+				try {
+					setJournal((journalValue).booleanValue());
+				} catch (IllegalArgumentException e) {
+					throw new SailConfigException(
+							"Boolean value required for " + JOURNAL + " property, found " + journalValue);
+				}
+			});
+
+			Models.objectLiteral(graph.filter(implNode, MEMORY_BUDGET, null)).ifPresent(memoryBudgetValue -> {
+				try {
+					setMemoryBudget((memoryBudgetValue).longValue());
+				} catch (NumberFormatException e) {
+					throw new SailConfigException("Long integer value required for " + MEMORY_BUDGET
+							+ " property, found " + memoryBudgetValue);
+				}
+			});
 		} catch (ModelException e) {
 			throw new SailConfigException(e.getMessage(), e);
 		}
@@ -29,9 +29,17 @@ public class MemoryStoreSchema {
 	/** <tt>http://www.openrdf.org/config/sail/memory#syncDelay</tt> */
 	public final static IRI SYNC_DELAY;
 
+	/** <tt>http://www.openrdf.org/config/sail/memory#journal</tt> */
+	public final static IRI JOURNAL;
+
+	/** <tt>http://www.openrdf.org/config/sail/memory#memoryBudget</tt> */
+	public final static IRI MEMORY_BUDGET;
+
 	static {
 		ValueFactory factory = SimpleValueFactory.getInstance();
 		PERSIST = factory.createIRI(NAMESPACE, "persist");
 		SYNC_DELAY = factory.createIRI(NAMESPACE, "syncDelay");
+		JOURNAL = factory.createIRI(NAMESPACE, "journal");
+		MEMORY_BUDGET = factory.createIRI(NAMESPACE, "memoryBudget");
 	}
 }
@@ -51,6 +51,16 @@ public class MemIRI implements IRI, MemResource {
 	 */
 	transient private volatile MemStatementList predicateStatements = null;
 
+	/**
+	 * The estimated number of distinct subjects of the current statements for which this MemURI is the predicate.
+	 */
+	transient private volatile MemValueCounter predicateSubjects = null;
+
+	/**
+	 * The estimated number of distinct objects of the current statements for which this MemURI is the predicate.
+	 */
+	transient private volatile MemValueCounter predicateObjects = null;
+
 	/**
 	 * The list of statements for which this MemURI is the object.
 	 */
@@ -214,15 +224,53 @@ public class MemIRI implements IRI, MemResource {
 		}
 	}
 
+	/**
+	 * Gets the number of Statements for which this MemURI is the predicate, not counting deprecated statements. Unlike
+	 * {@link #getPredicateStatementCount()}, this count is consistent with {@link #getPredicateSubjectCount()} and
+	 * {@link #getPredicateObjectCount()}.
+	 * 
+	 * @return An integer larger than or equal to 0.
+	 */
+	public int getCurrentPredicateStatementCount() {
+		MemValueCounter counter = predicateSubjects;
+		return counter == null ? 0 : counter.getCount();
+	}
+
+	/**
+	 * Gets the estimated number of distinct subjects of the Statements for which this MemURI is the predicate, not
+	 * counting deprecated statements.
+	 * 
+	 * @return An integer larger than or equal to 0.
+	 */
+	public int getPredicateSubjectCount() {
+		MemValueCounter counter = predicateSubjects;
+		return counter == null ? 0 : counter.getDistinctCount();
+	}
+
+	/**
+	 * Gets the estimated number of distinct objects of the Statements for which this MemURI is the predicate, not
+	 * counting deprecated statements.
+	 * 
+	 * @return An integer larger than or equal to 0.
+	 */
+	public int getPredicateObjectCount() {
+		MemValueCounter counter = predicateObjects;
+		return counter == null ? 0 : counter.getDistinctCount();
+	}
+
 	/**
 	 * Adds a statement to this MemURI's list of statements for which it is the predicate.
 	 */
 	public void addPredicateStatement(MemStatement st) {
 		if (predicateStatements == null) {
+			predicateSubjects = new MemValueCounter();
+			predicateObjects = new MemValueCounter();
 			predicateStatements = new MemStatementList(4);
 		}
 
 		predicateStatements.add(st);
+		predicateSubjects.add(st.getSubject());
+		predicateObjects.add(st.getObject());
 	}
 
 	/**
@@ -230,9 +278,27 @@ public class MemIRI implements IRI, MemResource {
 	 */
 	public void removePredicateStatement(MemStatement st) {
 		predicateStatements.remove(st);
+		if (st.getTillSnapshot() == Integer.MAX_VALUE) {
+			removePredicateStatistics(st);
+		}
 
 		if (predicateStatements.isEmpty()) {
 			predicateStatements = null;
+			predicateSubjects = null;
+			predicateObjects = null;
+		}
+	}
+
+	/**
+	 * Updates the distinct subject and object counts of this MemURI for a statement for which it is the predicate and
+	 * that is deprecated, see {@link MemStatement#setTillSnapshot(int)}.
+	 */
+	public void removePredicateStatistics(MemStatement st) {
+		MemValueCounter subjects = predicateSubjects;
+		MemValueCounter objects = predicateObjects;
+		if (subjects != null && objects != null) {
+			subjects.remove(st.getSubject());
+			objects.remove(st.getObject());
 		}
 	}
 
@@ -248,6 +314,8 @@ public class MemIRI implements IRI, MemResource {
 
 			if (predicateStatements.isEmpty()) {
 				predicateStatements = null;
+				predicateSubjects = null;
+				predicateObjects = null;
 			}
 		}
 	}
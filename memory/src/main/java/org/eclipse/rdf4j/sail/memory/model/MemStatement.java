@@ -95,7 +95,14 @@ public class MemStatement extends ContextStatement {
 		return sinceSnapshot;
 	}
 
+	/**
+	 * Sets the snapshot in which this statement is revoked. Once a statement is revoked, it no longer counts for the
+	 * statistics of its predicate.
+	 */
 	public void setTillSnapshot(int snapshot) {
+		if (tillSnapshot == Integer.MAX_VALUE && snapshot != Integer.MAX_VALUE) {
+			getPredicate().removePredicateStatistics(this);
+		}
 		tillSnapshot = snapshot;
 	}
 
@@ -22,9 +22,9 @@ public class MemStatementIterator<X extends Exception> extends LookAheadIteratio
 	 *-----------*/
 
 	/**
-	 * The lists of statements over which to iterate.
+	 * The statements over which to iterate, obtained from a {@link MemStatementList} upon creation of this iterator.
 	 */
-	private final MemStatementList statementList;
+	private final MemStatement[] statements;
 
 	/**
 	 * The subject of statements to return, or null if any subject is OK.
@@ -79,7 +79,7 @@ public class MemStatementIterator<X extends Exception> extends LookAheadIteratio
 	 */
 	public MemStatementIterator(MemStatementList statementList, MemResource subject, MemIRI predicate, MemValue object,
 			Boolean explicit, int snapshot, MemResource... contexts) {
-		this.statementList = statementList;
+		this.statements = statementList.getStatements();
 		this.subject = subject;
 		this.predicate = predicate;
 		this.object = object;
@@ -95,17 +95,21 @@ public class MemStatementIterator<X extends Exception> extends LookAheadIteratio
 	 *---------*/
 
 	/**
-	 * Searches through statementList, starting from index <tt>_nextStatementIdx + 1</tt>, for statements that match the
+	 * Searches through the statements, starting from index <tt>_nextStatementIdx + 1</tt>, for statements that match the
 	 * constraints that have been set for this iterator. If a matching statement has been found it will be stored in
 	 * <tt>_nextStatement</tt> and <tt>_nextStatementIdx</tt> points to the index of this statement in
-	 * <tt>_statementList</tt>. Otherwise, <tt>_nextStatement</tt> will set to <tt>null</tt>.
+	 * the statements. Otherwise, <tt>_nextStatement</tt> will set to <tt>null</tt>.
 	 */
 	@Override
 	protected MemStatement getNextElement() {
 		statementIdx++;
 
-		for (; statementIdx < statementList.size(); statementIdx++) {
-			MemStatement st = statementList.get(statementIdx);
+		for (; statementIdx < statements.length; statementIdx++) {
+			MemStatement st = statements[statementIdx];
+			if (st == null) {
+				// end of the list
+				break;
+			}
 
 			if (isInSnapshot(st) && (subject == null || subject == st.getSubject())
 					&& (predicate == null || predicate == st.getPredicate())
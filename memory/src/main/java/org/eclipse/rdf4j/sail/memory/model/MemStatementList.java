@@ -8,10 +8,19 @@
 package org.eclipse.rdf4j.sail.memory.model;
 
 import java.util.Arrays;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * A dedicated data structure for storing MemStatement objects, offering operations optimized for their use in the
  * memory Sail.
+ * <p>
+ * Statements are only ever appended to the array that backs this list. All other modifications copy the remaining
+ * statements into a new array, which then atomically replaces the current one. As a result, a backing array obtained
+ * through {@link #getStatements()} can safely be iterated while this list is being modified concurrently.
+ * <p>
+ * As every removal copies the backing array, statements should be removed in batches, e.g. with
+ * {@link #removeAll(Set)} or {@link #cleanSnapshots(int)}, rather than one at a time.
  */
 public class MemStatementList {
 
@@ -23,6 +32,12 @@ public class MemStatementList {
 
 	private volatile int size;
 
+	/**
+	 * Incremented on every modification other than an append, to detect concurrent removals during
+	 * {@link #cleanSnapshots(int)}.
+	 */
+	private int modificationCount;
+
 	/*--------------*
 	 * Constructors *
 	 *--------------*/
@@ -63,7 +78,16 @@ public class MemStatementList {
 		return statements[index];
 	}
 
-	public void add(MemStatement st) {
+	/**
+	 * Returns the array that currently backs this list. The statements in this list are stored at the start of the
+	 * array, followed by <tt>null</tt> entries. Statements that are added to this list later on may or may not appear
+	 * in the returned array, but the statements in it are never removed or reordered.
+	 */
+	public MemStatement[] getStatements() {
+		return statements;
+	}
+
+	public synchronized void add(MemStatement st) {
 		if (size == statements.length) {
 			// Grow array
 			growArray((size == 0) ? 1 : 2 * size);
@@ -73,69 +97,116 @@ public class MemStatementList {
 		++size;
 	}
 
-	public void addAll(MemStatementList other) {
-		if (size + other.size >= statements.length) {
+	public synchronized void addAll(MemStatementList other) {
+		MemStatement[] otherStatements;
+		int otherSize;
+		synchronized (other) {
+			otherStatements = other.statements;
+			otherSize = other.size;
+		}
+
+		if (size + otherSize >= statements.length) {
 			// Grow array
-			growArray(size + other.size);
+			growArray(size + otherSize);
 		}
 
-		System.arraycopy(other.statements, 0, statements, size, other.size);
-		size += other.size;
+		System.arraycopy(otherStatements, 0, statements, size, otherSize);
+		size += otherSize;
 	}
 
 	public void remove(int index) {
 		assert index >= 0 : "index < 0";
 		assert index < size : "index >= size";
 
-		if (index == size - 1) {
-			// Last statement in array
-			statements[index] = null;
-			--size;
-		} else {
-			// Not last statement in array, move last
-			// statement over the one at [index]
-			--size;
-			statements[index] = statements[size];
-			statements[size] = null;
-		}
+		MemStatement st = statements[index];
+		removeIf(other -> other == st);
 	}
 
 	public void remove(MemStatement st) {
-		for (int i = 0; i < size; ++i) {
-			if (statements[i] == st) {
-				remove(i);
-				return;
-			}
-		}
+		removeIf(other -> other == st);
+	}
+
+	/**
+	 * Removes the supplied statements from this list, copying the remaining statements into a new array only once.
+	 * 
+	 * @return the number of statements that have been removed.
+	 */
+	public int removeAll(Set<MemStatement> toRemove) {
+		return removeIf(toRemove::contains);
 	}
 
-	public void clear() {
-		Arrays.fill(statements, 0, size, null);
+	public synchronized void clear() {
+		modificationCount++;
+		statements = new MemStatement[statements.length];
 		size = 0;
 	}
 
-	public void cleanSnapshots(int currentSnapshot) {
-		int i = size - 1;
+	/**
+	 * Removes all statements that have been deprecated in or before the supplied snapshot.
+	 * 
+	 * @return the number of statements that have been removed.
+	 */
+	public int cleanSnapshots(int currentSnapshot) {
+		return removeIf(st -> st.getTillSnapshot() <= currentSnapshot);
+	}
+
+	/**
+	 * Removes all statements that match the supplied filter. The remaining statements are copied into a new array
+	 * without holding this list's lock; only statements that have been appended in the meantime are copied while
+	 * holding it.
+	 * 
+	 * @return the number of statements that have been removed.
+	 */
+	private int removeIf(Predicate<MemStatement> filter) {
+		while (true) {
+			MemStatement[] current;
+			int currentSize;
+			int currentModificationCount;
+			synchronized (this) {
+				current = statements;
+				currentSize = size;
+				currentModificationCount = modificationCount;
+			}
+
+			int remaining = 0;
+			for (int i = 0; i < currentSize; i++) {
+				if (!filter.test(current[i])) {
+					remaining++;
+				}
+			}
+			if (remaining == currentSize) {
+				// nothing to remove
+				return 0;
+			}
 
-		// remove all deprecated statements from the end of the list
-		for (; i >= 0; i--) {
-			if (statements[i].getTillSnapshot() <= currentSnapshot) {
-				--size;
-				statements[i] = null;
-			} else {
-				i--;
-				break;
+			MemStatement[] compacted = new MemStatement[remaining + (remaining >> 2) + 1];
+			int compactedSize = 0;
+			for (int i = 0; i < currentSize; i++) {
+				MemStatement st = current[i];
+				if (!filter.test(st)) {
+					compacted[compactedSize++] = st;
+				}
 			}
-		}
 
-		// remove all deprecated statements that are not at the end of the list
-		for (; i >= 0; i--) {
-			if (statements[i].getTillSnapshot() <= currentSnapshot) {
-				// replace statement with last statement in the list
-				--size;
-				statements[i] = statements[size];
-				statements[size] = null;
+			synchronized (this) {
+				if (modificationCount != currentModificationCount) {
+					// statements have been removed concurrently, start over
+					continue;
+				}
+
+				// copy the statements that have been appended in the meantime
+				int appended = size - currentSize;
+				if (compactedSize + appended > compacted.length) {
+					compacted = Arrays.copyOf(compacted, compactedSize + appended + 1);
+				}
+				System.arraycopy(statements, currentSize, compacted, compactedSize, appended);
+
+				modificationCount++;
+				statements = compacted;
+				size = compactedSize + appended;
 			}
+
+			return currentSize - compactedSize;
 		}
 	}
 
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory.model;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Estimates the number of distinct MemValues in a multiset of values, e.g. the subjects of the statements of a
+ * predicate, in bounded memory. The counter keeps the multiplicities of a sample of the distinct values: those of which
+ * the lowest <tt>level</tt> bits of the hash code are zero. When the sample exceeds its capacity, the level is raised,
+ * which halves the expected size of the sample. As the multiplicities of the sampled values are exact, values can be
+ * removed as well as added. The number of distinct values is estimated as the size of the sample times
+ * <tt>2<sup>level</sup></tt>, which is exact as long as the level is zero.
+ */
+public class MemValueCounter {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private static final int MAX_LEVEL = 30;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	private final int capacity;
+
+	/**
+	 * The number of occurrences of the sampled values. Values are compared by identity, as MemValues are unique within
+	 * the MemValueFactory that created them.
+	 */
+	private final Map<MemValue, int[]> sample = new IdentityHashMap<>();
+
+	private int level;
+
+	private volatile int count;
+
+	private volatile int distinctCount;
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public MemValueCounter() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of distinct values that are kept in the sample.
+	 */
+	public MemValueCounter(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	/**
+	 * Gets the exact number of values, including duplicates, that have been added to this counter and not been removed
+	 * since.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the estimated number of distinct values that have been added to this counter and not been removed since.
+	 */
+	public int getDistinctCount() {
+		return distinctCount;
+	}
+
+	public synchronized void add(MemValue value) {
+		count++;
+		if (!isSampled(value, level)) {
+			return;
+		}
+		int[] count = sample.get(value);
+		if (count == null) {
+			sample.put(value, new int[] { 1 });
+			while (sample.size() > capacity && level < MAX_LEVEL) {
+				raiseLevel();
+			}
+			updateDistinctCount();
+		} else {
+			count[0]++;
+		}
+	}
+
+	public synchronized void remove(MemValue value) {
+		count--;
+		if (!isSampled(value, level)) {
+			return;
+		}
+		int[] count = sample.get(value);
+		if (count != null && --count[0] == 0) {
+			sample.remove(value);
+			updateDistinctCount();
+		}
+	}
+
+	/**
+	 * Halves the sampling rate, dropping the values of the sample that are not sampled at the new level.
+	 */
+	private void raiseLevel() {
+		level++;
+		Iterator<MemValue> iter = sample.keySet().iterator();
+		while (iter.hasNext()) {
+			if (!isSampled(iter.next(), level)) {
+				iter.remove();
+			}
+		}
+	}
+
+	private void updateDistinctCount() {
+		distinctCount = (int) Math.min((long) sample.size() << level, Integer.MAX_VALUE);
+	}
+
+	private static boolean isSampled(MemValue value, int level) {
+		return (mix(value.hashCode()) & ((1 << level) - 1)) == 0;
+	}
+
+	/**
+	 * Spreads the bits of a hash code, so that the lowest bits of the hash codes of similar values are independent.
+	 */
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
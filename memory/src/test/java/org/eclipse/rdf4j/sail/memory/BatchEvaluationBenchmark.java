@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.BatchEvaluationStrategyFactory;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategyFactory;
+import org.eclipse.rdf4j.query.algebra.helpers.TupleExprs;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the evaluation of the same basic graph patterns with the {@link StrictEvaluationStrategyFactory strict}
+ * and the {@link BatchEvaluationStrategyFactory batch} evaluation strategy.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@BenchmarkMode({ Mode.AverageTime })
+@Fork(value = 1, jvmArgs = { "-Xms2G", "-Xmx2G", "-XX:+UseSerialGC" })
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchEvaluationBenchmark {
+
+	@Param({ "strict", "batch" })
+	public String strategy;
+
+	private MemoryStore store;
+
+	private TupleExpr friendsOfFriends;
+
+	private TupleExpr olderFriends;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		store = new MemoryStore();
+		if ("batch".equals(strategy)) {
+			store.setEvaluationStrategyFactory(new BatchEvaluationStrategyFactory(store.getFederatedServiceResolver()));
+		} else {
+			store.setEvaluationStrategyFactory(
+					new StrictEvaluationStrategyFactory(store.getFederatedServiceResolver()));
+		}
+		store.initialize();
+		ValueFactory vf = store.getValueFactory();
+
+		Random random = new Random(42);
+		try (SailConnection connection = store.getConnection()) {
+			connection.begin();
+			int size = 10000;
+			for (int i = 0; i < size; i++) {
+				IRI subject = vf.createIRI("http://ex/" + i);
+				connection.addStatement(subject, RDF.TYPE, FOAF.PERSON);
+				connection.addStatement(subject, FOAF.AGE, vf.createLiteral(i % 80 + 1));
+				connection.addStatement(subject, FOAF.NAME, vf.createLiteral("person " + i));
+				for (int j = 0; j < 5; j++) {
+					connection.addStatement(subject, FOAF.KNOWS, vf.createIRI("http://ex/" + random.nextInt(size)));
+				}
+			}
+			connection.commit();
+		}
+
+		// ?a foaf:knows ?b . ?b foaf:knows ?c . ?c foaf:name ?name
+		friendsOfFriends = new Join(pattern("a", FOAF.KNOWS, "b"),
+				new Join(pattern("b", FOAF.KNOWS, "c"), pattern("c", FOAF.NAME, "name")));
+
+		// ?a a foaf:Person . ?a foaf:age ?age . ?a foaf:knows ?b . ?b foaf:age ?age2 FILTER (?age2 > ?age)
+		olderFriends = new Filter(
+				new Join(pattern("a", RDF.TYPE, FOAF.PERSON),
+						new Join(pattern("a", FOAF.AGE, "age"),
+								new Join(pattern("a", FOAF.KNOWS, "b"), pattern("b", FOAF.AGE, "age2")))),
+				new Compare(new Var("age2"), new Var("age"), CompareOp.GT));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		store.shutDown();
+	}
+
+	@Benchmark
+	public long friendsOfFriends() {
+		return count(friendsOfFriends);
+	}
+
+	@Benchmark
+	public long olderFriends() {
+		return count(olderFriends);
+	}
+
+	private long count(TupleExpr tupleExpr) {
+		long count = 0;
+		try (SailConnection connection = store.getConnection();
+				CloseableIteration<? extends BindingSet, QueryEvaluationException> result = connection
+						.evaluate(tupleExpr, null, EmptyBindingSet.getInstance(), false);) {
+			while (result.hasNext()) {
+				result.next();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static StatementPattern pattern(String subj, IRI pred, String obj) {
+		return new StatementPattern(new Var(subj), TupleExprs.createConstVar(pred), new Var(obj));
+	}
+
+	private static StatementPattern pattern(String subj, IRI pred, IRI obj) {
+		return new StatementPattern(new Var(subj), TupleExprs.createConstVar(pred), TupleExprs.createConstVar(obj));
+	}
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.eclipse.rdf4j.IsolationLevels;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.base.SailDataset;
+import org.eclipse.rdf4j.sail.base.SailSink;
+import org.eclipse.rdf4j.sail.base.SailStore;
+import org.eclipse.rdf4j.sail.memory.model.MemResource;
+import org.eclipse.rdf4j.sail.memory.model.MemValueFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests a {@link MemoryStore} with a memory budget that is always exceeded, such that all named contexts are spilled
+ * to disk.
+ */
+public class ContextSpillTest {
+
+	private static final String EX_NS = "http://example.org/";
+
+	private static final int CONTEXT_COUNT = 3;
+
+	private static final int STATEMENT_COUNT = 100;
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	@Test
+	public void testSpilledContextsAreFaultedIn() throws Exception {
+		MemoryStore store = new MemoryStore();
+		store.setMemoryBudget(1);
+		store.initialize();
+		try {
+			ValueFactory vf = store.getValueFactory();
+			addStatements(store);
+			awaitEviction(store);
+
+			// the spilled contexts only have explicit statements
+			SailStore sailStore = store.getSailStore();
+			try (SailDataset inferred = sailStore.getInferredSailSource().dataset(IsolationLevels.NONE);) {
+				assertFalse(inferred.getContextIDs().hasNext());
+			}
+			try (SailDataset explicit = sailStore.getExplicitSailSource().dataset(IsolationLevels.NONE);) {
+				assertEquals(CONTEXT_COUNT, Iterations.asList(explicit.getContextIDs()).size());
+			}
+
+			try (SailConnection con = store.getConnection();) {
+				IRI graph = vf.createIRI(EX_NS, "graph0");
+				assertEquals(STATEMENT_COUNT, con.size(graph));
+				assertTrue(store.getContextFaultCount() > 0);
+				assertTrue(con.hasStatement(vf.createIRI(EX_NS, "s1"), RDF.TYPE, RDFS.RESOURCE, false, graph));
+
+				assertEquals(CONTEXT_COUNT, Iterations.asList(con.getContextIDs()).size());
+				assertEquals(CONTEXT_COUNT * STATEMENT_COUNT + 1, con.size());
+			}
+		} finally {
+			store.shutDown();
+		}
+	}
+
+	@Test
+	public void testAddStatementToSpilledContext() throws Exception {
+		MemoryStore store = new MemoryStore();
+		store.setMemoryBudget(1);
+		store.initialize();
+		try {
+			ValueFactory vf = store.getValueFactory();
+			IRI subj = vf.createIRI(EX_NS, "s1");
+			IRI graph = vf.createIRI(EX_NS, "graph0");
+			addStatements(store);
+			awaitEviction(store);
+
+			// wait until the spilled statements have been removed from memory
+			MemResource memGraph = ((MemValueFactory) vf).getMemResource(graph);
+			long deadline = System.currentTimeMillis() + 10000;
+			while (memGraph.getContextStatementCount() > 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(0, memGraph.getContextStatementCount());
+
+			// add a statement that is in the spilled context directly to the store
+			SailSink sink = store.getSailStore().getExplicitSailSource().sink(IsolationLevels.NONE);
+			try {
+				sink.approve(subj, RDF.TYPE, RDFS.RESOURCE, graph);
+				sink.prepare();
+				sink.flush();
+			} finally {
+				sink.close();
+			}
+
+			try (SailConnection con = store.getConnection();) {
+				assertEquals(1,
+						Iterations.asList(con.getStatements(subj, RDF.TYPE, RDFS.RESOURCE, false, graph)).size());
+				assertEquals(STATEMENT_COUNT, con.size(graph));
+			}
+		} finally {
+			store.shutDown();
+		}
+	}
+
+	@Test
+	public void testSpilledContextsArePersisted() throws Exception {
+		File dataDir = tempDir.newFolder();
+		MemoryStore store = new MemoryStore(dataDir);
+		store.setMemoryBudget(1);
+		store.initialize();
+		try {
+			addStatements(store);
+			awaitEviction(store);
+		} finally {
+			store.shutDown();
+		}
+
+		store = new MemoryStore(dataDir);
+		store.initialize();
+		try (SailConnection con = store.getConnection();) {
+			assertEquals(CONTEXT_COUNT * STATEMENT_COUNT + 1, con.size());
+		} finally {
+			store.shutDown();
+		}
+	}
+
+	private void addStatements(MemoryStore store) {
+		ValueFactory vf = store.getValueFactory();
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			con.addStatement(RDF.TYPE, RDF.TYPE, RDF.PROPERTY);
+			for (int c = 0; c < CONTEXT_COUNT; c++) {
+				IRI graph = vf.createIRI(EX_NS, "graph" + c);
+				for (int i = 0; i < STATEMENT_COUNT; i++) {
+					con.addStatement(vf.createIRI(EX_NS, "s" + i), RDF.TYPE, RDFS.RESOURCE, graph);
+				}
+			}
+			con.commit();
+		}
+	}
+
+	private void awaitEviction(MemoryStore store) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (store.getContextEvictionCount() < CONTEXT_COUNT && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(CONTEXT_COUNT, store.getContextEvictionCount());
+	}
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.inferencer.InferencerConnection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Round-trip tests for the chunked data file format written by {@link FileIO}.
+ */
+public class FileIOTest {
+
+	private static final String EX_NS = "http://example.org/";
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	@Test
+	public void testReadWriteChunks() throws Exception {
+		File dataDir = tempDir.newFolder();
+		int count = 20000;
+
+		MemoryStore store = new MemoryStore(dataDir);
+		store.initialize();
+		try {
+			ValueFactory vf = store.getValueFactory();
+			IRI graph = vf.createIRI(EX_NS, "graph");
+			try (SailConnection con = store.getConnection();) {
+				con.begin();
+				con.setNamespace("ex", EX_NS);
+				for (int i = 0; i < count; i++) {
+					IRI subj = vf.createIRI(EX_NS, "s" + i);
+					con.addStatement(subj, RDF.TYPE, RDFS.RESOURCE);
+					con.addStatement(subj, RDFS.LABEL, vf.createLiteral("label " + i, "en"), graph);
+					con.addStatement(subj, RDF.VALUE, vf.createLiteral(String.valueOf(i), XMLSchema.INT));
+				}
+				((InferencerConnection) con).addInferredStatement(vf.createBNode("b"), RDF.TYPE, RDFS.CLASS);
+				con.commit();
+			}
+		} finally {
+			store.shutDown();
+		}
+
+		store = new MemoryStore(dataDir);
+		store.initialize();
+		try {
+			ValueFactory vf = store.getValueFactory();
+			try (SailConnection con = store.getConnection();) {
+				assertEquals(EX_NS, con.getNamespace("ex"));
+				assertEquals(3 * count, con.size());
+				assertEquals(count, con.size(vf.createIRI(EX_NS, "graph")));
+				assertTrue(con.hasStatement(vf.createIRI(EX_NS, "s42"), RDF.VALUE,
+						vf.createLiteral("42", XMLSchema.INT), false));
+				assertTrue(con.hasStatement(vf.createBNode("b"), RDF.TYPE, RDFS.CLASS, true));
+				assertFalse(con.hasStatement(vf.createBNode("b"), RDF.TYPE, RDFS.CLASS, false));
+			}
+		} finally {
+			store.shutDown();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.IsolationLevels;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.memory.model.MemIRI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the estimated numbers of distinct subjects and objects per predicate, and the cardinalities that
+ * {@link MemEvaluationStatistics} derives from them, as statements are added, deprecated and cleaned up.
+ */
+public class MemEvaluationStatisticsTest {
+
+	private static final String EX_NS = "http://example.org/";
+
+	private static final int SUBJECTS = 100;
+
+	private static final int OBJECTS = 10;
+
+	private final BlockingQueue<Integer> removed = new LinkedBlockingQueue<>();
+
+	private MemoryStore store;
+
+	private ValueFactory vf;
+
+	private MemIRI p;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new MemoryStore();
+		store.setSnapshotCleanupListener(
+				(snapshot, removedStatements, cleanedLists, durationNanos) -> removed.add(removedStatements));
+		store.initialize();
+		vf = store.getValueFactory();
+		p = (MemIRI) vf.createIRI(EX_NS, "p");
+		IRI q = vf.createIRI(EX_NS, "q");
+
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			for (int i = 0; i < SUBJECTS; i++) {
+				IRI subj = subject(i);
+				for (int j = 0; j < OBJECTS; j++) {
+					con.addStatement(subj, p, object(j));
+				}
+				// many other statements about the subject
+				for (int k = 0; k < 50; k++) {
+					con.addStatement(subj, q, vf.createLiteral(k));
+				}
+			}
+			con.commit();
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.shutDown();
+	}
+
+	@Test
+	public void testEstimatesAfterAdd() throws Exception {
+		// small numbers of distinct values are counted exactly
+		assertEquals(OBJECTS, p.getPredicateObjectCount());
+		assertBetween(SUBJECTS / 2, SUBJECTS * 2, p.getPredicateSubjectCount());
+
+		// each subject has ten values of p, rather than the fifty values of q
+		assertBetween(5, 20, getCardinality(subject(1), p, null));
+		assertEquals(SUBJECTS, getCardinality(null, p, object(1)), 0.0);
+	}
+
+	@Test
+	public void testEstimatesAfterRemoveAndCleanup() throws Exception {
+		int subjectCount = p.getPredicateSubjectCount();
+
+		try (SailConnection reader = store.getConnection();) {
+			// the reader keeps the deprecated statements from being removed
+			reader.begin(IsolationLevels.SNAPSHOT);
+			try (CloseableIteration<? extends Statement, SailException> iter = reader.getStatements(null, p, null,
+					false);) {
+				assertTrue(iter.hasNext());
+				iter.next();
+
+				try (SailConnection con = store.getConnection();) {
+					con.begin();
+					for (int i = 0; i < SUBJECTS / 2; i++) {
+						con.removeStatements(subject(i), p, null);
+					}
+					con.commit();
+				}
+
+				// the deprecated statements no longer count
+				assertEquals(SUBJECTS * OBJECTS, p.getPredicateStatementCount());
+				assertEquals(SUBJECTS / 2 * OBJECTS, p.getCurrentPredicateStatementCount());
+				assertEquals(OBJECTS, p.getPredicateObjectCount());
+				assertTrue(p.getPredicateSubjectCount() < subjectCount);
+				assertBetween(SUBJECTS / 4, SUBJECTS, p.getPredicateSubjectCount());
+				assertBetween(5, 20, getCardinality(subject(SUBJECTS - 1), p, null));
+				assertEquals(SUBJECTS / 2, getCardinality(null, p, object(1)), 0.0);
+			}
+			reader.commit();
+		}
+
+		int deprecatedCount = p.getPredicateSubjectCount();
+		int total = 0;
+		while (total < SUBJECTS / 2 * OBJECTS) {
+			Integer next = removed.poll(10, TimeUnit.SECONDS);
+			assertTrue("deprecated statements were not removed", next != null);
+			total += next;
+		}
+
+		// the cleanup does not count the deprecated statements again
+		assertEquals(SUBJECTS / 2 * OBJECTS, p.getCurrentPredicateStatementCount());
+		assertEquals(OBJECTS, p.getPredicateObjectCount());
+		assertEquals(deprecatedCount, p.getPredicateSubjectCount());
+		assertBetween(5, 20, getCardinality(subject(SUBJECTS - 1), p, null));
+	}
+
+	private IRI subject(int i) {
+		return vf.createIRI(EX_NS, "s" + i);
+	}
+
+	private IRI object(int j) {
+		return vf.createIRI(EX_NS, "o" + j);
+	}
+
+	private double getCardinality(IRI subj, IRI pred, Value obj) {
+		StatementPattern sp = new StatementPattern(new Var("s", subj), new Var("p", pred), new Var("o", obj));
+		return store.getSailStore().getEvaluationStatistics().getCardinality(sp);
+	}
+
+	private void assertBetween(double min, double max, double actual) {
+		assertTrue(actual + " is not between " + min + " and " + max, min <= actual && actual <= max);
+	}
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests persistence of a {@link MemoryStore} that journals its changes.
+ */
+public class MemoryStoreJournalTest {
+
+	private static final String EX_NS = "http://example.org/";
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	private File dataDir;
+
+	private MemoryStore store;
+
+	private ValueFactory vf;
+
+	private IRI bob;
+
+	private IRI alice;
+
+	private IRI graph;
+
+	@Before
+	public void setUp() throws Exception {
+		dataDir = tempDir.newFolder("memory");
+		store = createStore(dataDir);
+		vf = store.getValueFactory();
+		bob = vf.createIRI(EX_NS, "bob");
+		alice = vf.createIRI(EX_NS, "alice");
+		graph = vf.createIRI(EX_NS, "graph");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.shutDown();
+	}
+
+	@Test
+	public void testCommitAppendsToJournal() throws Exception {
+		File dataFile = new File(dataDir, MemoryStore.DATA_FILE_NAME);
+		File journalFile = new File(dataDir, MemoryStore.JOURNAL_FILE_NAME);
+		long dataFileLength = dataFile.length();
+		long journalLength = journalFile.length();
+
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			con.addStatement(bob, RDF.TYPE, RDFS.RESOURCE);
+			con.commit();
+		}
+
+		assertEquals(dataFileLength, dataFile.length());
+		assertTrue(journalFile.length() > journalLength);
+	}
+
+	@Test
+	public void testReplayJournalAfterCrash() throws Exception {
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			con.setNamespace("ex", EX_NS);
+			con.addStatement(bob, RDF.TYPE, RDFS.RESOURCE);
+			con.addStatement(alice, RDF.TYPE, RDFS.RESOURCE, graph);
+			con.commit();
+			con.begin();
+			con.removeStatements(bob, null, null);
+			con.commit();
+		}
+
+		// simulate a crash by copying the files of the running store
+		File crashDir = tempDir.newFolder("crash");
+		for (String name : new String[] { MemoryStore.DATA_FILE_NAME, MemoryStore.JOURNAL_FILE_NAME }) {
+			Files.copy(new File(dataDir, name).toPath(), new File(crashDir, name).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		MemoryStore recovered = createStore(crashDir);
+		try (SailConnection con = recovered.getConnection();) {
+			assertEquals(EX_NS, con.getNamespace("ex"));
+			assertFalse(con.hasStatement(bob, RDF.TYPE, RDFS.RESOURCE, false));
+			assertTrue(con.hasStatement(alice, RDF.TYPE, RDFS.RESOURCE, false, graph));
+			assertEquals(1, con.size());
+		} finally {
+			recovered.shutDown();
+		}
+	}
+
+	@Test
+	public void testIgnoreUncommittedTransaction() throws Exception {
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			con.addStatement(alice, RDF.TYPE, RDFS.RESOURCE);
+			con.commit();
+		}
+
+		File crashDir = tempDir.newFolder("crash");
+		for (String name : new String[] { MemoryStore.DATA_FILE_NAME, MemoryStore.JOURNAL_FILE_NAME }) {
+			Files.copy(new File(dataDir, name).toPath(), new File(crashDir, name).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		// simulate a crash after the explicit changes of a transaction were appended, but before it was committed
+		File journalFile = new File(crashDir, MemoryStore.JOURNAL_FILE_NAME);
+		FileJournal.Transaction txn = new FileJournal(journalFile, vf).createTransaction();
+		txn.approve(true, bob, RDF.TYPE, RDFS.RESOURCE, null);
+		byte[] block = txn.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(block, 0, block.length);
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile, true));) {
+			out.writeInt(block.length);
+			out.write(block);
+			out.writeLong(crc.getValue());
+		}
+
+		MemoryStore recovered = createStore(crashDir);
+		try (SailConnection con = recovered.getConnection();) {
+			assertTrue(con.hasStatement(alice, RDF.TYPE, RDFS.RESOURCE, false));
+			assertFalse(con.hasStatement(bob, RDF.TYPE, RDFS.RESOURCE, false));
+		} finally {
+			recovered.shutDown();
+		}
+	}
+
+	@Test
+	public void testCompactionOnShutDown() throws Exception {
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			con.addStatement(bob, RDF.TYPE, RDFS.RESOURCE);
+			con.addStatement(alice, RDF.TYPE, RDFS.RESOURCE, graph);
+			con.commit();
+			con.begin();
+			con.clear(graph);
+			con.commit();
+		}
+		store.shutDown();
+
+		File journalFile = new File(dataDir, MemoryStore.JOURNAL_FILE_NAME);
+		assertTrue(journalFile.length() <= 5);
+
+		store = createStore(dataDir);
+		try (SailConnection con = store.getConnection();) {
+			assertTrue(con.hasStatement(bob, RDF.TYPE, RDFS.RESOURCE, false));
+			assertFalse(con.hasStatement(alice, RDF.TYPE, RDFS.RESOURCE, false));
+		}
+	}
+
+	@Test
+	public void testCompactionThreshold() throws Exception {
+		store.setJournalCompactionThreshold(0L);
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			con.addStatement(bob, RDF.TYPE, RDFS.RESOURCE);
+			con.commit();
+		}
+
+		File rotatedFile = new File(dataDir, MemoryStore.ROTATED_JOURNAL_FILE_NAME);
+		File journalFile = new File(dataDir, MemoryStore.JOURNAL_FILE_NAME);
+		long deadline = System.currentTimeMillis() + 10000;
+		while ((journalFile.length() > 5 || rotatedFile.exists()) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(5, journalFile.length());
+	}
+
+	private MemoryStore createStore(File dir) {
+		MemoryStore result = new MemoryStore(dir);
+		result.setJournal(true);
+		result.initialize();
+		return result;
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.base.QueryPlanCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests a {@link MemoryStore} that reuses the plans of queries that are evaluated repeatedly.
+ */
+public class QueryPlanCacheTest {
+
+	private static final String EX_NS = "http://example.org/";
+
+	private static final String QUERY = "PREFIX ex: <" + EX_NS + "> SELECT ?s ?n { ?s ex:p ?o; ex:n ?n . "
+			+ "FILTER (?n > 2) } ORDER BY ?s";
+
+	private MemoryStore store;
+
+	private MemoryStore uncached;
+
+	private ValueFactory vf;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new MemoryStore();
+		store.setQueryPlanCacheSize(10);
+		store.initialize();
+		uncached = new MemoryStore();
+		uncached.initialize();
+		vf = store.getValueFactory();
+		addStatements(0, 20);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.shutDown();
+		uncached.shutDown();
+	}
+
+	@Test
+	public void testReuseWithOtherBindings() throws Exception {
+		ParsedQuery query = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, QUERY, null);
+		for (int i = 0; i < 5; i++) {
+			QueryBindingSet bindings = new QueryBindingSet();
+			bindings.addBinding("o", vf.createIRI(EX_NS, "o" + i));
+			assertEquals(evaluate(uncached, query, bindings), evaluate(store, query, bindings));
+		}
+		assertEquals(evaluate(uncached, query, EmptyBindingSet.getInstance()),
+				evaluate(store, query, EmptyBindingSet.getInstance()));
+
+		QueryPlanCache cache = store.getQueryPlanCache();
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(4, cache.getHitCount());
+	}
+
+	@Test
+	public void testQueriesWithNowAreNotCached() throws Exception {
+		ParsedQuery query = QueryParserUtil.parseQuery(QueryLanguage.SPARQL,
+				"SELECT ?now { BIND (NOW() AS ?now) }", null);
+		evaluate(store, query, EmptyBindingSet.getInstance());
+		evaluate(store, query, EmptyBindingSet.getInstance());
+		assertEquals(0, store.getQueryPlanCache().size());
+	}
+
+	@Test
+	public void testInvalidationWhenStatisticsChange() throws Exception {
+		ParsedQuery query = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, QUERY, null);
+		evaluate(store, query, EmptyBindingSet.getInstance());
+		addStatements(20, 2000);
+		for (int i = 0; i < QueryPlanCache.DEFAULT_VALIDATION_INTERVAL; i++) {
+			evaluate(store, query, EmptyBindingSet.getInstance());
+		}
+		QueryPlanCache cache = store.getQueryPlanCache();
+		assertEquals(1, cache.getInvalidationCount());
+		assertTrue(cache.getHitRate() > 0.9);
+		assertEquals(evaluate(uncached, query, EmptyBindingSet.getInstance()),
+				evaluate(store, query, EmptyBindingSet.getInstance()));
+	}
+
+	private Set<BindingSet> evaluate(MemoryStore sail, ParsedQuery query, BindingSet bindings)
+			throws QueryEvaluationException {
+		try (SailConnection con = sail.getConnection();
+				CloseableIteration<? extends BindingSet, QueryEvaluationException> result = con
+						.evaluate(query.getTupleExpr(), query.getDataset(), bindings, false)) {
+			return new HashSet<>(Iterations.asList(result));
+		}
+	}
+
+	private void addStatements(int from, int to) {
+		for (MemoryStore sail : new MemoryStore[] { store, uncached }) {
+			try (SailConnection con = sail.getConnection()) {
+				con.begin();
+				IRI p = vf.createIRI(EX_NS, "p");
+				IRI n = vf.createIRI(EX_NS, "n");
+				for (int i = from; i < to; i++) {
+					IRI s = vf.createIRI(EX_NS, "s" + i);
+					Value o = vf.createIRI(EX_NS, "o" + (i % 5));
+					con.addStatement(s, p, o);
+					con.addStatement(s, n, vf.createLiteral(i % 7));
+				}
+				con.commit();
+			}
+		}
+	}
+}
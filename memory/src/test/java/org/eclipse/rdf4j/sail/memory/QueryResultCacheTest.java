@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.base.QueryResultCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests a {@link MemoryStore} that caches the results of queries between commits.
+ */
+public class QueryResultCacheTest {
+
+	private static final String EX_NS = "http://example.org/";
+
+	private static final String QUERY = "PREFIX ex: <" + EX_NS + "> SELECT ?s ?n { ?s ex:p ?o; ex:n ?n } ORDER BY ?s";
+
+	private MemoryStore store;
+
+	private ValueFactory vf;
+
+	private ParsedQuery query;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new MemoryStore();
+		store.setQueryResultCacheSize(1 << 20);
+		store.initialize();
+		vf = store.getValueFactory();
+		query = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, QUERY, null);
+		addStatements(0, 20);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.shutDown();
+	}
+
+	@Test
+	public void testReuseUntilCommit() throws Exception {
+		List<BindingSet> expected = evaluate(query, EmptyBindingSet.getInstance());
+		assertEquals(20, expected.size());
+		assertEquals(expected, evaluate(query, EmptyBindingSet.getInstance()));
+		assertEquals(expected, evaluate(query, EmptyBindingSet.getInstance()));
+
+		QueryResultCache cache = store.getQueryResultCache();
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+
+		addStatements(20, 25);
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getInvalidationCount());
+		assertEquals(25, evaluate(query, EmptyBindingSet.getInstance()).size());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testBindingsAreKeys() throws Exception {
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding("o", vf.createIRI(EX_NS, "o1"));
+		assertEquals(4, evaluate(query, bindings).size());
+		assertEquals(20, evaluate(query, EmptyBindingSet.getInstance()).size());
+		assertEquals(4, evaluate(query, bindings).size());
+		assertEquals(2, store.getQueryResultCache().size());
+	}
+
+	@Test
+	public void testBindingsAreCopied() throws Exception {
+		QueryBindingSet bindings = new QueryBindingSet();
+		bindings.addBinding("o", vf.createIRI(EX_NS, "o1"));
+		List<BindingSet> expected = evaluate(query, bindings);
+
+		// the caller reuses its bindings for the next evaluation
+		bindings.setBinding("o", vf.createIRI(EX_NS, "o2"));
+		assertEquals(4, evaluate(query, bindings).size());
+
+		QueryBindingSet original = new QueryBindingSet();
+		original.addBinding("o", vf.createIRI(EX_NS, "o1"));
+		assertEquals(expected, evaluate(query, original));
+		QueryResultCache cache = store.getQueryResultCache();
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testPartiallyReadResultsAreNotCached() throws Exception {
+		try (SailConnection con = store.getConnection();
+				CloseableIteration<? extends BindingSet, QueryEvaluationException> result = con
+						.evaluate(query.getTupleExpr(), query.getDataset(), EmptyBindingSet.getInstance(), false)) {
+			result.next();
+		}
+		assertEquals(0, store.getQueryResultCache().size());
+	}
+
+	@Test
+	public void testQueriesWithRandAreNotCached() throws Exception {
+		ParsedQuery rand = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, "SELECT ?r { BIND (RAND() AS ?r) }",
+				null);
+		evaluate(rand, EmptyBindingSet.getInstance());
+		evaluate(rand, EmptyBindingSet.getInstance());
+		assertEquals(0, store.getQueryResultCache().size());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		store.setQueryResultCacheSize(8192);
+		for (int i = 0; i < 10; i++) {
+			QueryBindingSet bindings = new QueryBindingSet();
+			bindings.addBinding("o", vf.createIRI(EX_NS, "o" + (i % 5)));
+			bindings.addBinding("x", vf.createLiteral(i));
+			evaluate(query, bindings);
+		}
+		QueryResultCache cache = store.getQueryResultCache();
+		assertTrue(cache.getEvictionCount() > 0);
+		assertTrue(cache.getSizeInBytes() <= cache.getCapacity());
+	}
+
+	private List<BindingSet> evaluate(ParsedQuery query, BindingSet bindings) throws QueryEvaluationException {
+		try (SailConnection con = store.getConnection();
+				CloseableIteration<? extends BindingSet, QueryEvaluationException> result = con
+						.evaluate(query.getTupleExpr(), query.getDataset(), bindings, false)) {
+			return Iterations.asList(result);
+		}
+	}
+
+	private void addStatements(int from, int to) {
+		try (SailConnection con = store.getConnection()) {
+			con.begin();
+			IRI p = vf.createIRI(EX_NS, "p");
+			IRI n = vf.createIRI(EX_NS, "n");
+			for (int i = from; i < to; i++) {
+				IRI s = vf.createIRI(EX_NS, "s" + i);
+				con.addStatement(s, p, vf.createIRI(EX_NS, "o" + (i % 5)));
+				con.addStatement(s, n, vf.createLiteral(i % 7));
+			}
+			con.commit();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.IsolationLevels;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.SailException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the background removal of deprecated statements from a {@link MemoryStore}.
+ */
+public class SnapshotCleanupTest {
+
+	private static final String EX_NS = "http://example.org/";
+
+	private final BlockingQueue<Integer> removed = new LinkedBlockingQueue<>();
+
+	private MemoryStore store;
+
+	private ValueFactory vf;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new MemoryStore();
+		store.setSnapshotCleanupListener(
+				(snapshot, removedStatements, cleanedLists, durationNanos) -> removed.add(removedStatements));
+		store.initialize();
+		vf = store.getValueFactory();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.shutDown();
+	}
+
+	@Test
+	public void testSnapshotRetainedWhileInUse() throws Exception {
+		int count = 100;
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			for (int i = 0; i < count; i++) {
+				con.addStatement(vf.createIRI(EX_NS, "s" + i), RDF.TYPE, RDF.PROPERTY);
+			}
+			con.commit();
+		}
+
+		try (SailConnection reader = store.getConnection();) {
+			reader.begin(IsolationLevels.SNAPSHOT);
+			try (CloseableIteration<? extends Statement, SailException> iter = reader.getStatements(null, null, null,
+					false);) {
+				assertTrue(iter.hasNext());
+				iter.next();
+
+				try (SailConnection con = store.getConnection();) {
+					con.begin();
+					con.removeStatements(null, RDF.TYPE, null);
+					con.commit();
+				}
+
+				// the reader still sees its snapshot while the cleanup runs
+				int seen = 1;
+				while (iter.hasNext()) {
+					iter.next();
+					seen++;
+				}
+				assertEquals(count, seen);
+				assertEquals(count, reader.size());
+			}
+			reader.commit();
+		}
+
+		int total = 0;
+		while (total < count) {
+			Integer next = removed.poll(10, TimeUnit.SECONDS);
+			assertTrue("deprecated statements were not removed", next != null);
+			total += next;
+		}
+		assertEquals(count, total);
+
+		try (SailConnection con = store.getConnection();) {
+			IRI subj = vf.createIRI(EX_NS, "s0");
+			assertEquals(0, con.size());
+			con.begin();
+			con.addStatement(subj, RDF.TYPE, RDF.PROPERTY);
+			con.commit();
+			assertTrue(con.hasStatement(subj, RDF.TYPE, RDF.PROPERTY, false));
+		}
+	}
+}
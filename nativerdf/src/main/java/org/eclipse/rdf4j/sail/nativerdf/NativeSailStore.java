@@ -11,8 +11,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -33,6 +35,7 @@ import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
 import org.eclipse.rdf4j.sail.SailException;
 import org.eclipse.rdf4j.sail.base.BackingSailSource;
@@ -178,6 +181,24 @@ class NativeSailStore implements SailStore {
 	 */
 	CloseableIteration<? extends Statement, SailException> createStatementIterator(Resource subj, IRI pred, Value obj,
 			boolean explicit, Resource... contexts) throws IOException {
+		return createStatementIterator(null, subj, pred, obj, explicit, contexts);
+	}
+
+	/**
+	 * Creates a statement iterator based on the supplied pattern, of which the statements are ordered by the IDs of
+	 * their values at a position.
+	 * 
+	 * @param order The position by which the statements are ordered, or <tt>null</tt> if they can be returned in any
+	 *              order.
+	 * @throws IllegalArgumentException if the statements cannot be returned in that order, see
+	 *                                  {@link #getSupportedOrders(Resource, IRI, Value, Resource...)}.
+	 */
+	CloseableIteration<? extends Statement, SailException> createStatementIterator(StatementOrder order, Resource subj,
+			IRI pred, Value obj, boolean explicit, Resource... contexts) throws IOException {
+		if (order != null && contexts.length > 1) {
+			throw new IllegalArgumentException("Statements of several contexts cannot be ordered by " + order);
+		}
+
 		int subjID = NativeValue.UNKNOWN_ID;
 		if (subj != null) {
 			subjID = valueStore.getID(subj);
@@ -222,7 +243,13 @@ class NativeSailStore implements SailStore {
 		ArrayList<NativeStatementIterator> perContextIterList = new ArrayList<>(contextIDList.size());
 
 		for (int contextID : contextIDList) {
-			RecordIterator btreeIter = tripleStore.getTriples(subjID, predID, objID, contextID, explicit, false);
+			RecordIterator btreeIter;
+			if (order == null) {
+				btreeIter = tripleStore.getTriples(subjID, predID, objID, contextID, explicit, false);
+			} else {
+				btreeIter = tripleStore.getTriples(subjID, predID, objID, contextID, explicit, false,
+						getOrderField(order));
+			}
 
 			perContextIterList.add(new NativeStatementIterator(btreeIter, valueStore));
 		}
@@ -234,6 +261,55 @@ class NativeSailStore implements SailStore {
 		}
 	}
 
+	/**
+	 * Determines the orders in which
+	 * {@link #createStatementIterator(StatementOrder, Resource, IRI, Value, boolean, Resource...)} can return the
+	 * statements that match the supplied pattern.
+	 */
+	Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws IOException {
+		if (contexts.length > 1) {
+			// the statements are returned one context after the other
+			return Collections.emptySet();
+		}
+
+		int subjID = subj == null ? NativeValue.UNKNOWN_ID : valueStore.getID(subj);
+		int predID = pred == null ? NativeValue.UNKNOWN_ID : valueStore.getID(pred);
+		int objID = obj == null ? NativeValue.UNKNOWN_ID : valueStore.getID(obj);
+		int contextID = NativeValue.UNKNOWN_ID;
+		if (contexts.length == 1) {
+			contextID = contexts[0] == null ? 0 : valueStore.getID(contexts[0]);
+		}
+
+		if (subj != null && subjID == NativeValue.UNKNOWN_ID || pred != null && predID == NativeValue.UNKNOWN_ID
+				|| obj != null && objID == NativeValue.UNKNOWN_ID
+				|| contexts.length == 1 && contextID == NativeValue.UNKNOWN_ID) {
+			// no statements match the pattern, which are in any order
+			return EnumSet.allOf(StatementOrder.class);
+		}
+
+		Set<StatementOrder> orders = EnumSet.noneOf(StatementOrder.class);
+		for (StatementOrder order : StatementOrder.values()) {
+			if (tripleStore.hasOrderedIndex(subjID, predID, objID, contextID, getOrderField(order))) {
+				orders.add(order);
+			}
+		}
+		return orders;
+	}
+
+	private static char getOrderField(StatementOrder order) {
+		switch (order) {
+		case SUBJECT:
+			return 's';
+		case PREDICATE:
+			return 'p';
+		case OBJECT:
+			return 'o';
+		default:
+			return 'c';
+		}
+	}
+
 	double cardinality(Resource subj, IRI pred, Value obj, Resource context) throws IOException {
 		int subjID = NativeValue.UNKNOWN_ID;
 		if (subj != null) {
@@ -533,6 +609,15 @@ class NativeSailStore implements SailStore {
 			return namespaceStore.getNamespace(prefix);
 		}
 
+		@Override
+		public long getValueId(Value value) throws SailException {
+			try {
+				return valueStore.getID(value);
+			} catch (IOException e) {
+				throw new SailException(e);
+			}
+		}
+
 		@Override
 		public CloseableIteration<? extends Namespace, SailException> getNamespaces() {
 			return new CloseableIteratorIteration<Namespace, SailException>(namespaceStore.iterator());
@@ -653,5 +738,27 @@ class NativeSailStore implements SailStore {
 				throw new SailException("Unable to get statements", e);
 			}
 		}
+
+		@Override
+		public Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+				throws SailException {
+			try {
+				return NativeSailStore.this.getSupportedOrders(subj, pred, obj, contexts);
+			} catch (IOException e) {
+				throw new SailException("Unable to look up the indexes", e);
+			}
+		}
+
+		@Override
+		public CloseableIteration<? extends Statement, SailException> getOrderedStatements(StatementOrder order,
+				Resource subj, IRI pred, Value obj, Resource... contexts) throws SailException {
+			try {
+				return createStatementIterator(order, subj, pred, obj, explicit, contexts);
+			} catch (IllegalArgumentException e) {
+				throw new SailException(e.getMessage(), e);
+			} catch (IOException e) {
+				throw new SailException("Unable to get statements", e);
+			}
+		}
 	}
 }
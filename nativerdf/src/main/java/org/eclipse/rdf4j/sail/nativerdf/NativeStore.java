@@ -24,10 +24,13 @@ import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategyFactory;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolverClient;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.DynamicProgrammingJoinOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategyFactory;
 import org.eclipse.rdf4j.repository.sparql.federation.SPARQLServiceResolver;
 import org.eclipse.rdf4j.sail.NotifyingSailConnection;
 import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.base.QueryPlanCache;
+import org.eclipse.rdf4j.sail.base.QueryResultCache;
 import org.eclipse.rdf4j.sail.base.SailSource;
 import org.eclipse.rdf4j.sail.base.SailStore;
 import org.eclipse.rdf4j.sail.base.SnapshotSailStore;
@@ -80,6 +83,18 @@ public class NativeStore extends AbstractNotifyingSail implements FederatedServi
 
 	private EvaluationStrategyFactory evalStratFactory;
 
+	/**
+	 * The cache of optimized query plans, or <tt>null</tt> if query plans are not cached.
+	 */
+	private volatile QueryPlanCache queryPlanCache;
+
+	/**
+	 * The cache of query results, or <tt>null</tt> if query results are not cached.
+	 */
+	private volatile QueryResultCache queryResultCache;
+
+	private volatile int maxJoinEnumerationSize;
+
 	/** independent life cycle */
 	private FederatedServiceResolver serviceResolver;
 
@@ -175,6 +190,83 @@ public class NativeStore extends AbstractNotifyingSail implements FederatedServi
 		this.namespaceIDCacheSize = namespaceIDCacheSize;
 	}
 
+	/**
+	 * Sets the maximum number of optimized query plans that are kept, so that queries that are evaluated repeatedly,
+	 * possibly with other values for their bindings, are not optimized again each time. The default value for this
+	 * parameter is 0, which means that query plans are not cached.
+	 *
+	 * @param queryPlanCacheSize The maximum number of cached query plans, or 0 to disable the cache.
+	 */
+	public synchronized void setQueryPlanCacheSize(int queryPlanCacheSize) {
+		queryPlanCache = queryPlanCacheSize > 0 ? new QueryPlanCache(queryPlanCacheSize) : null;
+	}
+
+	public int getQueryPlanCacheSize() {
+		QueryPlanCache cache = queryPlanCache;
+		return cache == null ? 0 : cache.getCapacity();
+	}
+
+	/**
+	 * Gets the cache of optimized query plans, which also keeps track of its hit rate.
+	 *
+	 * @return the cache, or <tt>null</tt> if query plans are not cached.
+	 */
+	public QueryPlanCache getQueryPlanCache() {
+		return queryPlanCache;
+	}
+
+	/**
+	 * Sets the estimated number of bytes that the results of queries may use, so that queries that are evaluated
+	 * repeatedly between commits are not evaluated again each time. The results of a single query may use at most a
+	 * quarter of this size. The default value for this parameter is 0, which means that query results are not cached.
+	 *
+	 * @param queryResultCacheSize The estimated number of bytes of the cached query results, or 0 to disable the cache.
+	 */
+	public synchronized void setQueryResultCacheSize(long queryResultCacheSize) {
+		queryResultCache = queryResultCacheSize > 0 ? new QueryResultCache(queryResultCacheSize) : null;
+	}
+
+	public long getQueryResultCacheSize() {
+		QueryResultCache cache = queryResultCache;
+		return cache == null ? 0 : cache.getCapacity();
+	}
+
+	/**
+	 * Gets the cache of query results, which also keeps track of its hit rate.
+	 *
+	 * @return the cache, or <tt>null</tt> if query results are not cached.
+	 */
+	public QueryResultCache getQueryResultCache() {
+		return queryResultCache;
+	}
+
+	/**
+	 * Sets the maximum number of join arguments that are ordered by enumerating all their orders without cartesian
+	 * products, rather than by selecting the join arguments one by one. The default value for this parameter is 0,
+	 * which means that join arguments are always selected one by one.
+	 *
+	 * @param maxJoinEnumerationSize The maximum number of join arguments, at most
+	 *                               {@link DynamicProgrammingJoinOptimizer#MAX_ENUMERATION_SIZE}, or 0 to disable
+	 *                               the enumeration.
+	 * @see DynamicProgrammingJoinOptimizer
+	 */
+	public synchronized void setMaxJoinEnumerationSize(int maxJoinEnumerationSize) {
+		if (maxJoinEnumerationSize > DynamicProgrammingJoinOptimizer.MAX_ENUMERATION_SIZE) {
+			throw new IllegalArgumentException("maximum join enumeration size must not exceed "
+					+ DynamicProgrammingJoinOptimizer.MAX_ENUMERATION_SIZE);
+		}
+		this.maxJoinEnumerationSize = maxJoinEnumerationSize;
+		QueryPlanCache cache = queryPlanCache;
+		if (cache != null) {
+			// plans may have been ordered otherwise
+			cache.clear();
+		}
+	}
+
+	public int getMaxJoinEnumerationSize() {
+		return maxJoinEnumerationSize;
+	}
+
 	/**
 	 * @return Returns the {@link EvaluationStrategy}.
 	 */
@@ -183,6 +275,7 @@ public class NativeStore extends AbstractNotifyingSail implements FederatedServi
 			evalStratFactory = new StrictEvaluationStrategyFactory(getFederatedServiceResolver());
 		}
 		evalStratFactory.setQuerySolutionCacheThreshold(getIterationCacheSyncThreshold());
+		evalStratFactory.setQueryMemoryBudget(getQueryMemoryBudget());
 		return evalStratFactory;
 	}
 
@@ -191,6 +284,15 @@ public class NativeStore extends AbstractNotifyingSail implements FederatedServi
 	 */
 	public synchronized void setEvaluationStrategyFactory(EvaluationStrategyFactory factory) {
 		evalStratFactory = factory;
+		QueryPlanCache cache = queryPlanCache;
+		if (cache != null) {
+			// plans may have been optimized with the constant folding of the previous strategy
+			cache.clear();
+		}
+		QueryResultCache results = queryResultCache;
+		if (results != null) {
+			results.clear();
+		}
 	}
 
 	/**
@@ -312,6 +414,11 @@ public class NativeStore extends AbstractNotifyingSail implements FederatedServi
 
 			logger.debug("NativeStore shut down");
 		} finally {
+			QueryResultCache results = queryResultCache;
+			if (results != null) {
+				// the store may be changed before it is initialized again
+				results.invalidate();
+			}
 			dirLock.release();
 			if (dependentServiceResolver != null) {
 				dependentServiceResolver.shutDown();
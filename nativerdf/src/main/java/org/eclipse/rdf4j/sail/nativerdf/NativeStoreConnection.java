@@ -15,6 +15,8 @@ import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.sail.SailException;
 import org.eclipse.rdf4j.sail.SailReadOnlyException;
+import org.eclipse.rdf4j.sail.base.QueryPlanCache;
+import org.eclipse.rdf4j.sail.base.QueryResultCache;
 import org.eclipse.rdf4j.sail.base.SailSourceConnection;
 import org.eclipse.rdf4j.sail.helpers.DefaultSailChangedEvent;
 
@@ -54,6 +56,21 @@ public class NativeStoreConnection extends SailSourceConnection {
 	 * Methods *
 	 *---------*/
 
+	@Override
+	protected QueryPlanCache getQueryPlanCache() {
+		return nativeStore.getQueryPlanCache();
+	}
+
+	@Override
+	protected QueryResultCache getQueryResultCache() {
+		return nativeStore.getQueryResultCache();
+	}
+
+	@Override
+	protected int getMaxJoinEnumerationSize() {
+		return nativeStore.getMaxJoinEnumerationSize();
+	}
+
 	@Override
 	protected void startTransactionInternal() throws SailException {
 		if (!nativeStore.isWritable()) {
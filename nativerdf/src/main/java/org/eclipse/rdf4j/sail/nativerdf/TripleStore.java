@@ -475,6 +475,37 @@ class TripleStore implements Closeable {
 
 	public RecordIterator getTriples(int subj, int pred, int obj, int context, boolean explicit,
 			boolean readTransaction) throws IOException {
+		return getTriples(subj, pred, obj, context, explicit, readTransaction, getBestIndex(subj, pred, obj, context));
+	}
+
+	/**
+	 * Determines whether an index can return the triples that match a pattern ordered by the ID of one of their
+	 * fields, without scanning triples that do not match the pattern.
+	 * 
+	 * @param orderField the field by which the triples are ordered: 's', 'p', 'o' or 'c'.
+	 */
+	public boolean hasOrderedIndex(int subj, int pred, int obj, int context, char orderField) {
+		return getOrderedIndex(subj, pred, obj, context, orderField) != null;
+	}
+
+	/**
+	 * Gets the triples that match a pattern ordered by the ID of one of their fields.
+	 * 
+	 * @param orderField the field by which the triples are ordered: 's', 'p', 'o' or 'c'.
+	 * @throws IllegalArgumentException if no index can return the triples in that order, see
+	 *                                  {@link #hasOrderedIndex(int, int, int, int, char)}.
+	 */
+	public RecordIterator getTriples(int subj, int pred, int obj, int context, boolean explicit,
+			boolean readTransaction, char orderField) throws IOException {
+		TripleIndex index = getOrderedIndex(subj, pred, obj, context, orderField);
+		if (index == null) {
+			throw new IllegalArgumentException("No index returns the triples ordered by '" + orderField + "'");
+		}
+		return getTriples(subj, pred, obj, context, explicit, readTransaction, index);
+	}
+
+	private RecordIterator getTriples(int subj, int pred, int obj, int context, boolean explicit,
+			boolean readTransaction, TripleIndex index) throws IOException {
 		int flags = 0;
 		int flagsMask = 0;
 
@@ -490,7 +521,9 @@ class TripleStore implements Closeable {
 			}
 		}
 
-		RecordIterator btreeIter = getTriples(subj, pred, obj, context, flags, flagsMask);
+		boolean doRangeSearch = index.getPatternScore(subj, pred, obj, context) > 0;
+		RecordIterator btreeIter = getTriplesUsingIndex(subj, pred, obj, context, flags, flagsMask, index,
+				doRangeSearch);
 
 		if (readTransaction && explicit) {
 			// Filter implicit statements from the result
@@ -588,6 +621,29 @@ class TripleStore implements Closeable {
 		return getTriplesUsingIndex(subj, pred, obj, context, flags, flagsMask, index, doRangeSearch);
 	}
 
+	/**
+	 * Gets an index of which the bound fields of the pattern are a prefix of its field sequence, directly followed by
+	 * the order field. A range search on such an index returns the matching triples ordered by that field.
+	 */
+	private TripleIndex getOrderedIndex(int subj, int pred, int obj, int context, char orderField) {
+		int boundCount = 0;
+		for (int id : new int[] { subj, pred, obj, context }) {
+			if (id >= 0) {
+				boundCount++;
+			}
+		}
+
+		for (TripleIndex index : indexes) {
+			char[] fieldSeq = index.getFieldSeq();
+			if (boundCount < fieldSeq.length && fieldSeq[boundCount] == orderField
+					&& index.getPatternScore(subj, pred, obj, context) == boundCount) {
+				return index;
+			}
+		}
+
+		return null;
+	}
+
 	private RecordIterator getAllTriplesSortedByContext(int flags, int flagsMask) throws IOException {
 		for (TripleIndex index : indexes) {
 			if (index.getFieldSeq()[0] == 'c') {
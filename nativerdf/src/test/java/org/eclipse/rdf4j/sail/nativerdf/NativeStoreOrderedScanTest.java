@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.nativerdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.IsolationLevels;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.base.SailDataset;
+import org.eclipse.rdf4j.sail.base.SailSink;
+import org.eclipse.rdf4j.sail.base.SailSource;
+import org.eclipse.rdf4j.sail.inferencer.InferencerConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the statements that the native store returns ordered by the identifiers of their values, and the joins that
+ * merge them.
+ */
+public class NativeStoreOrderedScanTest {
+
+	private static final int SIZE = 100;
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private NativeStore store;
+
+	private ValueFactory vf;
+
+	private IRI p;
+
+	private IRI q;
+
+	private IRI o1;
+
+	private IRI o2;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new NativeStore(tempFolder.newFolder("nativerdf"), "spoc,posc");
+		store.initialize();
+		vf = store.getValueFactory();
+		p = vf.createIRI("urn:ex:p");
+		q = vf.createIRI("urn:ex:q");
+		o1 = vf.createIRI("urn:ex:o1");
+		o2 = vf.createIRI("urn:ex:o2");
+
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			// create the subjects in descending order, so that their identifiers are not in the order of their names
+			for (int i = SIZE - 1; i >= 0; i--) {
+				if (i % 2 == 0) {
+					con.addStatement(subject(i), p, o1);
+				}
+				if (i % 3 == 0) {
+					con.addStatement(subject(i), q, o2);
+				}
+			}
+			for (int i = 0; i < SIZE; i++) {
+				if (i % 5 == 0) {
+					((InferencerConnection) con).addInferredStatement(subject(i), q, o2);
+				}
+			}
+			con.commit();
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.shutDown();
+	}
+
+	@Test
+	public void testSupportedOrders() throws Exception {
+		try (SailDataset dataset = store.getSailStore().getExplicitSailSource().dataset(IsolationLevels.NONE);) {
+			// spoc orders all statements by subject, and the statements of a subject by predicate
+			assertTrue(dataset.getSupportedOrders(null, null, null).contains(StatementOrder.SUBJECT));
+			assertTrue(dataset.getSupportedOrders(subject(0), null, null).contains(StatementOrder.PREDICATE));
+
+			// posc orders the statements of a predicate by object, and by subject only if the object is bound
+			Set<StatementOrder> orders = dataset.getSupportedOrders(null, p, null);
+			assertTrue(orders.contains(StatementOrder.OBJECT));
+			assertFalse(orders.contains(StatementOrder.SUBJECT));
+			assertTrue(dataset.getSupportedOrders(null, p, o1).contains(StatementOrder.SUBJECT));
+
+			// neither index has the object before the subject
+			assertFalse(dataset.getSupportedOrders(null, null, o1).contains(StatementOrder.SUBJECT));
+		}
+	}
+
+	@Test
+	public void testOrderedStatements() throws Exception {
+		try (SailDataset dataset = store.getSailStore().getExplicitSailSource().dataset(IsolationLevels.NONE);) {
+			assertOrdered(dataset, StatementOrder.SUBJECT, SIZE / 2, null, p, o1);
+			assertOrdered(dataset, StatementOrder.OBJECT, SIZE / 2, null, p, null);
+			assertOrdered(dataset, StatementOrder.SUBJECT, SIZE / 2 + (SIZE + 2) / 3, null, null, null);
+		}
+	}
+
+	@Test
+	public void testMergeExplicitAndInferred() throws Exception {
+		Set<Value> explicit = new HashSet<>();
+		Set<Value> all = new HashSet<>();
+		for (int i = 0; i < SIZE; i += 2) {
+			if (i % 3 == 0) {
+				explicit.add(subject(i));
+			}
+			if (i % 3 == 0 || i % 5 == 0) {
+				all.add(subject(i));
+			}
+		}
+
+		try (SailConnection con = store.getConnection();) {
+			assertEquals(explicit, evaluateJoin(con, false));
+			assertEquals(all, evaluateJoin(con, true));
+		}
+	}
+
+	@Test
+	public void testUncommittedChanges() throws Exception {
+		IRI added = vf.createIRI("urn:ex:added");
+		Set<Value> expected = new HashSet<>();
+		for (int i = 0; i < SIZE; i += 6) {
+			expected.add(subject(i));
+		}
+		expected.remove(subject(0));
+		expected.add(added);
+
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			con.removeStatements(subject(0), q, o2);
+			con.addStatement(added, p, o1);
+			con.addStatement(added, q, o2);
+			assertEquals(expected, evaluateJoin(con, false));
+			con.rollback();
+		}
+	}
+
+	@Test
+	public void testAddAfterClear() throws Exception {
+		IRI added = vf.createIRI("urn:ex:added");
+		Set<Value> expected = new HashSet<>();
+		expected.add(added);
+
+		try (SailConnection con = store.getConnection();) {
+			con.begin();
+			con.clear();
+			con.addStatement(added, p, o1);
+			con.addStatement(added, q, o2);
+			assertEquals(expected, evaluateJoin(con, false));
+			con.rollback();
+		}
+
+		SailSource branch = store.getSailStore().getExplicitSailSource().fork();
+		try {
+			try (SailSink sink = branch.sink(IsolationLevels.NONE);) {
+				sink.clear();
+				sink.approve(added, p, o1, null);
+				sink.flush();
+			}
+			try (SailDataset dataset = branch.dataset(IsolationLevels.NONE);) {
+				// the added statements are not ordered, even though the statements of the store have been cleared
+				assertTrue(dataset.getSupportedOrders(null, p, o1).isEmpty());
+				assertTrue(dataset.getSupportedOrders(null, q, o2).contains(StatementOrder.SUBJECT));
+				try {
+					dataset.getOrderedStatements(StatementOrder.SUBJECT, null, p, o1).close();
+					fail("the added statements were ordered");
+				} catch (SailException e) {
+					// expected
+				}
+			}
+		} finally {
+			branch.close();
+		}
+	}
+
+	private IRI subject(int i) {
+		return vf.createIRI("urn:ex:s" + i);
+	}
+
+	/**
+	 * Asserts that the ordered statements of a pattern are ordered by the identifiers of their values at a position.
+	 */
+	private void assertOrdered(SailDataset dataset, StatementOrder order, int size, IRI subj, IRI pred, Value obj)
+			throws SailException {
+		int count = 0;
+		long previous = -1;
+		try (CloseableIteration<? extends Statement, SailException> iter = dataset.getOrderedStatements(order, subj,
+				pred, obj);) {
+			while (iter.hasNext()) {
+				long id = dataset.getValueId(order.getValue(iter.next()));
+				assertTrue(order + " is not ordered", previous <= id);
+				previous = id;
+				count++;
+			}
+		}
+		assertEquals(size, count);
+	}
+
+	/**
+	 * Evaluates <tt>?s p o1 . ?s q o2</tt>, which the statements of both patterns can be merged to, as both are ordered
+	 * by subject.
+	 */
+	private Set<Value> evaluateJoin(SailConnection con, boolean includeInferred) throws SailException {
+		StatementPattern left = new StatementPattern(new Var("s"), new Var("p", p), new Var("o1", o1));
+		StatementPattern right = new StatementPattern(new Var("s"), new Var("q", q), new Var("o2", o2));
+		Set<Value> subjects = new HashSet<>();
+		try (CloseableIteration<? extends BindingSet, QueryEvaluationException> iter = con.evaluate(
+				new Join(left, right), null, EmptyBindingSet.getInstance(), includeInferred);) {
+			while (iter.hasNext()) {
+				assertTrue("duplicate solution", subjects.add(iter.next().getValue("s")));
+			}
+		}
+		return subjects;
+	}
+}
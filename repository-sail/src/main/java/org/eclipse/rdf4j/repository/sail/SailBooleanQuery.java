@@ -7,12 +7,16 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.repository.sail;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.BooleanQuery;
 import org.eclipse.rdf4j.query.Dataset;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryContext;
 import org.eclipse.rdf4j.query.parser.ParsedBooleanQuery;
 import org.eclipse.rdf4j.sail.SailConnection;
 import org.eclipse.rdf4j.sail.SailException;
@@ -33,6 +37,19 @@ public class SailBooleanQuery extends SailQuery implements BooleanQuery {
 
 	@Override
 	public boolean evaluate() throws QueryEvaluationException {
+		return evaluate(createQueryContext());
+	}
+
+	/**
+	 * Evaluates the query on an executor. Cancelling the returned future cancels the evaluation.
+	 *
+	 * @param executor the executor on which the query is evaluated.
+	 */
+	public CompletableFuture<Boolean> evaluateAsync(Executor executor) {
+		return evaluateAsync(this::evaluate, executor);
+	}
+
+	private boolean evaluate(QueryContext queryContext) throws QueryEvaluationException {
 		ParsedBooleanQuery parsedBooleanQuery = getParsedQuery();
 		TupleExpr tupleExpr = parsedBooleanQuery.getTupleExpr();
 		Dataset dataset = getDataset();
@@ -47,7 +64,7 @@ public class SailBooleanQuery extends SailQuery implements BooleanQuery {
 		try {
 			SailConnection sailCon = getConnection().getSailConnection();
 
-			bindingsIter1 = sailCon.evaluate(tupleExpr, dataset, getBindings(), getIncludeInferred());
+			bindingsIter1 = evaluate(sailCon, tupleExpr, dataset, queryContext);
 
 			bindingsIter2 = enforceMaxQueryTime(bindingsIter1);
 
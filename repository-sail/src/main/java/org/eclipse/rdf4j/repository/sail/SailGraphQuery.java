@@ -7,6 +7,9 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.repository.sail;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
 import org.eclipse.rdf4j.common.iteration.FilterIteration;
@@ -21,6 +24,7 @@ import org.eclipse.rdf4j.query.GraphQueryResult;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.QueryResults;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryContext;
 import org.eclipse.rdf4j.query.impl.IteratingGraphQueryResult;
 import org.eclipse.rdf4j.query.parser.ParsedGraphQuery;
 import org.eclipse.rdf4j.rio.RDFHandler;
@@ -44,6 +48,32 @@ public class SailGraphQuery extends SailQuery implements GraphQuery {
 
 	@Override
 	public GraphQueryResult evaluate() throws QueryEvaluationException {
+		return evaluate(createQueryContext());
+	}
+
+	/**
+	 * Evaluates the query on an executor. The returned future completes once the first statement is available or
+	 * once the evaluation fails. Cancelling the future cancels the evaluation.
+	 *
+	 * @param executor the executor on which the query is evaluated.
+	 */
+	public CompletableFuture<GraphQueryResult> evaluateAsync(Executor executor) {
+		return evaluateAsync(queryContext -> {
+			GraphQueryResult result = evaluate(queryContext);
+			boolean allGood = false;
+			try {
+				result.hasNext();
+				allGood = true;
+				return result;
+			} finally {
+				if (!allGood) {
+					result.close();
+				}
+			}
+		}, executor);
+	}
+
+	private GraphQueryResult evaluate(QueryContext queryContext) throws QueryEvaluationException {
 		TupleExpr tupleExpr = getParsedQuery().getTupleExpr();
 
 		CloseableIteration<? extends BindingSet, QueryEvaluationException> bindingsIter1 = null;
@@ -55,7 +85,7 @@ public class SailGraphQuery extends SailQuery implements GraphQuery {
 		try {
 
 			SailConnection sailCon = getConnection().getSailConnection();
-			bindingsIter1 = sailCon.evaluate(tupleExpr, getActiveDataset(), getBindings(), getIncludeInferred());
+			bindingsIter1 = evaluate(sailCon, tupleExpr, getActiveDataset(), queryContext);
 
 			// Filters out all partial and invalid matches
 			bindingsIter2 = new FilterIteration<BindingSet, QueryEvaluationException>(bindingsIter1) {
@@ -7,8 +7,25 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.repository.sail;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryContext;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.QueryContextIteration;
 import org.eclipse.rdf4j.query.impl.AbstractParserQuery;
 import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.SailException;
 
 /**
  * @author Arjohn Kampman
@@ -17,6 +34,11 @@ public abstract class SailQuery extends AbstractParserQuery {
 
 	private final SailRepositoryConnection con;
 
+	/**
+	 * The cancellation of the most recent evaluation of the query.
+	 */
+	private volatile QueryCancellation cancellation;
+
 	protected SailQuery(ParsedQuery parsedQuery, SailRepositoryConnection con) {
 		super(parsedQuery);
 		this.con = con;
@@ -25,4 +47,87 @@ public abstract class SailQuery extends AbstractParserQuery {
 	protected SailRepositoryConnection getConnection() {
 		return con;
 	}
+
+	/**
+	 * Cancels the most recent evaluation of the query. Its blocking operators, such as ORDER BY and GROUP BY, and the
+	 * scans of the store stop soon after, and its results throw a {@link QueryInterruptedException}.
+	 */
+	public void cancel() {
+		QueryCancellation current = cancellation;
+		if (current != null) {
+			current.cancel();
+		}
+	}
+
+	/**
+	 * Creates the context of an evaluation of the query, with a cancellation of which the deadline is the maximum
+	 * execution time of the query.
+	 */
+	protected QueryContext createQueryContext() {
+		QueryCancellation current = new QueryCancellation(getMaxExecutionTime(), TimeUnit.SECONDS);
+		cancellation = current;
+		QueryContext queryContext = new QueryContext();
+		queryContext.setCancellation(current);
+		return queryContext;
+	}
+
+	/**
+	 * Evaluates a query model in a context, which remains available to the operators of the query while its results
+	 * are read.
+	 *
+	 * @throws QueryInterruptedException if the evaluation was cancelled before it returned.
+	 */
+	protected CloseableIteration<? extends BindingSet, QueryEvaluationException> evaluate(SailConnection sailCon,
+			TupleExpr tupleExpr, Dataset dataset, QueryContext queryContext) throws SailException {
+		queryContext.begin();
+		try {
+			return new QueryContextIteration(
+					sailCon.evaluate(tupleExpr, dataset, getBindings(), getIncludeInferred()), queryContext);
+		} catch (SailException e) {
+			if (e.getCause() instanceof QueryInterruptedException) {
+				throw (QueryInterruptedException) e.getCause();
+			}
+			throw e;
+		} finally {
+			queryContext.end();
+		}
+	}
+
+	/**
+	 * Evaluates the query on an executor. The deadline of the query starts when it is submitted, so that queries that
+	 * wait for too long are not evaluated at all. Cancelling the returned future cancels the evaluation.
+	 *
+	 * @param evaluation evaluates the query in the supplied context.
+	 * @param executor   the executor on which the query is evaluated.
+	 * @return a future that completes with the result of the evaluation.
+	 */
+	protected <T> CompletableFuture<T> evaluateAsync(Function<QueryContext, T> evaluation, Executor executor) {
+		QueryContext queryContext = createQueryContext();
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.whenComplete((result, e) -> {
+			if (future.isCancelled()) {
+				queryContext.getCancellation().cancel();
+			}
+		});
+		try {
+			executor.execute(() -> {
+				if (future.isDone()) {
+					// cancelled before the evaluation started
+					return;
+				}
+				try {
+					T result = evaluation.apply(queryContext);
+					if (!future.complete(result) && result instanceof AutoCloseable) {
+						// cancelled while the query was evaluated, nobody will read the result
+						((AutoCloseable) result).close();
+					}
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
 }
@@ -22,6 +22,8 @@ import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.QueryLanguage;
 import org.eclipse.rdf4j.query.Update;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryProfile;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryProfiler;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolverClient;
 import org.eclipse.rdf4j.query.parser.ParsedBooleanQuery;
@@ -43,6 +45,7 @@ import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.eclipse.rdf4j.sail.SailConnection;
 import org.eclipse.rdf4j.sail.SailException;
 import org.eclipse.rdf4j.sail.SailReadOnlyException;
+import org.eclipse.rdf4j.sail.helpers.SailConnectionWrapper;
 
 /**
  * An implementation of the {@link RepositoryConnection} interface that wraps a {@link SailConnection}.
@@ -51,7 +54,7 @@ import org.eclipse.rdf4j.sail.SailReadOnlyException;
  * @author Arjohn Kampman
  */
 public class SailRepositoryConnection extends AbstractRepositoryConnection implements FederatedServiceResolverClient,
-		RepositoryResolverClient, HttpClientDependent, SessionManagerDependent {
+		RepositoryResolverClient, HttpClientDependent, SessionManagerDependent, QueryProfiler {
 
 	/*-----------*
 	 * Variables *
@@ -132,6 +135,59 @@ public class SailRepositoryConnection extends AbstractRepositoryConnection imple
 		}
 	}
 
+	/**
+	 * Enables or disables the profiling of the queries that are evaluated subsequently, if the underlying
+	 * SailConnection supports it.
+	 */
+	@Override
+	public void setQueryProfiling(boolean profiling) {
+		QueryProfiler profiler = getQueryProfiler();
+		if (profiler != null) {
+			profiler.setQueryProfiling(profiling);
+		}
+	}
+
+	@Override
+	public boolean isQueryProfiling() {
+		QueryProfiler profiler = getQueryProfiler();
+		if (profiler != null) {
+			return profiler.isQueryProfiling();
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the plan of the query that was last evaluated while profiling was enabled, with the runtime statistics of
+	 * its operators.
+	 *
+	 * @return the profile, or <tt>null</tt> if no query has been profiled.
+	 */
+	@Override
+	public QueryProfile getLastQueryProfile() {
+		QueryProfiler profiler = getQueryProfiler();
+		if (profiler != null) {
+			return profiler.getLastQueryProfile();
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the first connection in the chain of {@link SailConnectionWrapper wrapped connections} that profiles
+	 * queries. Wrappers do not forward the profiling methods themselves, as the SAIL API does not depend on the query
+	 * evaluation engine.
+	 *
+	 * @return the profiling connection, or <tt>null</tt> if there is none.
+	 */
+	private QueryProfiler getQueryProfiler() {
+		SailConnection con = sailConnection;
+		while (!(con instanceof QueryProfiler) && con instanceof SailConnectionWrapper) {
+			con = ((SailConnectionWrapper) con).getWrappedConnection();
+		}
+		return con instanceof QueryProfiler ? (QueryProfiler) con : null;
+	}
+
 	@Override
 	public void begin() throws RepositoryException {
 		try {
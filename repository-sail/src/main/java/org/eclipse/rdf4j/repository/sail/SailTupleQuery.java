@@ -8,6 +8,8 @@
 package org.eclipse.rdf4j.repository.sail;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
@@ -18,6 +20,7 @@ import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.query.TupleQueryResultHandler;
 import org.eclipse.rdf4j.query.TupleQueryResultHandlerException;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryContext;
 import org.eclipse.rdf4j.query.impl.IteratingTupleQueryResult;
 import org.eclipse.rdf4j.query.parser.ParsedTupleQuery;
 import org.eclipse.rdf4j.sail.SailConnection;
@@ -39,6 +42,33 @@ public class SailTupleQuery extends SailQuery implements TupleQuery {
 
 	@Override
 	public TupleQueryResult evaluate() throws QueryEvaluationException {
+		return evaluate(createQueryContext());
+	}
+
+	/**
+	 * Evaluates the query on an executor. The returned future completes once the first result is available, which
+	 * is after blocking operators such as ORDER BY and GROUP BY have read their input, or once the evaluation fails.
+	 * Cancelling the future cancels the evaluation.
+	 *
+	 * @param executor the executor on which the query is evaluated.
+	 */
+	public CompletableFuture<TupleQueryResult> evaluateAsync(Executor executor) {
+		return evaluateAsync(queryContext -> {
+			TupleQueryResult result = evaluate(queryContext);
+			boolean allGood = false;
+			try {
+				result.hasNext();
+				allGood = true;
+				return result;
+			} finally {
+				if (!allGood) {
+					result.close();
+				}
+			}
+		}, executor);
+	}
+
+	private TupleQueryResult evaluate(QueryContext queryContext) throws QueryEvaluationException {
 		TupleExpr tupleExpr = getParsedQuery().getTupleExpr();
 
 		CloseableIteration<? extends BindingSet, QueryEvaluationException> bindingsIter1 = null;
@@ -49,7 +79,7 @@ public class SailTupleQuery extends SailQuery implements TupleQuery {
 		try {
 			SailConnection sailCon = getConnection().getSailConnection();
 
-			bindingsIter1 = sailCon.evaluate(tupleExpr, getActiveDataset(), getBindings(), getIncludeInferred());
+			bindingsIter1 = evaluate(sailCon, tupleExpr, getActiveDataset(), queryContext);
 			bindingsIter2 = enforceMaxQueryTime(bindingsIter1);
 
 			result = new IteratingTupleQueryResult(new ArrayList<>(tupleExpr.getBindingNames()), bindingsIter2);
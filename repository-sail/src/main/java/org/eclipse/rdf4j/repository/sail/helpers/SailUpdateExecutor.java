@@ -10,8 +10,13 @@ package org.eclipse.rdf4j.repository.sail.helpers;
 import java.io.IOException;
 import java.io.StringReader;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
@@ -75,6 +80,8 @@ import org.slf4j.LoggerFactory;
  * @see SailConnection#endUpdate(UpdateContext)
  * @see SailConnection#addStatement(UpdateContext, Resource, IRI, Value, Resource...)
  * @see SailConnection#removeStatement(UpdateContext, Resource, IRI, Value, Resource...)
+ * @see SailConnection#addStatements(UpdateContext, java.util.Collection)
+ * @see SailConnection#removeStatements(UpdateContext, java.util.Collection, Resource[])
  * @see SailConnection#clear(Resource...)
  * @see SailConnection#getContextIDs()
  * @see SailConnection#getStatements(Resource, IRI, Value, boolean, Resource...)
@@ -82,6 +89,12 @@ import org.slf4j.LoggerFactory;
  */
 public class SailUpdateExecutor {
 
+	/**
+	 * The number of statements that a DELETE/INSERT WHERE operation collects before it hands them to the
+	 * {@link SailConnection} at once.
+	 */
+	private static final int MODIFY_BATCH_SIZE = 10000;
+
 	private final Logger logger = LoggerFactory.getLogger(SailUpdateExecutor.class);
 
 	private final SailConnection con;
@@ -447,14 +460,29 @@ public class SailUpdateExecutor {
 				whereClause = new QueryRoot(whereClause);
 			}
 
+			List<StatementPattern> deletePatterns = Collections.emptyList();
+			if (modify.getDeleteExpr() != null) {
+				deletePatterns = StatementPatternCollector.process(modify.getDeleteExpr());
+			}
+			List<StatementPattern> insertPatterns = Collections.emptyList();
+			if (modify.getInsertExpr() != null) {
+				insertPatterns = StatementPatternCollector.process(modify.getInsertExpr());
+			}
+
+			ModifyBatch batch = new ModifyBatch(uc);
 			try (CloseableIteration<? extends BindingSet, QueryEvaluationException> sourceBindings = evaluateWhereClause(
 					whereClause, uc, maxExecutionTime)) {
 				while (sourceBindings.hasNext()) {
 					BindingSet sourceBinding = sourceBindings.next();
-					deleteBoundTriples(sourceBinding, modify.getDeleteExpr(), uc);
+					deleteBoundTriples(sourceBinding, deletePatterns, batch);
+
+					insertBoundTriples(sourceBinding, insertPatterns, batch);
 
-					insertBoundTriples(sourceBinding, modify.getInsertExpr(), uc);
+					if (batch.size() >= MODIFY_BATCH_SIZE) {
+						batch.flush();
+					}
 				}
+				batch.flush();
 			}
 		} catch (QueryEvaluationException e) {
 			throw new SailException(e);
@@ -554,14 +582,12 @@ public class SailUpdateExecutor {
 
 	/**
 	 * @param whereBinding
-	 * @param deleteClause
-	 * @throws SailException
+	 * @param deletePatterns
+	 * @param batch          collects the statements to remove.
 	 */
-	private void deleteBoundTriples(BindingSet whereBinding, TupleExpr deleteClause, UpdateContext uc)
-			throws SailException {
-		if (deleteClause != null) {
-			List<StatementPattern> deletePatterns = StatementPatternCollector.process(deleteClause);
-
+	private void deleteBoundTriples(BindingSet whereBinding, List<StatementPattern> deletePatterns,
+			ModifyBatch batch) {
+		if (!deletePatterns.isEmpty()) {
 			Value patternValue;
 			for (StatementPattern deletePattern : deletePatterns) {
 
@@ -589,13 +615,12 @@ public class SailUpdateExecutor {
 
 				if (context != null) {
 					if (SESAME.NIL.equals(context)) {
-						con.removeStatement(uc, subject, predicate, object, (Resource) null);
+						batch.remove(subject, predicate, object, (Resource) null);
 					} else {
-						con.removeStatement(uc, subject, predicate, object, context);
+						batch.remove(subject, predicate, object, context);
 					}
 				} else {
-					IRI[] remove = getDefaultRemoveGraphs(uc.getDataset());
-					con.removeStatement(uc, subject, predicate, object, remove);
+					batch.remove(subject, predicate, object, batch.defaultRemoveGraphs);
 				}
 			}
 		}
@@ -603,14 +628,13 @@ public class SailUpdateExecutor {
 
 	/**
 	 * @param whereBinding
-	 * @param insertClause
+	 * @param insertPatterns
+	 * @param batch          collects the statements to add.
 	 * @throws SailException
 	 */
-	private void insertBoundTriples(BindingSet whereBinding, TupleExpr insertClause, UpdateContext uc)
-			throws SailException {
-		if (insertClause != null) {
-			List<StatementPattern> insertPatterns = StatementPatternCollector.process(insertClause);
-
+	private void insertBoundTriples(BindingSet whereBinding, List<StatementPattern> insertPatterns,
+			ModifyBatch batch) throws SailException {
+		if (!insertPatterns.isEmpty()) {
 			// bnodes in the insert pattern are locally scoped for each
 			// individual source binding.
 			MapBindingSet bnodeMapping = new MapBindingSet();
@@ -618,17 +642,12 @@ public class SailUpdateExecutor {
 				Statement toBeInserted = createStatementFromPattern(insertPattern, whereBinding, bnodeMapping);
 
 				if (toBeInserted != null) {
-					IRI with = uc.getDataset().getDefaultInsertGraph();
-					if (with == null && toBeInserted.getContext() == null) {
-						con.addStatement(uc, toBeInserted.getSubject(), toBeInserted.getPredicate(),
-								toBeInserted.getObject());
-					} else if (toBeInserted.getContext() == null) {
-						con.addStatement(uc, toBeInserted.getSubject(), toBeInserted.getPredicate(),
+					IRI with = batch.defaultInsertGraph;
+					if (with != null && toBeInserted.getContext() == null) {
+						toBeInserted = vf.createStatement(toBeInserted.getSubject(), toBeInserted.getPredicate(),
 								toBeInserted.getObject(), with);
-					} else {
-						con.addStatement(uc, toBeInserted.getSubject(), toBeInserted.getPredicate(),
-								toBeInserted.getObject(), toBeInserted.getContext());
 					}
+					batch.add(toBeInserted);
 				}
 			}
 		}
@@ -747,4 +766,68 @@ public class SailUpdateExecutor {
 		}
 		return value;
 	}
+
+	/**
+	 * Collects the statements that the templates of a DELETE/INSERT WHERE operation produce for its solutions, and
+	 * hands them to the connection with {@link SailConnection#removeStatements(UpdateContext, java.util.Collection,
+	 * Resource[])} and {@link SailConnection#addStatements(UpdateContext, java.util.Collection)}. The statements of a
+	 * batch are removed before the statements of the batch are added.
+	 */
+	private class ModifyBatch {
+
+		private final UpdateContext uc;
+
+		/**
+		 * The graphs from which the statements of the DELETE template without a graph are removed.
+		 */
+		final IRI[] defaultRemoveGraphs;
+
+		/**
+		 * The graph to which the statements of the INSERT template without a graph are added, or <tt>null</tt>.
+		 */
+		final IRI defaultInsertGraph;
+
+		/**
+		 * The statements to remove, by the contexts from which they are removed.
+		 */
+		private final Map<List<Resource>, List<Statement>> removed = new LinkedHashMap<>();
+
+		private final List<Statement> added = new ArrayList<>();
+
+		private int size;
+
+		ModifyBatch(UpdateContext uc) {
+			this.uc = uc;
+			this.defaultRemoveGraphs = getDefaultRemoveGraphs(uc.getDataset());
+			this.defaultInsertGraph = uc.getDataset().getDefaultInsertGraph();
+		}
+
+		void remove(Resource subj, IRI pred, Value obj, Resource... contexts) {
+			removed.computeIfAbsent(Arrays.asList(contexts), k -> new ArrayList<>())
+					.add(vf.createStatement(subj, pred, obj));
+			size++;
+		}
+
+		void add(Statement st) {
+			added.add(st);
+			size++;
+		}
+
+		int size() {
+			return size;
+		}
+
+		void flush() throws SailException {
+			for (Map.Entry<List<Resource>, List<Statement>> entry : removed.entrySet()) {
+				List<Resource> contexts = entry.getKey();
+				con.removeStatements(uc, entry.getValue(), contexts.toArray(new Resource[contexts.size()]));
+			}
+			if (!added.isEmpty()) {
+				con.addStatements(uc, added);
+			}
+			removed.clear();
+			added.clear();
+			size = 0;
+		}
+	}
 }
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.repository.sail;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryContext;
+import org.eclipse.rdf4j.query.parser.ParsedTupleQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the cancellation of queries that are evaluated synchronously and asynchronously.
+ */
+public class QueryCancellationTest {
+
+	private static final String QUERY = "SELECT ?s ?label { ?s <" + RDFS.LABEL + "> ?label } ORDER BY DESC(?label)";
+
+	private SailRepository repository;
+
+	private SailRepositoryConnection con;
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		con = repository.getConnection();
+		ValueFactory vf = con.getValueFactory();
+		con.begin();
+		for (int i = 0; i < 1000; i++) {
+			IRI s = vf.createIRI("urn:s:" + i);
+			con.add(s, RDFS.LABEL, vf.createLiteral("label " + i));
+		}
+		con.commit();
+		executor = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		con.close();
+		repository.shutDown();
+	}
+
+	@Test
+	public void testCancelBeforeFirstResult() throws Exception {
+		SailTupleQuery query = con.prepareTupleQuery(QueryLanguage.SPARQL, QUERY);
+		try (TupleQueryResult result = query.evaluate()) {
+			query.cancel();
+			result.hasNext();
+			fail("the sort should have stopped");
+		} catch (QueryInterruptedException e) {
+			// expected
+		}
+		// a new evaluation is not cancelled
+		assertEquals(1000, Iterations.asList(query.evaluate()).size());
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		ParsedTupleQuery parsedQuery = QueryParserUtil.parseTupleQuery(QueryLanguage.SPARQL, QUERY, null);
+		SailTupleQuery query = new SailTupleQuery(parsedQuery, con) {
+
+			@Override
+			protected QueryContext createQueryContext() {
+				QueryContext queryContext = new QueryContext();
+				queryContext.setCancellation(new QueryCancellation(1, TimeUnit.NANOSECONDS));
+				return queryContext;
+			}
+		};
+		try (TupleQueryResult result = query.evaluate()) {
+			result.hasNext();
+			fail("the deadline has passed");
+		} catch (QueryInterruptedException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testAsyncEvaluation() throws Exception {
+		SailTupleQuery query = con.prepareTupleQuery(QueryLanguage.SPARQL, QUERY);
+		try (TupleQueryResult result = query.evaluateAsync(executor).get()) {
+			List<BindingSet> solutions = Iterations.asList(result);
+			assertEquals(1000, solutions.size());
+			assertEquals("label 999", solutions.get(0).getValue("label").stringValue());
+		}
+		assertTrue(con.prepareBooleanQuery(QueryLanguage.SPARQL, "ASK { ?s ?p ?o }").evaluateAsync(executor).get());
+	}
+
+	@Test
+	public void testCancelQueuedEvaluation() throws Exception {
+		List<Runnable> queued = new ArrayList<>();
+		SailTupleQuery query = con.prepareTupleQuery(QueryLanguage.SPARQL, QUERY);
+		CompletableFuture<TupleQueryResult> future = query.evaluateAsync(queued::add);
+		assertTrue(future.cancel(false));
+		assertEquals(1, queued.size());
+		queued.get(0).run();
+		assertTrue(future.isCancelled());
+	}
+
+	@Test
+	public void testRejectedEvaluation() throws Exception {
+		executor.shutdown();
+		SailTupleQuery query = con.prepareTupleQuery(QueryLanguage.SPARQL, QUERY);
+		try {
+			query.evaluateAsync(executor).get();
+			fail("the executor has been shut down");
+		} catch (ExecutionException e) {
+			assertFalse(e.getCause() instanceof QueryEvaluationException);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.repository.sail;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryProfile;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryProfile.OperatorProfile;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the runtime statistics of profiled queries.
+ */
+public class QueryProfilingTest {
+
+	private static final String QUERY = "PREFIX foaf: <" + FOAF.NAMESPACE + "> "
+			+ "SELECT * { ?a foaf:knows ?b . ?b foaf:name ?name }";
+
+	private SailRepository repository;
+
+	private SailRepositoryConnection con;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		con = repository.getConnection();
+		ValueFactory vf = con.getValueFactory();
+		for (int i = 0; i < 10; i++) {
+			IRI person = vf.createIRI("urn:person:" + i);
+			con.add(person, FOAF.KNOWS, vf.createIRI("urn:person:" + (i + 1) % 10));
+			con.add(person, FOAF.KNOWS, vf.createIRI("urn:person:" + (i + 3) % 10));
+			if (i % 2 == 0) {
+				con.add(person, FOAF.NAME, vf.createLiteral("person " + i));
+			}
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		con.close();
+		repository.shutDown();
+	}
+
+	@Test
+	public void testProfilingIsDisabledByDefault() throws Exception {
+		assertFalse(con.isQueryProfiling());
+		evaluate();
+		assertNull(con.getLastQueryProfile());
+	}
+
+	@Test
+	public void testOperatorStatistics() throws Exception {
+		con.setQueryProfiling(true);
+		List<BindingSet> results = evaluate();
+		assertEquals(10, results.size());
+
+		QueryProfile profile = con.getLastQueryProfile();
+		assertNotNull(profile);
+		OperatorProfile root = profile.getOperatorProfile(profile.getPlan());
+		assertEquals(1, root.getEvaluationCount());
+		assertEquals(results.size(), root.getResultCount());
+		assertTrue(root.getTime() > 0);
+
+		// the first argument of the join is evaluated once, the second at most once for each solution of the first
+		Join join = findJoin(profile);
+		OperatorProfile left = profile.getOperatorProfile(join.getLeftArg());
+		OperatorProfile right = profile.getOperatorProfile(join.getRightArg());
+		assertEquals(1, left.getEvaluationCount());
+		assertTrue(right.getEvaluationCount() >= 1);
+		assertTrue(right.getEvaluationCount() <= left.getResultCount());
+		assertEquals(results.size(), profile.getOperatorProfile(join).getResultCount());
+
+		for (StatementPattern sp : StatementPatternCollector.process(profile.getPlan())) {
+			assertFalse(Double.isNaN(profile.getOperatorProfile(sp).getEstimatedCardinality()));
+		}
+		assertTrue(profile.toString(), profile.toString().contains("results=" + results.size()));
+	}
+
+	private List<BindingSet> evaluate() {
+		return Iterations.asList(con.prepareTupleQuery(QueryLanguage.SPARQL, QUERY).evaluate());
+	}
+
+	private Join findJoin(QueryProfile profile) {
+		Join[] join = new Join[1];
+		profile.getPlan().visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			public void meet(Join node) {
+				join[0] = node;
+			}
+		});
+		return join[0];
+	}
+}
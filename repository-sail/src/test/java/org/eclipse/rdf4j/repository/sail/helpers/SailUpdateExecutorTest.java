@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.repository.sail.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.repository.sail.SailRepositoryConnection;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests DELETE/INSERT WHERE operations of which the templates produce more statements than fit in one batch.
+ */
+public class SailUpdateExecutorTest {
+
+	private static final int SIZE = 25000;
+
+	private SailRepository repository;
+
+	private SailRepositoryConnection con;
+
+	private ValueFactory vf;
+
+	private IRI p;
+
+	private IRI q;
+
+	private IRI g1;
+
+	private IRI g2;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		con = repository.getConnection();
+		vf = con.getValueFactory();
+		p = vf.createIRI("urn:ex:p");
+		q = vf.createIRI("urn:ex:q");
+		g1 = vf.createIRI("urn:ex:g1");
+		g2 = vf.createIRI("urn:ex:g2");
+		con.begin();
+		for (int i = 0; i < SIZE; i++) {
+			IRI s = vf.createIRI("urn:ex:s" + i);
+			con.add(s, p, vf.createLiteral(i));
+			con.add(s, p, vf.createLiteral(i), g1);
+		}
+		con.commit();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		con.close();
+		repository.shutDown();
+	}
+
+	@Test
+	public void testMoveStatements() throws Exception {
+		con.prepareUpdate(QueryLanguage.SPARQL,
+				"DELETE { GRAPH <urn:ex:g1> { ?s <urn:ex:p> ?o } } INSERT { GRAPH <urn:ex:g2> { ?s <urn:ex:q> ?o } } "
+						+ "WHERE { GRAPH <urn:ex:g1> { ?s <urn:ex:p> ?o } }")
+				.execute();
+		assertEquals(0, count(null, g1));
+		assertEquals(SIZE, count(q, g2));
+		// the statements without a context are not touched
+		assertEquals(SIZE, count(p, (Resource) null));
+	}
+
+	@Test
+	public void testDeleteFromAllGraphs() throws Exception {
+		con.prepareUpdate(QueryLanguage.SPARQL,
+				"DELETE { ?s <urn:ex:p> ?o } INSERT { ?s <urn:ex:q> [ <urn:ex:p> ?o ] } WHERE { ?s <urn:ex:p> ?o }")
+				.execute();
+		assertEquals(0, count(p, g1));
+		// each solution creates its own blank node, which is described in the default graph
+		assertEquals(2 * SIZE, count(q, (Resource) null));
+		assertEquals(2 * SIZE, count(p, (Resource) null));
+	}
+
+	@Test
+	public void testWithGraph() throws Exception {
+		con.prepareUpdate(QueryLanguage.SPARQL,
+				"WITH <urn:ex:g1> DELETE { ?s <urn:ex:p> ?o } INSERT { ?s <urn:ex:q> ?o } WHERE { ?s <urn:ex:p> ?o }")
+				.execute();
+		assertEquals(0, count(p, g1));
+		assertEquals(SIZE, count(q, g1));
+		assertEquals(SIZE, count(p, (Resource) null));
+	}
+
+	private int count(IRI pred, Resource... contexts) throws Exception {
+		return Iterations.asList(con.getStatements(null, pred, null, false, contexts)).size();
+	}
+}
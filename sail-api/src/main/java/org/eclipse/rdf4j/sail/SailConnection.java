@@ -7,6 +7,8 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail;
 
+import java.util.Collection;
+
 import org.eclipse.rdf4j.IsolationLevel;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
@@ -334,6 +336,54 @@ public interface SailConnection extends AutoCloseable {
 		removeStatement(op, subj, (IRI) pred, obj, contexts);
 	}
 
+	/**
+	 * Adds a batch of statements to the store. Called when adding many statements through a {@link UpdateExpr}
+	 * operation, such as the statements that the INSERT template of a DELETE/INSERT WHERE operation produces for a
+	 * block of solutions. The default implementation calls
+	 * {@link #addStatement(UpdateContext, Resource, IRI, Value, Resource...)} for each statement; stores can override
+	 * it to avoid the overhead of adding the statements one by one.
+	 * 
+	 * @param op         operation properties of the {@link UpdateExpr} operation producing these statements.
+	 * @param statements The statements to add. Each statement is added to its context, or as a context-less statement
+	 *                   if it has none.
+	 * @throws SailException         If the statements could not be added, for example because no transaction is
+	 *                               active.
+	 * @throws IllegalStateException If the connection has been closed.
+	 */
+	default void addStatements(UpdateContext op, Collection<? extends Statement> statements) throws SailException {
+		for (Statement st : statements) {
+			if (st.getContext() == null) {
+				addStatement(op, st.getSubject(), st.getPredicate(), st.getObject());
+			} else {
+				addStatement(op, st.getSubject(), st.getPredicate(), st.getObject(), st.getContext());
+			}
+		}
+	}
+
+	/**
+	 * Removes a batch of statements from the store. Called when removing many statements through a {@link UpdateExpr}
+	 * operation. The default implementation calls
+	 * {@link #removeStatement(UpdateContext, Resource, IRI, Value, Resource...)} for each statement; stores can
+	 * override it to avoid the overhead of removing the statements one by one.
+	 * 
+	 * @param op         operation properties of the {@link UpdateExpr} operation removing these statements.
+	 * @param statements The statements to remove. Their contexts are ignored.
+	 * @param contexts   The contexts from which to remove each statement, in the same way as
+	 *                   {@link #removeStatement(UpdateContext, Resource, IRI, Value, Resource...)}. If the array is
+	 *                   empty the statements are removed from the entire repository. This parameter is not a vararg,
+	 *                   so that calls of {@link #removeStatements(Resource, IRI, Value, Resource...)} remain
+	 *                   unambiguous.
+	 * @throws SailException         If the statements could not be removed, for example because no transaction is
+	 *                               active.
+	 * @throws IllegalStateException If the connection has been closed.
+	 */
+	default void removeStatements(UpdateContext op, Collection<? extends Statement> statements, Resource[] contexts)
+			throws SailException {
+		for (Statement st : statements) {
+			removeStatement(op, st.getSubject(), st.getPredicate(), st.getObject(), contexts);
+		}
+	}
+
 	/**
 	 * Indicates that the given <code>op</code> will not be used in any call again. Implementations should use this to
 	 * flush of any temporary operation states that may have occurred.
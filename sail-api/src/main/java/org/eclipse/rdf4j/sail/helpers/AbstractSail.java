@@ -109,6 +109,8 @@ public abstract class AbstractSail implements Sail {
 
 	private long iterationCacheSyncThreshold = DEFAULT_ITERATION_SYNC_THRESHOLD;
 
+	private long queryMemoryBudget;
+
 	/**
 	 * Map used to track active connections and where these were acquired. The Throwable value may be null in case
 	 * debugging was disable at the time the connection was acquired.
@@ -392,4 +394,25 @@ public abstract class AbstractSail implements Sail {
 	public void setIterationCacheSyncThreshold(long iterationCacheSyncThreshold) {
 		this.iterationCacheSyncThreshold = iterationCacheSyncThreshold;
 	}
+
+	/**
+	 * Retrieves the currently configured number of bytes that a single query may keep in memory before its solutions
+	 * are written to disk.
+	 * 
+	 * @return Returns the queryMemoryBudget, or 0 if the memory of queries is not accounted for.
+	 */
+	public long getQueryMemoryBudget() {
+		return queryMemoryBudget;
+	}
+
+	/**
+	 * Set the estimated number of bytes that the operators of a single query, such as DISTINCT, ORDER BY and GROUP BY,
+	 * may keep in memory before they write query solutions to disk. Unlike the iteration cache sync threshold, the
+	 * budget is shared by all operators of the query.
+	 * 
+	 * @param queryMemoryBudget The queryMemoryBudget to set, or 0 to not account for the memory of queries.
+	 */
+	public void setQueryMemoryBudget(long queryMemoryBudget) {
+		this.queryMemoryBudget = queryMemoryBudget;
+	}
 }
@@ -7,6 +7,8 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.helpers;
 
+import java.util.Collection;
+
 import org.eclipse.rdf4j.IsolationLevel;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
@@ -150,6 +152,18 @@ public class SailConnectionWrapper implements SailConnection, FederatedServiceRe
 		wrappedCon.removeStatement(modify, subj, pred, obj, contexts);
 	}
 
+	@Override
+	public void addStatements(UpdateContext modify, Collection<? extends Statement> statements)
+			throws SailException {
+		wrappedCon.addStatements(modify, statements);
+	}
+
+	@Override
+	public void removeStatements(UpdateContext modify, Collection<? extends Statement> statements,
+			Resource[] contexts) throws SailException {
+		wrappedCon.removeStatements(modify, statements, contexts);
+	}
+
 	@Override
 	public void endUpdate(UpdateContext modify) throws SailException {
 		wrappedCon.endUpdate(modify);
@@ -7,12 +7,15 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.base;
 
+import java.util.Set;
+
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Namespace;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
 import org.eclipse.rdf4j.sail.SailException;
 
 /**
@@ -63,4 +66,21 @@ abstract class DelegatingSailDataset implements SailDataset {
 			Resource... contexts) throws SailException {
 		return delegate.getStatements(subj, pred, obj, contexts);
 	}
+
+	@Override
+	public long getValueId(Value value) throws SailException {
+		return delegate.getValueId(value);
+	}
+
+	@Override
+	public Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws SailException {
+		return delegate.getSupportedOrders(subj, pred, obj, contexts);
+	}
+
+	@Override
+	public CloseableIteration<? extends Statement, SailException> getOrderedStatements(StatementOrder order,
+			Resource subj, IRI pred, Value obj, Resource... contexts) throws SailException {
+		return delegate.getOrderedStatements(order, subj, pred, obj, contexts);
+	}
 }
@@ -13,6 +13,7 @@ import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
 import org.eclipse.rdf4j.sail.SailException;
 
 /**
@@ -67,4 +68,11 @@ class ObservingSailDataset extends DelegatingSailDataset {
 		return super.getStatements(subj, pred, obj, contexts);
 	}
 
+	@Override
+	public CloseableIteration<? extends Statement, SailException> getOrderedStatements(StatementOrder order,
+			Resource subj, IRI pred, Value obj, Resource... contexts) throws SailException {
+		observer.observe(subj, pred, obj, contexts);
+		return super.getOrderedStatements(order, subj, pred, obj, contexts);
+	}
+
 }
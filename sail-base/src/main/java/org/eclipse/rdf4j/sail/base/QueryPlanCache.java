@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.base;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.FunctionCall;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+
+/**
+ * Caches the optimized plans of queries that are evaluated repeatedly. Plans are looked up by the structure of the
+ * query model, the dataset, the names of the bound variables and whether inferred statements are included, so that a
+ * query that is evaluated with other values for its bindings reuses the same plan. Cached plans therefore must not
+ * depend on the values of the bindings.
+ * <p>
+ * The cardinalities of the statement patterns of a plan, as estimated when the plan was optimized, are compared with
+ * the current estimates every so many times that the plan is reused. When an estimate has changed by more than a
+ * factor, the plan is removed from the cache and the query is optimized again.
+ *
+ * @see SailSourceConnection#getQueryPlanCache()
+ */
+public class QueryPlanCache {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	/**
+	 * The default number of times a plan is reused between two checks of its statistics.
+	 */
+	public static final int DEFAULT_VALIDATION_INTERVAL = 64;
+
+	/**
+	 * The default factor by which an estimated cardinality may change before a plan is optimized again.
+	 */
+	public static final double DEFAULT_MAX_DRIFT = 2.0;
+
+	private final int capacity;
+
+	private final int validationInterval;
+
+	private final double maxDrift;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	/**
+	 * The cached plans, in the order in which they have been used.
+	 */
+	private final Map<Key, Plan> plans;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong invalidationCount = new AtomicLong();
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	public QueryPlanCache(int capacity) {
+		this(capacity, DEFAULT_VALIDATION_INTERVAL, DEFAULT_MAX_DRIFT);
+	}
+
+	/**
+	 * @param capacity           the maximum number of plans that are cached.
+	 * @param validationInterval the number of times a plan is reused between two checks of its statistics.
+	 * @param maxDrift           the factor by which an estimated cardinality may change before a plan is optimized
+	 *                           again.
+	 */
+	public QueryPlanCache(int capacity, int validationInterval, double maxDrift) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.capacity = capacity;
+		this.validationInterval = Math.max(1, validationInterval);
+		this.maxDrift = maxDrift;
+		this.plans = new LinkedHashMap<Key, Plan>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Plan> eldest) {
+				return size() > QueryPlanCache.this.capacity;
+			}
+		};
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	/**
+	 * Determines whether the plan of a query can be cached. Queries that call functions without arguments, such as
+	 * <tt>NOW()</tt>, are not cached, as such calls may have been replaced by their value during optimization.
+	 */
+	public static boolean isCacheable(TupleExpr query) {
+		boolean[] cacheable = { true };
+		query.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			public void meet(FunctionCall node) {
+				if (node.getArgs().isEmpty()) {
+					cacheable[0] = false;
+				} else {
+					super.meet(node);
+				}
+			}
+		});
+		return cacheable[0];
+	}
+
+	/**
+	 * Gets a copy of the optimized plan of a query, optimizing the query if its plan is not cached or is out of date.
+	 *
+	 * @param query           the query, which is not modified.
+	 * @param dataset         the dataset of the query, or <tt>null</tt>.
+	 * @param bindingNames    the names of the variables of which the values are supplied with the query.
+	 * @param includeInferred whether inferred statements are included.
+	 * @param statistics      the statistics with which the plans are optimized.
+	 * @param optimizer       optimizes the supplied query into a new plan that does not depend on the values of the
+	 *                        bindings.
+	 * @return a plan that can be modified by the caller.
+	 */
+	public TupleExpr getPlan(TupleExpr query, Dataset dataset, Set<String> bindingNames, boolean includeInferred,
+			EvaluationStatistics statistics, UnaryOperator<TupleExpr> optimizer) {
+		Key key = new Key(query, dataset, bindingNames, includeInferred);
+		Plan plan;
+		synchronized (plans) {
+			plan = plans.get(key);
+		}
+		if (plan != null) {
+			if (plan.useCount.incrementAndGet() % validationInterval != 0 || !plan.hasDrifted(statistics)) {
+				hitCount.incrementAndGet();
+				return plan.expr.clone();
+			}
+			invalidationCount.incrementAndGet();
+			synchronized (plans) {
+				plans.remove(key, plan);
+			}
+		}
+		missCount.incrementAndGet();
+
+		TupleExpr optimized = optimizer.apply(query);
+		plan = new Plan(optimized.clone(), statistics);
+		synchronized (plans) {
+			plans.put(new Key(query.clone(), dataset, bindingNames, includeInferred), plan);
+		}
+		return optimized;
+	}
+
+	/**
+	 * Removes all plans from the cache.
+	 */
+	public void clear() {
+		synchronized (plans) {
+			plans.clear();
+		}
+	}
+
+	/**
+	 * Gets the number of plans in the cache.
+	 */
+	public int size() {
+		synchronized (plans) {
+			return plans.size();
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of times that a cached plan has been reused.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets the number of times that a query has been optimized, because its plan was not cached or was out of date.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Gets the number of times that a cached plan has been replaced because the statistics changed.
+	 */
+	public long getInvalidationCount() {
+		return invalidationCount.get();
+	}
+
+	/**
+	 * Gets the fraction of the plans that have been taken from the cache.
+	 *
+	 * @return the hit rate, or 0 if no plans have been requested.
+	 */
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0.0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return "QueryPlanCache [size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+				+ ", invalidations=" + getInvalidationCount() + "]";
+	}
+
+	/**
+	 * Identifies the plans that can be used for a query.
+	 */
+	private static class Key {
+
+		private final TupleExpr query;
+
+		private final List<Object> dataset;
+
+		private final Set<String> bindingNames;
+
+		private final boolean includeInferred;
+
+		private final int hashCode;
+
+		Key(TupleExpr query, Dataset dataset, Set<String> bindingNames, boolean includeInferred) {
+			this.query = query;
+			// datasets do not implement equals, and the caller may modify the dataset after the query is cached
+			this.dataset = dataset == null ? null
+					: Arrays.asList(new HashSet<>(dataset.getDefaultGraphs()), new HashSet<>(dataset.getNamedGraphs()),
+							dataset.getDefaultInsertGraph(), new HashSet<>(dataset.getDefaultRemoveGraphs()));
+			this.bindingNames = new HashSet<>(bindingNames);
+			this.includeInferred = includeInferred;
+			this.hashCode = Objects.hash(query, this.dataset, this.bindingNames, includeInferred);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			} else if (!(other instanceof Key)) {
+				return false;
+			}
+			Key o = (Key) other;
+			return hashCode == o.hashCode && includeInferred == o.includeInferred
+					&& bindingNames.equals(o.bindingNames) && Objects.equals(dataset, o.dataset)
+					&& query.equals(o.query);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	/**
+	 * An optimized plan with the cardinalities of its statement patterns when it was optimized.
+	 */
+	private class Plan {
+
+		final TupleExpr expr;
+
+		final List<StatementPattern> patterns;
+
+		final double[] cardinalities;
+
+		final AtomicInteger useCount = new AtomicInteger();
+
+		Plan(TupleExpr expr, EvaluationStatistics statistics) {
+			this.expr = expr;
+			this.patterns = StatementPatternCollector.process(expr);
+			this.cardinalities = new double[patterns.size()];
+			for (int i = 0; i < cardinalities.length; i++) {
+				cardinalities[i] = statistics.getCardinality(patterns.get(i));
+			}
+		}
+
+		boolean hasDrifted(EvaluationStatistics statistics) {
+			for (int i = 0; i < cardinalities.length; i++) {
+				double current = statistics.getCardinality(patterns.get(i));
+				// add one, so that small changes to patterns without any statements do not count
+				double ratio = (Math.max(current, cardinalities[i]) + 1) / (Math.min(current, cardinalities[i]) + 1);
+				if (ratio > maxDrift) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
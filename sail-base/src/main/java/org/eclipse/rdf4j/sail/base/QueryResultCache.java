@@ -0,0 +1,403 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Eclipse RDF4J contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.rdf4j.sail.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.IterationWrapper;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.BNodeGenerator;
+import org.eclipse.rdf4j.query.algebra.Service;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryMemoryManager;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+/**
+ * Caches the results of queries that are evaluated repeatedly while the store does not change. Results are looked up
+ * by the structure of the query model, the dataset, the bindings and whether inferred statements are included. Each
+ * commit that changes the store starts a new revision, which removes all results from the cache.
+ * <p>
+ * The size of the cache is bounded by the estimated number of bytes of its results. When a new result does not fit,
+ * the results that have not been used for the longest time are evicted. Results that are larger than the maximum
+ * size of a single entry are not cached at all.
+ *
+ * @see SailSourceConnection#getQueryResultCache()
+ */
+public class QueryResultCache {
+
+	/*-----------*
+	 * Constants *
+	 *-----------*/
+
+	/**
+	 * The estimated size of an entry without its solutions, including its key.
+	 */
+	private static final long ENTRY_SIZE = 256;
+
+	private final long capacity;
+
+	private final long maxEntrySize;
+
+	/*-----------*
+	 * Variables *
+	 *-----------*/
+
+	/**
+	 * The cached results, in the order in which they have been used.
+	 */
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * The revision of the store, which is incremented when it changes.
+	 */
+	private long revision;
+
+	private long size;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong invalidationCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/*--------------*
+	 * Constructors *
+	 *--------------*/
+
+	/**
+	 * Creates a cache of which a single result may use a quarter of the capacity.
+	 *
+	 * @param capacity the estimated number of bytes that the cached results may use.
+	 */
+	public QueryResultCache(long capacity) {
+		this(capacity, capacity / 4);
+	}
+
+	/**
+	 * @param capacity     the estimated number of bytes that the cached results may use.
+	 * @param maxEntrySize the estimated number of bytes that the result of a single query may use.
+	 */
+	public QueryResultCache(long capacity, long maxEntrySize) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.capacity = capacity;
+		this.maxEntrySize = Math.min(maxEntrySize, capacity);
+	}
+
+	/*---------*
+	 * Methods *
+	 *---------*/
+
+	/**
+	 * Determines whether the results of a query can be cached. Queries that call functions without arguments, such as
+	 * <tt>NOW()</tt> or <tt>RAND()</tt>, create blank nodes or query remote services are not cached, as their results
+	 * may differ while the store does not change.
+	 */
+	public static boolean isCacheable(TupleExpr query) {
+		if (!QueryPlanCache.isCacheable(query)) {
+			return false;
+		}
+		boolean[] cacheable = { true };
+		query.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+
+			@Override
+			public void meet(BNodeGenerator node) {
+				cacheable[0] = false;
+			}
+
+			@Override
+			public void meet(Service node) {
+				cacheable[0] = false;
+			}
+		});
+		return cacheable[0];
+	}
+
+	/**
+	 * Gets the current revision of the store. The revision must be read before the store is read for a query, so that
+	 * its results are not cached if the store changes in the meantime.
+	 */
+	public synchronized long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * Gets the cached results of a query.
+	 *
+	 * @return the results, or <tt>null</tt> if they are not cached.
+	 */
+	public CloseableIteration<BindingSet, QueryEvaluationException> get(TupleExpr query, Dataset dataset,
+			BindingSet bindings, boolean includeInferred) {
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(new Key(query, dataset, bindings, includeInferred));
+		}
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return new CloseableIteratorIteration<>(entry.solutions.iterator());
+	}
+
+	/**
+	 * Records the results of a query while they are read, and caches them once they have all been read, unless the
+	 * store has changed since the supplied revision.
+	 *
+	 * @param revision the revision of the store that was read before the query was evaluated.
+	 * @param results  the results of the query.
+	 * @return an iteration over the same results.
+	 */
+	public CloseableIteration<BindingSet, QueryEvaluationException> record(TupleExpr query, Dataset dataset,
+			BindingSet bindings, boolean includeInferred, long revision,
+			CloseableIteration<BindingSet, QueryEvaluationException> results) {
+		Key key = new Key(query.clone(), dataset, bindings, includeInferred);
+		return new RecordingIteration(results, key, revision);
+	}
+
+	/**
+	 * Starts a new revision of the store, which removes all results from the cache.
+	 */
+	public synchronized void invalidate() {
+		revision++;
+		if (!entries.isEmpty()) {
+			invalidationCount.incrementAndGet();
+		}
+		clear();
+	}
+
+	/**
+	 * Removes all results from the cache.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	private synchronized void put(Key key, Entry entry, long revision) {
+		if (revision != this.revision) {
+			// the store has changed while the query was evaluated
+			return;
+		}
+		Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			size -= previous.size;
+		}
+		size += entry.size;
+		Iterator<Entry> iter = entries.values().iterator();
+		while (size > capacity && iter.hasNext()) {
+			Entry eldest = iter.next();
+			iter.remove();
+			size -= eldest.size;
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Gets the number of results in the cache.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the estimated number of bytes that the cached results use.
+	 */
+	public synchronized long getSizeInBytes() {
+		return size;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public long getMaxEntrySize() {
+		return maxEntrySize;
+	}
+
+	/**
+	 * Gets the number of times that the results of a query were taken from the cache.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets the number of times that a query was evaluated because its results were not cached.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Gets the number of times that cached results were removed because the store changed.
+	 */
+	public long getInvalidationCount() {
+		return invalidationCount.get();
+	}
+
+	/**
+	 * Gets the number of results that were removed to make room for other results.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Gets the fraction of the queries of which the results have been taken from the cache.
+	 *
+	 * @return the hit rate, or 0 if no results have been requested.
+	 */
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0.0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return "QueryResultCache [size=" + size() + ", bytes=" + getSizeInBytes() + ", hits=" + getHitCount()
+				+ ", misses=" + getMissCount() + ", invalidations=" + getInvalidationCount() + ", evictions="
+				+ getEvictionCount() + "]";
+	}
+
+	/**
+	 * Identifies the results of a query.
+	 */
+	private static class Key {
+
+		private final TupleExpr query;
+
+		private final List<Object> dataset;
+
+		private final BindingSet bindings;
+
+		private final boolean includeInferred;
+
+		private final int hashCode;
+
+		Key(TupleExpr query, Dataset dataset, BindingSet bindings, boolean includeInferred) {
+			this.query = query;
+			// datasets do not implement equals, and the caller may modify the dataset after the query is cached
+			this.dataset = dataset == null ? null
+					: Arrays.asList(new HashSet<>(dataset.getDefaultGraphs()), new HashSet<>(dataset.getNamedGraphs()),
+							dataset.getDefaultInsertGraph(), new HashSet<>(dataset.getDefaultRemoveGraphs()));
+			// the bindings of an operation are modified when it is prepared for its next evaluation
+			this.bindings = new QueryBindingSet(bindings);
+			this.includeInferred = includeInferred;
+			this.hashCode = Objects.hash(query, this.dataset, this.bindings, includeInferred);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			} else if (!(other instanceof Key)) {
+				return false;
+			}
+			Key o = (Key) other;
+			return hashCode == o.hashCode && includeInferred == o.includeInferred && bindings.equals(o.bindings)
+					&& Objects.equals(dataset, o.dataset) && query.equals(o.query);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	/**
+	 * The results of a query with their estimated size.
+	 */
+	private static class Entry {
+
+		final List<BindingSet> solutions;
+
+		final long size;
+
+		Entry(List<BindingSet> solutions, long size) {
+			this.solutions = solutions;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Passes on the results of a query, and caches them when the last one has been read.
+	 */
+	private class RecordingIteration extends IterationWrapper<BindingSet, QueryEvaluationException> {
+
+		private final Key key;
+
+		private final long revision;
+
+		/**
+		 * The results that have been read, or <tt>null</tt> if they are too large to be cached.
+		 */
+		private List<BindingSet> solutions = new ArrayList<>();
+
+		private long solutionsSize = ENTRY_SIZE;
+
+		RecordingIteration(CloseableIteration<BindingSet, QueryEvaluationException> results, Key key,
+				long revision) {
+			super(results);
+			this.key = key;
+			this.revision = revision;
+		}
+
+		@Override
+		public boolean hasNext() throws QueryEvaluationException {
+			if (isClosed()) {
+				return false;
+			}
+			List<BindingSet> recorded = solutions;
+			boolean hasNext = super.hasNext();
+			// the iteration closes itself when all results have been read, or when the thread is interrupted
+			if (!hasNext && recorded != null && !Thread.currentThread().isInterrupted()) {
+				put(key, new Entry(Collections.unmodifiableList(recorded), solutionsSize), revision);
+			}
+			return hasNext;
+		}
+
+		@Override
+		public BindingSet next() throws QueryEvaluationException {
+			BindingSet next = super.next();
+			if (solutions != null) {
+				solutionsSize += QueryMemoryManager.estimateSize(next);
+				if (solutionsSize > maxEntrySize) {
+					solutions = null;
+				} else {
+					solutions.add(next);
+				}
+			}
+			return next;
+		}
+
+		@Override
+		protected void handleClose() throws QueryEvaluationException {
+			solutions = null;
+			super.handleClose();
+		}
+	}
+}
@@ -7,6 +7,9 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.base;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.eclipse.rdf4j.IsolationLevels;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
@@ -14,6 +17,7 @@ import org.eclipse.rdf4j.model.Namespace;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
 import org.eclipse.rdf4j.sail.SailException;
 
 /**
@@ -74,4 +78,42 @@ public interface SailDataset extends SailClosable {
 	CloseableIteration<? extends Statement, SailException> getStatements(Resource subj, IRI pred, Value obj,
 			Resource... contexts) throws SailException;
 
+	/**
+	 * Gets the internal identifier of a value in this dataset. Equal values always have the same identifier.
+	 * 
+	 * @param value A value.
+	 * @return A non-negative identifier, or <tt>-1</tt> if the value has no identifier. By default, no values have
+	 *         identifiers.
+	 * @throws SailException If the identifier could not be looked up.
+	 */
+	default long getValueId(Value value) throws SailException {
+		return -1;
+	}
+
+	/**
+	 * Gets the orders in which {@link #getOrderedStatements(StatementOrder, Resource, IRI, Value, Resource...)} can
+	 * return the statements that have a specific subject, predicate and/or object.
+	 * 
+	 * @return The supported orders. By default, statements cannot be returned in any order.
+	 * @throws SailException If the supported orders could not be looked up.
+	 */
+	default Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws SailException {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Gets the statements that have a specific subject, predicate and/or object, ordered by the
+	 * {@link #getValueId(Value) identifiers} of their values at a position.
+	 * 
+	 * @param order The position by which the statements are ordered, which must be one of the
+	 *              {@link #getSupportedOrders(Resource, IRI, Value, Resource...) supported orders}.
+	 * @return An iterator over the relevant statements, in ascending order of the identifiers.
+	 * @throws SailException If the order is not supported or the statements could not be read.
+	 */
+	default CloseableIteration<? extends Statement, SailException> getOrderedStatements(StatementOrder order,
+			Resource subj, IRI pred, Value obj, Resource... contexts) throws SailException {
+		throw new SailException("Statements cannot be ordered by " + order);
+	}
+
 }
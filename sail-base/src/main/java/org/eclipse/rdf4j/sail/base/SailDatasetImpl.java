@@ -9,6 +9,8 @@ package org.eclipse.rdf4j.sail.base;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,7 @@ import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.impl.SimpleNamespace;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
 import org.eclipse.rdf4j.sail.SailException;
 
 /**
@@ -245,15 +248,18 @@ class SailDatasetImpl implements SailDataset {
 		};
 	}
 
+	@Override
+	public long getValueId(Value value) throws SailException {
+		// the values of the changes have the identifiers of the backing dataset, if they have any
+		return derivedFrom.getValueId(value);
+	}
+
 	@Override
 	public CloseableIteration<? extends Statement, SailException> getStatements(Resource subj, IRI pred, Value obj,
 			Resource... contexts) throws SailException {
 		Set<Resource> deprecatedContexts = changes.getDeprecatedContexts();
 		CloseableIteration<? extends Statement, SailException> iter;
-		if (changes.isStatementCleared()
-				|| contexts == null && deprecatedContexts != null && deprecatedContexts.contains(null)
-				|| contexts.length > 0 && deprecatedContexts != null
-						&& deprecatedContexts.containsAll(Arrays.asList(contexts))) {
+		if (isCleared(contexts)) {
 			iter = null;
 		} else if (contexts.length > 0 && deprecatedContexts != null) {
 			List<Resource> remaining = new ArrayList<>(Arrays.asList(contexts));
@@ -279,6 +285,53 @@ class SailDatasetImpl implements SailDataset {
 		}
 	}
 
+	@Override
+	public Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws SailException {
+		if (hasApproved(subj, pred, obj, contexts)) {
+			// the added statements would have to be merged into the statements of the backing dataset, or be sorted
+			// themselves if the backing statements have been cleared
+			return Collections.emptySet();
+		} else if (isCleared(contexts)) {
+			return EnumSet.allOf(StatementOrder.class);
+		}
+		return derivedFrom.getSupportedOrders(subj, pred, obj, contexts);
+	}
+
+	@Override
+	public CloseableIteration<? extends Statement, SailException> getOrderedStatements(StatementOrder order,
+			Resource subj, IRI pred, Value obj, Resource... contexts) throws SailException {
+		if (hasApproved(subj, pred, obj, contexts)) {
+			throw new SailException("Statements with uncommitted changes cannot be ordered by " + order);
+		} else if (isCleared(contexts)) {
+			return new EmptyIteration<>();
+		}
+		CloseableIteration<? extends Statement, SailException> iter = derivedFrom.getOrderedStatements(order, subj,
+				pred, obj, contexts);
+		Model deprecated = changes.getDeprecated();
+		if (deprecated != null) {
+			// removing statements keeps the order
+			iter = difference(iter, deprecated.filter(subj, pred, obj, contexts));
+		}
+		return iter;
+	}
+
+	/**
+	 * Determines whether all statements in the supplied contexts have been removed by the changes.
+	 */
+	private boolean isCleared(Resource... contexts) {
+		Set<Resource> deprecatedContexts = changes.getDeprecatedContexts();
+		return changes.isStatementCleared()
+				|| contexts == null && deprecatedContexts != null && deprecatedContexts.contains(null)
+				|| contexts.length > 0 && deprecatedContexts != null
+						&& deprecatedContexts.containsAll(Arrays.asList(contexts));
+	}
+
+	private boolean hasApproved(Resource subj, IRI pred, Value obj, Resource... contexts) {
+		Model approved = changes.getApproved();
+		return approved != null && !approved.filter(subj, pred, obj, contexts).isEmpty();
+	}
+
 	private CloseableIteration<? extends Statement, SailException> difference(
 			CloseableIteration<? extends Statement, SailException> result, final Model excluded) {
 		if (excluded.isEmpty()) {
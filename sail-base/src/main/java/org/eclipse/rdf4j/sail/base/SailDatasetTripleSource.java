@@ -7,6 +7,8 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.base;
 
+import java.util.Set;
+
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ExceptionConvertingIteration;
 import org.eclipse.rdf4j.common.iteration.Iteration;
@@ -16,6 +18,8 @@ import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryCancellation;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.eclipse.rdf4j.sail.SailException;
 
@@ -41,8 +45,46 @@ class SailDatasetTripleSource implements TripleSource {
 	@Override
 	public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(Resource subj, IRI pred,
 			Value obj, Resource... contexts) throws QueryEvaluationException {
+		QueryCancellation cancellation = QueryCancellation.getCurrent();
+		if (cancellation != null) {
+			cancellation.check();
+		}
+		try {
+			return new Eval(dataset.getStatements(subj, pred, obj, contexts), cancellation);
+		} catch (SailException e) {
+			throw new QueryEvaluationException(e);
+		}
+	}
+
+	@Override
+	public long getValueId(Value value) throws QueryEvaluationException {
+		try {
+			return dataset.getValueId(value);
+		} catch (SailException e) {
+			throw new QueryEvaluationException(e);
+		}
+	}
+
+	@Override
+	public Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws QueryEvaluationException {
 		try {
-			return new Eval(dataset.getStatements(subj, pred, obj, contexts));
+			return dataset.getSupportedOrders(subj, pred, obj, contexts);
+		} catch (SailException e) {
+			throw new QueryEvaluationException(e);
+		}
+	}
+
+	@Override
+	public CloseableIteration<? extends Statement, QueryEvaluationException> getOrderedStatements(
+			StatementOrder order, Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws QueryEvaluationException {
+		QueryCancellation cancellation = QueryCancellation.getCurrent();
+		if (cancellation != null) {
+			cancellation.check();
+		}
+		try {
+			return new Eval(dataset.getOrderedStatements(order, subj, pred, obj, contexts), cancellation);
 		} catch (SailException e) {
 			throw new QueryEvaluationException(e);
 		}
@@ -55,8 +97,34 @@ class SailDatasetTripleSource implements TripleSource {
 
 	public static class Eval extends ExceptionConvertingIteration<Statement, QueryEvaluationException> {
 
+		/**
+		 * The number of statements that are read between two checks of the cancellation.
+		 */
+		private static final int CHECK_INTERVAL = 256;
+
+		private final QueryCancellation cancellation;
+
+		private int count;
+
 		public Eval(Iteration<? extends Statement, ? extends Exception> iter) {
+			this(iter, null);
+		}
+
+		/**
+		 * @param cancellation the cancellation of the query that reads the statements, or <tt>null</tt> if it cannot
+		 *                     be cancelled.
+		 */
+		public Eval(Iteration<? extends Statement, ? extends Exception> iter, QueryCancellation cancellation) {
 			super(iter);
+			this.cancellation = cancellation;
+		}
+
+		@Override
+		public Statement next() throws QueryEvaluationException {
+			if (cancellation != null && ++count % CHECK_INTERVAL == 0) {
+				cancellation.check();
+			}
+			return super.next();
 		}
 
 		@Override
@@ -7,6 +7,7 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.base;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,6 +28,8 @@ import org.eclipse.rdf4j.query.algebra.QueryRoot;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategyFactory;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryProfile;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryProfiler;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolver;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedServiceResolverClient;
@@ -35,8 +38,10 @@ import org.eclipse.rdf4j.query.algebra.evaluation.impl.CompareOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.ConjunctiveConstraintSplitter;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.ConstantOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.DisjunctiveConstraintOptimizer;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.DynamicProgrammingJoinOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.FilterOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.IterativeEvaluationOptimizer;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.JoinAlgorithmOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.OrderLimitOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.QueryJoinOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.QueryModelNormalizer;
@@ -59,7 +64,7 @@ import org.eclipse.rdf4j.sail.inferencer.InferencerConnection;
  * @author James Leigh
  */
 public abstract class SailSourceConnection extends NotifyingSailConnectionBase
-		implements InferencerConnection, FederatedServiceResolverClient {
+		implements InferencerConnection, FederatedServiceResolverClient, QueryProfiler {
 	@Override
 	public boolean pendingRemovals() {
 		return explicitSinks.values().stream().anyMatch(v -> {
@@ -141,6 +146,18 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 	 */
 	private volatile FederatedServiceResolver federatedServiceResolver;
 
+	private volatile boolean queryProfiling;
+
+	/**
+	 * The profile of the query that was last evaluated while profiling was enabled.
+	 */
+	private volatile QueryProfile lastQueryProfile;
+
+	/**
+	 * Whether statements have been added or removed since the cached query results were last invalidated.
+	 */
+	private volatile boolean statementsModified;
+
 	/*--------------*
 	 * Constructors *
 	 *--------------*/
@@ -197,6 +214,21 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 		this.federatedServiceResolver = resolver;
 	}
 
+	@Override
+	public void setQueryProfiling(boolean profiling) {
+		this.queryProfiling = profiling;
+	}
+
+	@Override
+	public boolean isQueryProfiling() {
+		return queryProfiling;
+	}
+
+	@Override
+	public QueryProfile getLastQueryProfile() {
+		return lastQueryProfile;
+	}
+
 	protected EvaluationStrategy getEvaluationStrategy(Dataset dataset, TripleSource tripleSource) {
 		EvaluationStrategy evalStrat = evalStratFactory.createEvaluationStrategy(dataset, tripleSource);
 		if (federatedServiceResolver != null && evalStrat instanceof FederatedServiceResolverClient) {
@@ -211,14 +243,20 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 		flush();
 		logger.trace("Incoming query model:\n{}", tupleExpr);
 
-		// Clone the tuple expression to allow for more aggresive optimizations
-		tupleExpr = tupleExpr.clone();
-
-		if (!(tupleExpr instanceof QueryRoot)) {
-			// Add a dummy root node to the tuple expressions to allow the
-			// optimizers to modify the actual root node
-			tupleExpr = new QueryRoot(tupleExpr);
+		QueryResultCache resultCache = getQueryResultCache();
+		long revision = 0;
+		if (resultCache != null && !isActive() && QueryResultCache.isCacheable(tupleExpr)) {
+			// read the revision before the store, so that results are not cached if it changes in the meantime
+			revision = resultCache.getRevision();
+			CloseableIteration<BindingSet, QueryEvaluationException> cached = resultCache.get(tupleExpr, dataset,
+					bindings, includeInferred);
+			if (cached != null) {
+				return cached;
+			}
+		} else {
+			resultCache = null;
 		}
+		TupleExpr query = tupleExpr;
 
 		SailSource branch = null;
 		SailDataset rdfDataset = null;
@@ -233,26 +271,30 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 			TripleSource tripleSource = new SailDatasetTripleSource(vf, rdfDataset);
 			EvaluationStrategy strategy = getEvaluationStrategy(dataset, tripleSource);
 
-			new BindingAssigner().optimize(tupleExpr, dataset, bindings);
-			new ConstantOptimizer(strategy).optimize(tupleExpr, dataset, bindings);
-			// The regex as string function optimizer works better if the constants are resolved
-			new RegexAsStringFunctionOptimizer(vf).optimize(tupleExpr, dataset, bindings);
-			new CompareOptimizer().optimize(tupleExpr, dataset, bindings);
-			new ConjunctiveConstraintSplitter().optimize(tupleExpr, dataset, bindings);
-			new DisjunctiveConstraintOptimizer().optimize(tupleExpr, dataset, bindings);
-			new SameTermFilterOptimizer().optimize(tupleExpr, dataset, bindings);
-			new QueryModelNormalizer().optimize(tupleExpr, dataset, bindings);
-			new QueryJoinOptimizer(store.getEvaluationStatistics()).optimize(tupleExpr, dataset, bindings);
-			// new SubSelectJoinOptimizer().optimize(tupleExpr, dataset,
-			// bindings);
-			new IterativeEvaluationOptimizer().optimize(tupleExpr, dataset, bindings);
-			new FilterOptimizer().optimize(tupleExpr, dataset, bindings);
-			new OrderLimitOptimizer().optimize(tupleExpr, dataset, bindings);
+			QueryPlanCache planCache = getQueryPlanCache();
+			if (planCache != null && QueryPlanCache.isCacheable(tupleExpr)) {
+				tupleExpr = planCache.getPlan(tupleExpr, dataset, bindings.getBindingNames(), includeInferred,
+						store.getEvaluationStatistics(),
+						query -> optimize(query, dataset, bindings, strategy, tripleSource, true));
+				// the cached plan does not contain the values of the bindings
+				new BindingAssigner().optimize(tupleExpr, dataset, bindings);
+			} else {
+				tupleExpr = optimize(tupleExpr, dataset, bindings, strategy, tripleSource, false);
+			}
 
 			logger.trace("Optimized query model:\n{}", tupleExpr);
 
+			if (queryProfiling && strategy instanceof StrictEvaluationStrategy) {
+				QueryProfile profile = new QueryProfile(tupleExpr, store.getEvaluationStatistics());
+				((StrictEvaluationStrategy) strategy).setQueryProfile(profile);
+				lastQueryProfile = profile;
+			}
+
 			iter1 = strategy.evaluate(tupleExpr, EmptyBindingSet.getInstance());
 			iter2 = interlock(iter1, rdfDataset, branch);
+			if (resultCache != null) {
+				iter2 = resultCache.record(query, dataset, bindings, includeInferred, revision, iter2);
+			}
 			allGood = true;
 			return iter2;
 		} catch (QueryEvaluationException e) {
@@ -284,6 +326,106 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 		}
 	}
 
+	/**
+	 * Optimizes a copy of a query model.
+	 *
+	 * @param tripleSource the triple source of which the supported statement orders determine where merge joins are
+	 *                     used. The plan remains correct if it is evaluated with another triple source.
+	 * @param reusable     whether the plan is reused for other values of the bindings. The values are then not used
+	 *                     by the optimizers, and must be assigned to the plan before it is evaluated.
+	 * @return the optimized copy.
+	 */
+	private TupleExpr optimize(TupleExpr query, Dataset dataset, BindingSet bindings, EvaluationStrategy strategy,
+			TripleSource tripleSource, boolean reusable) {
+		// Clone the tuple expression to allow for more aggresive optimizations
+		TupleExpr tupleExpr = query.clone();
+
+		if (!(tupleExpr instanceof QueryRoot)) {
+			// Add a dummy root node to the tuple expressions to allow the
+			// optimizers to modify the actual root node
+			tupleExpr = new QueryRoot(tupleExpr);
+		}
+
+		BindingSet values = bindings;
+		if (reusable) {
+			values = EmptyBindingSet.getInstance();
+		} else {
+			new BindingAssigner().optimize(tupleExpr, dataset, bindings);
+		}
+		new ConstantOptimizer(strategy).optimize(tupleExpr, dataset, values);
+		// The regex as string function optimizer works better if the constants are resolved
+		new RegexAsStringFunctionOptimizer(vf).optimize(tupleExpr, dataset, values);
+		new CompareOptimizer().optimize(tupleExpr, dataset, values);
+		new ConjunctiveConstraintSplitter().optimize(tupleExpr, dataset, values);
+		new DisjunctiveConstraintOptimizer().optimize(tupleExpr, dataset, values);
+		if (!reusable || bindings.size() == 0) {
+			// renames variables, which would not be assigned their values afterwards
+			new SameTermFilterOptimizer().optimize(tupleExpr, dataset, values);
+		}
+		new QueryModelNormalizer().optimize(tupleExpr, dataset, values);
+		int maxJoinEnumerationSize = getMaxJoinEnumerationSize();
+		if (maxJoinEnumerationSize > 0) {
+			new DynamicProgrammingJoinOptimizer(store.getEvaluationStatistics(), maxJoinEnumerationSize)
+					.optimize(tupleExpr, dataset, values);
+		} else {
+			new QueryJoinOptimizer(store.getEvaluationStatistics()).optimize(tupleExpr, dataset, values);
+		}
+		// new SubSelectJoinOptimizer().optimize(tupleExpr, dataset,
+		// bindings);
+		new IterativeEvaluationOptimizer().optimize(tupleExpr, dataset, values);
+		new FilterOptimizer().optimize(tupleExpr, dataset, values);
+		new OrderLimitOptimizer().optimize(tupleExpr, dataset, values);
+		// the bound variables are known either way
+		new JoinAlgorithmOptimizer(store.getEvaluationStatistics(), JoinAlgorithmOptimizer.DEFAULT_MAX_HASH_TABLE_SIZE,
+				tripleSource).optimize(tupleExpr, dataset, bindings);
+		return tupleExpr;
+	}
+
+	/**
+	 * Gets the cache in which the optimized plans of queries are kept, so that they can be reused when the same query
+	 * is evaluated again, possibly with other values for its bindings.
+	 *
+	 * @return the cache, or <tt>null</tt> if query plans are not cached, which is the default.
+	 */
+	protected QueryPlanCache getQueryPlanCache() {
+		return null;
+	}
+
+	/**
+	 * Gets the cache in which the results of queries are kept, so that they can be reused when the same query is
+	 * evaluated again before the store changes. Results are only cached for queries that are evaluated outside of a
+	 * transaction.
+	 *
+	 * @return the cache, or <tt>null</tt> if query results are not cached, which is the default.
+	 */
+	protected QueryResultCache getQueryResultCache() {
+		return null;
+	}
+
+	/**
+	 * Starts a new revision of the cached query results, if any statements were changed since the last revision.
+	 */
+	private void invalidateQueryResults() {
+		if (statementsModified) {
+			statementsModified = false;
+			QueryResultCache resultCache = getQueryResultCache();
+			if (resultCache != null) {
+				resultCache.invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Gets the maximum number of join arguments that are ordered by the {@link DynamicProgrammingJoinOptimizer}, which
+	 * considers all orders of the join arguments without cartesian products.
+	 *
+	 * @return the maximum number of join arguments, or 0 if joins are ordered by the {@link QueryJoinOptimizer}, which
+	 *         is the default.
+	 */
+	protected int getMaxJoinEnumerationSize() {
+		return 0;
+	}
+
 	@Override
 	protected void closeInternal() throws SailException {
 		// no-op
@@ -390,8 +532,12 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 				toCloseInferredBranch.flush();
 			}
 		} finally {
-			if (toCloseInferredBranch != null) {
-				toCloseInferredBranch.close();
+			try {
+				if (toCloseInferredBranch != null) {
+					toCloseInferredBranch.close();
+				}
+			} finally {
+				invalidateQueryResults();
 			}
 		}
 	}
@@ -497,6 +643,7 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 			}
 			assert explicitSinks.containsKey(op);
 			add(subj, pred, obj, datasets.get(op), explicitSinks.get(op), contexts);
+			statementsModified = true;
 		}
 		addStatementInternal(subj, pred, obj, contexts);
 	}
@@ -514,58 +661,121 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 				explicitSinks.put(null, source.sink(getIsolationLevel()));
 			}
 			assert explicitSinks.containsKey(op);
-			remove(subj, pred, obj, datasets.get(op), explicitSinks.get(op), contexts);
+			if (remove(subj, pred, obj, datasets.get(op), explicitSinks.get(op), contexts)) {
+				statementsModified = true;
+			}
 		}
 		removeStatementsInternal(subj, pred, obj, contexts);
 	}
 
+	/**
+	 * Adds the statements to the sink of the update operation at once, instead of looking up the sink for every
+	 * statement.
+	 */
 	@Override
-	protected void endUpdateInternal(UpdateContext op) throws SailException {
+	public void addStatements(UpdateContext op, Collection<? extends Statement> statements) throws SailException {
+		verifyIsOpen();
+		verifyIsActive();
 		synchronized (datasets) {
-			SailSink toCloseInferredSink = inferredSink;
-			inferredSink = null;
-			SailDataset toCloseExplicitOnlyDataset = explicitOnlyDataset;
-			explicitOnlyDataset = null;
-			SailDataset toCloseInferredDataset = inferredDataset;
-			inferredDataset = null;
-			try {
-				if (toCloseInferredSink != null) {
-					toCloseInferredSink.flush();
+			if (op == null && !datasets.containsKey(null)) {
+				SailSource source = branch(false);
+				datasets.put(null, source.dataset(getIsolationLevel()));
+				explicitSinks.put(null, source.sink(getIsolationLevel()));
+			}
+			assert explicitSinks.containsKey(op);
+			SailDataset dataset = datasets.get(op);
+			SailSink sink = explicitSinks.get(op);
+			for (Statement st : statements) {
+				add(st.getSubject(), st.getPredicate(), st.getObject(), dataset, sink, st.getContext());
+			}
+			if (!statements.isEmpty()) {
+				statementsModified = true;
+			}
+		}
+		for (Statement st : statements) {
+			addStatementInternal(st.getSubject(), st.getPredicate(), st.getObject(), st.getContext());
+		}
+	}
+
+	/**
+	 * Removes the statements from the sink of the update operation at once. Pending updates are flushed once for the
+	 * whole batch, instead of once for every statement.
+	 */
+	@Override
+	public void removeStatements(UpdateContext op, Collection<? extends Statement> statements, Resource[] contexts)
+			throws SailException {
+		verifyIsOpen();
+		verifyIsActive();
+		flush();
+		synchronized (datasets) {
+			if (op == null && !datasets.containsKey(null)) {
+				SailSource source = branch(false);
+				datasets.put(null, source.dataset(getIsolationLevel()));
+				explicitSinks.put(null, source.sink(getIsolationLevel()));
+			}
+			assert explicitSinks.containsKey(op);
+			SailDataset dataset = datasets.get(op);
+			SailSink sink = explicitSinks.get(op);
+			for (Statement st : statements) {
+				if (remove(st.getSubject(), st.getPredicate(), st.getObject(), dataset, sink, contexts)) {
+					statementsModified = true;
 				}
-			} finally {
+			}
+		}
+		for (Statement st : statements) {
+			removeStatementsInternal(st.getSubject(), st.getPredicate(), st.getObject(), contexts);
+		}
+	}
+
+	@Override
+	protected void endUpdateInternal(UpdateContext op) throws SailException {
+		try {
+			synchronized (datasets) {
+				SailSink toCloseInferredSink = inferredSink;
+				inferredSink = null;
+				SailDataset toCloseExplicitOnlyDataset = explicitOnlyDataset;
+				explicitOnlyDataset = null;
+				SailDataset toCloseInferredDataset = inferredDataset;
+				inferredDataset = null;
 				try {
 					if (toCloseInferredSink != null) {
-						toCloseInferredSink.close();
+						toCloseInferredSink.flush();
 					}
 				} finally {
 					try {
-						if (toCloseExplicitOnlyDataset != null) {
-							toCloseExplicitOnlyDataset.close();
+						if (toCloseInferredSink != null) {
+							toCloseInferredSink.close();
 						}
 					} finally {
 						try {
-							if (toCloseInferredDataset != null) {
-								toCloseInferredDataset.close();
+							if (toCloseExplicitOnlyDataset != null) {
+								toCloseExplicitOnlyDataset.close();
 							}
 						} finally {
-							SailSink explicit = null;
 							try {
-								explicit = explicitSinks.remove(op);
-								if (explicit != null) {
-									explicit.flush();
+								if (toCloseInferredDataset != null) {
+									toCloseInferredDataset.close();
 								}
 							} finally {
+								SailSink explicit = null;
 								try {
+									explicit = explicitSinks.remove(op);
 									if (explicit != null) {
-										explicit.close();
+										explicit.flush();
 									}
 								} finally {
-									SailDataset toCloseDataset = null;
 									try {
-										toCloseDataset = datasets.remove(op);
+										if (explicit != null) {
+											explicit.close();
+										}
 									} finally {
-										if (toCloseDataset != null) {
-											toCloseDataset.close();
+										SailDataset toCloseDataset = null;
+										try {
+											toCloseDataset = datasets.remove(op);
+										} finally {
+											if (toCloseDataset != null) {
+												toCloseDataset.close();
+											}
 										}
 									}
 								}
@@ -574,6 +784,11 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 					}
 				}
 			}
+		} finally {
+			if (includeInferredBranch == null) {
+				// the changes have been written to the store itself, as the transaction is not isolated
+				invalidateQueryResults();
+			}
 		}
 	}
 
@@ -618,6 +833,9 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 					}
 				}
 			}
+			if (modified) {
+				statementsModified = true;
+			}
 			return modified;
 		}
 	}
@@ -653,7 +871,11 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 				explicitOnlyDataset = branch(false).dataset(level);
 			}
 			removeStatementsInternal(subj, pred, obj, contexts);
-			return remove(subj, pred, obj, inferredDataset, inferredSink, contexts);
+			boolean removed = remove(subj, pred, obj, inferredDataset, inferredSink, contexts);
+			if (removed) {
+				statementsModified = true;
+			}
+			return removed;
 		}
 	}
 
@@ -687,6 +909,7 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 				remove(null, null, null, datasets.get(null), explicitSinks.get(null), contexts);
 			}
 			explicitSinks.get(null).clear(contexts);
+			statementsModified = true;
 		}
 	}
 
@@ -706,6 +929,7 @@ public abstract class SailSourceConnection extends NotifyingSailConnectionBase
 				remove(null, null, null, inferredDataset, inferredSink, contexts);
 			}
 			inferredSink.clear(contexts);
+			statementsModified = true;
 		}
 	}
 
@@ -7,15 +7,21 @@
  *******************************************************************************/
 package org.eclipse.rdf4j.sail.base;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
 import org.eclipse.rdf4j.common.iteration.UnionIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Namespace;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.algebra.evaluation.StatementOrder;
 import org.eclipse.rdf4j.sail.SailException;
 
 /**
@@ -93,9 +99,129 @@ class UnionSailDataset implements SailDataset {
 		return union(result);
 	}
 
+	@Override
+	public long getValueId(Value value) throws SailException {
+		// only identifiers that all datasets agree on can be used for the union
+		long id = -1;
+		for (int i = 0; i < datasets.length; i++) {
+			long other = datasets[i].getValueId(value);
+			if (i > 0 && other != id) {
+				return -1;
+			}
+			id = other;
+		}
+		return id;
+	}
+
+	@Override
+	public Set<StatementOrder> getSupportedOrders(Resource subj, IRI pred, Value obj, Resource... contexts)
+			throws SailException {
+		Set<StatementOrder> orders = EnumSet.allOf(StatementOrder.class);
+		for (SailDataset dataset : datasets) {
+			orders.retainAll(dataset.getSupportedOrders(subj, pred, obj, contexts));
+			if (orders.isEmpty()) {
+				break;
+			}
+		}
+		return orders;
+	}
+
+	@Override
+	public CloseableIteration<? extends Statement, SailException> getOrderedStatements(StatementOrder order,
+			Resource subj, IRI pred, Value obj, Resource... contexts) throws SailException {
+		List<CloseableIteration<? extends Statement, SailException>> result = new ArrayList<>(datasets.length);
+		try {
+			for (SailDataset dataset : datasets) {
+				result.add(dataset.getOrderedStatements(order, subj, pred, obj, contexts));
+			}
+		} catch (SailException | RuntimeException e) {
+			for (CloseableIteration<? extends Statement, SailException> iter : result) {
+				iter.close();
+			}
+			throw e;
+		}
+		if (result.size() == 1) {
+			return result.get(0);
+		}
+		return new MergeIteration(order, result);
+	}
+
 	private <T> CloseableIteration<? extends T, SailException> union(
 			CloseableIteration<? extends T, SailException>[] items) {
 		return new UnionIteration<>(items);
 	}
 
+	/**
+	 * Merges the ordered statements of the datasets into a single sequence that has the same order.
+	 */
+	private class MergeIteration extends LookAheadIteration<Statement, SailException> {
+
+		private final StatementOrder order;
+
+		private final List<CloseableIteration<? extends Statement, SailException>> iters;
+
+		/**
+		 * The next statement of each iteration, or <tt>null</tt> if the iteration is exhausted.
+		 */
+		private final Statement[] heads;
+
+		private final long[] headIds;
+
+		private boolean started;
+
+		public MergeIteration(StatementOrder order,
+				List<CloseableIteration<? extends Statement, SailException>> iters) {
+			this.order = order;
+			this.iters = iters;
+			this.heads = new Statement[iters.size()];
+			this.headIds = new long[iters.size()];
+		}
+
+		@Override
+		protected Statement getNextElement() throws SailException {
+			if (!started) {
+				started = true;
+				for (int i = 0; i < heads.length; i++) {
+					advance(i);
+				}
+			}
+			int min = -1;
+			for (int i = 0; i < heads.length; i++) {
+				if (heads[i] != null && (min < 0 || headIds[i] < headIds[min])) {
+					min = i;
+				}
+			}
+			if (min < 0) {
+				return null;
+			}
+			Statement next = heads[min];
+			advance(min);
+			return next;
+		}
+
+		private void advance(int i) throws SailException {
+			CloseableIteration<? extends Statement, SailException> iter = iters.get(i);
+			if (iter.hasNext()) {
+				heads[i] = iter.next();
+				headIds[i] = getValueId(order.getValue(heads[i]));
+				if (headIds[i] < 0) {
+					throw new SailException("Value has no identifier: " + order.getValue(heads[i]));
+				}
+			} else {
+				heads[i] = null;
+			}
+		}
+
+		@Override
+		protected void handleClose() throws SailException {
+			try {
+				super.handleClose();
+			} finally {
+				for (CloseableIteration<? extends Statement, SailException> iter : iters) {
+					iter.close();
+				}
+			}
+		}
+	}
+
 }
@@ -39,6 +39,8 @@ import org.eclipse.rdf4j.sail.shacl.planNodes.Tuple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -180,6 +182,36 @@ public class ShaclSailConnection extends NotifyingSailConnectionWrapper implemen
 		}
 	}
 
+	@Override
+	public void addStatements(UpdateContext modify, Collection<? extends Statement> statements)
+			throws SailException {
+		List<Statement> data = new ArrayList<>(statements.size());
+		for (Statement st : statements) {
+			if (RDF4J.SHACL_SHAPE_GRAPH.equals(st.getContext())) {
+				shapesConnection.add(st.getSubject(), st.getPredicate(), st.getObject());
+				isShapeRefreshNeeded = true;
+			} else {
+				data.add(st);
+			}
+		}
+		if (!data.isEmpty()) {
+			super.addStatements(modify, data);
+		}
+	}
+
+	@Override
+	public void removeStatements(UpdateContext modify, Collection<? extends Statement> statements,
+			Resource[] contexts) throws SailException {
+		if (contexts.length == 1 && RDF4J.SHACL_SHAPE_GRAPH.equals(contexts[0])) {
+			for (Statement st : statements) {
+				shapesConnection.remove(st.getSubject(), st.getPredicate(), st.getObject());
+			}
+			isShapeRefreshNeeded = true;
+		} else {
+			super.removeStatements(modify, statements, contexts);
+		}
+	}
+
 	@Override
 	public void addStatement(Resource subj, IRI pred, Value obj, Resource... contexts) throws SailException {
 		if (contexts.length == 1 && RDF4J.SHACL_SHAPE_GRAPH.equals(contexts[0])) {